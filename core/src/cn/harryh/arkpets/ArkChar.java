@@ -8,18 +8,25 @@ import cn.harryh.arkpets.animations.AnimClip.AnimStage;
 import cn.harryh.arkpets.animations.AnimClipGroup;
 import cn.harryh.arkpets.animations.AnimComposer;
 import cn.harryh.arkpets.animations.AnimData;
+import cn.harryh.arkpets.animations.PoseCache;
 import cn.harryh.arkpets.assets.AssetItem.AssetAccessor;
-import cn.harryh.arkpets.transitions.TernaryFunction;
-import cn.harryh.arkpets.transitions.TransitionFloat;
-import cn.harryh.arkpets.transitions.TransitionVector3;
+import cn.harryh.arkpets.transitions.EasingFunction;
+import cn.harryh.arkpets.transitions.Float3Transition;
+import cn.harryh.arkpets.transitions.FloatTransition;
+import cn.harryh.arkpets.utils.BakedFrameCache;
+import cn.harryh.arkpets.utils.CanvasFittingCache;
 import cn.harryh.arkpets.utils.DynamicOrthographicCamara;
 import cn.harryh.arkpets.utils.DynamicOrthographicCamara.Insert;
 import cn.harryh.arkpets.utils.Logger;
+import cn.harryh.arkpets.utils.SkeletonDataCache;
+import cn.harryh.arkpets.utils.SkeletonHitTester;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.Pixmap.Format;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.SerializationException;
@@ -27,6 +34,8 @@ import com.esotericsoftware.spine.*;
 import com.esotericsoftware.spine.utils.TwoColorPolygonBatch;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 
 import static cn.harryh.arkpets.Const.*;
 import static java.io.File.separator;
@@ -34,16 +43,39 @@ import static java.io.File.separator;
 
 public class ArkChar {
     protected final DynamicOrthographicCamara camera;
-    protected final TransitionVector3 position;
+    protected final Float3Transition position;
 
     private final TwoColorPolygonBatch batch;
     private Texture bgTexture;
     private final AnimComposer composer;
-    private final TransitionFloat offsetY;
+    private final FloatTransition offsetY;
 
+    private final SkeletonDataCache.Entry skeletonAssets;
     private final Skeleton skeleton;
     private final SkeletonRenderer renderer;
     private final AnimationState animationState;
+    private final SkeletonHitTester hitTester;
+    private SkeletonHitTester.Mode hitTestMode;
+    private final PoseCache poseCache;
+
+    private final float scale;
+    private final boolean useFittingCache;
+    private final boolean skipStaticFrames;
+    private final Matrix4 presentProjection = new Matrix4();
+    private FrameBuffer presentBuffer;
+    private long lastPoseHash;
+    private long drawnFrameCount;
+    private long skippedFrameCount;
+
+    private final BakedFrameCache<BakedKey> bakedFrames;
+    private final HashSet<BakedKey> unbakeableKeys;
+    private final Skeleton bakeSkeleton;
+    private final float bakeFps;
+    private boolean isWorldTransformStale;
+    private long liveFrameNanos;
+    private long liveFrameCount;
+    private long bakedFrameNanos;
+    private long bakedFrameCount;
 
     protected final AnimClipGroup animList;
     protected final HashMap<AnimStage, Insert> stageInsertMap;
@@ -62,9 +94,12 @@ public class ArkChar {
         /* Pre-multiplied alpha shouldn't be applied to models released in Arknights 2.1.41 or later,
         otherwise you may get a corrupted rendering result. */
         renderer.setPremultipliedAlpha(false);
+        skipStaticFrames = config.display_skip_static_frames;
+        this.scale = scale;
+        useFittingCache = config.canvas_fitting_cache;
         // 2.Geometry setup
-        position = new TransitionVector3(TernaryFunction.EASE_OUT_CUBIC, easingDuration);
-        offsetY = new TransitionFloat(TernaryFunction.EASE_OUT_CUBIC, easingDuration);
+        position = new Float3Transition(EasingFunction.EASE_OUT_CUBIC, easingDuration);
+        offsetY = new FloatTransition(EasingFunction.EASE_OUT_CUBIC, easingDuration);
         // 3.Skeleton setup
         SkeletonData skeletonData;
         try {
@@ -72,18 +107,33 @@ public class ArkChar {
             AssetAccessor assetAccessor = new AssetAccessor(config.character_files);
             String path2atlas = assetLocation + separator + assetAccessor.getFirstFileOf(".atlas");
             String path2skel = assetLocation + separator + assetAccessor.getFirstFileOf(".skel");
-            // Load atlas
-            TextureAtlas atlas = new TextureAtlas(Gdx.files.internal(path2atlas));
-            // Load skel (use SkeletonJson instead of SkeletonBinary if the file type is JSON)
-            SkeletonBinary binary = new SkeletonBinary(atlas);
-            binary.setScale(scale);
-            skeletonData = binary.readSkeletonData(Gdx.files.internal(path2skel));
+            // Load atlas and skel, or share them with the characters of the same model
+            skeletonAssets = SkeletonDataCache.getInstance().acquire(path2atlas, path2skel, scale);
+            skeletonData = skeletonAssets.skeletonData;
         } catch (SerializationException | GdxRuntimeException e) {
             Logger.error("Character", "The model asset may be inaccessible, details see below.", e);
             throw new RuntimeException("Launch ArkPets failed, the model asset may be inaccessible.");
         }
         skeleton = new Skeleton(skeletonData);
         skeleton.updateWorldTransform();
+        hitTester = skeletonAssets.alphaMasks != null ? new SkeletonHitTester(skeletonAssets.alphaMasks) : new SkeletonHitTester();
+        setHitTestMode(SkeletonHitTester.Mode.GEOMETRY_ALPHA);
+        if (config.display_pose_cache) {
+            // Sample the shared skeleton data only once, since the sampling replaces its timelines
+            poseCache = skeletonAssets.getPoseCache(config.display_pose_cache_size * 1024L * 1024L, config.display_pose_cache_quantized);
+        } else {
+            poseCache = null;
+        }
+        if (config.display_baked_playback) {
+            bakedFrames = new BakedFrameCache<>(config.display_baked_cache_size * 1024L * 1024L);
+            bakeSkeleton = new Skeleton(skeletonData);
+            Logger.info("Character", "Baked playback enabled, cache budget " + config.display_baked_cache_size + " MB");
+        } else {
+            bakedFrames = null;
+            bakeSkeleton = null;
+        }
+        unbakeableKeys = new HashSet<>();
+        bakeFps = config.display_fps;
         animList = new AnimClipGroup(skeletonData.getAnimations().toArray(Animation.class));
         // 4.Animation mixing
         AnimationStateData asd = new AnimationStateData(skeletonData);
@@ -100,15 +150,44 @@ public class ArkChar {
                 Logger.debug("Animation", "Apply " + playing);
                 // Sync skeleton position data
                 offsetY.reset((float)playing.offsetY());
-                position.reset(position.end().x, position.end().y, playing.mobility() != 0 ? playing.mobility() : position.end().z);
+                position.reset(position.endX(), position.endY(), playing.mobility() != 0 ? playing.mobility() : position.endZ());
             }
         };
         // 6.Canvas setup
         setCanvas(Color.CLEAR);
         stageInsertMap = new HashMap<>();
-        for (AnimStage stage : animList.clusterByStage().keySet()) {
+    }
+
+    /** Figures out the suitable canvas size of every animation stage,
+     * which renders every animation at the given samples, so it is the heaviest part of the setup.
+     * If the fitting cache is enabled, the result of the same model, scale and samples is reused,
+     * and the rendering is skipped.
+     * @param fittingSamples The number of the frames to sample per animation.
+     */
+    public void fitCanvas(int fittingSamples) {
+        long startTime = System.nanoTime();
+        String cacheKey = null;
+        if (useFittingCache) {
+            try {
+                cacheKey = CanvasFittingCache.getKey(skeletonAssets.getDigest(), scale, fittingSamples);
+            } catch (GdxRuntimeException e) {
+                Logger.warn("Character", "Canvas fitting cache is unavailable: " + e.getMessage());
+            }
+        }
+        Set<AnimStage> stages = animList.clusterByStage().keySet();
+        if (cacheKey != null) {
+            HashMap<AnimStage, Insert> cached = CanvasFittingCache.load(cacheKey);
+            if (cached != null && cached.keySet().equals(stages)) {
+                stageInsertMap.putAll(cached);
+                camera.setInsertMaxed();
+                Logger.info("Character", "Canvas fitting cache hit, " + stages.size() + " stages loaded in " +
+                        (System.nanoTime() - startTime) / 1000 + " us");
+                return;
+            }
+        }
+        for (AnimStage stage : stages) {
             // Figure out the suitable canvas size
-            adjustCanvas(animList.findAnimations(stage), config.canvas_fitting_samples);
+            adjustCanvas(animList.findAnimations(stage), fittingSamples);
             if (!camera.isInsertMaxed()) {
                 // Succeeded
                 stageInsertMap.put(stage, camera.getInsert().clone());
@@ -119,6 +198,11 @@ public class ArkChar {
             }
         }
         camera.setInsertMaxed();
+        if (cacheKey != null) {
+            CanvasFittingCache.save(cacheKey, stageInsertMap);
+            Logger.info("Character", "Canvas fitting cache miss, " + stages.size() + " stages fitted in " +
+                    (System.nanoTime() - startTime) / 1000 + " us");
+        }
     }
 
     /** Sets the canvas with the specified background color.
@@ -162,6 +246,37 @@ public class ArkChar {
         return pixel;
     }
 
+    /** Returns true if the specified pixel of the character is solid.
+     * Note that the coordinate origin is at the bottom-left corner, the same as {@link #getPixel(int, int)}.
+     * @param x The X-axis coordinate.
+     * @param y The Y-axis coordinate.
+     * @return true=solid, false=transparent.
+     */
+    public boolean isSolidAt(int x, int y) {
+        if (hitTestMode == SkeletonHitTester.Mode.FRAMEBUFFER)
+            return (getPixel(x, y) & 0x000000FF) > 0;
+        if (isWorldTransformStale) {
+            // The baked playback doesn't update the world transform, so update it on demand
+            skeleton.updateWorldTransform();
+            isWorldTransformStale = false;
+        }
+        // Map the pixel's center to the world coordinate of the camera
+        float worldX = (x + 0.5f) * camera.viewportWidth / Gdx.graphics.getBackBufferWidth();
+        float worldY = (y + 0.5f) * camera.viewportHeight / Gdx.graphics.getBackBufferHeight();
+        return hitTester.isSolidAt(skeleton, worldX, worldY, hitTestMode == SkeletonHitTester.Mode.GEOMETRY_ALPHA);
+    }
+
+    /** Sets the way to determine whether a pixel of the character is solid.
+     * If the texture alpha lookup is unavailable, {@code GEOMETRY_ALPHA} will be downgraded to {@code GEOMETRY}.
+     * @param mode The hit-test mode.
+     */
+    public void setHitTestMode(SkeletonHitTester.Mode mode) {
+        if (mode == SkeletonHitTester.Mode.GEOMETRY_ALPHA && !hitTester.hasAlphaMasks())
+            mode = SkeletonHitTester.Mode.GEOMETRY;
+        hitTestMode = mode;
+        Logger.info("Character", "Hit-test mode is " + hitTestMode);
+    }
+
     /** Adjusts the canvas' geometry to fit the given stage.
      * @param animStage The stage to be fitted.
      * @throws IndexOutOfBoundsException If the given stage isn't in the internal stage map.
@@ -176,26 +291,238 @@ public class ArkChar {
      * The animation will be updated according to {@code Gdx.graphics.getDeltaTime()}.
      */
     protected void renderToBatch() {
+        long startTime = System.nanoTime();
         // Update skeleton position
-        position.reset(camera.getWidth() >> 1, position.end().y, position.end().z);
+        position.reset(camera.getWidth() >> 1, position.endY(), position.endZ());
         position.addProgress(Gdx.graphics.getDeltaTime());
         offsetY.addProgress(Gdx.graphics.getDeltaTime());
-        skeleton.setPosition(position.now().x, position.now().y + offsetY.now());
-        skeleton.setScaleX(position.now().z);
-        skeleton.updateWorldTransform();
+        skeleton.setPosition(position.nowX(), position.nowY() + offsetY.now());
+        skeleton.setScaleX(position.nowZ());
+        // Use the baked frame if available, otherwise update the skeleton
+        Texture bakedFrame = bakedFrames != null ? getBakedFrame(animationState.getCurrent(0)) : null;
+        if (bakedFrame == null)
+            skeleton.updateWorldTransform();
         // Apply current animation
         animationState.apply(skeleton);
+        if (poseCache != null && animationState.getCurrent(0) != null)
+            poseCache.recordPlayback(animationState.getCurrent(0).getAnimation().getName());
         animationState.update(Gdx.graphics.getDeltaTime());
+        // Present the last drawn frame again if the pose is unchanged
+        if (skipStaticFrames) {
+            long poseHash = bakedFrame == null ? getPoseHash() : getBakedFrameHash(bakedFrame);
+            if (validatePresentBuffer() && poseHash == lastPoseHash) {
+                skippedFrameCount++;
+                presentBuffer();
+                return;
+            }
+            lastPoseHash = poseHash;
+        }
+        drawnFrameCount++;
+        if (presentBuffer != null)
+            presentBuffer.begin();
         // Reset the canvas
         ScreenUtils.clear(0, 0, 0, 0, true);
         batch.getProjectionMatrix().set(camera.combined);
         // Render the skeleton
         batch.begin();
         batch.draw(bgTexture, 0, 0);
-        renderer.draw(batch, skeleton);
+        if (bakedFrame == null) {
+            renderer.draw(batch, skeleton);
+        } else {
+            // The baked frame was blended onto a cleared buffer as well, so just copy it
+            batch.disableBlending();
+            batch.draw(bakedFrame, 0, position.nowY() + offsetY.now(), camera.getWidth(), camera.getHeight(),
+                    0, 0, bakedFrame.getWidth(), bakedFrame.getHeight(), false, true);
+            batch.enableBlending();
+        }
+        batch.end();
+        if (presentBuffer != null) {
+            presentBuffer.end();
+            presentBuffer();
+        }
+        hitTester.invalidate();
+        isWorldTransformStale = bakedFrame != null;
+        // Record the time cost
+        if (bakedFrame == null) {
+            liveFrameNanos += System.nanoTime() - startTime;
+            liveFrameCount++;
+        } else {
+            bakedFrameNanos += System.nanoTime() - startTime;
+            bakedFrameCount++;
+        }
+    }
+
+    /** Releases the resources of the character, including its reference to the shared skeleton assets.
+     * The character must not be used after disposal.
+     */
+    public void dispose() {
+        if (bakedFrames != null)
+            bakedFrames.clear();
+        if (presentBuffer != null)
+            presentBuffer.dispose();
+        bgTexture.dispose();
+        batch.dispose();
+        SkeletonDataCache.getInstance().release(skeletonAssets);
+    }
+
+    /** Gets the statistics of the rendering, which can be compared among the models.
+     * @return The statistics.
+     */
+    public RenderStats getRenderStats() {
+        return new RenderStats(drawnFrameCount, skippedFrameCount, liveFrameCount, liveFrameNanos, bakedFrameCount, bakedFrameNanos);
+    }
+
+    @Override
+    public String toString() {
+        String stats = "ArkChar " + getRenderStats();
+        if (poseCache != null)
+            stats += "; " + poseCache;
+        return bakedFrames == null ? stats : stats + "; " + bakedFrames;
+    }
+
+    /** Makes sure the present buffer matches the back buffer, recreating it if the canvas has been resized.
+     * @return true if the buffer holds the last drawn frame, false if it has been recreated or is unavailable.
+     */
+    private boolean validatePresentBuffer() {
+        int width = Gdx.graphics.getBackBufferWidth();
+        int height = Gdx.graphics.getBackBufferHeight();
+        if (presentBuffer != null && presentBuffer.getWidth() == width && presentBuffer.getHeight() == height)
+            return true;
+        if (presentBuffer != null)
+            presentBuffer.dispose();
+        presentBuffer = width > 0 && height > 0 ? new FrameBuffer(Format.RGBA8888, width, height, false) : null;
+        return false;
+    }
+
+    /** Copies the present buffer to the back buffer, so that every swapped buffer holds a complete frame.
+     */
+    private void presentBuffer() {
+        int width = presentBuffer.getWidth();
+        int height = presentBuffer.getHeight();
+        presentProjection.setToOrtho2D(0, 0, width, height);
+        batch.getProjectionMatrix().set(presentProjection);
+        batch.begin();
+        batch.disableBlending();
+        batch.draw(presentBuffer.getColorBufferTexture(), 0, 0, width, height, 0, 0, width, height, false, true);
+        batch.enableBlending();
         batch.end();
     }
 
+    /** Gets the baked frame of the current animation, baking the animation if it has not been baked yet.
+     * @param entry The current track entry.
+     * @return The texture of the baked frame, or {@code null} if the frame should be rendered lively.
+     */
+    private Texture getBakedFrame(AnimationState.TrackEntry entry) {
+        // Mixing transitions and turning around are always rendered lively
+        if (entry == null || entry.getMixingFrom() != null || Math.abs(position.nowZ()) != 1)
+            return null;
+        // The frames are baked through the camera, so a different insert needs different frames
+        Insert insert = camera.getInsert();
+        BakedKey key = new BakedKey(entry.getAnimation().getName(), position.nowZ() < 0,
+                insert.top, insert.bottom, insert.left, insert.right);
+        if (unbakeableKeys.contains(key))
+            return null;
+        int width = Gdx.graphics.getBackBufferWidth();
+        int height = Gdx.graphics.getBackBufferHeight();
+        // The back buffer may be empty for a while, e.g. when the window is minimized or being resized
+        if (width <= 0 || height <= 0)
+            return null;
+        BakedFrameCache.BakedClip clip = bakedFrames.get(key);
+        if (clip == null || clip.width != width || clip.height != height) {
+            // Bake lazily on the first play, or re-bake since the canvas was resized
+            clip = bakeClip(entry.getAnimation(), key.flipped(), width, height);
+            if (clip == null || !bakedFrames.put(key, clip)) {
+                Logger.warn("Character", "Animation " + key.name() + " exceeds the baked cache budget, using live rendering");
+                unbakeableKeys.add(key);
+                return null;
+            }
+        }
+        return clip.getFrame(entry.getAnimationTime());
+    }
+
+    private BakedFrameCache.BakedClip bakeClip(Animation animation, boolean flipped, int width, int height) {
+        int frameCount = Math.max(1, (int)Math.ceil(animation.getDuration() * bakeFps));
+        if (!bakedFrames.canFit(BakedFrameCache.BakedClip.bytesOf(width, height, frameCount)))
+            return null;
+        long startTime = System.nanoTime();
+        FrameBuffer[] frames = new FrameBuffer[frameCount];
+        batch.getProjectionMatrix().set(camera.combined);
+        for (int i = 0; i < frameCount; i++) {
+            float time = i / bakeFps;
+            bakeSkeleton.setToSetupPose();
+            animation.apply(bakeSkeleton, time, time, false, null, 1f, Animation.MixBlend.setup, Animation.MixDirection.in);
+            bakeSkeleton.setPosition(camera.getWidth() >> 1, 0);
+            bakeSkeleton.setScaleX(flipped ? -1 : 1);
+            bakeSkeleton.updateWorldTransform();
+            frames[i] = new FrameBuffer(Format.RGBA8888, width, height, false);
+            frames[i].begin();
+            ScreenUtils.clear(0, 0, 0, 0, true);
+            batch.begin();
+            renderer.draw(batch, bakeSkeleton);
+            batch.end();
+            frames[i].end();
+        }
+        Logger.debug("Character", "Baked " + frameCount + " frames of " + animation.getName() + (flipped ? " (flipped)" : "") +
+                " in " + (System.nanoTime() - startTime) / 1000000 + "ms");
+        return new BakedFrameCache.BakedClip(frames, bakeFps, width, height);
+    }
+
+    private long getBakedFrameHash(Texture bakedFrame) {
+        long h = 0xCBF29CE484222325L;
+        h = mixHash(h, camera.getWidth());
+        h = mixHash(h, camera.getHeight());
+        h = mixHash(h, camera.getInsert().left);
+        h = mixHash(h, camera.getInsert().bottom);
+        h = mixHash(h, System.identityHashCode(bakedFrame));
+        h = mixHash(h, position.nowY() + offsetY.now());
+        return h;
+    }
+
+    /** Gets the hash of the pose to be rendered,
+     * which covers the bones' world transforms, the slots' colors and attachments, and the canvas size.
+     * @return The 64-bit hash value.
+     */
+    private long getPoseHash() {
+        long h = 0xCBF29CE484222325L;
+        h = mixHash(h, camera.getWidth());
+        h = mixHash(h, camera.getHeight());
+        h = mixHash(h, skeleton.getX());
+        h = mixHash(h, skeleton.getY());
+        h = mixHash(h, skeleton.getScaleX());
+        h = mixHash(h, skeleton.getColor().toFloatBits());
+        Array<Bone> bones = skeleton.getBones();
+        for (int i = 0, n = bones.size; i < n; i++) {
+            Bone bone = bones.get(i);
+            h = mixHash(h, bone.getA());
+            h = mixHash(h, bone.getB());
+            h = mixHash(h, bone.getC());
+            h = mixHash(h, bone.getD());
+            h = mixHash(h, bone.getWorldX());
+            h = mixHash(h, bone.getWorldY());
+        }
+        Array<Slot> drawOrder = skeleton.getDrawOrder();
+        for (int i = 0, n = drawOrder.size; i < n; i++) {
+            Slot slot = drawOrder.get(i);
+            h = mixHash(h, System.identityHashCode(slot));
+            h = mixHash(h, System.identityHashCode(slot.getAttachment()));
+            h = mixHash(h, slot.getColor().toFloatBits());
+            if (slot.getDarkColor() != null)
+                h = mixHash(h, slot.getDarkColor().toFloatBits());
+            FloatArray deform = slot.getDeform();
+            for (int j = 0, m = deform.size; j < m; j++)
+                h = mixHash(h, deform.items[j]);
+        }
+        return h;
+    }
+
+    private static long mixHash(long hash, float value) {
+        return mixHash(hash, Float.floatToIntBits(value));
+    }
+
+    private static long mixHash(long hash, int value) {
+        return (hash ^ value) * 0x100000001B3L;
+    }
+
     private void adjustCanvas(AnimClipGroup animClips, int fittingSamples) {
         float timePerSample = fittingSamples / (float)fpsDefault;
         // Prepare a Frame Buffer Object
@@ -233,9 +560,9 @@ public class ArkChar {
     }
 
     private void renderAsSnapshot() {
-        position.reset(camera.getWidth() >> 1, position.end().y, position.end().z);
-        skeleton.setPosition(position.end().x, position.end().y + offsetY.end());
-        skeleton.setScaleX(position.end().z);
+        position.reset(camera.getWidth() >> 1, position.endY(), position.endZ());
+        skeleton.setPosition(position.endX(), position.endY() + offsetY.end());
+        skeleton.setScaleX(position.endZ());
         skeleton.updateWorldTransform();
         animationState.apply(skeleton);
         batch.getProjectionMatrix().set(camera.combined);
@@ -243,5 +570,38 @@ public class ArkChar {
         batch.begin();
         renderer.draw(batch, skeleton);
         batch.end();
+        hitTester.invalidate();
+    }
+
+
+    private record BakedKey(String name, boolean flipped, int insertTop, int insertBottom, int insertLeft, int insertRight) {
+    }
+
+
+    /** The statistics of the rendering of a character.
+     * @param drawnFrames The count of the frames that have been drawn.
+     * @param skippedFrames The count of the frames whose poses were unchanged, which only presented the last drawn frame.
+     * @param liveFrames The count of the drawn frames that rendered the skeleton.
+     * @param liveFrameNanos The CPU time of the live frames (ns).
+     * @param bakedFrames The count of the drawn frames that copied a baked frame.
+     * @param bakedFrameNanos The CPU time of the baked frames (ns).
+     */
+    public record RenderStats(long drawnFrames, long skippedFrames,
+                              long liveFrames, long liveFrameNanos, long bakedFrames, long bakedFrameNanos) {
+        /** Gets the ratio of the skipped frames to all the frames.
+         * @return The ratio, from 0 to 1.
+         */
+        public float getSkippedRatio() {
+            long total = drawnFrames + skippedFrames;
+            return total > 0 ? (float)skippedFrames / total : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Frames drawn " + drawnFrames + ", skipped " + skippedFrames +
+                    " (" + Math.round(getSkippedRatio() * 100) + "%)" +
+                    "; Avg time live " + (liveFrames > 0 ? liveFrameNanos / liveFrames / 1000 : 0) + "us" +
+                    ", baked " + (bakedFrames > 0 ? bakedFrameNanos / bakedFrames / 1000 : 0) + "us";
+        }
     }
 }
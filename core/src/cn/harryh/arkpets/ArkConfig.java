@@ -48,6 +48,8 @@ public class ArkConfig implements Serializable {
     public boolean      behavior_allow_walk;
     /** @since ArkPets 1.6 */ @JSONField(defaultValue = "true")
     public boolean      behavior_do_peer_repulsion;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "true")
+    public boolean      canvas_fitting_cache;
     /** @since ArkPets 3.1 */ @JSONField(defaultValue = "16")
     public int          canvas_fitting_samples;
     /** @since ArkPets 2.0 */ @JSONField()
@@ -56,20 +58,44 @@ public class ArkConfig implements Serializable {
     public JSONObject   character_files;
     /** @since ArkPets 2.0 */ @JSONField()
     public String       character_label;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "true")
+    public boolean      display_auto_suspend;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "64")
+    public int          display_baked_cache_size;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "false")
+    public boolean      display_baked_playback;
     /** @since ArkPets 1.0 */ @JSONField(defaultValue = "30")
     public int          display_fps;
     /** @since ArkPets 1.0 */ @JSONField(defaultValue = "0")
     public int          display_margin_bottom;
     /** @since ArkPets 2.1 */ @JSONField(defaultValue = "true")
     public boolean      display_multi_monitors;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "false")
+    public boolean      display_pose_cache;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "false")
+    public boolean      display_pose_cache_quantized;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "16")
+    public int          display_pose_cache_size;
     /** @since ArkPets 1.0 */ @JSONField(defaultValue = "1.0")
     public float        display_scale;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "false")
+    public boolean      display_skip_static_frames;
     /** @since ArkPets 3.2 */ @JSONField(defaultValue = "0.2")
     public float        initial_position_x;
     /** @since ArkPets 3.2 */ @JSONField(defaultValue = "0.2")
     public float        initial_position_y;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "true")
+    public boolean      launcher_class_data_sharing;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "0")
+    public int          launcher_memory_budget;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "true")
+    public boolean      launcher_memory_tuning;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "false")
+    public boolean      launcher_shared_core;
     /** @since ArkPets 3.0 */ @JSONField(defaultValue = "true")
     public boolean      launcher_solid_exit;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "false")
+    public boolean      launcher_standby_core;
     /** @since ArkPets 2.0 */ @JSONField(defaultValue = "INFO")
     public String       logging_level;
     /** @since ArkPets 2.2 */ @JSONField(defaultValue = "800.0")
@@ -78,6 +104,10 @@ public class ArkConfig implements Serializable {
     public float        physic_air_friction_acc;
     /** @since ArkPets 2.2 */ @JSONField(defaultValue = "500.0")
     public float        physic_static_friction_acc;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "0.0")
+    public float        physic_repulsion_cutoff;
+    /** @since ArkPets 3.2 */ @JSONField(defaultValue = "150.0")
+    public float        physic_repulsion_falloff;
     /** @since ArkPets 2.2 */ @JSONField(defaultValue = "1000.0")
     public float        physic_speed_limit_x;
     /** @since ArkPets 2.2 */ @JSONField(defaultValue = "1000.0")
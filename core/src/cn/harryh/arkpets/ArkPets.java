@@ -5,22 +5,48 @@ package cn.harryh.arkpets;
 
 import cn.harryh.arkpets.animations.AnimData;
 import cn.harryh.arkpets.animations.GeneralBehavior;
+import cn.harryh.arkpets.concurrent.FileSemaphore;
+import cn.harryh.arkpets.concurrent.PeerBoard;
 import cn.harryh.arkpets.concurrent.SocketClient;
-import cn.harryh.arkpets.transitions.TernaryFunction;
-import cn.harryh.arkpets.transitions.TransitionFloat;
-import cn.harryh.arkpets.transitions.TransitionVector2;
+import cn.harryh.arkpets.concurrent.SocketData;
+import cn.harryh.arkpets.transitions.EasingFunction;
+import cn.harryh.arkpets.transitions.Float2Transition;
+import cn.harryh.arkpets.transitions.FloatTransition;
 import cn.harryh.arkpets.tray.MemberTrayImpl;
+import cn.harryh.arkpets.utils.AllocationMonitor;
 import cn.harryh.arkpets.utils.HWndCtrl;
 import cn.harryh.arkpets.utils.Logger;
+import cn.harryh.arkpets.utils.MemoryFootprint;
+import cn.harryh.arkpets.utils.MonitorTopology;
+import cn.harryh.arkpets.utils.MouseEventForwarder;
+import cn.harryh.arkpets.utils.OcclusionSuspendDetector;
 import cn.harryh.arkpets.utils.Plane;
+import cn.harryh.arkpets.utils.SuspendDetector;
+import cn.harryh.arkpets.utils.SuspendTracker;
+import cn.harryh.arkpets.utils.Win32WindowDriver;
+import cn.harryh.arkpets.utils.Win32WindowSource;
+import cn.harryh.arkpets.utils.WindowBarrierBuilder;
+import cn.harryh.arkpets.utils.WindowBarrierBuilder.WindowRect;
+import cn.harryh.arkpets.utils.WindowDriver;
+import cn.harryh.arkpets.utils.WindowPointIndex;
+import cn.harryh.arkpets.utils.WindowSnapshotCache;
+import cn.harryh.arkpets.utils.WindowSnapshotCache.WindowSnapshot;
+import cn.harryh.arkpets.utils.WindowSource;
+import cn.harryh.arkpets.utils.WindowState;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputProcessor;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Graphics;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Window;
+import org.lwjgl.glfw.GLFW;
 
-import java.util.HashMap;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import static cn.harryh.arkpets.Const.*;
 
@@ -33,24 +59,56 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	public MemberTrayImpl tray;
 	public GeneralBehavior behavior;
 
-	public TransitionFloat windowAlpha; // Window Opacity Easing
-	public TransitionVector2 windowPosition; // Window Position Easing
+	public FloatTransition windowAlpha; // Window Opacity Easing
+	public Float2Transition windowPosition; // Window Position Easing
 
-	private HWndCtrl hWndMine;
-	private HWndCtrl hWndTopmost;
+	private Lwjgl3Window window;
+	private WindowDriver windowDriver;
+	private WindowSource windowSource;
+	private WindowState windowState;
+	private MonitorTopology monitorTopology;
+	private long insertAfter;
 	private LoopCtrl getHWndLoopCtrl;
-	private List<HWndCtrl> hWndList;
+	private LoopCtrl footprintLoopCtrl;
+	private AllocationMonitor allocationMonitor;
+	private WindowSnapshotCache windowCache;
+	private WindowPointIndex windowIndex;
+	private MouseEventForwarder mouseForwarder;
+	private PeerBoard peerBoard;
+	private final PeerBoard.Peers peers = new PeerBoard.Peers();
+	private SuspendDetector suspendDetector;
+	private SuspendTracker suspendTracker;
+	private WindowSnapshotCache heartbeatCache;
+	private Timer suspendHeartbeat;
+	private final Object suspendLock = new Object();
 
 	private final String APP_TITLE;
+	private final int APP_NUMBER;
 	private final MouseStatus mouseStatus = new MouseStatus();
 	private int width; // Window Real Width
 	private int height; // Window Real Height
 	private int offsetY = 0;
+	private int worldMonitorVersion = -1;
 	private boolean isToolwindowStyle = false;
 	private boolean isAlwaysTransparent = false;
+	private volatile boolean isSuspendedByUser = false;
+	private long launchRequestTime = 0;
+	private String launchPath;
+	private boolean isFirstFramePresented = false;
+	private boolean isLoadingQueued = true;
 
 	public ArkPets(String title) {
+		this(title, null);
+	}
+
+	/** Initializes an ArkPets app with the given config.
+	 * @param title The title of the window.
+	 * @param config The config to use, or {@code null} to read the config file when the app is created.
+	 */
+	public ArkPets(String title, ArkConfig config) {
 		APP_TITLE = title;
+		APP_NUMBER = coreTitleManager.getNumber(title);
+		this.config = config;
 	}
 
 	@Override
@@ -58,15 +116,38 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 		// When the APP was created
 		// 1.App setup
 		Logger.info("App", "Create with title \"" + APP_TITLE + "\"");
-		config = Objects.requireNonNull(ArkConfig.getConfig(), "ArkConfig returns a null instance, please check the config file.");
+		if (config == null)
+			config = Objects.requireNonNull(ArkConfig.getConfig(), "ArkConfig returns a null instance, please check the config file.");
+		if (Gdx.graphics instanceof Lwjgl3Graphics graphics)
+			window = graphics.getWindow();
 		Gdx.input.setInputProcessor(this);
 		Gdx.graphics.setForegroundFPS(config.display_fps);
 
 		// 2.Character setup
 		Logger.info("App", "Using model asset \"" + config.character_asset + "\"");
-		cha = new ArkChar(config, skelBaseScale);
-		behavior = new GeneralBehavior(config, cha.animList);
-		cha.adjustCanvas(behavior.defaultAnim().animClip().stage);
+		// Queue up with the other pets, so that only a few of them do the heavy loading and fitting at once
+		long waitStartTime = System.currentTimeMillis();
+		FileSemaphore loadingSemaphore = isLoadingQueued ? acquireLoadingPermit() : null;
+		long loadStartTime = System.currentTimeMillis();
+		long fitStartTime;
+		try {
+			cha = new ArkChar(config, skelBaseScale);
+			behavior = new GeneralBehavior(config, cha.animList);
+			reportLifecycle(SocketData.LifecycleEvent.ASSETS_LOADED, null);
+			fitStartTime = System.currentTimeMillis();
+			cha.fitCanvas(config.canvas_fitting_samples);
+			cha.adjustCanvas(behavior.defaultAnim().animClip().stage);
+			reportLifecycle(SocketData.LifecycleEvent.CANVAS_FITTED, null);
+		} catch (RuntimeException e) {
+			reportLifecycle(SocketData.LifecycleEvent.FATAL_ERROR, String.valueOf(e.getMessage()));
+			throw e;
+		} finally {
+			if (loadingSemaphore != null)
+				loadingSemaphore.close();
+		}
+		Logger.info("App", "Loaded model in " + (fitStartTime - loadStartTime) + "ms and fitted canvas in " +
+				(System.currentTimeMillis() - fitStartTime) + "ms after waiting " +
+				(loadStartTime - waitStartTime) + "ms in the loading queue");
 		cha.setAnimation(behavior.defaultAnim());
 		Logger.info("Animation", "Available animation stages " + behavior.getStages());
 
@@ -79,6 +160,9 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 		plane.setFrict(config.physic_air_friction_acc, config.physic_static_friction_acc);
 		plane.setObjSize(width, height);
 		plane.setSpeedLimit(config.physic_speed_limit_x, config.physic_speed_limit_y);
+		plane.setRepulsionCutoff(config.physic_repulsion_cutoff, config.physic_repulsion_falloff);
+		monitorTopology = createMonitorTopology();
+		monitorTopology.installCallback();
 		ArkConfig.Monitor primaryMonitor = refreshMonitorInfo();
 		plane.changePosition(0,
 				primaryMonitor.size[0] * config.initial_position_x - width / 2f,
@@ -87,20 +171,40 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 
 		// 4.Window position setup
 		getHWndLoopCtrl = new LoopCtrl(1f / config.display_fps * 4);
-		windowPosition = new TransitionVector2(TernaryFunction.EASE_OUT_CUBIC, easingDuration);
+		footprintLoopCtrl = new LoopCtrl(footprintReportInterval / 1000f);
+		windowPosition = new Float2Transition(EasingFunction.EASE_OUT_CUBIC, easingDuration);
 		windowPosition.reset(plane.getX(), - (height + plane.getY()) + offsetY);
 		windowPosition.setToEnd();
 		setWindowPos();
 
 		// 5.Window style setup
-		windowAlpha = new TransitionFloat(TernaryFunction.EASE_OUT_CUBIC, easingDuration);
+		windowAlpha = new FloatTransition(EasingFunction.EASE_OUT_CUBIC, easingDuration);
 		windowAlpha.reset(1f);
-		hWndMine = new HWndCtrl(null, APP_TITLE);
-		hWndMine.setWindowExStyle(HWndCtrl.WS_EX_LAYERED | (config.window_style_topmost ? HWndCtrl.WS_EX_TOPMOST : 0));
+		windowDriver = createWindowDriver();
+		windowSource = createWindowSource();
+		windowState = new WindowState(windowDriver, windowSource.findWindow(APP_TITLE));
+		windowCache = new WindowSnapshotCache(windowSource, coreTitleManager);
+		windowIndex = new WindowPointIndex(windowCache);
+		mouseForwarder = new MouseEventForwarder(HWndCtrl::sendMouseEvent, mouseForwardQueueCapacity);
+		try {
+			peerBoard = PeerBoard.open(Path.of(PathConfig.tempPeersBoardPath));
+		} catch (IOException | RuntimeException e) {
+			Logger.warn("App", "Peer board is unavailable, the peers will be found from the windows: " + e.getMessage());
+		}
+		windowState.setExStyle(HWndCtrl.WS_EX_LAYERED | (config.window_style_topmost ? HWndCtrl.WS_EX_TOPMOST : 0));
 		promiseToolwindowStyle(1000);
+		windowState.commit();
 
 		// 6.Tray icon setup
-		tray = new MemberTrayImpl(this, new SocketClient());
+		tray = createTray();
+
+		// 7.Allocation monitor setup
+		allocationMonitor = new AllocationMonitor(allocationBudgetPerFrame, allocationWarmupFrames, allocationWindowFrames);
+
+		// 8.Suspend mode setup
+		suspendDetector = new OcclusionSuspendDetector();
+		suspendTracker = new SuspendTracker();
+		heartbeatCache = new WindowSnapshotCache(windowSource, coreTitleManager);
 
 		// Setup complete
 		Logger.info("App", "Render");
@@ -108,19 +212,25 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 
 	@Override
 	public void render() {
+		// 0.Skip the frame while suspended, since the input events still request rendering.
+		// The resumption runs before the frame in the main loop, so the first frame after it is rendered as usual.
+		if (isSuspended())
+			return;
+
 		// 1.Render the next frame.
 		cha.renderToBatch();
 
 		// 2.Select a new animation.
 		AnimData newAnim = behavior.autoCtrl(Gdx.graphics.getDeltaTime()); // AI anim.
 		if (!mouseStatus.dragging) { // If no dragging:
-			plane.updatePosition(Gdx.graphics.getDeltaTime());
+			plane.advance(Gdx.graphics.getDeltaTime());
 			if (cha.getPlaying().mobility() != 0) {
 				if (willReachBorder(cha.getPlaying().mobility())) {
 					// Turn around if auto-walk cause the collision from screen border.
 					newAnim = cha.getPlaying();
 					newAnim = new AnimData(newAnim.animClip(), null, newAnim.isLoop(), newAnim.isStrict(), newAnim.offsetY(), -newAnim.mobility());
-					tray.keepAnim = tray.keepAnim == null ? null : newAnim;
+					if (tray != null && tray.keepAnim != null)
+						tray.keepAnim = newAnim;
 				}
 				walkWindow(0.85f * cha.getPlaying().mobility());
 			}
@@ -131,20 +241,30 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 			newAnim = behavior.defaultAnim();
 		} else if (plane.getDropped()) { // If dropped, play the dropped anim.
 			newAnim = behavior.dropped();
-		} else if (tray.keepAnim != null) { // If keep-anim is enabled.
+		} else if (tray != null && tray.keepAnim != null) { // If keep-anim is enabled.
 			newAnim = tray.keepAnim;
 		}
 		changeAnimation(newAnim); // Apply the new anim.
 
 		// 3.Window properties.
-		windowPosition.reset(plane.getX(), - (height + plane.getY()) + offsetY);
+		windowPosition.reset(plane.getInterpolatedX(), - (height + plane.getInterpolatedY()) + offsetY);
 		windowPosition.addProgress(Gdx.graphics.getDeltaTime());
 		setWindowPos();
 		if (!windowAlpha.isEnded()) {
 			windowAlpha.addProgress(Gdx.graphics.getDeltaTime());
-			hWndMine.setWindowAlpha(windowAlpha.now());
+			windowState.setAlpha(windowAlpha.now());
 		}
 		promiseToolwindowStyle(1);
+		windowState.commit(); // Apply all the changes of the window in one batch.
+		allocationMonitor.tick();
+		if (footprintLoopCtrl.isExecutable(Gdx.graphics.getDeltaTime()))
+			reportFootprint();
+		if (!isFirstFramePresented) {
+			isFirstFramePresented = true;
+			if (launchRequestTime > 0)
+				Logger.info("App", "First frame presented " + (System.currentTimeMillis() - launchRequestTime) + "ms after the launch request (" + launchPath + ")");
+			reportLifecycle(SocketData.LifecycleEvent.FIRST_FRAME_PRESENTED, null);
+		}
 	}
 
 	@Override
@@ -155,6 +275,21 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	@Override
 	public void dispose() {
 		Logger.info("App", "Dispose");
+		synchronized (suspendLock) {
+			if (suspendHeartbeat != null)
+				suspendHeartbeat.cancel();
+		}
+		if (peerBoard != null)
+			peerBoard.close();
+		if (mouseForwarder != null)
+			mouseForwarder.stop();
+		if (cha != null) {
+			Logger.info("App", "Render stats of \"" + config.character_asset + "\": " + cha.getRenderStats());
+			// The frame buffers are not shared among the contexts, so release them in the context of this window
+			if (window != null)
+				GLFW.glfwMakeContextCurrent(window.getWindowHandle());
+			cha.dispose();
+		}
 	}
 
 	/* INTERFACES */
@@ -174,10 +309,92 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 		}
 	}
 
+	/** Closes the window of this app. The process exits once all of its windows are closed.
+	 */
+	public void close() {
+		if (window != null)
+			window.closeWindow();
+		else
+			Gdx.app.exit();
+	}
+
+	private void reportFootprint() {
+		SocketClient client = SocketClient.getShared();
+		if (tray != null && client.isConnected())
+			client.sendRequest(SocketData.ofFootprint(tray.getUuid(), MemoryFootprint.measure()));
+	}
+
+	private FileSemaphore acquireLoadingPermit() {
+		FileSemaphore semaphore = null;
+		try {
+			semaphore = FileSemaphore.open(Path.of(PathConfig.tempLoadingLockPath), loadingPermits);
+			if (semaphore.acquire(loadingPollInterval, loadingWaitTimeout))
+				return semaphore;
+			Logger.warn("App", "Timed out waiting in the loading queue, loading anyway");
+		} catch (IOException e) {
+			Logger.warn("App", "Loading queue is unavailable, loading anyway: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (semaphore != null)
+			semaphore.close();
+		return null;
+	}
+
+	/** Sets the launch request which this instance serves, so that its lifecycle events will be reported to the launcher.
+	 * @param requestTime The time when the user requested the launch, which also identifies the launch.
+	 * @param path The way of the launch, used by the logs.
+	 */
+	public void setLaunchRequest(long requestTime, String path) {
+		launchRequestTime = requestTime;
+		launchPath = path;
+		reportLifecycle(SocketData.LifecycleEvent.PROCESS_STARTED, null);
+	}
+
+	/** Sets whether this instance should wait in the loading queue shared by the processes before loading its model.
+	 * A window hosted by an existing process should not wait, since it is created on the main thread
+	 * which all the windows of the process share, and the waiting would freeze them.
+	 * @param loadingQueued true to wait in the queue, which is the default.
+	 */
+	public void setLoadingQueued(boolean loadingQueued) {
+		isLoadingQueued = loadingQueued;
+	}
+
+	private void reportLifecycle(SocketData.LifecycleEvent event, String cause) {
+		if (launchRequestTime > 0)
+			SocketClient.getShared().sendLifecycle(launchRequestTime, event, cause);
+	}
+
 	public void setAlwaysTransparent(boolean alwaysTransparent) {
 		isAlwaysTransparent = alwaysTransparent;
 	}
 
+	/** Suspends or resumes the app on the user's demand.
+	 * The suspension on demand will not be lifted automatically.
+	 * @param suspended Whether to suspend the app.
+	 */
+	public void setSuspendedByUser(boolean suspended) {
+		postRunnable(() -> {
+			isSuspendedByUser = suspended;
+			if (suspended)
+				enterSuspend("requested by user");
+			else
+				exitSuspend();
+		});
+	}
+
+	public boolean isSuspended() {
+		return suspendTracker != null && suspendTracker.isSuspended();
+	}
+
+	private void postRunnable(Runnable runnable) {
+		// Run on this window, since Gdx.graphics refers to the current window when a process hosts multiple windows
+		if (window != null)
+			window.postRunnable(runnable);
+		else
+			Gdx.app.postRunnable(runnable);
+	}
+
 	private void changeAnimation(AnimData animData) {
 		if (cha.setAnimation(animData))
 			offsetY = (int)(animData.offsetY() * config.display_scale);
@@ -191,22 +408,24 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 			mouseStatus.updatePosition(screenX, screenY, button);
 			if (!isMouseAtSolidPixel()) {
 				// Transfer mouse event
-				RelativeWindowPosition rwp = getRelativeWindowPositionAt(screenX, screenY);
-				if (rwp != null)
-					rwp.sendMouseEvent(switch (button) {
-						case Input.Buttons.LEFT -> HWndCtrl.WM_LBUTTONDOWN;
-						case Input.Buttons.RIGHT -> HWndCtrl.WM_RBUTTONDOWN;
-						case Input.Buttons.MIDDLE -> HWndCtrl.WM_MBUTTONDOWN;
-						default -> 0;
-					});
+				forwardMouseEvent(screenX, screenY, switch (button) {
+					case Input.Buttons.LEFT -> HWndCtrl.WM_LBUTTONDOWN;
+					case Input.Buttons.RIGHT -> HWndCtrl.WM_RBUTTONDOWN;
+					case Input.Buttons.MIDDLE -> HWndCtrl.WM_MBUTTONDOWN;
+					default -> 0;
+				});
 			} else {
 				if (button == Input.Buttons.LEFT) {
-					// Left Click: Play the specified animation
+					// Left Click: Play the specified animation, which is dropped while suspended
+					if (isSuspended())
+						return true;
 					changeAnimation(behavior.clickStart());
-					tray.hideDialog();
+					if (tray != null)
+						tray.hideDialog();
 				} else if (button == Input.Buttons.RIGHT) {
 					// Right Click: Toggle the menu
-					tray.toggleDialog((int)(plane.getX() + screenX), (int)(-plane.getY() - height));
+					if (tray != null)
+						tray.toggleDialog((int)(plane.getX() + screenX), (int)(-plane.getY() - height));
 				}
 			}
 		}
@@ -217,15 +436,16 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	public boolean touchDragged(int screenX, int screenY, int pointer) {
 		//Logger.debug("Input", "Dragged to " + screenX + ", " + screenY);
 		if (pointer <= 0) {
-			if (mouseStatus.button != Input.Buttons.RIGHT && isMouseAtSolidPixel()) {
+			if (mouseStatus.button != Input.Buttons.RIGHT && !isSuspended() && isMouseAtSolidPixel()) {
 				mouseStatus.dragging = true;
 				mouseStatus.updateIntentionX(screenX);
 				// Update window position
-				int x = (int)(windowPosition.now().x + screenX - mouseStatus.x);
-				int y = (int)(windowPosition.now().y + screenY - mouseStatus.y);
+				int x = (int)(windowPosition.nowX() + screenX - mouseStatus.x);
+				int y = (int)(windowPosition.nowY() + screenY - mouseStatus.y);
 				plane.changePosition(Gdx.graphics.getDeltaTime(), x, -(height + y));
 				windowPosition.setToEnd();
-				tray.hideDialog();
+				if (tray != null)
+					tray.hideDialog();
 				return true;
 			}
 		}
@@ -239,29 +459,28 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 			mouseStatus.updatePosition(screenX, screenY, button);
 			if (mouseStatus.dragging) {
 				// Update the z-axis of the character
-				cha.position.reset(cha.position.end().x, cha.position.end().y, mouseStatus.intentionX);
+				cha.position.reset(cha.position.endX(), cha.position.endY(), mouseStatus.intentionX);
 				if (cha.getPlaying() != null && cha.getPlaying().mobility() != 0) {
 					AnimData anim = cha.getPlaying();
 					cha.setAnimation(anim.derive(anim.offsetY(), Math.abs(anim.mobility()) * mouseStatus.intentionX));
 				}
-                if (tray.keepAnim != null && tray.keepAnim.mobility() != 0) {
+                if (tray != null && tray.keepAnim != null && tray.keepAnim.mobility() != 0) {
                     AnimData anim = tray.keepAnim;
 					tray.keepAnim = anim.derive(anim.offsetY(), Math.abs(anim.mobility()) * mouseStatus.intentionX);
                 }
             } else if (!isMouseAtSolidPixel()) {
 				// Transfer mouse event
-				RelativeWindowPosition rwp = getRelativeWindowPositionAt(screenX, screenY);
-				if (rwp != null)
-					rwp.sendMouseEvent(switch (button) {
-						case Input.Buttons.LEFT -> HWndCtrl.WM_LBUTTONUP;
-						case Input.Buttons.RIGHT -> HWndCtrl.WM_RBUTTONUP;
-						case Input.Buttons.MIDDLE -> HWndCtrl.WM_MBUTTONUP;
-						default -> 0;
-					});
-			} else if (button == Input.Buttons.LEFT) {
+				forwardMouseEvent(screenX, screenY, switch (button) {
+					case Input.Buttons.LEFT -> HWndCtrl.WM_LBUTTONUP;
+					case Input.Buttons.RIGHT -> HWndCtrl.WM_RBUTTONUP;
+					case Input.Buttons.MIDDLE -> HWndCtrl.WM_MBUTTONUP;
+					default -> 0;
+				});
+			} else if (button == Input.Buttons.LEFT && !isSuspended()) {
 				// Left Click: Play the specified animation
 				changeAnimation(behavior.clickEnd());
-				tray.hideDialog();
+				if (tray != null)
+					tray.hideDialog();
 			}
         }
 		mouseStatus.dragging = false;
@@ -282,6 +501,16 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	public boolean keyTyped(char character) {
 		Logger.debug("Plane Debug Msg", plane.getDebugMsg());
 		Logger.debug("Status Msg", "FPS" + Gdx.graphics.getFramesPerSecond() + ", Heap" + (int) Math.ceil((Gdx.app.getJavaHeap() >> 10) / 1024f) + "MB");
+		Logger.debug("Status Msg", cha.toString());
+		Logger.debug("Status Msg", allocationMonitor.toString());
+		Logger.debug("Status Msg", windowCache.toString());
+		Logger.debug("Status Msg", windowIndex.toString());
+		Logger.debug("Status Msg", mouseForwarder.toString());
+		Logger.debug("Status Msg", windowState.toString());
+		Logger.debug("Status Msg", monitorTopology.toString());
+		Logger.debug("Status Msg", suspendTracker.toString());
+		if (peerBoard != null)
+			Logger.debug("Status Msg", peerBoard.toString());
 		return false;
 	}
 
@@ -290,9 +519,7 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 		mouseStatus.updatePosition(screenX, screenY);
 		if (!isMouseAtSolidPixel()) {
 			// Transfer mouse event
-			RelativeWindowPosition rwp = getRelativeWindowPositionAt(screenX, screenY);
-			if (rwp != null)
-				rwp.sendMouseEvent(HWndCtrl.WM_MOUSEMOVE);
+			forwardMouseEvent(screenX, screenY, HWndCtrl.WM_MOUSEMOVE);
 		}
 		return false;
 	}
@@ -303,104 +530,145 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	}
 
 	private boolean isMouseAtSolidPixel() {
-		int pixel = cha.getPixel(mouseStatus.x, height - mouseStatus.y - 1);
-		return (pixel & 0x000000FF) > 0;
+		return cha.isSolidAt(mouseStatus.x, height - mouseStatus.y - 1);
 	}
 
 	/* WINDOW OPERATIONS */
 	private void setWindowPos() {
-		if (hWndMine == null) return;
+		if (windowState == null) return;
 		if (getHWndLoopCtrl.isExecutable(Gdx.graphics.getDeltaTime())) {
 			refreshMonitorInfo();
-			HWndCtrl new_hwnd_topmost = refreshWindowIndex();
-			hWndTopmost = new_hwnd_topmost != hWndTopmost ? new_hwnd_topmost : hWndTopmost;
-			hWndMine.setWindowTransparent(isAlwaysTransparent);
+			insertAfter = refreshWindowIndex();
+			windowState.setExStyleFlags(HWndCtrl.WS_EX_TRANSPARENT, isAlwaysTransparent);
+			if (!isZOrderHeld(insertAfter))
+				windowState.invalidateZOrder();
+			if (config.display_auto_suspend && suspendDetector != null) {
+				String reason = suspendDetector.detect(windowCache, windowState.getHandle(), monitorTopology.getMonitors());
+				if (reason != null)
+					enterSuspend(reason);
+			}
 		}
-		hWndMine.setWindowPosition(hWndTopmost, (int)windowPosition.now().x, (int)windowPosition.now().y, width, height);
-	}
-
-	private RelativeWindowPosition getRelativeWindowPositionAt(int x, int y) {
-		if (hWndList == null)
-			return null;
-		int absX = x + (int)(windowPosition.now().x);
-		int absY = y + (int)(windowPosition.now().y);
-		for (HWndCtrl hWndCtrl : hWndList) {
-			if (coreTitleManager.getNumber(hWndCtrl) < 0)
-				if (hWndCtrl.posLeft <= absX && hWndCtrl.posRight > absX)
-					if (hWndCtrl.posTop <= absY && hWndCtrl.posBottom > absY) {
-						int relX = absX - hWndCtrl.posLeft;
-						int relY = absY - hWndCtrl.posTop;
-						return new RelativeWindowPosition(hWndCtrl, relX, relY);
-					}
+		windowState.setPosition(insertAfter, (int)windowPosition.nowX(), (int)windowPosition.nowY(), width, height);
+	}
+
+	private boolean isZOrderHeld(long insertAfter) {
+		// Check whether the window right above this window in the last snapshot is the anchor
+		long above = 0;
+		for (WindowSnapshot window : windowCache.getWindows()) {
+			if (window.handle() == windowState.getHandle()) {
+				// An anchor of HWND_TOP or HWND_TOPMOST requires no window to be above
+				return insertAfter == above || (above == 0 && (insertAfter == 0 || (int)insertAfter == -1));
+			}
+			above = window.handle();
 		}
-		return null;
+		return false;
 	}
 
-	private HWndCtrl refreshWindowIndex() {
-		hWndList = HWndCtrl.getWindowList(true);
-		HWndCtrl minWindow = null;
-		HashMap<Integer, HWndCtrl> line = new HashMap<>();
-		int myPos = (int)(windowPosition.now().x + width / 2);
+	private void forwardMouseEvent(int x, int y, int msg) {
+		if (windowCache == null || msg == 0)
+			return;
+		int absX = x + (int)(windowPosition.nowX());
+		int absY = y + (int)(windowPosition.nowY());
+		WindowSnapshot window = windowIndex.find(absX, absY);
+		if (window == null)
+			return;
+		//Logger.debug("Input", "Transfer mouse event " + msg + " to " + window + " @ " + (absX - window.left()) + ", " + (absY - window.top()));
+		mouseForwarder.post(window.handle(), msg, absX - window.left(), absY - window.top());
+	}
+
+	private long refreshWindowIndex() {
+		windowCache.refresh();
+		WindowSnapshot minWindow = null;
+		ArrayList<WindowSnapshot> underWindows = new ArrayList<>();
+		ArrayList<WindowRect> underRects = new ArrayList<>();
+		int myPos = (int)(windowPosition.nowX() + width / 2);
 		int minNum = 2048;
-		int myNum = coreTitleManager.getNumber(APP_TITLE);
+		int myNum = APP_NUMBER;
 		final float quantityProduct = 1;
 		if (plane != null) {
 			// Reset plane additions.
-			plane.barriers.clear();
-			plane.pointCharges.clear();
+			plane.clearBarriers();
+			plane.clearPointCharges();
 		}
-		for (HWndCtrl hWndCtrl : hWndList) {
-			int wndNum = coreTitleManager.getNumber(hWndCtrl);
+		for (WindowSnapshot window : windowCache.getWindows()) {
+			int wndNum = window.peerNumber();
 			// Distinguish non-peer windows from peers.
 			if (wndNum == -1) {
-				if (hWndCtrl.posLeft <= myPos && myPos <= hWndCtrl.posRight) {
+				if (window.left() <= myPos && myPos <= window.right()) {
 					// This window and the app are share the same vertical line.
-					if (-hWndCtrl.posBottom < plane.borderTop() && -hWndCtrl.posTop > plane.borderBottom()) {
-						// This window is "under" the app.
-						for (int h = -hWndCtrl.posTop; h > -hWndCtrl.posBottom; h--) {
-							// Mark the window's y-position in the vertical line.
-							if (!line.containsKey(h))
-								line.put(h, (h == -hWndCtrl.posTop) ? hWndCtrl : HWndCtrl.EMPTY); // Record this window.
-						}
+					if (-window.bottom() < plane.borderTop() && -window.top() > plane.borderBottom()) {
+						// This window is "under" the app, record it in z-order.
+						underWindows.add(window);
+						underRects.add(new WindowRect(window.left(), window.top(), window.right(), window.bottom()));
 					}
 				}
-			} else {
+			} else if (peerBoard == null) {
 				if (config.behavior_do_peer_repulsion && wndNum != myNum && plane != null) {
 					// This window is peer window, set as point charges.
-					plane.setPointCharge(-hWndCtrl.getCenterY(), hWndCtrl.getCenterX(), quantityProduct);
+					plane.setPointCharge(-window.getCenterY(), window.getCenterX(), quantityProduct);
 				}
 				// Find the last peer window to handle the z-index.
 				if (wndNum > myNum && wndNum < minNum) {
-					minNum = coreTitleManager.getNumber(hWndCtrl);
-					minWindow = hWndCtrl;
+					minNum = wndNum;
+					minWindow = window;
 				}
 			}
 			// Window iteration end.
 		}
-		if (minWindow == null || minWindow.isEmpty()) {
-			// Set as the top window if there is no peer.
-			minWindow = new HWndCtrl(-1);
+		if (peerBoard != null) {
+			// Publish the state of this app, and learn the peers from the peer board instead of the windows.
+			// The heartbeat publishes to the same slot while suspended, so hold the lock to keep a single writer
+			synchronized (suspendLock) {
+				peerBoard.publish(myNum, windowState.getHandle(), windowPosition.nowX(), windowPosition.nowY(), width, height);
+			}
+			peerBoard.readPeers(peers);
+			long minHandle = 0;
+			for (int i = 0; i < peers.count; i++) {
+				int peerNum = peers.numbers[i];
+				if (config.behavior_do_peer_repulsion && peerNum != myNum && plane != null) {
+					// This peer is set as point charges.
+					plane.setPointCharge(-(peers.y[i] + peers.heights[i] / 2), peers.x[i] + peers.widths[i] / 2, quantityProduct);
+				}
+				// Find the last peer to handle the z-index.
+				if (peerNum > myNum && peerNum < minNum) {
+					minNum = peerNum;
+					minHandle = peers.handles[i];
+				}
+			}
+			for (WindowSnapshot window : windowCache.getWindows()) {
+				if (minHandle != 0 && window.handle() == minHandle) {
+					minWindow = window;
+					break;
+				}
+			}
 		}
+		// Set as the top window (HWND_TOPMOST) if there is no peer.
+		long minHWnd = minWindow == null ? -1 : minWindow.handle();
 		if (plane != null) {
-			// Set barriers according to the vertical line.
-			for (int h = (int)plane.borderTop(); h > plane.borderBottom(); h--) {
-				if (line.containsKey(h)) {
-					HWndCtrl temp = line.get(h);
-					if (temp != null && temp.hWnd != null)
-						plane.setBarrier(-temp.posTop, temp.posLeft, temp.windowWidth, false);
-				}
+			// Set barriers according to the exposed top edges, from the highest to the lowest.
+			for (int i : WindowBarrierBuilder.findExposedTopEdges(underRects)) {
+				WindowSnapshot temp = underWindows.get(i);
+				if (-temp.top() > (int)plane.borderTop())
+					continue;
+				if (-temp.top() <= plane.borderBottom())
+					break;
+				plane.setBarrier(-temp.top(), temp.left(), temp.right() - temp.left(), false);
 			}
 		}
-		return config.window_style_topmost ? minWindow : HWndCtrl.EMPTY; // Return the last peer window.
+		return config.window_style_topmost ? minHWnd : 0; // Return the last peer window.
 	}
 
 	private ArkConfig.Monitor refreshMonitorInfo() {
-		ArkConfig.Monitor[] monitors = ArkConfig.Monitor.getMonitors();
+		ArkConfig.Monitor[] monitors = monitorTopology.getMonitors();
 		if (monitors.length == 0) {
 			Logger.error("App", "Failed to get monitors information since no monitor has been found");
 			throw new RuntimeException("Failed to refresh monitors config.");
 		}
-		plane.world.clear();
+		// Rebuild the world only if the layout of the monitors has changed.
+		if (monitorTopology.getVersion() == worldMonitorVersion)
+			return monitors[0];
+		worldMonitorVersion = monitorTopology.getVersion();
+		plane.clearWorld();
 		boolean flag = true;
 		for (ArkConfig.Monitor i : monitors) {
 			if (!flag) break;
@@ -409,7 +677,7 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 			float right = left + i.size[0];
 			float top = -i.virtual[1];
 			float bottom = top - i.size[1] + config.display_margin_bottom;
-			plane.world.add(new Plane.RectArea(left, right, top, bottom));
+			plane.addWorldArea(new Plane.RectArea(left, right, top, bottom));
 		}
 		return monitors[0];
 	}
@@ -418,19 +686,109 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 		if (config.window_style_toolwindow && !isToolwindowStyle) {
 			// Make sure ArkPets has been set as foreground window once
 			for (int i = 0; ; i++) {
-				if (hWndMine.isForeground()) {
-					hWndMine.setWindowExStyle(hWndMine.getWindowExStyle() | HWndCtrl.WS_EX_TOOLWINDOW);
+				if (windowState.getHandle() != 0 && windowSource.getForegroundHandle() == windowState.getHandle()) {
+					windowState.setExStyleFlags(HWndCtrl.WS_EX_TOOLWINDOW, true);
 					Logger.info("Window", "SetForegroundWindow succeeded");
 					isToolwindowStyle = true;
 					break;
 				} else if (i > maxRetries) {
 					return;
 				}
-				hWndMine.setForeground();
+				windowDriver.setForeground(windowState.getHandle());
 			}
 		}
 	}
 
+	/* SUSPEND MODE RELATED */
+	private void enterSuspend(String reason) {
+		if (isSuspended())
+			return;
+		Logger.info("App", "Suspend, " + reason);
+		suspendTracker.enter();
+		// Stop updating and presenting the frames, so the main loop only polls the events at the idle rate
+		Gdx.graphics.setContinuousRendering(false);
+		// The heartbeat runs on the timer thread, since any runnable posted to the window would render a frame.
+		// The monitors are taken now, because the topology may only be queried on the main thread.
+		final ArkConfig.Monitor[] monitors = monitorTopology.getMonitors();
+		final float x = windowPosition.nowX();
+		final float y = windowPosition.nowY();
+		suspendHeartbeat = new Timer("SuspendHeartbeat", true);
+		suspendHeartbeat.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				heartbeat(monitors, x, y);
+			}
+		}, suspendHeartbeatInterval, suspendHeartbeatInterval);
+	}
+
+	private void exitSuspend() {
+		if (!isSuspended())
+			return;
+		synchronized (suspendLock) {
+			// No heartbeat is running once the lock is held, and none will run after the cancellation
+			suspendHeartbeat.cancel();
+			suspendHeartbeat = null;
+			suspendTracker.exit();
+		}
+		// Discard the time elapsed during the suspension, so the animation continues seamlessly
+		if (Gdx.graphics instanceof Lwjgl3Graphics graphics)
+			graphics.resetDeltaTime();
+		Gdx.graphics.setContinuousRendering(true);
+		Logger.info("App", "Resume, " + suspendTracker);
+	}
+
+	/** Checks whether the app can resume. This method is invoked on the timer thread,
+	 * and only the resumption is posted to the main thread.
+	 * @param monitors The monitors when the app was suspended.
+	 * @param x The x-position of the window when the app was suspended.
+	 * @param y The y-position of the window when the app was suspended.
+	 */
+	private void heartbeat(ArkConfig.Monitor[] monitors, float x, float y) {
+		synchronized (suspendLock) {
+			if (!isSuspended())
+				return;
+			// Keep the slot on the peer board alive
+			if (peerBoard != null)
+				peerBoard.publish(APP_NUMBER, windowState.getHandle(), x, y, width, height);
+			if (isSuspendedByUser)
+				return;
+			heartbeatCache.refresh();
+			if (!config.display_auto_suspend ||
+					suspendDetector.detect(heartbeatCache, windowState.getHandle(), monitors) == null)
+				postRunnable(this::exitSuspend);
+		}
+	}
+
+	/* PLATFORM RELATED */
+	/** Creates the driver which applies the changes of the window.
+	 * The headless tests override it to run without a real desktop.
+	 * @return The window driver.
+	 */
+	protected WindowDriver createWindowDriver() {
+		return new Win32WindowDriver();
+	}
+
+	/** Creates the source of the desktop windows, which also finds the window of this app.
+	 * @return The window source.
+	 */
+	protected WindowSource createWindowSource() {
+		return new Win32WindowSource();
+	}
+
+	/** Gets the layout of the monitors which the world of the plane is built from.
+	 * @return The monitor topology.
+	 */
+	protected MonitorTopology createMonitorTopology() {
+		return MonitorTopology.getInstance();
+	}
+
+	/** Creates the tray icon of this app.
+	 * @return The tray, or {@code null} to run without a tray.
+	 */
+	protected MemberTrayImpl createTray() {
+		return new MemberTrayImpl(this, SocketClient.getShared());
+	}
+
 	/* WINDOW WALKING RELATED */
 	private void walkWindow(float len) {
 		float expectedLen = len * config.display_scale * (30f / config.display_fps);
@@ -505,14 +863,4 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 			this.button = button;
 		}
 	}
-
-
-	private record RelativeWindowPosition(HWndCtrl hWndCtrl, int relX, int relY) {
-		public void sendMouseEvent(int msg) {
-			if (msg == 0)
-				return;
-			//Logger.debug("Input", "Transfer mouse event " + msg + " to `" + hWndCtrl.windowText + "` @ " + relX + ", " + relY);
-			hWndCtrl.updated().sendMouseEvent(msg, relX, relY);
-		}
-	}
 }
@@ -6,13 +6,11 @@ package cn.harryh.arkpets;
 import cn.harryh.arkpets.utils.HWndCtrl.NumberedTitleManager;
 import cn.harryh.arkpets.utils.Logger;
 import cn.harryh.arkpets.utils.Version;
-import javafx.util.Duration;
 
 import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Objects;
 
 
 /** Constants definition class.
@@ -39,7 +37,11 @@ public final class Const {
     public static final int coreHeightDefault   = 150;
     public static final int canvasReserveLength = 80;
     public static final int canvasMaxSize       = 1080;
+    public static final int canvasFittingVersion = 1;
     public static final float skelBaseScale     = 0.3f;
+    public static final int poseSampleRate      = 60;
+    public static final float poseTolerance     = 0.5f;
+    public static final float poseScaleTolerance = 0.005f;
 
     // Behavior presets
     public static final int behaviorBaseWeight      = 320;
@@ -47,10 +49,24 @@ public final class Const {
     public static final int behaviorWeightLv2       = 64;
     public static final float droppedThreshold      = 10f;
 
+    // Allocation monitor presets
+    public static final long allocationBudgetPerFrame   = 8 * 1024L;
+    public static final int allocationWarmupFrames      = 300;
+    public static final int allocationWindowFrames      = 600;
+
+    // Window presets
+    public static final int windowTitleRevalidateInterval = 16;
+    public static final int mouseForwardQueueCapacity     = 64;
+    public static final long monitorCheckInterval         = 1000;
+    public static final long suspendHeartbeatInterval     = 1000;
+    public static final int suspendIdleFps                = 4;
+
+    // Physics presets
+    public static final float physicStepDuration    = 1 / 120f;
+    public static final int physicMaxSubsteps       = 12;
+
     // Duration presets
     public static final float easingDuration    = 0.3f;
-    public static final Duration durationFast   = new Duration(150);
-    public static final Duration durationNormal = new Duration(300);
 
     // Encoding presets
     public static final String charsetDefault   = "UTF-8";
@@ -72,6 +88,33 @@ public final class Const {
     public static final String serverHost           = "localhost";
     public static final int[] serverPorts           = {8686, 8866, 8989, 8899, 8800};
     public static final int reconnectDelayMillis    = 5 * 1000;
+    public static final int pendingRequestsCapacity = 32;
+
+    // Core launching constants
+    public static final String standbyArg           = "--standby";
+    public static final String launchTimeArg        = "--launch-time";
+    public static final long standbyPollInterval    = 1000;
+    public static final long coreLaunchStagger      = 400;
+    public static final int loadingPermits          = 2;
+    public static final long loadingPollInterval    = 50;
+    public static final long loadingWaitTimeout     = 30 * 1000;
+    public static final long launchEventTimeout     = 10 * 1000;
+    public static final long launchRecordTimeout    = 120 * 1000;
+    public static final String[] launcherOnlyPackages = {"javafx/", "com/jfoenix/"};
+
+    // Memory budget constants
+    public static final long footprintReportInterval    = 5 * 1000;
+    public static final long coreHeapBaseline           = 48L << 20;
+    public static final long coreNativeBaseline         = 96L << 20;
+    public static final long coreHeapMin                = 96L << 20;
+    public static final long coreHeapMax                = 1024L << 20;
+    public static final String coreThreadStackSize      = "512k";
+    public static final long memoryBudgetPollInterval   = 500;
+    public static final long memoryBudgetWaitTimeout    = 60 * 1000;
+
+    // Peer board constants
+    public static final int peerBoardSlots          = 64;
+    public static final long peerBoardTimeout       = 5 * 1000;
 
     // Misc constants
     public static String ipPortRegex = "^((25[0-5]|2[0-4]\\d|[01]?\\d\\d?)\\.){3}(25[0-5]|2[0-4]\\d|[01]?\\d\\d?):\\d{1,5}$";
@@ -94,6 +137,10 @@ public final class Const {
         public static final String tempModelsUnzipDirPath       = tempDirPath + "models_unzipped/";
         public static final String tempModelsZipCachePath       = tempDirPath + fileModelsZipName + ".zip";
         public static final String tempQueryVersionCachePath    = tempDirPath + "ApiQueryVersionCache";
+        public static final String tempPeersBoardPath           = tempDirPath + "peers.board";
+        public static final String tempClassArchiveDirPath      = tempDirPath + "cds/";
+        public static final String tempLoadingLockPath          = tempDirPath + "loading.lock";
+        public static final String tempCanvasFittingDirPath     = tempDirPath + "canvas/";
     }
 
 
@@ -118,21 +165,22 @@ public final class Const {
 
 
     /** Fonts provider class.
+     * Note that the fonts for JavaFX are provided by the launcher, see {@code LauncherConst}.
      */
     public static class FontsConfig {
-        private static final String fontFileRegular  = "/fonts/SourceHanSansCN-Regular.otf";
-        private static final String fontFileBold     = "/fonts/SourceHanSansCN-Bold.otf";
-
-        public static void loadFontsToJavafx() {
-            javafx.scene.text.Font.loadFont(FontsConfig.class.getResourceAsStream(fontFileRegular),
-                    javafx.scene.text.Font.getDefault().getSize());
-            javafx.scene.text.Font.loadFont(FontsConfig.class.getResourceAsStream(fontFileBold),
-                    javafx.scene.text.Font.getDefault().getSize());
-        }
-
-        public static void loadFontsToSwing() {
+        public static final String fontFileRegular  = "/fonts/SourceHanSansCN-Regular.otf";
+        public static final String fontFileBold     = "/fonts/SourceHanSansCN-Bold.otf";
+        private static boolean isSwingFontsLoaded = false;
+
+        public static synchronized void loadFontsToSwing() {
+            // The fonts are registered only once, even if there are several trays in the process
+            if (isSwingFontsLoaded)
+                return;
+            isSwingFontsLoaded = true;
             try {
-                InputStream in = Objects.requireNonNull(FontsConfig.class.getResourceAsStream(fontFileRegular));
+                InputStream in = FontsConfig.class.getResourceAsStream(fontFileRegular);
+                if (in == null)
+                    throw new IOException("Font file " + fontFileRegular + " not found");
                 java.awt.Font font = java.awt.Font.createFont(java.awt.Font.TRUETYPE_FONT, in);
                 if (font != null) {
                     UIManager.put("Label.font", font.deriveFont(10f).deriveFont(Font.ITALIC));
@@ -0,0 +1,482 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.animations;
+
+import cn.harryh.arkpets.utils.Logger;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.esotericsoftware.spine.*;
+import com.esotericsoftware.spine.Animation.*;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** The class pre-samples the bone timelines of the animation clips at a fixed rate,
+ * so that the playback looks up the bone local transforms in compact arrays and interpolates them linearly,
+ * instead of evaluating the curves of every bone timeline.
+ * <p>
+ * The sampled timelines take the place of the original ones in the {@link Animation} and keep their property IDs,
+ * so the mixing of the {@link AnimationState} works as before.
+ * Translate, scale and shear channels are stored in a float array, or a 16-bit quantized one;
+ * rotation channels are stored as the linear frames of the {@link RotateTimeline},
+ * because the {@link AnimationState} reads these frames directly when mixing.
+ * A clip will be left to the live evaluation if its samples deviate from the live evaluation beyond the tolerance,
+ * or if the memory cap shared by the whole process would be exceeded.
+ * @since ArkPets 3.2
+ */
+public class PoseCache {
+    private static final AtomicLong processUsedBytes = new AtomicLong();
+    private final long budgetBytes;
+    private final boolean quantized;
+    private final HashMap<String, SampledClip> clips;
+    private long usedBytes;
+    private long rejectedCount;
+    private long hitCount;
+    private long missCount;
+
+    /** Initializes a pose cache.
+     * @param budgetBytes The maximum total size of the samples of all the pose caches in this process (byte).
+     * @param quantized Whether to quantize the translate, scale and shear samples to 16-bit.
+     */
+    public PoseCache(long budgetBytes, boolean quantized) {
+        this.budgetBytes = Math.max(0, budgetBytes);
+        this.quantized = quantized;
+        clips = new HashMap<>();
+    }
+
+    /** Samples all the animations of the given skeleton data, replacing their bone timelines with the sampled ones.
+     * @param skeletonData The skeleton data whose animations are to be sampled.
+     * @return The count of the clips that have been cached.
+     */
+    public int sample(SkeletonData skeletonData) {
+        Skeleton scratch = new Skeleton(skeletonData);
+        int count = 0;
+        for (Animation animation : skeletonData.getAnimations())
+            if (!clips.containsKey(animation.getName()) && sampleClip(skeletonData, animation, scratch))
+                count++;
+        return count;
+    }
+
+    /** Records a frame that plays the given clip, which is used to count the hit rate.
+     * @param fullName The full name of the clip, namely {@link AnimClip#fullName}.
+     */
+    public void recordPlayback(String fullName) {
+        if (clips.containsKey(fullName))
+            hitCount++;
+        else
+            missCount++;
+    }
+
+    /** Returns true if the given clip is played by the samples.
+     * @param fullName The full name of the clip.
+     */
+    public boolean contains(String fullName) {
+        return clips.containsKey(fullName);
+    }
+
+    /** Gets the ratio of the frames that were played by the samples.
+     * @return The hit rate in [0, 1].
+     */
+    public float getHitRate() {
+        long total = hitCount + missCount;
+        return total > 0 ? (float)hitCount / total : 0;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /** Releases the memory quota occupied by this cache.
+     * The sampled timelines remain in the animations, so this method should be called only when they are discarded.
+     */
+    public void release() {
+        processUsedBytes.addAndGet(-usedBytes);
+        usedBytes = 0;
+        clips.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "PoseCache " + clips.size() + " clips (" + rejectedCount + " rejected), " + (usedBytes >> 10) + " KB" +
+                ", process " + (processUsedBytes.get() >> 10) + "/" + (budgetBytes >> 10) + " KB" +
+                " {Hit rate: " + Math.round(getHitRate() * 100) + "%}";
+    }
+
+    private boolean sampleClip(SkeletonData skeletonData, Animation animation, Skeleton scratch) {
+        // Find out the timelines that can be sampled
+        Array<Timeline> timelines = animation.getTimelines();
+        IntArray sampledIndices = new IntArray();
+        int channelCount = 0;
+        int rotateCount = 0;
+        for (int i = 0; i < timelines.size; i++) {
+            Timeline timeline = timelines.get(i);
+            Class<?> type = timeline.getClass();
+            if (type != TranslateTimeline.class && type != ScaleTimeline.class &&
+                    type != ShearTimeline.class && type != RotateTimeline.class)
+                continue;
+            // Bones that require skins may be inactive in the scratch skeleton, so leave them to the live evaluation
+            if (skeletonData.getBones().get(((BoneTimeline)timeline).getBoneIndex()).getSkinRequired())
+                continue;
+            sampledIndices.add(i);
+            if (type == RotateTimeline.class)
+                rotateCount++;
+            else
+                channelCount += 2;
+        }
+        if (sampledIndices.isEmpty())
+            return false;
+
+        // Check the memory cap
+        float duration = animation.getDuration();
+        int intervals = duration > 0 ? Math.max(1, (int)Math.ceil(duration * poseSampleRate)) : 0;
+        int sampleCount = intervals + 1;
+        float rate = duration > 0 ? intervals / duration : 0;
+        long bytes = (long)sampleCount * (channelCount * (quantized ? 2 : 4) + rotateCount * 2 * 4);
+        if (processUsedBytes.addAndGet(bytes) > budgetBytes) {
+            processUsedBytes.addAndGet(-bytes);
+            rejectedCount++;
+            Logger.debug("PoseCache", "Clip " + animation.getName() + " skipped since the memory cap was reached");
+            return false;
+        }
+
+        // Sample the timelines
+        SampledClip clip = new SampledClip(rate, sampleCount, channelCount);
+        Timeline[] sampled = new Timeline[sampledIndices.size];
+        float[] values = new float[sampleCount * channelCount];
+        for (int k = 0; k < sampleCount; k++) {
+            poseAt(scratch, timelines, sampledIndices, k == intervals ? duration : k / rate);
+            for (int j = 0, channel = 0; j < sampledIndices.size; j++) {
+                Timeline timeline = timelines.get(sampledIndices.get(j));
+                Bone bone = scratch.getBones().get(((BoneTimeline)timeline).getBoneIndex());
+                BoneData data = bone.getData();
+                if (timeline.getClass() == RotateTimeline.class) {
+                    if (sampled[j] == null)
+                        sampled[j] = new SampledRotateTimeline(clip, (RotateTimeline)timeline, sampleCount);
+                    ((SampledRotateTimeline)sampled[j]).setFrame(k, k / (rate > 0 ? rate : 1), bone.getRotation() - data.getRotation());
+                    continue;
+                }
+                int offset = k * channelCount + channel;
+                if (timeline.getClass() == TranslateTimeline.class) {
+                    values[offset] = bone.getX() - data.getX();
+                    values[offset + 1] = bone.getY() - data.getY();
+                    if (sampled[j] == null)
+                        sampled[j] = new SampledTranslateTimeline(clip, (TranslateTimeline)timeline, channel);
+                } else if (timeline.getClass() == ScaleTimeline.class) {
+                    values[offset] = bone.getScaleX();
+                    values[offset + 1] = bone.getScaleY();
+                    if (sampled[j] == null)
+                        sampled[j] = new SampledScaleTimeline(clip, (ScaleTimeline)timeline, channel);
+                } else {
+                    values[offset] = bone.getShearX() - data.getShearX();
+                    values[offset + 1] = bone.getShearY() - data.getShearY();
+                    if (sampled[j] == null)
+                        sampled[j] = new SampledShearTimeline(clip, (ShearTimeline)timeline, channel);
+                }
+                channel += 2;
+            }
+        }
+        clip.store(values, quantized);
+
+        // Verify the samples against the live evaluation at the middle of every interval
+        for (int k = 0; k < intervals; k++) {
+            float time = (k + 0.5f) / rate;
+            poseAt(scratch, timelines, sampledIndices, time);
+            for (int j = 0; j < sampledIndices.size; j++) {
+                Bone bone = scratch.getBones().get(((BoneTimeline)sampled[j]).getBoneIndex());
+                float error = ((Sampled)sampled[j]).deviationFrom(bone, time);
+                float tolerance = sampled[j] instanceof ScaleTimeline ? poseScaleTolerance : poseTolerance;
+                if (error > tolerance) {
+                    processUsedBytes.addAndGet(-bytes);
+                    rejectedCount++;
+                    Logger.debug("PoseCache", "Clip " + animation.getName() + " skipped since its samples deviate " +
+                            error + " from the live evaluation");
+                    return false;
+                }
+            }
+        }
+
+        // Replace the original timelines
+        for (int j = 0; j < sampledIndices.size; j++)
+            timelines.set(sampledIndices.get(j), sampled[j]);
+        clips.put(animation.getName(), clip);
+        usedBytes += bytes;
+        return true;
+    }
+
+    private static void poseAt(Skeleton scratch, Array<Timeline> timelines, IntArray indices, float time) {
+        scratch.setToSetupPose();
+        for (int j = 0; j < indices.size; j++)
+            timelines.get(indices.get(j)).apply(scratch, time, time, null, 1f, MixBlend.setup, MixDirection.in);
+    }
+
+    private static float wrapDegrees(float degrees) {
+        return degrees - (16384 - (int)(16384.499999999996 - degrees / 360)) * 360;
+    }
+
+
+    /** The samples of the translate, scale and shear channels of one clip.
+     * The values of one sample are stored contiguously, so a frame reads a single run of the array.
+     */
+    private static class SampledClip {
+        private final float rate;
+        private final int sampleCount;
+        private final int channelCount;
+        private float[] values;
+        private short[] quantizedValues;
+        private float[] minimums;
+        private float[] steps;
+
+        SampledClip(float rate, int sampleCount, int channelCount) {
+            this.rate = rate;
+            this.sampleCount = sampleCount;
+            this.channelCount = channelCount;
+        }
+
+        void store(float[] values, boolean quantized) {
+            if (!quantized || channelCount == 0) {
+                this.values = values;
+                return;
+            }
+            minimums = new float[channelCount];
+            steps = new float[channelCount];
+            for (int c = 0; c < channelCount; c++) {
+                float min = Float.POSITIVE_INFINITY;
+                float max = Float.NEGATIVE_INFINITY;
+                for (int k = 0; k < sampleCount; k++) {
+                    min = Math.min(min, values[k * channelCount + c]);
+                    max = Math.max(max, values[k * channelCount + c]);
+                }
+                minimums[c] = min;
+                steps[c] = (max - min) / 65535f;
+            }
+            quantizedValues = new short[values.length];
+            for (int i = 0; i < values.length; i++) {
+                int c = i % channelCount;
+                int level = steps[c] > 0 ? Math.round((values[i] - minimums[c]) / steps[c]) : 0;
+                quantizedValues[i] = (short)level;
+            }
+        }
+
+        /** Gets the linearly interpolated value of a channel.
+         * @param channel The index of the channel.
+         * @param time The animation time (s).
+         * @return The value.
+         */
+        float valueAt(int channel, float time) {
+            float position = time * rate;
+            int k = (int)position;
+            if (k >= sampleCount - 1 || position < 0)
+                return valueOf(position < 0 ? 0 : sampleCount - 1, channel);
+            float v0 = valueOf(k, channel);
+            return v0 + (valueOf(k + 1, channel) - v0) * (position - k);
+        }
+
+        private float valueOf(int sample, int channel) {
+            int i = sample * channelCount + channel;
+            if (values != null)
+                return values[i];
+            return minimums[channel] + (quantizedValues[i] & 0xFFFF) * steps[channel];
+        }
+    }
+
+
+    private interface Sampled {
+        /** Gets the maximum deviation between the samples and the given bone which has been posed lively.
+         * @param bone The bone posed by the original timeline in the setup blend.
+         * @param time The animation time (s).
+         * @return The deviation.
+         */
+        float deviationFrom(Bone bone, float time);
+    }
+
+
+    private static class SampledTranslateTimeline extends TranslateTimeline implements Sampled {
+        private final SampledClip clip;
+        private final int channel;
+
+        SampledTranslateTimeline(SampledClip clip, TranslateTimeline original, int channel) {
+            super(1);
+            setBoneIndex(original.getBoneIndex());
+            this.clip = clip;
+            this.channel = channel;
+        }
+
+        @Override
+        public void apply(Skeleton skeleton, float lastTime, float time, Array<Event> events, float alpha, MixBlend blend, MixDirection direction) {
+            Bone bone = skeleton.getBones().get(getBoneIndex());
+            if (!bone.isActive())
+                return;
+            BoneData data = bone.getData();
+            float x = clip.valueAt(channel, time);
+            float y = clip.valueAt(channel + 1, time);
+            switch (blend) {
+                case setup -> {
+                    bone.setX(data.getX() + x * alpha);
+                    bone.setY(data.getY() + y * alpha);
+                }
+                case first, replace -> {
+                    bone.setX(bone.getX() + (data.getX() + x - bone.getX()) * alpha);
+                    bone.setY(bone.getY() + (data.getY() + y - bone.getY()) * alpha);
+                }
+                case add -> {
+                    bone.setX(bone.getX() + x * alpha);
+                    bone.setY(bone.getY() + y * alpha);
+                }
+            }
+        }
+
+        @Override
+        public float deviationFrom(Bone bone, float time) {
+            return Math.max(Math.abs(bone.getX() - bone.getData().getX() - clip.valueAt(channel, time)),
+                    Math.abs(bone.getY() - bone.getData().getY() - clip.valueAt(channel + 1, time)));
+        }
+    }
+
+
+    private static class SampledShearTimeline extends ShearTimeline implements Sampled {
+        private final SampledClip clip;
+        private final int channel;
+
+        SampledShearTimeline(SampledClip clip, ShearTimeline original, int channel) {
+            super(1);
+            setBoneIndex(original.getBoneIndex());
+            this.clip = clip;
+            this.channel = channel;
+        }
+
+        @Override
+        public void apply(Skeleton skeleton, float lastTime, float time, Array<Event> events, float alpha, MixBlend blend, MixDirection direction) {
+            Bone bone = skeleton.getBones().get(getBoneIndex());
+            if (!bone.isActive())
+                return;
+            BoneData data = bone.getData();
+            float x = clip.valueAt(channel, time);
+            float y = clip.valueAt(channel + 1, time);
+            switch (blend) {
+                case setup -> {
+                    bone.setShearX(data.getShearX() + x * alpha);
+                    bone.setShearY(data.getShearY() + y * alpha);
+                }
+                case first, replace -> {
+                    bone.setShearX(bone.getShearX() + (data.getShearX() + x - bone.getShearX()) * alpha);
+                    bone.setShearY(bone.getShearY() + (data.getShearY() + y - bone.getShearY()) * alpha);
+                }
+                case add -> {
+                    bone.setShearX(bone.getShearX() + x * alpha);
+                    bone.setShearY(bone.getShearY() + y * alpha);
+                }
+            }
+        }
+
+        @Override
+        public float deviationFrom(Bone bone, float time) {
+            return Math.max(Math.abs(bone.getShearX() - bone.getData().getShearX() - clip.valueAt(channel, time)),
+                    Math.abs(bone.getShearY() - bone.getData().getShearY() - clip.valueAt(channel + 1, time)));
+        }
+    }
+
+
+    private static class SampledScaleTimeline extends ScaleTimeline implements Sampled {
+        private final SampledClip clip;
+        private final int channel;
+
+        SampledScaleTimeline(SampledClip clip, ScaleTimeline original, int channel) {
+            super(1);
+            setBoneIndex(original.getBoneIndex());
+            this.clip = clip;
+            this.channel = channel;
+        }
+
+        @Override
+        public void apply(Skeleton skeleton, float lastTime, float time, Array<Event> events, float alpha, MixBlend blend, MixDirection direction) {
+            Bone bone = skeleton.getBones().get(getBoneIndex());
+            if (!bone.isActive())
+                return;
+            BoneData data = bone.getData();
+            float x = clip.valueAt(channel, time);
+            float y = clip.valueAt(channel + 1, time);
+            // Keeps the same blending rules as the original scale timeline
+            if (alpha == 1) {
+                if (blend == MixBlend.add) {
+                    bone.setScaleX(bone.getScaleX() + x - data.getScaleX());
+                    bone.setScaleY(bone.getScaleY() + y - data.getScaleY());
+                } else {
+                    bone.setScaleX(x);
+                    bone.setScaleY(y);
+                }
+                return;
+            }
+            float bx, by;
+            if (direction == MixDirection.out) {
+                bx = blend == MixBlend.setup ? data.getScaleX() : bone.getScaleX();
+                by = blend == MixBlend.setup ? data.getScaleY() : bone.getScaleY();
+                float baseX = blend == MixBlend.add ? data.getScaleX() : bx;
+                float baseY = blend == MixBlend.add ? data.getScaleY() : by;
+                bone.setScaleX(bx + (Math.abs(x) * Math.signum(bx) - baseX) * alpha);
+                bone.setScaleY(by + (Math.abs(y) * Math.signum(by) - baseY) * alpha);
+            } else if (blend == MixBlend.add) {
+                bx = Math.signum(x);
+                by = Math.signum(y);
+                bone.setScaleX(Math.abs(bone.getScaleX()) * bx + (x - Math.abs(data.getScaleX()) * bx) * alpha);
+                bone.setScaleY(Math.abs(bone.getScaleY()) * by + (y - Math.abs(data.getScaleY()) * by) * alpha);
+            } else {
+                bx = Math.abs(blend == MixBlend.setup ? data.getScaleX() : bone.getScaleX()) * Math.signum(x);
+                by = Math.abs(blend == MixBlend.setup ? data.getScaleY() : bone.getScaleY()) * Math.signum(y);
+                bone.setScaleX(bx + (x - bx) * alpha);
+                bone.setScaleY(by + (y - by) * alpha);
+            }
+        }
+
+        @Override
+        public float deviationFrom(Bone bone, float time) {
+            return Math.max(Math.abs(bone.getScaleX() - clip.valueAt(channel, time)),
+                    Math.abs(bone.getScaleY() - clip.valueAt(channel + 1, time)));
+        }
+    }
+
+
+    private static class SampledRotateTimeline extends RotateTimeline implements Sampled {
+        private final SampledClip clip;
+
+        SampledRotateTimeline(SampledClip clip, RotateTimeline original, int sampleCount) {
+            super(sampleCount);
+            setBoneIndex(original.getBoneIndex());
+            this.clip = clip;
+        }
+
+        @Override
+        public void apply(Skeleton skeleton, float lastTime, float time, Array<Event> events, float alpha, MixBlend blend, MixDirection direction) {
+            Bone bone = skeleton.getBones().get(getBoneIndex());
+            if (!bone.isActive())
+                return;
+            float r = rotationAt(time);
+            switch (blend) {
+                case setup -> bone.setRotation(bone.getData().getRotation() + wrapDegrees(r) * alpha);
+                case first, replace -> {
+                    r += bone.getData().getRotation() - bone.getRotation();
+                    bone.setRotation(bone.getRotation() + wrapDegrees(r) * alpha);
+                }
+                case add -> bone.setRotation(bone.getRotation() + wrapDegrees(r) * alpha);
+            }
+        }
+
+        @Override
+        public float deviationFrom(Bone bone, float time) {
+            return Math.abs(wrapDegrees(bone.getRotation() - bone.getData().getRotation() - rotationAt(time)));
+        }
+
+        private float rotationAt(float time) {
+            float[] frames = getFrames();
+            float position = time * clip.rate;
+            int k = (int)position;
+            if (k >= clip.sampleCount - 1 || position < 0)
+                return frames[((position < 0 ? 0 : clip.sampleCount - 1) << 1) + 1];
+            float r0 = frames[(k << 1) + 1];
+            return r0 + wrapDegrees(frames[(k << 1) + 3] - r0) * (position - k);
+        }
+    }
+}
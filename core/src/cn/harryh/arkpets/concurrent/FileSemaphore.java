@@ -0,0 +1,103 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import cn.harryh.arkpets.utils.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/** The class represents a counting semaphore shared by all the processes on the machine,
+ * which is backed by the byte-range locks of a file.
+ * <p>
+ * Each permit is one byte of the file, and a permit is held by holding the lock of its byte.
+ * Since the locks are released by the OS once their owner process has exited,
+ * a crashed process will never leak its permit.
+ * The locks are also exclusive among the holders in the same process.
+ * @since ArkPets 3.2
+ */
+public class FileSemaphore implements Closeable {
+    private final FileChannel channel;
+    private final int permits;
+    private FileLock lock;
+
+    private FileSemaphore(FileChannel channel, int permits) {
+        this.channel = channel;
+        this.permits = permits;
+    }
+
+    /** Opens the semaphore of the given file, creating the file if it does not exist.
+     * @param path The path to the lock file.
+     * @param permits The number of the permits, which should be the same among all the users of the file.
+     * @return The semaphore instance.
+     * @throws IOException If the file could not be opened.
+     */
+    public static FileSemaphore open(Path path, int permits) throws IOException {
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new FileSemaphore(channel, Math.max(1, permits));
+    }
+
+    /** Acquires a permit, blocking until one is available or the timeout has elapsed.
+     * @param pollInterval The interval to retry (ms).
+     * @param timeout The maximum time to wait (ms).
+     * @return true if a permit was acquired, false if timed out.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean acquire(long pollInterval, long timeout) throws InterruptedException {
+        if (lock != null)
+            return true;
+        long deadline = System.currentTimeMillis() + timeout;
+        do {
+            for (int i = 0; i < permits; i++) {
+                try {
+                    lock = channel.tryLock(i, 1, false);
+                } catch (OverlappingFileLockException e) {
+                    // Held by another user in this process
+                    lock = null;
+                } catch (IOException e) {
+                    Logger.warn("FileSemaphore", "Failed to lock permit " + i + ": " + e.getMessage());
+                    lock = null;
+                }
+                if (lock != null)
+                    return true;
+            }
+            Thread.sleep(pollInterval);
+        } while (System.currentTimeMillis() < deadline);
+        return false;
+    }
+
+    /** Releases the permit if it is held.
+     */
+    public void release() {
+        if (lock == null)
+            return;
+        try {
+            lock.release();
+        } catch (IOException e) {
+            Logger.warn("FileSemaphore", "Failed to release the permit: " + e.getMessage());
+        }
+        lock = null;
+    }
+
+    /** Releases the permit if it is held and closes the file.
+     */
+    @Override
+    public void close() {
+        release();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Logger.warn("FileSemaphore", "Failed to close the file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import cn.harryh.arkpets.utils.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** The class represents a memory-mapped board shared by all the ArkPets processes on the machine,
+ * where each pet publishes its window state into a fixed-size slot and reads the slots of its peers,
+ * so that the peers can be known without enumerating the windows.
+ * <p>
+ * Each slot is guarded by a sequence lock: the owner makes the sequence odd before writing and even after writing,
+ * and a reader retries if the sequence was odd or has changed during its reading.
+ * The slots are claimed by compare-and-set on their owner tokens,
+ * and a slot whose heartbeat has timed out may be reclaimed by another pet.
+ * The data on the board are advisory, so a pet should still behave well if the board is unavailable.
+ * @since ArkPets 3.2
+ */
+public class PeerBoard implements Closeable {
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final AtomicInteger instanceCounter = new AtomicInteger();
+    private static final int magic = 0x41504231;
+    private static final int headerSize = 64;
+    private static final int slotSize = 64;
+    static final int offSequence = 0;
+    static final int offOwner = 8;
+    static final int offHeartbeat = 16;
+    private static final int offHandle = 24;
+    private static final int offNumber = 32;
+    private static final int offX = 36;
+    private static final int offY = 40;
+    private static final int offWidth = 44;
+    private static final int offHeight = 48;
+    private static final int maxReadRetries = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long token;
+    private int slot = -1;
+    private long publishCount;
+    private long readRetryCount;
+    private long reclaimCount;
+
+    private PeerBoard(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        // The token is unique among the pets even if they are hosted by the same process
+        token = ProcessHandle.current().pid() << 16 | (instanceCounter.incrementAndGet() & 0xFFFF);
+    }
+
+    /** Opens the board of the given file, creating the file if it does not exist.
+     * @param path The path to the board file.
+     * @return The board instance.
+     * @throws IOException If the file could not be mapped or has an incompatible layout.
+     */
+    public static PeerBoard open(Path path) throws IOException {
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize + (long)slotSize * peerBoardSlots);
+            // The mapping zero-fills a new file, so the first opener stamps the magic number
+            int found = (int)INT.compareAndExchange(buffer, 0, 0, magic);
+            if (found != 0 && found != magic)
+                throw new IOException("Incompatible peer board file " + path);
+            return new PeerBoard(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Publishes the state of this pet, claiming a slot first if this pet has not owned one.
+     * This method is the only writer of the slot, so it must not be invoked by more than one thread at a time.
+     * @param number The peer number of this pet, which also decides the z-order among the peers.
+     * @param handle The native handle of the pet's window.
+     * @param x The x-position of the left edge of the window (px).
+     * @param y The y-position of the top edge of the window (px).
+     * @param width The width of the window (px).
+     * @param height The height of the window (px).
+     * @return true if the state was published, false if no slot is available.
+     */
+    public boolean publish(int number, long handle, float x, float y, float width, float height) {
+        if (slot < 0 || (long)LONG.getVolatile(buffer, slotBase(slot) + offOwner) != token) {
+            if (slot >= 0)
+                Logger.warn("PeerBoard", "Slot " + slot + " was reclaimed by another pet");
+            slot = claim();
+            if (slot < 0)
+                return false;
+        }
+        int base = slotBase(slot);
+        long sequence = (long)LONG.getOpaque(buffer, base + offSequence);
+        LONG.setOpaque(buffer, base + offSequence, sequence + 1);
+        VarHandle.storeStoreFence();
+        buffer.putLong(base + offHandle, handle);
+        buffer.putInt(base + offNumber, number);
+        buffer.putFloat(base + offX, x);
+        buffer.putFloat(base + offY, y);
+        buffer.putFloat(base + offWidth, width);
+        buffer.putFloat(base + offHeight, height);
+        LONG.setRelease(buffer, base + offSequence, sequence + 2);
+        LONG.setRelease(buffer, base + offHeartbeat, System.currentTimeMillis());
+        publishCount++;
+        return true;
+    }
+
+    /** Reads the live peers, namely the other pets whose heartbeats have not timed out.
+     * @param out The container to store the peers, whose previous content will be overwritten.
+     */
+    public void readPeers(Peers out) {
+        out.count = 0;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < peerBoardSlots; i++) {
+            if (i == slot)
+                continue;
+            int base = slotBase(i);
+            if ((long)LONG.getVolatile(buffer, base + offOwner) == 0)
+                continue;
+            if (now - (long)LONG.getAcquire(buffer, base + offHeartbeat) > peerBoardTimeout)
+                continue;
+            for (int retry = 0; retry < maxReadRetries; retry++) {
+                long before = (long)LONG.getAcquire(buffer, base + offSequence);
+                if ((before & 1) == 0) {
+                    int c = out.count;
+                    out.handles[c] = buffer.getLong(base + offHandle);
+                    out.numbers[c] = buffer.getInt(base + offNumber);
+                    out.x[c] = buffer.getFloat(base + offX);
+                    out.y[c] = buffer.getFloat(base + offY);
+                    out.widths[c] = buffer.getFloat(base + offWidth);
+                    out.heights[c] = buffer.getFloat(base + offHeight);
+                    VarHandle.loadLoadFence();
+                    if ((long)LONG.getOpaque(buffer, base + offSequence) == before) {
+                        out.count++;
+                        break;
+                    }
+                }
+                readRetryCount++;
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /** Releases the slot of this pet and closes the board.
+     */
+    @Override
+    public void close() {
+        if (slot >= 0)
+            LONG.compareAndSet(buffer, slotBase(slot) + offOwner, token, 0L);
+        slot = -1;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Logger.warn("PeerBoard", "Failed to close the board: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PeerBoard slot " + slot +
+                " {Publish: " + publishCount +
+                ", Read retries: " + readRetryCount +
+                ", Reclaims: " + reclaimCount + "}";
+    }
+
+    private int claim() {
+        long now = System.currentTimeMillis();
+        // Prefer a free slot, then take over a slot whose owner has stopped its heartbeat
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < peerBoardSlots; i++) {
+                int base = slotBase(i);
+                long owner = (long)LONG.getVolatile(buffer, base + offOwner);
+                boolean claimable = pass == 0 ? owner == 0 :
+                        owner != 0 && now - (long)LONG.getAcquire(buffer, base + offHeartbeat) > peerBoardTimeout;
+                if (claimable && LONG.compareAndSet(buffer, base + offOwner, owner, token)) {
+                    // The previous owner may have died in the middle of a write, leaving the sequence odd
+                    long sequence = (long)LONG.getOpaque(buffer, base + offSequence);
+                    LONG.setRelease(buffer, base + offSequence, sequence + (sequence & 1));
+                    LONG.setRelease(buffer, base + offHeartbeat, now);
+                    if (pass == 1)
+                        reclaimCount++;
+                    Logger.debug("PeerBoard", "Claimed slot " + i);
+                    return i;
+                }
+            }
+        }
+        Logger.warn("PeerBoard", "No slot is available on the board");
+        return -1;
+    }
+
+    static int slotBase(int slot) {
+        return headerSize + slot * slotSize;
+    }
+
+
+    /** The container of the peers read from the board, stored as parallel arrays to avoid allocation.
+     */
+    public static class Peers {
+        public final long[] handles = new long[peerBoardSlots];
+        public final int[] numbers = new int[peerBoardSlots];
+        public final float[] x = new float[peerBoardSlots];
+        public final float[] y = new float[peerBoardSlots];
+        public final float[] widths = new float[peerBoardSlots];
+        public final float[] heights = new float[peerBoardSlots];
+        public int count;
+    }
+}
@@ -3,10 +3,25 @@
  */
 package cn.harryh.arkpets.concurrent;
 
+import cn.harryh.arkpets.utils.Logger;
+
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static cn.harryh.arkpets.Const.*;
 
 
 public final class ProcessPool implements Executor {
@@ -22,6 +37,11 @@ public final class ProcessPool implements Executor {
                         return thread;
                     });
 
+    private final Map<String, ClassDataArchive> archives = new ConcurrentHashMap<>();
+    private volatile boolean classDataSharing = false;
+    private long nextStartTime = 0;
+    private volatile String childClasspath;
+
     private static volatile ProcessPool instance = null;
 
     public static ProcessPool getInstance() {
@@ -48,18 +68,100 @@ public final class ProcessPool implements Executor {
         executorService.shutdown();
     }
 
+    /** Sets whether to use the class data sharing (CDS) archives when starting the processes.
+     * If enabled, the first process of a class records a dynamic archive of its loaded classes at its exit,
+     * and the later processes of that class map the archive to skip most of the class loading.
+     * The archive will be recorded again after the app version, the Java runtime or the classpath has changed.
+     * @param classDataSharing true to enable.
+     */
+    public void setClassDataSharing(boolean classDataSharing) {
+        this.classDataSharing = classDataSharing;
+    }
+
+    /** Gets the classpath of the child processes, which excludes the libraries only used by the launcher,
+     * namely the JARs containing the packages of {@link cn.harryh.arkpets.Const#launcherOnlyPackages}
+     * but none of the classes of this app. So the fat JAR of the app is always kept.
+     * @return The classpath.
+     */
+    private String getChildClasspath() {
+        if (childClasspath == null) {
+            String classpath = System.getProperty("java.class.path");
+            List<String> kept = new ArrayList<>();
+            List<String> excluded = new ArrayList<>();
+            for (String entry : classpath.split(File.pathSeparator))
+                (isLauncherOnly(entry) ? excluded : kept).add(entry);
+            if (!excluded.isEmpty())
+                Logger.debug("ProcessPool", "Excluded the launcher-only libraries from the child classpath " + excluded);
+            childClasspath = String.join(File.pathSeparator, kept);
+        }
+        return childClasspath;
+    }
+
+    private static boolean isLauncherOnly(String entry) {
+        File file = new File(entry);
+        if (!file.isFile())
+            return false;
+        boolean hasLauncherOnlyClass = false;
+        try (JarFile jar = new JarFile(file)) {
+            for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                String name = entries.nextElement().getName();
+                if (!name.endsWith(".class"))
+                    continue;
+                if (name.startsWith("cn/harryh/arkpets/"))
+                    return false;
+                for (String prefix : launcherOnlyPackages)
+                    hasLauncherOnlyClass |= name.startsWith(prefix);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return hasLauncherOnlyClass;
+    }
+
+    /** Submits a task which starts a Java process and waits for its exit.
+     * The processes submitted together are started at intervals of {@link cn.harryh.arkpets.Const#coreLaunchStagger},
+     * so that their startups do not saturate the CPU at the same moment.
+     * @param clazz The main class.
+     * @param jvmArgs The arguments to the JVM.
+     * @param args The arguments to the main method.
+     * @return The future of the process result.
+     */
     public Future<ProcessResult> submit(Class<?> clazz, List<String> jvmArgs, List<String> args) {
+        final long startTime;
+        synchronized (this) {
+            startTime = Math.max(System.currentTimeMillis(), nextStartTime);
+            nextStartTime = startTime + coreLaunchStagger;
+        }
         FutureTask<ProcessResult> task = new FutureTask<> (() -> {
+            // Stagger the startup
+            long delay = startTime - System.currentTimeMillis();
+            if (delay > 0) {
+                Logger.debug("ProcessPool", "Staggering the process start by " + delay + "ms");
+                Thread.sleep(delay);
+            }
             // Attributes preparation
             String javaHome = System.getProperty("java.home");
             String javaBin = javaHome + File.separator + "bin" + File.separator + "java";
-            String classpath = System.getProperty("java.class.path");
+            String classpath = getChildClasspath();
             String className = clazz.getName();
+            ClassDataArchive archive = classDataSharing ?
+                    archives.computeIfAbsent(className, k -> new ClassDataArchive(className, javaHome, classpath)) : null;
             // Command preparation
             List<String> command = new ArrayList<>();
             command.add(javaBin);
             if (!jvmArgs.isEmpty())
                 command.addAll(jvmArgs);
+            boolean recording = false;
+            if (archive != null) {
+                String archiveArg = archive.getJvmArg();
+                if (archiveArg != null) {
+                    command.add(archiveArg);
+                    recording = archiveArg.startsWith(ClassDataArchive.recordArgPrefix);
+                    // Silence the warnings about the classes which cannot be archived
+                    if (recording)
+                        command.add("-Xlog:cds=off");
+                }
+            }
             command.add("-cp");
             command.add(classpath);
             command.add(className);
@@ -68,7 +170,13 @@ public final class ProcessPool implements Executor {
             // Process execution
             ProcessBuilder builder = new ProcessBuilder(command);
             Process process = builder.inheritIO().start();
-            int exitValue = process.waitFor();
+            int exitValue;
+            try {
+                exitValue = process.waitFor();
+            } finally {
+                if (recording)
+                    archive.onRecorded();
+            }
             return new ProcessResult(exitValue, process.pid());
         });
         executorService.submit(task);
@@ -76,6 +184,89 @@ public final class ProcessPool implements Executor {
     }
 
 
+    /** The class manages the dynamic CDS archive of a main class.
+     */
+    private static class ClassDataArchive {
+        static final String useArgPrefix = "-XX:SharedArchiveFile=";
+        static final String recordArgPrefix = "-XX:ArchiveClassesAtExit=";
+        private final Path archiveFile;
+        private final Path recordingFile;
+        private final Path keyFile;
+        private final String key;
+        private final boolean supported;
+        private final AtomicBoolean recording = new AtomicBoolean(false);
+
+        ClassDataArchive(String className, String javaHome, String classpath) {
+            Path dir = Path.of(PathConfig.tempClassArchiveDirPath).toAbsolutePath();
+            archiveFile = dir.resolve(className + ".jsa");
+            recordingFile = dir.resolve(className + ".jsa.tmp");
+            keyFile = dir.resolve(className + ".key");
+            // The archive is only valid for the exact runtime and classpath that recorded it
+            key = appVersion + "\n" + Runtime.version() + "\n" + javaHome + "\n" + classpath;
+            // The JVM refuses to dump the classes loaded from a non-empty directory, which is the case in development
+            supported = Arrays.stream(classpath.split(File.pathSeparator)).noneMatch(p -> new File(p).isDirectory());
+            if (!supported)
+                Logger.debug("ProcessPool", "Class data sharing is unsupported since the classpath contains directories");
+        }
+
+        /** Gets the JVM argument to use or to record the archive.
+         * @return The argument, or {@code null} if the archive is being recorded by another process,
+         *         or the last recording for the current key has failed, or the classpath is unsupported.
+         */
+        String getJvmArg() {
+            if (!supported)
+                return null;
+            if (isKeyMatched())
+                return Files.isRegularFile(archiveFile) ? useArgPrefix + archiveFile : null;
+            if (!recording.compareAndSet(false, true))
+                return null;
+            try {
+                Files.createDirectories(archiveFile.getParent());
+                // The JVM makes the archive read-only, which blocks the deletion on Windows
+                archiveFile.toFile().setWritable(true);
+                Files.deleteIfExists(archiveFile);
+                Files.deleteIfExists(recordingFile);
+                Files.deleteIfExists(keyFile);
+            } catch (IOException e) {
+                Logger.warn("ProcessPool", "Failed to prepare the class data archive: " + e.getMessage());
+                recording.set(false);
+                return null;
+            }
+            Logger.info("ProcessPool", "Recording the class data archive " + archiveFile.getFileName());
+            return recordArgPrefix + recordingFile;
+        }
+
+        /** Finishes the recording after the recording process has exited.
+         * The key is written even if no archive was produced, so that a failed recording will not be repeated.
+         */
+        void onRecorded() {
+            try {
+                if (Files.isRegularFile(recordingFile)) {
+                    archiveFile.toFile().setWritable(true);
+                    Files.move(recordingFile, archiveFile, StandardCopyOption.REPLACE_EXISTING);
+                    Logger.info("ProcessPool", "Recorded the class data archive " + archiveFile.getFileName() +
+                            " (" + Files.size(archiveFile) / 1024 + " KB)");
+                } else {
+                    Logger.warn("ProcessPool", "The class data archive was not produced by the recording process");
+                }
+                Files.writeString(keyFile, key, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                Logger.warn("ProcessPool", "Failed to save the class data archive: " + e.getMessage());
+            } finally {
+                recording.set(false);
+            }
+        }
+
+        private boolean isKeyMatched() {
+            try {
+                return Files.isRegularFile(keyFile) && key.equals(Files.readString(keyFile, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+
     public record ProcessResult(int exitValue, long processId) {
         public boolean isSuccess() {
             return exitValue() == 0;
@@ -10,29 +10,59 @@ import com.alibaba.fastjson2.JSONObject;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import static cn.harryh.arkpets.Const.*;
 
 
 public class SocketClient {
+    private static volatile SocketClient sharedInstance = null;
+    private final Map<UUID, MemberTrayImpl> members = new ConcurrentHashMap<>();
+    private final UUID hostUuid = UUID.randomUUID();
+    private Consumer<SocketData> launchHandler;
+    private SocketData.Operation launchRole;
+    private final Queue<SocketData> pendingRequests = new ArrayDeque<>();
     private boolean connected = false;
     private SocketSession session;
     private Timer timer;
 
     public SocketClient() {
     }
-    
+
+    /** Gets the client shared by all the ArkPets instances in this process,
+     * so that they communicate with the server via a single session.
+     * @return The shared client.
+     */
+    public static SocketClient getShared() {
+        if (sharedInstance == null)
+            synchronized (SocketClient.class) {
+                if (sharedInstance == null)
+                    sharedInstance = new SocketClient();
+            }
+        return sharedInstance;
+    }
+
     public void connectWithRetry(Runnable onConnected, SocketSession session) {
-        timer = new Timer();
+        if (timer != null)
+            timer.cancel();
+        Timer retryTimer = new Timer();
+        timer = retryTimer;
         timer.schedule(new TimerTask() {
                            @Override
                            public void run() {
                                connect(onConnected, session);
-                               if (connected)
-                                   timer.cancel();
+                               if (connected) {
+                                   retryTimer.cancel();
+                                   if (timer == retryTimer)
+                                       timer = null;
+                               }
                            }
                        },
                 reconnectDelayMillis,
@@ -40,7 +70,7 @@ public class SocketClient {
         );
     }
 
-    public void connect(Runnable onConnected, SocketSession session) {
+    public synchronized void connect(Runnable onConnected, SocketSession session) {
         if (connected)
             return;
         try {
@@ -55,6 +85,8 @@ public class SocketClient {
                 ProcessPool.getInstance().execute(session);
                 this.session = session;
                 Logger.info("SocketClient", "(+)" + session + " connected");
+                while (!pendingRequests.isEmpty())
+                    sendRequest(pendingRequests.poll());
                 if (onConnected != null)
                     onConnected.run();
             } catch (IOException e) {
@@ -81,16 +113,86 @@ public class SocketClient {
              session.send(JSONObject.toJSONString(socketData));
     }
 
+    /** Reports a lifecycle event of an ArkPets instance in this process.
+     * The report will be held until connected if the server is unreachable now.
+     * @param launchId The ID of the launch given by the launcher.
+     * @param event The event.
+     * @param cause The cause of the {@code FATAL_ERROR} event, otherwise {@code null}.
+     */
+    public synchronized void sendLifecycle(long launchId, SocketData.LifecycleEvent event, String cause) {
+        SocketData socketData = SocketData.ofLifecycle(hostUuid,
+                new SocketData.Lifecycle(launchId, event, System.currentTimeMillis(), cause));
+        if (connected && session != null)
+            sendRequest(socketData);
+        else if (pendingRequests.size() < pendingRequestsCapacity)
+            pendingRequests.add(socketData);
+    }
+
+    /** Adds a member tray which communicates via this client, connecting to the server if not connected yet.
+     * @param memberTray The member tray to add.
+     */
+    public synchronized void addMember(MemberTrayImpl memberTray) {
+        members.put(memberTray.getUuid(), memberTray);
+        if (connected) {
+            memberTray.onConnected();
+            return;
+        }
+        if (timer == null)
+            connect(this::onConnected, new ClientSocketSession(this));
+        if (!connected) {
+            memberTray.onDisconnected();
+            if (timer == null)
+                connectWithRetry(this::onConnected, new ClientSocketSession(this));
+        }
+    }
+
+    /** Removes a member tray, disconnecting from the server if it was the last member.
+     * @param uuid The UUID of the member tray to remove.
+     */
+    public synchronized void removeMember(UUID uuid) {
+        if (members.remove(uuid) == null || !members.isEmpty())
+            return;
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+        disconnect();
+    }
+
+    /** Makes this client able to launch ArkPets instances in this process.
+     * The server will route the launch requests to this client once it has been connected.
+     * @param handler The handler of the launch requests, which will be invoked on the thread of the session,
+     *                or {@code null} to stop receiving the launch requests.
+     * @param role {@code HOSTING} if this process hosts more instances besides its existing ones,
+     *             or {@code STANDBY} if this process is idle and waits for its first instance.
+     */
+    public synchronized void setLaunchHandler(Consumer<SocketData> handler, SocketData.Operation role) {
+        launchHandler = handler;
+        launchRole = role;
+        if (connected && handler != null)
+            sendRequest(SocketData.ofOperation(hostUuid, role));
+    }
+
+    private void onConnected() {
+        members.values().forEach(MemberTrayImpl::onConnected);
+        if (launchHandler != null)
+            sendRequest(SocketData.ofOperation(hostUuid, launchRole));
+    }
+
+    private synchronized void onBroken() {
+        members.values().forEach(MemberTrayImpl::onDisconnected);
+        disconnect();
+        if (!members.isEmpty())
+            connectWithRetry(this::onConnected, new ClientSocketSession(this));
+    }
+
 
     public static class ClientSocketSession extends SocketSession {
         private final SocketClient client;
-        private final MemberTrayImpl memberTray;
-        private UUID uuid = null;
 
-        public ClientSocketSession(SocketClient client, MemberTrayImpl memberTray) {
+        public ClientSocketSession(SocketClient client) {
             super();
             this.client = client;
-            this.memberTray = memberTray;
         }
 
         @Override
@@ -99,10 +201,14 @@ public class SocketClient {
                 SocketData socketData = SocketData.of(request);
                 if (socketData == null || socketData.operation == null)
                     return;
-                if (uuid == null)
-                    uuid = socketData.uuid;
-                if (socketData.uuid.compareTo(this.uuid) == 0 && memberTray != null) {
-                    // If the connection is normal:
+                if (socketData.operation == SocketData.Operation.LAUNCH) {
+                    if (client.launchHandler != null)
+                        client.launchHandler.accept(socketData);
+                    return;
+                }
+                // Dispatch the request to the member it belongs to
+                MemberTrayImpl memberTray = socketData.uuid == null ? null : client.members.get(socketData.uuid);
+                if (memberTray != null) {
                     switch (socketData.operation) {
                         case LOGOUT                 -> memberTray.onExit();
                         case KEEP_ACTION            -> memberTray.onKeepAnimEn();
@@ -110,6 +216,8 @@ public class SocketClient {
                         case TRANSPARENT_MODE       -> memberTray.onTransparentEn();
                         case NO_TRANSPARENT_MODE    -> memberTray.onTransparentDis();
                         case CHANGE_STAGE           -> memberTray.onChangeStage();
+                        case SUSPEND                -> memberTray.onSuspendEn();
+                        case NO_SUSPEND             -> memberTray.onSuspendDis();
                     }
                 }
             } catch (JSONException ignored) {
@@ -124,9 +232,7 @@ public class SocketClient {
         @Override
         protected void onBroken() {
             Logger.info("SocketClient", "(x)" + this + " broken");
-            memberTray.onDisconnected();
-            client.disconnect();
-            client.connectWithRetry(memberTray::onConnected, new ClientSocketSession(client, memberTray));
+            client.onBroken();
         }
     }
 }
@@ -3,6 +3,7 @@
  */
 package cn.harryh.arkpets.concurrent;
 
+import cn.harryh.arkpets.utils.MemoryFootprint;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.annotation.JSONField;
 
@@ -23,9 +24,26 @@ public class SocketData implements Serializable {
         NO_TRANSPARENT_MODE,
         CAN_CHANGE_STAGE,
         CHANGE_STAGE,
+        SUSPEND,
+        NO_SUSPEND,
         HANDSHAKE_REQUEST,
         HANDSHAKE_RESPONSE,
-        ACTIVATE_LAUNCHER
+        ACTIVATE_LAUNCHER,
+        HOSTING,
+        STANDBY,
+        LAUNCH,
+        FOOTPRINT,
+        LIFECYCLE
+    }
+
+    /** The phases which an ArkPets instance reports during its launch.
+     */
+    public enum LifecycleEvent {
+        PROCESS_STARTED,
+        ASSETS_LOADED,
+        CANVAS_FITTED,
+        FIRST_FRAME_PRESENTED,
+        FATAL_ERROR
     }
 
     /** The UUID for identification.
@@ -65,11 +83,74 @@ public class SocketData implements Serializable {
         return new SocketData(uuid, Operation.LOGIN, StringDTO.of(name));
     }
 
+    /** Creates a request to launch an ArkPets instance in the receiver's process.
+     * @param uuid The UUID of the receiver.
+     * @param configJson The JSON string of the config which the instance should use.
+     * @param requestTime The time when the user requested the launch (ms since the epoch).
+     * @return The request.
+     */
+    public static SocketData ofLaunch(UUID uuid, String configJson, long requestTime) {
+        JSONObject payload = new JSONObject();
+        payload.put("config", JSONObject.parseObject(configJson));
+        payload.put("requestTime", requestTime);
+        return new SocketData(uuid, Operation.LAUNCH, StringDTO.of(payload.toJSONString()));
+    }
+
+    /** Creates a report of the memory footprint of the sender's process.
+     * @param uuid The UUID of the sender.
+     * @param footprint The measured footprint.
+     * @return The report.
+     */
+    public static SocketData ofFootprint(UUID uuid, MemoryFootprint footprint) {
+        return new SocketData(uuid, Operation.FOOTPRINT, StringDTO.of(footprint.toJson()));
+    }
+
+    /** Creates a report of a lifecycle event of an ArkPets instance.
+     * @param uuid The UUID of the sender.
+     * @param lifecycle The lifecycle event.
+     * @return The report.
+     */
+    public static SocketData ofLifecycle(UUID uuid, Lifecycle lifecycle) {
+        JSONObject payload = new JSONObject();
+        payload.put("launchId", lifecycle.launchId());
+        payload.put("event", lifecycle.event().name());
+        payload.put("time", lifecycle.time());
+        payload.put("cause", lifecycle.cause());
+        return new SocketData(uuid, Operation.LIFECYCLE, StringDTO.of(payload.toJSONString()));
+    }
+
     public static SocketData ofOperation(UUID uuid, Operation operation) {
         return new SocketData(uuid, operation, null);
     }
 
 
+    /** The lifecycle event of an ArkPets instance.
+     * @param launchId The ID of the launch, given by the launcher.
+     * @param event The event.
+     * @param time The time when the event happened (ms since the epoch).
+     * @param cause The cause of the {@code FATAL_ERROR} event, otherwise {@code null}.
+     */
+    public record Lifecycle(long launchId, LifecycleEvent event, long time, String cause) {
+        /** Parses a lifecycle event.
+         * @param socketData The socket data of the {@code LIFECYCLE} operation.
+         * @return The lifecycle event, or {@code null} if it is malformed.
+         */
+        public static Lifecycle of(SocketData socketData) {
+            try {
+                JSONObject payload = JSONObject.parseObject(socketData.getMsgString());
+                return new Lifecycle(
+                        payload.getLongValue("launchId"),
+                        LifecycleEvent.valueOf(payload.getString("event")),
+                        payload.getLongValue("time"),
+                        payload.getString("cause")
+                );
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+
     private static class StringDTO {
         public byte[] bytes;
         public String encoding;
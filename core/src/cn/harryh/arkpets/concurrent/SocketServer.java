@@ -6,16 +6,20 @@ package cn.harryh.arkpets.concurrent;
 import cn.harryh.arkpets.tray.HostTray;
 import cn.harryh.arkpets.tray.MemberTrayProxy;
 import cn.harryh.arkpets.utils.Logger;
+import cn.harryh.arkpets.utils.MemoryFootprint;
 import com.alibaba.fastjson2.JSONException;
 
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static cn.harryh.arkpets.Const.serverPorts;
 
@@ -25,6 +29,9 @@ public final class SocketServer {
     private ServerSocket serverSocket = null;
     private final Set<SocketSession> sessionList = new CopyOnWriteArraySet<>();
     private Thread listener;
+    private volatile ServerSocketSession hostSession;
+    private volatile ServerSocketSession standbySession;
+    private volatile Consumer<SocketData.Lifecycle> lifecycleListener;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private static volatile SocketServer instance = null;
 
@@ -74,6 +81,62 @@ public final class SocketServer {
         running.set(true);
     }
 
+    /** Requests a connected host to launch an ArkPets instance in its process.
+     * @param configJson The JSON string of the config which the instance should use.
+     * @param requestTime The time when the user requested the launch (ms since the epoch).
+     * @return true if the request was sent, false if no host is available.
+     */
+    public boolean requestLaunch(String configJson, long requestTime) {
+        ServerSocketSession host = hostSession;
+        if (!running.get() || host == null || host.isClosed())
+            return false;
+        Logger.info("SocketServer", "Routing the launch request to host " + host);
+        host.send(SocketData.ofLaunch(host.hostUuid, configJson, requestTime));
+        return true;
+    }
+
+    /** Requests a connected standby process to launch an ArkPets instance.
+     * The standby process can only be used once, after which it becomes an ordinary ArkPets process.
+     * @param configJson The JSON string of the config which the instance should use.
+     * @param requestTime The time when the user requested the launch (ms since the epoch).
+     * @return true if the request was sent, false if no standby process is available.
+     */
+    public synchronized boolean requestStandbyLaunch(String configJson, long requestTime) {
+        ServerSocketSession standby = standbySession;
+        standbySession = null;
+        if (!running.get() || standby == null || standby.isClosed())
+            return false;
+        Logger.info("SocketServer", "Routing the launch request to standby " + standby);
+        standby.send(SocketData.ofLaunch(standby.hostUuid, configJson, requestTime));
+        return true;
+    }
+
+    /** Returns true if a standby process has been connected and not been used yet.
+     */
+    public boolean hasStandby() {
+        ServerSocketSession standby = standbySession;
+        return standby != null && !standby.isClosed();
+    }
+
+    /** Sets the listener of the lifecycle events reported by the ArkPets instances.
+     * @param listener The listener, which will be invoked on the thread of the session.
+     */
+    public void setLifecycleListener(Consumer<SocketData.Lifecycle> listener) {
+        lifecycleListener = listener;
+    }
+
+    /** Gets the total memory of the connected ArkPets processes, based on their latest footprint reports.
+     * The processes which have not reported yet are not counted.
+     * @return The total memory (bytes).
+     */
+    public long getTotalFootprint() {
+        long total = 0;
+        for (SocketSession session : sessionList)
+            if (session instanceof ServerSocketSession serverSession && !serverSession.isClosed() && serverSession.footprint != null)
+                total += serverSession.footprint.total();
+        return total;
+    }
+
     /** Stops the server and close all the sessions.
      */
     public synchronized void stopServer() {
@@ -108,8 +171,10 @@ public final class SocketServer {
 
     public static class ServerSocketSession extends SocketSession {
         private final HostTray hostTray;
-        private MemberTrayProxy tray;
+        private final Map<UUID, MemberTrayProxy> trays = new ConcurrentHashMap<>();
         private UUID uuid = null;
+        private UUID hostUuid = null;
+        private volatile MemoryFootprint footprint = null;
 
         public ServerSocketSession(HostTray hostTray) {
             super();
@@ -131,21 +196,60 @@ public final class SocketServer {
                         close();
                     }
                     case ACTIVATE_LAUNCHER -> hostTray.showStage();
+                    case HOSTING -> {
+                        hostUuid = socketData.uuid;
+                        SocketServer.getInstance().hostSession = this;
+                        Logger.info("SocketServer", this + " is hosting");
+                    }
+                    case STANDBY -> {
+                        hostUuid = socketData.uuid;
+                        SocketServer.getInstance().standbySession = this;
+                        Logger.info("SocketServer", this + " is standing by");
+                    }
+                    case FOOTPRINT -> {
+                        // The members of the same process report the same footprint, so keep the latest one
+                        MemoryFootprint reported = MemoryFootprint.of(socketData.getMsgString());
+                        if (reported != null) {
+                            footprint = reported;
+                            Logger.debug("SocketServer", this + " reported " + reported);
+                        }
+                    }
+                    case LIFECYCLE -> {
+                        SocketData.Lifecycle lifecycle = SocketData.Lifecycle.of(socketData);
+                        Consumer<SocketData.Lifecycle> listener = SocketServer.getInstance().lifecycleListener;
+                        if (lifecycle != null && listener != null)
+                            listener.accept(lifecycle);
+                    }
                     case LOGIN -> {
-                        tray = new MemberTrayProxy(socketData, this, hostTray);
-                        hostTray.addMemberTray(uuid, tray);
+                        MemberTrayProxy tray = new MemberTrayProxy(socketData, this, hostTray);
+                        trays.put(socketData.uuid, tray);
+                        hostTray.addMemberTray(socketData.uuid, tray);
                     }
                     case LOGOUT -> {
-                        hostTray.removeMemberTray(uuid);
-                        tray.onExit();
-                        close();
+                        MemberTrayProxy tray = trays.remove(socketData.uuid);
+                        if (tray != null) {
+                            hostTray.removeMemberTray(socketData.uuid);
+                            tray.onExit();
+                        }
+                        // The session is shared by all the members of the process, so keep it until the last one leaves
+                        if (trays.isEmpty() && hostUuid == null)
+                            close();
+                    }
+                    default -> {
+                        MemberTrayProxy tray = trays.get(socketData.uuid);
+                        if (tray == null)
+                            return;
+                        switch (socketData.operation) {
+                            case KEEP_ACTION            -> tray.onKeepAnimEn();
+                            case NO_KEEP_ACTION         -> tray.onKeepAnimDis();
+                            case TRANSPARENT_MODE       -> tray.onTransparentEn();
+                            case NO_TRANSPARENT_MODE    -> tray.onTransparentDis();
+                            case CAN_CHANGE_STAGE       -> tray.onCanChangeStage();
+                            case CHANGE_STAGE           -> tray.onChangeStage();
+                            case SUSPEND                -> tray.onSuspendEn();
+                            case NO_SUSPEND             -> tray.onSuspendDis();
+                        }
                     }
-                    case KEEP_ACTION            -> tray.onKeepAnimEn();
-                    case NO_KEEP_ACTION         -> tray.onKeepAnimDis();
-                    case TRANSPARENT_MODE       -> tray.onTransparentEn();
-                    case NO_TRANSPARENT_MODE    -> tray.onTransparentDis();
-                    case CAN_CHANGE_STAGE       -> tray.onCanChangeStage();
-                    case CHANGE_STAGE           -> tray.onChangeStage();
                 }
             } catch (JSONException ignored) {
             }
@@ -155,12 +259,21 @@ public final class SocketServer {
         protected void onClosed() {
             Logger.info("SocketServer", "(-)" + this + " closed");
             SocketServer.getInstance().sessionList.remove(this);
+            if (SocketServer.getInstance().hostSession == this)
+                SocketServer.getInstance().hostSession = null;
+            if (SocketServer.getInstance().standbySession == this)
+                SocketServer.getInstance().standbySession = null;
         }
 
         @Override
         protected void onBroken() {
             Logger.info("SocketServer", "(x)" + this + " broken");
-            hostTray.removeMemberTray(uuid);
+            trays.keySet().forEach(hostTray::removeMemberTray);
+            trays.clear();
+            if (SocketServer.getInstance().hostSession == this)
+                SocketServer.getInstance().hostSession = null;
+            if (SocketServer.getInstance().standbySession == this)
+                SocketServer.getInstance().standbySession = null;
         }
     }
 }
@@ -46,6 +46,12 @@ abstract public class SocketSession implements Runnable {
         return target != null ? target.getPort() : 0;
     }
 
+    /** Returns true if this session has been closed.
+     */
+    public final boolean isClosed() {
+        return hasClosed || (target != null && target.isClosed());
+    }
+
     /** Closes this session together with the socket and the I/O stream.
      */
     public final void close() {
@@ -0,0 +1,27 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.transitions;
+
+
+/** The interface represents an easing function that works on primitive floats only.
+ * @since ArkPets 3.2
+ */
+@SuppressWarnings("unused")
+@FunctionalInterface
+public interface EasingFunction {
+    /** Gets the eased value between the two given values.
+     * @param begin The starting value.
+     * @param end The ending value.
+     * @param progress The progress ratio in [0, 1].
+     * @return The eased value.
+     */
+    float apply(float begin, float end, float progress);
+
+    EasingFunction LINEAR = (b, e, p) -> b + p * (e - b);
+
+    EasingFunction EASE_OUT_CUBIC = (b, e, p) -> {
+        float q = 1 - p;
+        return b + (1 - q * q * q) * (e - b);
+    };
+}
@@ -0,0 +1,68 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.transitions;
+
+
+/** The class represents a transition,
+ * which controls a pair of primitive floats (x,y) transit from their starting values to their ending values.
+ * @since ArkPets 3.2
+ */
+public class Float2Transition extends PrimitiveTransition {
+    protected float startX, startY;
+    protected float endX, endY;
+    protected float nowX, nowY;
+
+    public Float2Transition(EasingFunction function, float totalProgress) {
+        super(function, totalProgress);
+    }
+
+    public float endX() {
+        return endX;
+    }
+
+    public float endY() {
+        return endY;
+    }
+
+    public float nowX() {
+        validate();
+        return nowX;
+    }
+
+    public float nowY() {
+        validate();
+        return nowY;
+    }
+
+    /** Updates the ending values of the transition and resets the current progress to 0.
+     * @param x The new ending x.
+     * @param y The new ending y.
+     */
+    public void reset(float x, float y) {
+        if (endX == x && endY == y)
+            return;
+        validate();
+        startX = nowX;
+        startY = nowY;
+        endX = x;
+        endY = y;
+        restart();
+    }
+
+    @Override
+    protected void update(float ratio) {
+        nowX = function.apply(startX, endX, ratio);
+        nowY = function.apply(startY, endY, ratio);
+    }
+
+    @Override
+    protected boolean isSteady() {
+        return startX == endX && startY == endY;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [(" + startX + "," + startY + "), (" + endX + "," + endY + ")]";
+    }
+}
@@ -0,0 +1,81 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.transitions;
+
+
+/** The class represents a transition,
+ * which controls three primitive floats (x,y,z) transit from their starting values to their ending values.
+ * @since ArkPets 3.2
+ */
+public class Float3Transition extends PrimitiveTransition {
+    protected float startX, startY, startZ;
+    protected float endX, endY, endZ;
+    protected float nowX, nowY, nowZ;
+
+    public Float3Transition(EasingFunction function, float totalProgress) {
+        super(function, totalProgress);
+    }
+
+    public float endX() {
+        return endX;
+    }
+
+    public float endY() {
+        return endY;
+    }
+
+    public float endZ() {
+        return endZ;
+    }
+
+    public float nowX() {
+        validate();
+        return nowX;
+    }
+
+    public float nowY() {
+        validate();
+        return nowY;
+    }
+
+    public float nowZ() {
+        validate();
+        return nowZ;
+    }
+
+    /** Updates the ending values of the transition and resets the current progress to 0.
+     * @param x The new ending x.
+     * @param y The new ending y.
+     * @param z The new ending z.
+     */
+    public void reset(float x, float y, float z) {
+        if (endX == x && endY == y && endZ == z)
+            return;
+        validate();
+        startX = nowX;
+        startY = nowY;
+        startZ = nowZ;
+        endX = x;
+        endY = y;
+        endZ = z;
+        restart();
+    }
+
+    @Override
+    protected void update(float ratio) {
+        nowX = function.apply(startX, endX, ratio);
+        nowY = function.apply(startY, endY, ratio);
+        nowZ = function.apply(startZ, endZ, ratio);
+    }
+
+    @Override
+    protected boolean isSteady() {
+        return startX == endX && startY == endY && startZ == endZ;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [(" + startX + "," + startY + "," + startZ + "), (" + endX + "," + endY + "," + endZ + ")]";
+    }
+}
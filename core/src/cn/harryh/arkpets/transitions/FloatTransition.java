@@ -0,0 +1,58 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.transitions;
+
+
+/** The class represents a transition,
+ * which controls a primitive float transit from its starting value to its ending value.
+ * @since ArkPets 3.2
+ */
+public class FloatTransition extends PrimitiveTransition {
+    protected float start;
+    protected float end;
+    protected float now;
+
+    public FloatTransition(EasingFunction function, float totalProgress) {
+        super(function, totalProgress);
+    }
+
+    public float start() {
+        return start;
+    }
+
+    public float end() {
+        return end;
+    }
+
+    public float now() {
+        validate();
+        return now;
+    }
+
+    /** Updates the ending value of the transition and resets the current progress to 0.
+     * @param end The new ending value.
+     */
+    public void reset(float end) {
+        if (this.end == end)
+            return;
+        start = now();
+        this.end = end;
+        restart();
+    }
+
+    @Override
+    protected void update(float ratio) {
+        now = function.apply(start, end, ratio);
+    }
+
+    @Override
+    protected boolean isSteady() {
+        return start == end;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [" + start + ", " + end + ']';
+    }
+}
@@ -3,59 +3,57 @@
  */
 package cn.harryh.arkpets.transitions;
 
-import java.util.Objects;
 
-
-/** The class represents a transition,
- * which controls a value transit from its starting value to its ending value.
- * @param <E> The type of the value.
- * @since ArkPets 2.3
+/** The class represents a transition of primitive float values.
+ * The current values are computed at most once per progress step and cached until the progress or the values change,
+ * so that reading them allocates nothing.
+ * @since ArkPets 3.2
  */
-abstract public class Transition<E> {
-    protected E start;
-    protected E end;
+abstract public class PrimitiveTransition {
+    protected final EasingFunction function;
     protected float currentProgress;
     protected float totalProgress;
+    private float cachedProgress = Float.NaN;
 
     /** Initializes a transition.
+     * @param function The easing function.
      * @param totalProgress The total progress of the transition.
      */
-    public Transition(float totalProgress) {
+    public PrimitiveTransition(EasingFunction function, float totalProgress) {
+        this.function = function;
         setTotalProgress(totalProgress);
     }
 
-    /** Gets the certain value at the specific progress.
-     * @param progress The given progress
-     * @return The value at the given progress.
+    /** Computes the current values at the given progress ratio.
+     * @param ratio The progress ratio in [0, 1].
      */
-    abstract public E atProgress(float progress);
+    abstract protected void update(float ratio);
 
-    /** Gets the starting value.
-     * @return The starting value.
+    /** Returns {@code true} if the starting values equal the ending values.
      */
-    public final E start() {
-        return start;
-    }
+    abstract protected boolean isSteady();
 
-    /** Gets the ending value.
-     * @return The ending value.
+    /** Makes sure the cached current values correspond to the current progress.
      */
-    public final E end() {
-        return end;
+    protected final void validate() {
+        if (cachedProgress != currentProgress) {
+            update(currentProgress / totalProgress);
+            cachedProgress = currentProgress;
+        }
     }
 
-    /** Gets the current value.
-     * @return The current value.
+    /** Restarts the transition after its starting and ending values have been updated.
      */
-    public final E now() {
-        return atProgress(currentProgress);
+    protected final void restart() {
+        currentProgress = 0;
+        cachedProgress = Float.NaN;
     }
 
     /** Returns {@code true} if the transition is at its ending point.
      * @return true=ended, false=not-yet-ended.
      */
     public final boolean isEnded() {
-        return Objects.equals(now(), end());
+        return currentProgress >= totalProgress || isSteady();
     }
 
     /** Adds the given progress to the transition progress.
@@ -65,17 +63,6 @@ abstract public class Transition<E> {
         setCurrentProgress(currentProgress + progress);
     }
 
-    /** Updates the ending value of the transition and resets the current progress to 0.
-     * @param end The new ending value.
-     */
-    public final void reset(E end) {
-        if (Objects.equals(this.end, end))
-            return;
-        this.start = now();
-        this.end = end;
-        currentProgress = 0;
-    }
-
     /** Sets the current progress of the transition.
      * @param currentProgress The new current progress.
      */
@@ -89,8 +76,8 @@ abstract public class Transition<E> {
     public final void setTotalProgress(float totalProgress) {
         if (totalProgress <= 0)
             throw new IllegalArgumentException("Total progress must be greater than 0");
-        currentProgress = 0;
         this.totalProgress = totalProgress;
+        restart();
     }
 
     /** Sets the transition to its ending point where {@code currentProgress = totalProgress}.
@@ -104,9 +91,4 @@ abstract public class Transition<E> {
     public final void setToStart() {
         this.currentProgress = 0;
     }
-
-    @Override
-    public String toString() {
-        return getClass().getSimpleName() + " [" + start + ", " + end + ']';
-    }
 }
@@ -16,6 +16,8 @@ public abstract class MemberTray {
     protected JMenuItem optTransparentEn    = new JMenuItem("Transparent mode");
     protected JMenuItem optTransparentDis   = new JMenuItem("Cancel transparency");
     protected JMenuItem optChangeStage      = new JMenuItem("Switch form");
+    protected JMenuItem optSuspendEn        = new JMenuItem("Suspend");
+    protected JMenuItem optSuspendDis       = new JMenuItem("Resume");
     protected JMenuItem optExit             = new JMenuItem("Quit");
     protected final UUID uuid;
     protected final String name;
@@ -36,6 +38,8 @@ public abstract class MemberTray {
         optTransparentEn    .addActionListener(e -> onTransparentEn());
         optTransparentDis   .addActionListener(e -> onTransparentDis());
         optChangeStage      .addActionListener(e -> onChangeStage());
+        optSuspendEn        .addActionListener(e -> onSuspendEn());
+        optSuspendDis       .addActionListener(e -> onSuspendDis());
         optExit             .addActionListener(e -> onExit());
 
         optKeepAnimEn       .addActionListener(e -> sendOperation(SocketData.Operation.KEEP_ACTION));
@@ -43,9 +47,15 @@ public abstract class MemberTray {
         optTransparentEn    .addActionListener(e -> sendOperation(SocketData.Operation.TRANSPARENT_MODE));
         optTransparentDis   .addActionListener(e -> sendOperation(SocketData.Operation.NO_TRANSPARENT_MODE));
         optChangeStage      .addActionListener(e -> sendOperation(SocketData.Operation.CHANGE_STAGE));
+        optSuspendEn        .addActionListener(e -> sendOperation(SocketData.Operation.SUSPEND));
+        optSuspendDis       .addActionListener(e -> sendOperation(SocketData.Operation.NO_SUSPEND));
         optExit             .addActionListener(e -> sendOperation(SocketData.Operation.LOGOUT));
     }
 
+    public UUID getUuid() {
+        return uuid;
+    }
+
     abstract public void onExit();
 
     abstract public void onChangeStage();
@@ -58,6 +68,10 @@ public abstract class MemberTray {
 
     abstract public void onKeepAnimEn();
 
+    abstract public void onSuspendDis();
+
+    abstract public void onSuspendEn();
+
     abstract public void remove();
 
     abstract public void sendOperation(SocketData.Operation operation);
@@ -7,9 +7,7 @@ import cn.harryh.arkpets.ArkPets;
 import cn.harryh.arkpets.animations.AnimData;
 import cn.harryh.arkpets.concurrent.SocketClient;
 import cn.harryh.arkpets.concurrent.SocketData;
-import cn.harryh.arkpets.concurrent.SocketSession;
 import cn.harryh.arkpets.utils.Logger;
-import com.badlogic.gdx.Gdx;
 
 import javax.swing.*;
 import java.awt.*;
@@ -33,8 +31,9 @@ public class MemberTrayImpl extends MemberTray {
 
     /** Initializes a per-character tray icon instance for an ArkPets. <br/>
      * Must be used after Gdx.app was initialized.
+     * The tray is added to the client as a member, and it will be removed from the client once it is removed.
      * @param boundArkPets The ArkPets instance that bound to the tray icon.
-     * @param client The socket client that bound to the tray icon.
+     * @param client The socket client that bound to the tray icon, which may be shared by the other trays.
      */
     public MemberTrayImpl(ArkPets boundArkPets, SocketClient client) {
         super(getName(boundArkPets));
@@ -59,16 +58,11 @@ public class MemberTrayImpl extends MemberTray {
         popMenu.add(optTransparentEn);
         if (arkPets.canChangeStage())
             popMenu.add(optChangeStage);
+        popMenu.add(optSuspendEn);
         popMenu.add(optExit);
         popMenu.setSize(100, 24 * popMenu.getSubElements().length);
 
-        Runnable onConnected = this::onConnected;
-        SocketSession session = new SocketClient.ClientSocketSession(client, this);
-        client.connect(onConnected, session);
-        if (!client.isConnected()) {
-            onDisconnected();
-            client.connectWithRetry(onConnected, session);
-        }
+        client.addMember(this);
     }
 
     private static String getName(ArkPets boundArkPets) {
@@ -93,12 +87,11 @@ public class MemberTrayImpl extends MemberTray {
     public void onExit() {
         Logger.info("MemberTray", "Request to exit");
         remove();
-        client.disconnect();
         arkPets.windowAlpha.reset(0f);
         new Timer().schedule(new TimerTask() {
             @Override
             public void run() {
-                Gdx.app.exit();
+                arkPets.close();
             }
         }, (int)(easingDuration * 1000));
     }
@@ -148,6 +141,22 @@ public class MemberTrayImpl extends MemberTray {
         popMenu.add(optKeepAnimDis, 1);
     }
 
+    @Override
+    public void onSuspendDis() {
+        Logger.info("MemberTray", "Suspend disabled");
+        arkPets.setSuspendedByUser(false);
+        popMenu.remove(optSuspendDis);
+        popMenu.add(optSuspendEn, popMenu.getComponentIndex(optExit));
+    }
+
+    @Override
+    public void onSuspendEn() {
+        Logger.info("MemberTray", "Suspend enabled");
+        arkPets.setSuspendedByUser(true);
+        popMenu.remove(optSuspendEn);
+        popMenu.add(optSuspendDis, popMenu.getComponentIndex(optExit));
+    }
+
     @Override
     public void sendOperation(SocketData.Operation operation) {
         client.sendRequest(SocketData.ofOperation(uuid, operation));
@@ -157,7 +166,7 @@ public class MemberTrayImpl extends MemberTray {
     public void remove() {
         popMenu.removeAll();
         popWindow.dispose();
-        client.disconnect();
+        client.removeMember(uuid);
     }
 
     public void onConnected() {
@@ -172,6 +181,8 @@ public class MemberTrayImpl extends MemberTray {
                 sendOperation(SocketData.Operation.KEEP_ACTION);
             if (element.equals(optTransparentDis))
                 sendOperation(SocketData.Operation.TRANSPARENT_MODE);
+            if (element.equals(optSuspendDis))
+                sendOperation(SocketData.Operation.SUSPEND);
         }
     }
 
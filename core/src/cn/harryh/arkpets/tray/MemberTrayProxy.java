@@ -33,6 +33,7 @@ public class MemberTrayProxy extends MemberTray {
         popMenu.add(innerLabel);
         popMenu.add(optKeepAnimEn);
         popMenu.add(optTransparentEn);
+        popMenu.add(optSuspendEn);
         popMenu.add(optExit);
         popMenu.setSize(100, 24 * popMenu.getSubElements().length);
 
@@ -85,6 +86,20 @@ public class MemberTrayProxy extends MemberTray {
         popMenu.add(optKeepAnimDis, 1);
     }
 
+    @Override
+    public void onSuspendDis() {
+        Logger.info("ProxyTray", "Suspend disabled");
+        popMenu.remove(optSuspendDis);
+        popMenu.add(optSuspendEn, popMenu.getPopupMenu().getComponentIndex(optExit));
+    }
+
+    @Override
+    public void onSuspendEn() {
+        Logger.info("ProxyTray", "Suspend enabled");
+        popMenu.remove(optSuspendEn);
+        popMenu.add(optSuspendDis, popMenu.getPopupMenu().getComponentIndex(optExit));
+    }
+
     @Override
     public void sendOperation(SocketData.Operation operation) {
         session.send(SocketData.ofOperation(uuid, operation));
@@ -0,0 +1,102 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import java.lang.management.ManagementFactory;
+
+
+/** The class measures the heap allocation of the thread which ticks it, on a per-frame basis,
+ * and reports when the steady-state allocation exceeds the given budget.
+ * <p>
+ * The measurement relies on {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)},
+ * and the monitor stays inactive if the running JVM does not support it.
+ * Since the measurement is per thread, when a process hosts several windows which render on the same thread,
+ * the monitor of every window counts the allocation of all the windows.
+ * <p>
+ * The monitor only reports to the debug log. The budget is enforced by the headless render test instead.
+ * @since ArkPets 3.2
+ */
+public class AllocationMonitor {
+    private final com.sun.management.ThreadMXBean bean;
+    private final long threadId;
+    private final long budgetBytes;
+    private final int windowFrames;
+    private int warmupFrames;
+    private long windowStartBytes;
+    private int windowFrameCount;
+    private long lastAverageBytes;
+    private long maxAverageBytes;
+    private boolean overBudget;
+
+    /** Initializes an allocation monitor for the current thread.
+     * @param budgetBytes The budget of the allocation per frame (byte).
+     * @param warmupFrames The count of the frames to ignore before the measurement starts.
+     * @param windowFrames The count of the frames to average over in each measurement window.
+     */
+    public AllocationMonitor(long budgetBytes, int warmupFrames, int windowFrames) {
+        com.sun.management.ThreadMXBean supported = null;
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean b && b.isThreadAllocatedMemorySupported()) {
+                b.setThreadAllocatedMemoryEnabled(true);
+                supported = b;
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            Logger.warn("Allocation", "Failed to enable the allocation measurement: " + e.getMessage());
+        }
+        bean = supported;
+        threadId = Thread.currentThread().getId();
+        this.budgetBytes = budgetBytes;
+        this.warmupFrames = Math.max(0, warmupFrames);
+        this.windowFrames = Math.max(1, windowFrames);
+        if (bean == null)
+            Logger.info("Allocation", "Allocation measurement is unavailable in this JVM");
+    }
+
+    /** Marks the end of a frame. This method should be invoked by the monitored thread once per frame.
+     */
+    public void tick() {
+        if (bean == null)
+            return;
+        if (warmupFrames > 0) {
+            if (--warmupFrames == 0)
+                windowStartBytes = bean.getThreadAllocatedBytes(threadId);
+            return;
+        }
+        if (++windowFrameCount < windowFrames)
+            return;
+        long allocated = bean.getThreadAllocatedBytes(threadId);
+        lastAverageBytes = (allocated - windowStartBytes) / windowFrameCount;
+        maxAverageBytes = Math.max(maxAverageBytes, lastAverageBytes);
+        windowStartBytes = allocated;
+        windowFrameCount = 0;
+        // Only report the changes of the status to avoid flooding the log
+        boolean wasOverBudget = overBudget;
+        overBudget = lastAverageBytes > budgetBytes;
+        if (overBudget && !wasOverBudget)
+            Logger.debug("Allocation", "Steady-state allocation " + lastAverageBytes + " B/frame exceeds the budget " + budgetBytes + " B/frame");
+        else if (!overBudget && wasOverBudget)
+            Logger.debug("Allocation", "Steady-state allocation " + lastAverageBytes + " B/frame is back within the budget");
+    }
+
+    /** Returns true if the average allocation of the last measurement window exceeded the budget.
+     */
+    public boolean isOverBudget() {
+        return overBudget;
+    }
+
+    /** Gets the average allocation per frame of the last measurement window.
+     * @return The allocation (byte), or 0 if no window has been measured.
+     */
+    public long getAverageBytes() {
+        return lastAverageBytes;
+    }
+
+    @Override
+    public String toString() {
+        if (bean == null)
+            return "AllocationMonitor unavailable";
+        return "AllocationMonitor " + lastAverageBytes + " B/frame (max " + maxAverageBytes + ", budget " + budgetBytes + ")" +
+                (warmupFrames > 0 ? " warming up" : "");
+    }
+}
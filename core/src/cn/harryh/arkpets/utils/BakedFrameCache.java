@@ -0,0 +1,156 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/** The class caches the pre-rendered frames of animation clips within a memory budget.
+ * When the budget is exceeded, the least-recently-played clips will be evicted as a whole.
+ * @param <K> The type of the key which identifies a clip.
+ * @since ArkPets 3.2
+ */
+public class BakedFrameCache<K> {
+    private final long budgetBytes;
+    private final LinkedHashMap<K, BakedClip> clips;
+    private long usedBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /** Initializes a baked frame cache.
+     * @param budgetBytes The maximum total size of the cached frames (byte).
+     */
+    public BakedFrameCache(long budgetBytes) {
+        this.budgetBytes = Math.max(0, budgetBytes);
+        clips = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /** Gets the baked clip of the given key and marks it as recently played.
+     * @param key The key of the clip.
+     * @return The baked clip, or {@code null} if it has not been cached.
+     */
+    public BakedClip get(K key) {
+        BakedClip clip = clips.get(key);
+        if (clip != null)
+            hitCount++;
+        else
+            missCount++;
+        return clip;
+    }
+
+    /** Returns true if a clip of the given size can be cached after the necessary evictions.
+     * @param bytes The size of the clip (byte).
+     */
+    public boolean canFit(long bytes) {
+        return bytes <= budgetBytes;
+    }
+
+    /** Caches a baked clip, evicting the least-recently-played clips if the budget is exceeded.
+     * @param key The key of the clip.
+     * @param clip The baked clip.
+     * @return true if the clip was cached, false if it is too large and was disposed.
+     */
+    public boolean put(K key, BakedClip clip) {
+        if (!canFit(clip.bytes())) {
+            clip.dispose();
+            return false;
+        }
+        BakedClip old = clips.remove(key);
+        if (old != null) {
+            usedBytes -= old.bytes();
+            old.dispose();
+        }
+        Iterator<Map.Entry<K, BakedClip>> iterator = clips.entrySet().iterator();
+        while (usedBytes + clip.bytes() > budgetBytes && iterator.hasNext()) {
+            BakedClip eldest = iterator.next().getValue();
+            iterator.remove();
+            usedBytes -= eldest.bytes();
+            eldest.dispose();
+            evictionCount++;
+        }
+        clips.put(key, clip);
+        usedBytes += clip.bytes();
+        return true;
+    }
+
+    /** Disposes all the cached clips.
+     */
+    public void clear() {
+        clips.values().forEach(BakedClip::dispose);
+        clips.clear();
+        usedBytes = 0;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "BakedFrameCache " + clips.size() + " clips, " + (usedBytes >> 10) + "/" + (budgetBytes >> 10) + " KB" +
+                " {Hit: " + hitCount + ", Miss: " + missCount + ", Eviction: " + evictionCount + "}";
+    }
+
+
+    /** A series of pre-rendered frames of one animation clip, sampled at a fixed rate.
+     */
+    public static class BakedClip {
+        private final FrameBuffer[] frames;
+        private final float fps;
+        public final int width;
+        public final int height;
+
+        /** Initializes a baked clip.
+         * @param frames The frame buffers which contain the frames in order.
+         * @param fps The sampling rate of the frames.
+         * @param width The width of each frame (px).
+         * @param height The height of each frame (px).
+         */
+        public BakedClip(FrameBuffer[] frames, float fps, int width, int height) {
+            this.frames = frames;
+            this.fps = fps;
+            this.width = width;
+            this.height = height;
+        }
+
+        /** Gets the frame at the given animation time.
+         * @param time The animation time (s).
+         * @return The texture of the frame, which is flipped along the y-axis.
+         */
+        public Texture getFrame(float time) {
+            return frames[getFrameIndex(time)].getColorBufferTexture();
+        }
+
+        /** Gets the index of the frame at the given animation time.
+         * @param time The animation time (s).
+         * @return The frame index.
+         */
+        public int getFrameIndex(float time) {
+            return Math.max(0, Math.min(frames.length - 1, (int)(time * fps)));
+        }
+
+        public long bytes() {
+            return bytesOf(width, height, frames.length);
+        }
+
+        public void dispose() {
+            for (FrameBuffer frame : frames)
+                if (frame != null)
+                    frame.dispose();
+        }
+
+        /** Gets the size of a series of RGBA8888 frames.
+         * @return The size (byte).
+         */
+        public static long bytesOf(int width, int height, int frameCount) {
+            return 4L * width * height * frameCount;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.animations.AnimClip.AnimStage;
+import cn.harryh.arkpets.utils.DynamicOrthographicCamara.Insert;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** The class persists the results of the canvas fitting, namely the fitted insert of every animation stage,
+ * so that launching the same model again can skip the fitting pass, which renders every animation into an FBO.
+ * <p>
+ * Each record is a small text file named after the MD5 of its key. The key consists of the digest of the model,
+ * the scale, the number of samples and the version of the fitting algorithm, as well as the canvas presets.
+ * The key is also written in the first line of the record, so that a mismatched record is treated as a miss.
+ * The last line holds the number of the stages, so that a truncated record is treated as a miss as well.
+ * The records are replaced atomically, since several processes may fit the same model at once.
+ * @since ArkPets 3.2
+ */
+public final class CanvasFittingCache {
+    private CanvasFittingCache() {
+    }
+
+    /** Gets the key of a fitting result.
+     * @param modelDigest The digest of the model's content, see {@link SkeletonDataCache.Entry#getDigest()}.
+     * @param scale The scale of the skeleton.
+     * @param fittingSamples The number of the frames to sample per animation.
+     * @return The key string.
+     */
+    public static String getKey(String modelDigest, float scale, int fittingSamples) {
+        return modelDigest + "|" + scale + "|" + fittingSamples + "|" + canvasFittingVersion +
+                "|" + canvasMaxSize + "|" + canvasReserveLength + "|" + fpsDefault;
+    }
+
+    /** Loads the fitting result of the given key.
+     * @param key The key, see {@link #getKey(String, float, int)}.
+     * @return The insert of every stage, or {@code null} if the record is absent, mismatched, truncated or corrupted.
+     */
+    public static HashMap<AnimStage, Insert> load(String key) {
+        Path file = getFile(key);
+        if (!Files.isRegularFile(file))
+            return null;
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !key.equals(lines.get(0)))
+                return null;
+            HashMap<AnimStage, Insert> result = new HashMap<>();
+            int count = -1;
+            for (String line : lines.subList(1, lines.size())) {
+                if (line.isBlank())
+                    continue;
+                if (count >= 0)
+                    throw new IllegalArgumentException("Unexpected line \"" + line + "\" after the end");
+                // Each line is: stage top bottom left right, except the last line: end count
+                String[] fields = line.trim().split(" ");
+                if (fields.length == 2 && "end".equals(fields[0])) {
+                    count = Integer.parseInt(fields[1]);
+                    continue;
+                }
+                if (fields.length != 5)
+                    throw new IllegalArgumentException("Malformed line \"" + line + "\"");
+                result.put(new AnimStage(Integer.parseInt(fields[0])), new Insert(
+                        Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                        Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
+            }
+            if (count < 0)
+                throw new IllegalArgumentException("Missing the end line");
+            if (count != result.size())
+                throw new IllegalArgumentException("Expected " + count + " stages but found " + result.size());
+            return result;
+        } catch (IOException | RuntimeException e) {
+            Logger.warn("FittingCache", "Failed to read the record " + file.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Saves the fitting result of the given key, replacing the previous record if any.
+     * @param key The key, see {@link #getKey(String, float, int)}.
+     * @param stageInsertMap The insert of every stage.
+     */
+    public static void save(String key, Map<AnimStage, Insert> stageInsertMap) {
+        StringBuilder content = new StringBuilder(key).append('\n');
+        for (Map.Entry<AnimStage, Insert> entry : stageInsertMap.entrySet()) {
+            Insert insert = entry.getValue();
+            content.append(entry.getKey().id()).append(' ')
+                    .append(insert.top).append(' ').append(insert.bottom).append(' ')
+                    .append(insert.left).append(' ').append(insert.right).append('\n');
+        }
+        content.append("end ").append(stageInsertMap.size()).append('\n');
+        Path file = getFile(key);
+        Path temp = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Logger.warn("FittingCache", "Failed to save the record " + file.getFileName() + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    static Path getFile(String key) {
+        String name = IOUtils.FileUtil.getMD5(key.getBytes(StandardCharsets.UTF_8));
+        return Path.of(PathConfig.tempCanvasFittingDirPath, name + ".txt").toAbsolutePath();
+    }
+}
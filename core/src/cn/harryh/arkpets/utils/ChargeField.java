@@ -0,0 +1,156 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.Arrays;
+
+
+/** The class holds a set of fixed point charges and computes the electrostatic acceleration they exert on an object.
+ * <p>
+ * The charges are stored as parallel arrays. If a cutoff radius is set, the charges farther than it are ignored,
+ * and the force fades out smoothly over the falloff distance before the cutoff, so that there is no sudden jump.
+ * In that case the charges are binned into square cells whose side equals the cutoff,
+ * so that a query only visits the 3*3 cells around the object.
+ * @since ArkPets 3.2
+ */
+public class ChargeField {
+    private static final float minDistance = 20;
+    private static final int cellRange = 1 << 15;
+    private float[] chargeX = new float[8];
+    private float[] chargeY = new float[8];
+    private float[] chargeQ = new float[8];
+    private long[] sortedCells = new long[8];
+    private int count;
+    private float cutoff;
+    private float falloff;
+    private boolean indexed;
+
+    /** Removes all the charges.
+     */
+    public void clear() {
+        count = 0;
+        indexed = false;
+    }
+
+    /** Adds a charge.
+     * @param x The x-position of the charge (px).
+     * @param y The y-position of the charge (px).
+     * @param quantity The product of the charge's quantity and the object's quantity (C^2).
+     */
+    public void add(float x, float y, float quantity) {
+        if (count == chargeX.length) {
+            int capacity = count * 2;
+            chargeX = Arrays.copyOf(chargeX, capacity);
+            chargeY = Arrays.copyOf(chargeY, capacity);
+            chargeQ = Arrays.copyOf(chargeQ, capacity);
+            sortedCells = new long[capacity];
+        }
+        chargeX[count] = x;
+        chargeY[count] = y;
+        chargeQ[count] = quantity;
+        count++;
+        indexed = false;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Sets the cutoff of the force.
+     * @param cutoff The distance beyond which the charges take no effect (px), 0=unlimited.
+     * @param falloff The distance before the cutoff over which the force fades out (px).
+     */
+    public void setCutoff(float cutoff, float falloff) {
+        this.cutoff = Math.max(0, cutoff);
+        this.falloff = Math.max(0, Math.min(falloff, this.cutoff));
+        indexed = false;
+    }
+
+    /** Computes the acceleration exerted on an object by all the charges.
+     * @param x The x-position of the object's center (px).
+     * @param y The y-position of the object's center (px).
+     * @param k The electrostatic force constant.
+     * @param out The vector to store the acceleration (px/s^2).
+     * @return The given vector.
+     */
+    public Vector2 getAcceleration(float x, float y, float k, Vector2 out) {
+        out.set(0, 0);
+        if (count == 0)
+            return out;
+        if (cutoff <= 0) {
+            for (int i = 0; i < count; i++)
+                accumulate(i, x, y, k, out);
+            return out;
+        }
+        validateIndex();
+        int cx = toCell(x);
+        int cy = toCell(y);
+        for (int dy = -1; dy <= 1; dy++) {
+            // The cells in the same row are contiguous in the sorted order
+            long first = cellKey(cx - 1, cy + dy, 0);
+            long last = cellKey(cx + 1, cy + dy, Integer.MAX_VALUE);
+            for (int j = lowerBound(first); j < count && sortedCells[j] <= last; j++)
+                accumulate((int)sortedCells[j], x, y, k, out);
+        }
+        return out;
+    }
+
+    private void accumulate(int i, float x, float y, float k, Vector2 out) {
+        float dx = x - chargeX[i];
+        float dy = y - chargeY[i];
+        float distance2 = dx * dx + dy * dy;
+        if (distance2 == 0 || (cutoff > 0 && distance2 >= cutoff * cutoff))
+            return;
+        float distance = (float)Math.sqrt(distance2);
+        float limited = Math.max(distance, minDistance);
+        float magnitude = k * chargeQ[i] / (limited * limited * distance);
+        if (cutoff > 0 && distance > cutoff - falloff) {
+            // Smoothstep from 1 at the start of the falloff to 0 at the cutoff
+            float t = (cutoff - distance) / falloff;
+            magnitude *= t * t * (3 - 2 * t);
+        }
+        out.x += magnitude * dx;
+        out.y += magnitude * dy;
+    }
+
+    private void validateIndex() {
+        if (indexed)
+            return;
+        for (int i = 0; i < count; i++)
+            sortedCells[i] = cellKey(toCell(chargeX[i]), toCell(chargeY[i]), i);
+        Arrays.sort(sortedCells, 0, count);
+        indexed = true;
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedCells[mid] < key)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private int toCell(float v) {
+        return (int)Math.max(-cellRange, Math.min(cellRange - 1, Math.floor(v / cutoff)));
+    }
+
+    private static long cellKey(int cx, int cy, int index) {
+        // The row takes the signed high 16 bits, the column takes the next 16 bits, and the index takes the low 32 bits
+        cx = Math.max(-cellRange, Math.min(cellRange - 1, cx));
+        cy = Math.max(-cellRange, Math.min(cellRange - 1, cy));
+        return (long)cy << 48 | (long)(cx + cellRange) << 32 | index;
+    }
+
+    @Override
+    public String toString() {
+        return "ChargeField " + count + " charges" + (cutoff > 0 ? " (cutoff " + cutoff + ", falloff " + falloff + ")" : "");
+    }
+}
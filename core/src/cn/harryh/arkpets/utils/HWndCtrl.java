@@ -78,6 +78,21 @@ public class HWndCtrl {
         this(new HWND(Pointer.createConstant(pointer)));
     }
 
+    /** HWnd Controller instance built from a window snapshot, without querying the window again.
+     * @param snapshot The snapshot of the window.
+     */
+    public HWndCtrl(WindowSnapshotCache.WindowSnapshot snapshot) {
+        hWnd = new HWND(new Pointer(snapshot.handle()));
+        windowText = snapshot.title();
+        windowPointer = getWindowIdx(hWnd);
+        posTop = snapshot.top();
+        posBottom = snapshot.bottom();
+        posLeft = snapshot.left();
+        posRight = snapshot.right();
+        windowWidth = posRight-posLeft;
+        windowHeight = posBottom-posTop;
+    }
+
     /** Empty HWnd Controller instance.
      */
     public HWndCtrl() {
@@ -98,6 +113,14 @@ public class HWndCtrl {
         return hWnd == null;
     }
 
+    /** Gets the native value of the handle.
+     * @return The value, or 0 if the handle is empty.
+     * @since ArkPets 3.2
+     */
+    public long getHandle() {
+        return isEmpty() ? 0 : Pointer.nativeValue(hWnd.getPointer());
+    }
+
     /** Returns true if the window is a foreground window now.
      */
     public boolean isForeground() {
@@ -196,6 +219,22 @@ public class HWndCtrl {
      * @param y The Y-axis coordinate, related to the top border of the window.
      */
     public void sendMouseEvent(int msg, int x, int y) {
+        sendMouseEvent(hWnd, msg, x, y);
+    }
+
+    /** Sends a mouse event message to the window of the given handle,
+     * without querying any other information of the window.
+     * @param handle The native handle of the window.
+     * @param msg The window message value.
+     * @param x The X-axis coordinate, related to the left border of the window.
+     * @param y The Y-axis coordinate, related to the top border of the window.
+     * @since ArkPets 3.2
+     */
+    public static void sendMouseEvent(long handle, int msg, int x, int y) {
+        sendMouseEvent(new HWND(new Pointer(handle)), msg, x, y);
+    }
+
+    private static void sendMouseEvent(HWND hWnd, int msg, int x, int y) {
         int wParam = switch (msg) {
             case WM_LBUTTONDOWN -> MK_LBUTTON;
             case WM_RBUTTONDOWN -> MK_RBUTTON;
@@ -0,0 +1,83 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+
+/** The record represents the memory footprint of an ArkPets process, either measured or estimated.
+ * @param heapUsed The used Java heap (bytes).
+ * @param heapCommitted The Java heap committed by the JVM (bytes).
+ * @param nativeBytes The native memory outside the heap, namely the non-heap pools and the NIO buffers (bytes).
+ * @param textureBytes The memory of the OpenGL textures (bytes).
+ * @since ArkPets 3.2
+ */
+public record MemoryFootprint(long heapUsed, long heapCommitted, long nativeBytes, long textureBytes) {
+    private static final long MB = 1024L * 1024L;
+
+    /** Measures the footprint of the current process.
+     * @return The measured footprint.
+     */
+    public static MemoryFootprint measure() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long nativeBytes = memory.getNonHeapMemoryUsage().getCommitted();
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+            nativeBytes += Math.max(0, pool.getMemoryUsed());
+        return new MemoryFootprint(
+                memory.getHeapMemoryUsage().getUsed(),
+                memory.getHeapMemoryUsage().getCommitted(),
+                nativeBytes,
+                SkeletonDataCache.getInstance().getTextureBytes()
+        );
+    }
+
+    /** Gets the total memory this footprint takes.
+     * @return The sum of the committed heap, the native memory and the textures (bytes).
+     */
+    public long total() {
+        return heapCommitted + nativeBytes + textureBytes;
+    }
+
+    public String toJson() {
+        JSONObject object = new JSONObject();
+        object.put("heapUsed", heapUsed);
+        object.put("heapCommitted", heapCommitted);
+        object.put("nativeBytes", nativeBytes);
+        object.put("textureBytes", textureBytes);
+        return object.toJSONString();
+    }
+
+    /** Parses a footprint from its JSON string.
+     * @param json The JSON string made by {@link #toJson()}.
+     * @return The footprint, or {@code null} if the string is malformed.
+     */
+    public static MemoryFootprint of(String json) {
+        try {
+            JSONObject object = JSONObject.parseObject(json);
+            if (object == null)
+                return null;
+            return new MemoryFootprint(
+                    object.getLongValue("heapUsed"),
+                    object.getLongValue("heapCommitted"),
+                    object.getLongValue("nativeBytes"),
+                    object.getLongValue("textureBytes")
+            );
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryFootprint " + total() / MB + " MB" +
+                " {Heap: " + heapUsed / MB + "/" + heapCommitted / MB + " MB" +
+                ", Native: " + nativeBytes / MB + " MB" +
+                ", Textures: " + textureBytes / MB + " MB}";
+    }
+}
@@ -0,0 +1,146 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.ArkConfig;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.glfw.GLFWMonitorCallback;
+import org.lwjgl.glfw.GLFWVidMode;
+
+import static cn.harryh.arkpets.Const.monitorCheckInterval;
+
+
+/** The class caches the layout of the monitors, which is shared by everyone in the process.
+ * <p>
+ * The layout is reloaded only if a monitor has been connected or disconnected, which is reported by the GLFW callback,
+ * or if the fingerprint of the monitors, namely their positions and video modes, has changed.
+ * The fingerprint is checked at most once per {@link cn.harryh.arkpets.Const#monitorCheckInterval}.
+ * Every reload increases the version, so that the users can tell whether their derived data are outdated.
+ * @since ArkPets 3.2
+ */
+public final class MonitorTopology {
+    private static MonitorTopology instance;
+    private final boolean fixed;
+    private final int[] posX = new int[1];
+    private final int[] posY = new int[1];
+    private ArkConfig.Monitor[] monitors;
+    private long fingerprint;
+    private long lastCheckTime;
+    private int version;
+    private long reloadCount;
+    private long checkCount;
+    private volatile boolean dirty = true;
+    private GLFWMonitorCallback callback;
+
+    private MonitorTopology(ArkConfig.Monitor[] fixedMonitors) {
+        fixed = fixedMonitors != null;
+        if (fixed) {
+            monitors = fixedMonitors;
+            dirty = false;
+            version = 1;
+        }
+    }
+
+    /** Gets the shared instance.
+     * @return The instance.
+     */
+    public static synchronized MonitorTopology getInstance() {
+        if (instance == null)
+            instance = new MonitorTopology(null);
+        return instance;
+    }
+
+    /** Creates a topology of the given monitors, which never changes and never touches GLFW.
+     * It lets the monitor-related logic run without a real display.
+     * @param monitors The monitors, where the primary one comes first.
+     * @return The new instance.
+     */
+    public static MonitorTopology of(ArkConfig.Monitor... monitors) {
+        return new MonitorTopology(monitors.clone());
+    }
+
+    /** Installs the GLFW callback which marks the layout outdated once a monitor is connected or disconnected.
+     * This method must be invoked on the main thread, which also has to poll the GLFW events.
+     * The previous callback, if any, will still be invoked.
+     */
+    public synchronized void installCallback() {
+        if (fixed || callback != null)
+            return;
+        GLFWMonitorCallback[] previous = new GLFWMonitorCallback[1];
+        callback = GLFWMonitorCallback.create((monitor, event) -> {
+            dirty = true;
+            if (previous[0] != null)
+                previous[0].invoke(monitor, event);
+        });
+        previous[0] = GLFW.glfwSetMonitorCallback(callback);
+    }
+
+    /** Gets the layout of the monitors, reloading it if it has changed.
+     * @return The monitors, where the primary one comes first. The returned array must not be modified.
+     */
+    public synchronized ArkConfig.Monitor[] getMonitors() {
+        validate();
+        return monitors;
+    }
+
+    /** Gets the version of the layout, which increases whenever the layout is reloaded.
+     * @return The version.
+     */
+    public synchronized int getVersion() {
+        validate();
+        return version;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MonitorTopology " + (monitors == null ? 0 : monitors.length) + " monitors" +
+                " {Version: " + version +
+                ", Checks: " + checkCount +
+                ", Reloads: " + reloadCount + "}";
+    }
+
+    private void validate() {
+        if (fixed)
+            return;
+        long now = System.currentTimeMillis();
+        if (!dirty && monitors != null) {
+            if (now - lastCheckTime < monitorCheckInterval)
+                return;
+            lastCheckTime = now;
+            checkCount++;
+            if (computeFingerprint() == fingerprint)
+                return;
+        }
+        // Loading the monitors through libGDX also initializes GLFW if necessary
+        dirty = false;
+        lastCheckTime = now;
+        monitors = ArkConfig.Monitor.getMonitors();
+        fingerprint = computeFingerprint();
+        version++;
+        reloadCount++;
+        Logger.debug("Monitor", "Loaded " + monitors.length + " monitors, version " + version);
+    }
+
+    private long computeFingerprint() {
+        PointerBuffer handles = GLFW.glfwGetMonitors();
+        if (handles == null)
+            return 0;
+        long hash = handles.limit();
+        for (int i = 0; i < handles.limit(); i++) {
+            long handle = handles.get(i);
+            GLFW.glfwGetMonitorPos(handle, posX, posY);
+            GLFWVidMode mode = GLFW.glfwGetVideoMode(handle);
+            hash = hash * 31 + handle;
+            hash = hash * 31 + posX[0];
+            hash = hash * 31 + posY[0];
+            if (mode != null) {
+                hash = hash * 31 + mode.width();
+                hash = hash * 31 + mode.height();
+                hash = hash * 31 + mode.refreshRate();
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,191 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+
+/** The class forwards the mouse events to the other windows on a dedicated thread,
+ * so that a hung or slow target window can never stall the thread which posts the events.
+ * <p>
+ * The events are kept in a bounded single-producer single-consumer ring, and posting an event never blocks.
+ * A mouse-move event which targets the same window as the last pending mouse-move event replaces it in place,
+ * while the other events keep their strict order. If the ring is full, the new event is dropped.
+ * @since ArkPets 3.2
+ */
+public class MouseEventForwarder {
+    private final MouseEventSink sink;
+    private final int mask;
+    private final long[] handles;
+    private final int[] messages;
+    private final long[] postTimes;
+    private final AtomicLongArray coords;
+    /** The index of the next slot to write, which is only written by the producer. */
+    private final AtomicLong tail = new AtomicLong();
+    /** The index of the next slot to claim, which is advanced by the consumer before reading a slot. */
+    private final AtomicLong claimed = new AtomicLong();
+    /** The index of the next slot to release, which is advanced by the consumer after reading a slot. */
+    private final AtomicLong head = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running;
+    private volatile boolean parked;
+    private long lastMoveIndex = -1;
+    private long postedCount;
+    private long coalescedCount;
+    private long droppedCount;
+    private volatile long deliveredCount;
+    private volatile long totalLatencyNanos;
+    private volatile long maxLatencyNanos;
+
+    /** Initializes a mouse event forwarder and starts its thread.
+     * @param sink The sink which actually delivers the events.
+     * @param capacity The capacity of the queue, which will be rounded up to a power of two.
+     */
+    public MouseEventForwarder(MouseEventSink sink, int capacity) {
+        this.sink = sink;
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        handles = new long[size];
+        messages = new int[size];
+        postTimes = new long[size];
+        coords = new AtomicLongArray(size);
+        running = true;
+        worker = new Thread(this::work, "MouseEventForwarder");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Posts a mouse event to be forwarded. This method never blocks,
+     * and it should only be invoked by one thread.
+     * @param handle The native handle of the target window.
+     * @param msg The window message value.
+     * @param x The X-axis coordinate, related to the left border of the window.
+     * @param y The Y-axis coordinate, related to the top border of the window.
+     * @return true if the event was queued or coalesced, false if it was dropped.
+     */
+    public boolean post(long handle, int msg, int x, int y) {
+        if (!running)
+            return false;
+        postedCount++;
+        long t = tail.get();
+        long packed = pack(x, y);
+        if (msg == HWndCtrl.WM_MOUSEMOVE && lastMoveIndex == t - 1 && handles[(int)(t - 1) & mask] == handle) {
+            // Replace the pending mouse-move event, and ensure that the consumer has not claimed it yet
+            int slot = (int)(t - 1) & mask;
+            postTimes[slot] = System.nanoTime();
+            coords.set(slot, packed);
+            if (claimed.get() <= t - 1) {
+                coalescedCount++;
+                return true;
+            }
+        }
+        if (t - head.get() > mask) {
+            droppedCount++;
+            return false;
+        }
+        int slot = (int)t & mask;
+        handles[slot] = handle;
+        messages[slot] = msg;
+        postTimes[slot] = System.nanoTime();
+        coords.set(slot, packed);
+        tail.set(t + 1);
+        lastMoveIndex = msg == HWndCtrl.WM_MOUSEMOVE ? t : -1;
+        if (parked)
+            LockSupport.unpark(worker);
+        return true;
+    }
+
+    /** Stops the thread. The events which are still pending will be discarded.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    /** Gets the average latency from posting an event to the completion of its delivery.
+     * @return The latency (ns), or 0 if no event has been delivered.
+     */
+    public long getAverageLatencyNanos() {
+        long delivered = deliveredCount;
+        return delivered > 0 ? totalLatencyNanos / delivered : 0;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "MouseEventForwarder {Posted: " + postedCount +
+                ", Delivered: " + deliveredCount +
+                ", Coalesced: " + coalescedCount +
+                ", Dropped: " + droppedCount +
+                ", Avg latency: " + getAverageLatencyNanos() / 1000 + "us" +
+                ", Max latency: " + maxLatencyNanos / 1000 + "us}";
+    }
+
+    private void work() {
+        while (running) {
+            long h = claimed.get();
+            if (h == tail.get()) {
+                parked = true;
+                // Check again after announcing the parking to avoid missing an unpark
+                if (h == tail.get() && running)
+                    LockSupport.park(this);
+                parked = false;
+                continue;
+            }
+            int slot = (int)h & mask;
+            // Claim the slot before reading it, so that a later coalescing is either seen or re-queued
+            claimed.set(h + 1);
+            long handle = handles[slot];
+            int msg = messages[slot];
+            long packed = coords.get(slot);
+            long postTime = postTimes[slot];
+            head.set(h + 1);
+            try {
+                sink.deliver(handle, msg, (int)(packed >> 32), (int)packed);
+            } catch (RuntimeException e) {
+                Logger.error("MouseForward", "Failed to deliver the mouse event " + msg + ", details see below.", e);
+            }
+            long latency = System.nanoTime() - postTime;
+            totalLatencyNanos += latency;
+            if (latency > maxLatencyNanos)
+                maxLatencyNanos = latency;
+            deliveredCount++;
+        }
+    }
+
+    private static long pack(int x, int y) {
+        return ((long)x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+
+    /** The mechanism which actually delivers the mouse events.
+     */
+    @FunctionalInterface
+    public interface MouseEventSink {
+        /** Delivers a mouse event. This method is invoked on the thread of the forwarder.
+         * @param handle The native handle of the target window.
+         * @param msg The window message value.
+         * @param x The X-axis coordinate, related to the left border of the window.
+         * @param y The Y-axis coordinate, related to the top border of the window.
+         */
+        void deliver(long handle, int msg, int x, int y);
+    }
+}
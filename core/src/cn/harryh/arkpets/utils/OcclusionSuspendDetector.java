@@ -0,0 +1,88 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.ArkConfig;
+import cn.harryh.arkpets.utils.WindowSnapshotCache.WindowSnapshot;
+
+import java.util.List;
+
+
+/** The default suspend detector, which suspends a pet if its window is:
+ * <ul>
+ *     <li>hidden, namely absent from the window snapshots;</li>
+ *     <li>parked off-screen, namely not intersecting any monitor;</li>
+ *     <li>fully covered by a single non-peer window above it, which does not span a whole monitor;</li>
+ *     <li>on a monitor which is fully covered by the foreground window, such as a fullscreen game or video.</li>
+ * </ul>
+ * The windows above that span a whole monitor are left to the foreground check,
+ * since invisible overlays (such as the ones of the graphics drivers) may look the same in the snapshots.
+ * The desktop shell windows, which cover the whole screen as well, are never regarded as fullscreen windows.
+ * @since ArkPets 3.2
+ */
+public class OcclusionSuspendDetector implements SuspendDetector {
+    private static final String shellTitle = "Program Manager";
+
+    @Override
+    public String detect(WindowSnapshotCache cache, long selfHandle, ArkConfig.Monitor[] monitors) {
+        List<WindowSnapshot> windows = cache.getWindows();
+        int selfIndex = -1;
+        for (int i = 0; i < windows.size(); i++) {
+            if (windows.get(i).handle() == selfHandle) {
+                selfIndex = i;
+                break;
+            }
+        }
+        if (selfIndex < 0)
+            return "hidden";
+        WindowSnapshot self = windows.get(selfIndex);
+
+        // Find the monitor which the window is on
+        boolean onScreen = false;
+        ArkConfig.Monitor host = null;
+        for (ArkConfig.Monitor m : monitors) {
+            int left = m.virtual[0], top = m.virtual[1], right = left + m.size[0], bottom = top + m.size[1];
+            if (self.left() < right && left < self.right() && self.top() < bottom && top < self.bottom())
+                onScreen = true;
+            if (host == null && left <= self.getCenterX() && self.getCenterX() < right && top <= self.getCenterY() && self.getCenterY() < bottom)
+                host = m;
+        }
+        if (!onScreen)
+            return "off-screen";
+
+        // Check the windows above
+        for (int i = 0; i < selfIndex; i++) {
+            WindowSnapshot w = windows.get(i);
+            if (w.peerNumber() < 0 && w.left() <= self.left() && w.top() <= self.top() &&
+                    self.right() <= w.right() && self.bottom() <= w.bottom() && !spansMonitor(w, monitors))
+                return "occluded by " + w;
+        }
+
+        // Check the foreground window
+        long foreground = cache.getForegroundHandle();
+        if (host != null && foreground != 0 && foreground != selfHandle) {
+            for (WindowSnapshot w : windows) {
+                if (w.handle() != foreground)
+                    continue;
+                if (w.peerNumber() < 0 && w.title() != null && !w.title().isEmpty() && !shellTitle.equals(w.title()) &&
+                        covers(w, host))
+                    return "fullscreen " + w;
+                break;
+            }
+        }
+        return null;
+    }
+
+    private static boolean spansMonitor(WindowSnapshot w, ArkConfig.Monitor[] monitors) {
+        for (ArkConfig.Monitor m : monitors)
+            if (covers(w, m))
+                return true;
+        return false;
+    }
+
+    private static boolean covers(WindowSnapshot w, ArkConfig.Monitor m) {
+        return w.left() <= m.virtual[0] && w.top() <= m.virtual[1] &&
+                m.virtual[0] + m.size[0] <= w.right() && m.virtual[1] + m.size[1] <= w.bottom();
+    }
+}
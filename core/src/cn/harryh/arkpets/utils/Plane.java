@@ -6,35 +6,58 @@ package cn.harryh.arkpets.utils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 
 import static cn.harryh.arkpets.Const.*;
 
 
 public class Plane {
-    public final ArrayList<Vector3> barriers;
-    public final ArrayList<Vector3> pointCharges;
-    public final ArrayList<RectArea> world;
+    private final ArrayList<Vector3> barriers;
+    private final ChargeField charges;
+    private final ArrayList<RectArea> world;
     private final Vector2 obj;
     private final Vector2 position;
+    private final Vector2 lastPosition;
     private final Vector2 speed;
     private final Vector2 speedLimit;
+    private final Vector2 electrostatic;
     private float gravity;
     private float resilience;
     private float airFrict;
     private float staticFrict;
+    private float electrostaticConstant;
     private boolean dropped = false;
     private float droppedHeight = 0;
+    private float accumulator = 0;
+    private int overCoverCount = 0;
+    private int version = 0;
+    private int indexedVersion = -1;
+    private float[] barrierY;
+    private float[] barrierLeft;
+    private float[] barrierRight;
+    private RectArea[] areas;
+    private float memoTopX;
+    private float memoTop;
+    private float memoBottomX;
+    private float memoBottomY;
+    private float memoBottom;
+    private float memoSideY;
+    private float memoLeft;
+    private float memoRight;
 
     /** Initializes a plane with gravity field.
      */
     public Plane() {
         barriers        = new ArrayList<>();
-        pointCharges    = new ArrayList<>();
+        charges         = new ChargeField();
         this.world      = new ArrayList<>();
         obj             = new Vector2(0, 0);
         position        = new Vector2(0, 0);
+        lastPosition    = new Vector2(0, 0);
         speed           = new Vector2(0, 0);
         speedLimit      = new Vector2(0, 0);
+        electrostatic   = new Vector2(0, 0);
         gravity         = 0;
         resilience      = 0;
         airFrict        = 0;
@@ -70,6 +93,8 @@ public class Plane {
      */
     public void setObjSize(float objWidth, float objHeight) {
         obj.set(objWidth, objHeight);
+        electrostaticConstant = 2000 * (float)Math.hypot(objWidth, objHeight);
+        version++;
     }
 
     /** Sets the limitation of speed, 0=unlimited.
@@ -91,9 +116,24 @@ public class Plane {
             speed.set((x - position.x) / deltaTime, (y - position.y) / deltaTime);
         position.set(x, y);
         position.set(limitX(x), limitY(y));
+        lastPosition.set(position);
     }
 
-    /** Updates the position of the object.
+    /** Advances the simulation clock by the given time, running as many fixed steps as the elapsed time covers.
+     * The remaining time is kept for the next call, and the steps per call are bounded,
+     * so that the physics behaves the same regardless of the frame rate.
+     * @param deltaTime Delta time (s).
+     */
+    public void advance(float deltaTime) {
+        accumulator = Math.min(accumulator + Math.max(0, deltaTime), physicStepDuration * physicMaxSubsteps);
+        while (accumulator >= physicStepDuration) {
+            lastPosition.set(position);
+            updatePosition(physicStepDuration);
+            accumulator -= physicStepDuration;
+        }
+    }
+
+    /** Updates the position of the object by one step.
      * @param deltaTime Delta time (s).
      */
     public void updatePosition(float deltaTime) {
@@ -102,13 +142,21 @@ public class Plane {
         float deltaY = speed.y * deltaTime;
         final float bottom = borderBottom();
         droppedHeight = Math.max(Math.signum(gravity) * (position.y - bottom), droppedHeight);
-        if (position.y != bottom && limitY(deltaY + position.y) == bottom) {
+        float newY = limitY(deltaY + position.y);
+        // Sweep the bottom edge against the barriers, so that a fast fall cannot tunnel through them
+        float hit = deltaY < 0 ? sweepBarriers(position.y, deltaY + position.y) : -Float.MAX_VALUE;
+        boolean landed = position.y != bottom && newY == bottom;
+        if (hit > newY) {
+            newY = hit;
+            landed = true;
+        }
+        if (landed) {
             // When it fell to the ground.
-            if (Math.signum(gravity) * (position.y - bottom) > 0)
+            if (Math.signum(gravity) * (position.y - newY) > 0)
                 dropped = true;
             speed.y = 0;
         }
-        position.set(limitX(deltaX + position.x), limitY(deltaY + position.y));
+        position.set(limitX(deltaX + position.x), newY);
     }
 
     /** Sets a line barrier that can support the object.
@@ -118,10 +166,36 @@ public class Plane {
      * @param overCover Whether to set the highest priority to this barrier.
      */
     public void setBarrier(float posTop, float posLeft, float width, boolean overCover) {
-        if (overCover)
+        if (overCover) {
             barriers.add(0, new Vector3(posLeft, posTop, width));
-        else
+            overCoverCount++;
+        } else {
             barriers.add(new Vector3(posLeft, posTop, width));
+        }
+        version++;
+    }
+
+    /** Removes all the line barriers.
+     */
+    public void clearBarriers() {
+        barriers.clear();
+        overCoverCount = 0;
+        version++;
+    }
+
+    /** Adds a rectangle area to the world where the object can move.
+     * @param area The rectangle area.
+     */
+    public void addWorldArea(RectArea area) {
+        world.add(area);
+        version++;
+    }
+
+    /** Removes all the areas of the world.
+     */
+    public void clearWorld() {
+        world.clear();
+        version++;
     }
 
     /** Sets a point charge whose excited electric field can repulse the object.
@@ -131,7 +205,23 @@ public class Plane {
      * @param quantityProduct The product of the point's quantity and the object's quantity (C^2).
      */
     public void setPointCharge(float posTop, float posLeft, float quantityProduct) {
-        pointCharges.add(new Vector3(posLeft, posTop, quantityProduct));
+        charges.add(posLeft, posTop, quantityProduct);
+    }
+
+    /** Removes all the point charges.
+     * @since ArkPets 3.2
+     */
+    public void clearPointCharges() {
+        charges.clear();
+    }
+
+    /** Sets the cutoff of the electrostatic repulsion.
+     * @param cutoff The distance beyond which the point charges take no effect (px), 0=unlimited.
+     * @param falloff The distance before the cutoff over which the repulsion fades out (px).
+     * @since ArkPets 3.2
+     */
+    public void setRepulsionCutoff(float cutoff, float falloff) {
+        charges.setCutoff(cutoff, falloff);
     }
 
     /** Gets the x-position of the object.
@@ -148,6 +238,20 @@ public class Plane {
         return position.y;
     }
 
+    /** Gets the x-position of the object interpolated between the last two steps.
+     * @return X (px).
+     */
+    public float getInterpolatedX() {
+        return lastPosition.x + (position.x - lastPosition.x) * accumulator / physicStepDuration;
+    }
+
+    /** Gets the y-position of the object interpolated between the last two steps.
+     * @return Y (px).
+     */
+    public float getInterpolatedY() {
+        return lastPosition.y + (position.y - lastPosition.y) * accumulator / physicStepDuration;
+    }
+
     /** Gets the dropped-status of the object.
      * @return true=dropped once.
      */
@@ -189,6 +293,7 @@ public class Plane {
         for (Vector3 i : barriers)
             msgBuilder2.append("\n- Y = ").append(i.y).append(", X range = (").append(i.x).append(",").append(i.x + i.z).append(")");
         msg = msgBuilder2.toString();
+        msg += "\nCharges:\t" + charges;
         return msg;
     }
 
@@ -203,13 +308,9 @@ public class Plane {
         if (position.y == bottom || (position.y + obj.y >= top && speed.y > 0))
             speed.y = 0;
         // Electrostatic forces
-        for (Vector3 pc : pointCharges) {
-            float dx = position.x + obj.x / 2f - pc.x;
-            float dy = position.y + obj.y / 2f - pc.y;
-            float hypot = (float)Math.hypot(dx, dy);
-            speed.x = applyElectrostaticEffect(speed.x, pc.z,  hypot, dx / hypot, deltaTime);
-            speed.y = applyElectrostaticEffect(speed.y, pc.z, hypot, dy / hypot , deltaTime);
-        }
+        charges.getAcceleration(position.x + obj.x / 2f, position.y + obj.y / 2f, electrostaticConstant, electrostatic);
+        speed.x += electrostatic.x * deltaTime;
+        speed.y += electrostatic.y * deltaTime;
         // Ground friction
         if (position.y == bottom)
             speed.x = applyFriction(speed.x, staticFrict, deltaTime);
@@ -239,20 +340,68 @@ public class Plane {
         return delta * estimated < 0 ? 0 : estimated;
     }
 
-    /** Applies the electrostatic effect of a point charge to a velocity.
-     * @param speed The original velocity (px/s).
-     * @param quantityProduct The product of the point's quantity and the object's quantity (C^2).
-     * @param distance The absolute distance between the point charge and the object.
-     * @param cosine The cosine of the included angel between the distance and its projection on the direction of speed.
-     * @param deltaTime Delta time (s).
-     * @return New velocity (px/s).
+    /** Finds the highest barrier crossed by the bottom edge of the object while it moves downward.
+     * @param fromY The y-position before the move (px).
+     * @param toY The y-position after the move (px).
+     * @return The y-position of the barrier (px), or {@code -Float.MAX_VALUE} if no barrier was crossed.
+     */
+    private float sweepBarriers(float fromY, float toY) {
+        validateIndex();
+        final float ceiling = Math.min(borderTop() - obj.y, Math.nextUp(fromY));
+        final float left = position.x;
+        final float right = position.x + obj.x;
+        float hit = -Float.MAX_VALUE;
+        for (int i = 0; i < overCoverCount; i++) {
+            Vector3 b = barriers.get(i);
+            if (b.x <= right && left <= b.x + b.z && toY < b.y && b.y < ceiling && b.y > hit)
+                hit = b.y;
+        }
+        // The sorted barriers are in descending order of y, so the first one that overlaps is the highest
+        for (int i = indexOfBelow(ceiling); i < barrierY.length && barrierY[i] > toY; i++)
+            if (barrierLeft[i] <= right && left <= barrierRight[i])
+                return Math.max(hit, barrierY[i]);
+        return hit;
+    }
+
+    /** Rebuilds the indexes of the barriers and the areas if they have been changed,
+     * and clears the memoized borders.
+     */
+    private void validateIndex() {
+        if (indexedVersion == version)
+            return;
+        // Barriers in descending order of y, while barriers with the same y keep their original order
+        Vector3[] sorted = barriers.subList(overCoverCount, barriers.size()).toArray(new Vector3[0]);
+        Arrays.sort(sorted, (a, b) -> Float.compare(b.y, a.y));
+        barrierY = new float[sorted.length];
+        barrierLeft = new float[sorted.length];
+        barrierRight = new float[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            barrierY[i] = sorted[i].y;
+            barrierLeft[i] = sorted[i].x;
+            barrierRight[i] = sorted[i].x + sorted[i].z;
+        }
+        // Areas in ascending order of the left edge
+        areas = world.toArray(new RectArea[0]);
+        Arrays.sort(areas, Comparator.comparingDouble(RectArea::left));
+        memoTopX = memoBottomX = memoBottomY = memoSideY = Float.NaN;
+        indexedVersion = version;
+    }
+
+    /** Gets the index of the first sorted barrier whose y-position is lower than the given value.
+     * @param y Y (px).
+     * @return The index, or the count of the sorted barriers if there is no such barrier.
      */
-    private float applyElectrostaticEffect(float speed, float quantityProduct, float distance, float cosine, float deltaTime){
-        final float k   = 2000 * (float)Math.hypot(obj.x, obj.y); // Electrostatic force constant
-        final float dm  = 20; // Min distance
-        distance = Math.max(Math.abs(distance), dm); // Limit the distance
-        float delta = k * quantityProduct / distance / distance * cosine * deltaTime;
-        return speed + delta;
+    private int indexOfBelow(float y) {
+        int low = 0;
+        int high = barrierY.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (barrierY[mid] < y)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        return low;
     }
 
     /** Limits the x-position to avoid overstepping.
@@ -275,53 +424,85 @@ public class Plane {
      * @return Y (px).
      */
     public float borderTop() {
+        validateIndex();
+        if (position.x == memoTopX)
+            return memoTop;
         float t = -Float.MAX_VALUE;
-        for (RectArea a : world)
-            if (a.isXInOrthographic(position.x, obj.x))
-                if (a.top > t)
-                    t = a.top;
-        return t;
+        for (RectArea a : areas) {
+            if (a.left - obj.x > position.x)
+                break;
+            if (a.isXInOrthographic(position.x, obj.x) && a.top > t)
+                t = a.top;
+        }
+        memoTopX = position.x;
+        return memoTop = t;
     }
 
     /** Gets the position of the bottom border.
+     * The highest barrier below the object takes precedence, while the over-cover barriers are prior to it.
      * @return Y (px).
      */
     public float borderBottom() {
-        for (Vector3 i : barriers)
-            if (i.x <= position.x + obj.x && position.x <= i.x + i.z)
-                if (position.y + obj.y > i.y && borderTop() - obj.y > i.y)
-                    return i.y;
+        validateIndex();
+        if (position.x == memoBottomX && position.y == memoBottomY)
+            return memoBottom;
+        memoBottomX = position.x;
+        memoBottomY = position.y;
+        final float ceiling = Math.min(position.y + obj.y, borderTop() - obj.y);
+        final float left = position.x;
+        final float right = position.x + obj.x;
+        for (int i = 0; i < overCoverCount; i++) {
+            Vector3 b = barriers.get(i);
+            if (b.x <= right && left <= b.x + b.z && b.y < ceiling)
+                return memoBottom = b.y;
+        }
+        for (int i = indexOfBelow(ceiling); i < barrierY.length; i++)
+            if (barrierLeft[i] <= right && left <= barrierRight[i])
+                return memoBottom = barrierY[i];
 
         float t = Float.MAX_VALUE;
-        for (RectArea a : world)
-            if (a.isXInOrthographic(position.x, obj.x))
-                if (a.bottom < t)
-                    t = a.bottom;
-        return t;
+        for (RectArea a : areas) {
+            if (a.left - obj.x > position.x)
+                break;
+            if (a.isXInOrthographic(position.x, obj.x) && a.bottom < t)
+                t = a.bottom;
+        }
+        return memoBottom = t;
     }
 
     /** Gets the position of the right border.
      * @return X (px).
      */
     public float borderRight() {
-        float t = -Float.MAX_VALUE;
-        for (RectArea a : world)
-            if (a.isYInOrthographic(position.y, obj.y))
-                if (a.right > t)
-                    t = a.right;
-        return t;
+        validateSides();
+        return memoRight;
     }
 
     /** Gets the position of the left border.
      * @return X (px).
      */
     public float borderLeft() {
-        float t = Float.MAX_VALUE;
-        for (RectArea a : world)
-            if (a.isYInOrthographic(position.y, obj.y))
-                if (a.left < t)
-                    t = a.left;
-        return t;
+        validateSides();
+        return memoLeft;
+    }
+
+    /** Computes the left and the right borders if they have not been memoized for the current y-position.
+     */
+    private void validateSides() {
+        validateIndex();
+        if (position.y == memoSideY)
+            return;
+        float l = Float.MAX_VALUE;
+        float r = -Float.MAX_VALUE;
+        for (RectArea a : areas) {
+            if (a.isYInOrthographic(position.y, obj.y)) {
+                l = Math.min(l, a.left);
+                r = Math.max(r, a.right);
+            }
+        }
+        memoSideY = position.y;
+        memoLeft = l;
+        memoRight = r;
     }
 
     @Override
@@ -0,0 +1,206 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.animations.PoseCache;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.SerializationException;
+import com.esotericsoftware.spine.SkeletonBinary;
+import com.esotericsoftware.spine.SkeletonData;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+
+/** The class caches the loaded skeleton assets, which is shared by all the characters in the process.
+ * <p>
+ * The characters of the same model share one texture atlas, one skeleton data, one set of alpha masks
+ * and one pose cache. The skeleton data is modified only by the pose cache, whose sampling replaces
+ * the bone timelines of the animations with the sampled ones. This is done once per entry,
+ * and the sampled timelines match the live evaluation within the tolerance, so the characters using the entry
+ * are not affected. Each entry is reference-counted, and its textures and its pose cache are disposed
+ * once the last character has released it.
+ * Note that the textures can only be shared by the windows whose OpenGL contexts are shared,
+ * which is always the case for the windows of the same LWJGL3 application.
+ * @since ArkPets 3.2
+ */
+public final class SkeletonDataCache {
+    private static SkeletonDataCache instance;
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    private long loadCount;
+    private long hitCount;
+
+    private SkeletonDataCache() {
+    }
+
+    /** Gets the shared instance.
+     * @return The instance.
+     */
+    public static synchronized SkeletonDataCache getInstance() {
+        if (instance == null)
+            instance = new SkeletonDataCache();
+        return instance;
+    }
+
+    /** Acquires the skeleton assets of the given files, loading them if they have not been cached.
+     * This method must be invoked on a thread with a current OpenGL context.
+     * @param path2atlas The internal path to the atlas file.
+     * @param path2skel The internal path to the binary skeleton file.
+     * @param scale The scale of the skeleton.
+     * @return The cache entry, which should be released by {@link #release(Entry)} when it is no longer used.
+     * @throws SerializationException If the skeleton file is corrupted.
+     * @throws GdxRuntimeException If any of the files is inaccessible.
+     */
+    public synchronized Entry acquire(String path2atlas, String path2skel, float scale) {
+        String key = path2atlas + "|" + path2skel + "|" + scale;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.references++;
+            hitCount++;
+            Logger.debug("SkeletonCache", "Reused " + path2skel + ", " + entry.references + " references");
+            return entry;
+        }
+        // Load atlas
+        FileHandle skelFile = Gdx.files.internal(path2skel);
+        FileHandle atlasFile = Gdx.files.internal(path2atlas);
+        TextureAtlas.TextureAtlasData atlasData = new TextureAtlas.TextureAtlasData(atlasFile, atlasFile.parent(), false);
+        TextureAtlas atlas = new TextureAtlas(atlasData);
+        SkeletonData skeletonData;
+        try {
+            // Load skel (use SkeletonJson instead of SkeletonBinary if the file type is JSON)
+            SkeletonBinary binary = new SkeletonBinary(atlas);
+            binary.setScale(scale);
+            skeletonData = binary.readSkeletonData(skelFile);
+        } catch (SerializationException | GdxRuntimeException e) {
+            atlas.dispose();
+            throw e;
+        }
+        Map<Texture, SkeletonHitTester.AlphaMask> alphaMasks;
+        try {
+            alphaMasks = SkeletonHitTester.loadAlphaMasks(atlasData);
+        } catch (GdxRuntimeException e) {
+            Logger.warn("SkeletonCache", "Texture alpha for hit-testing is unavailable: " + e.getMessage());
+            alphaMasks = null;
+        }
+        entry = new Entry(key, atlasFile, skelFile, atlasData, atlas, skeletonData, alphaMasks);
+        entries.put(key, entry);
+        loadCount++;
+        Logger.debug("SkeletonCache", "Loaded " + path2skel);
+        return entry;
+    }
+
+    /** Releases a cache entry, disposing its textures and its pose cache if it is no longer referenced.
+     * This method must be invoked on a thread with a current OpenGL context.
+     * @param entry The entry acquired before.
+     */
+    public synchronized void release(Entry entry) {
+        if (entry.references <= 0)
+            return;
+        if (--entry.references == 0) {
+            entries.remove(entry.key);
+            entry.atlas.dispose();
+            if (entry.poseCache != null)
+                entry.poseCache.release();
+            Logger.debug("SkeletonCache", "Disposed " + entry.key);
+        }
+    }
+
+    /** Gets the memory of the textures of all the cached entries.
+     * @return The total size of the textures (bytes).
+     */
+    public synchronized long getTextureBytes() {
+        long bytes = 0;
+        for (Entry entry : entries.values())
+            for (Texture texture : entry.atlas.getTextures())
+                bytes += (long)texture.getWidth() * texture.getHeight() * getBytesPerPixel(texture);
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SkeletonDataCache " + entries.size() + " entries {Loads: " + loadCount + ", Hits: " + hitCount + "}";
+    }
+
+    private static int getBytesPerPixel(Texture texture) {
+        return switch (texture.getTextureData().getFormat()) {
+            case Alpha, Intensity -> 1;
+            case LuminanceAlpha, RGB565, RGBA4444 -> 2;
+            case RGB888 -> 3;
+            default -> 4;
+        };
+    }
+
+
+    /** The shared skeleton assets of a model, which must not be modified except through {@link #getPoseCache}.
+     */
+    public static class Entry {
+        public final TextureAtlas.TextureAtlasData atlasData;
+        public final TextureAtlas atlas;
+        public final SkeletonData skeletonData;
+        /** The alpha masks of the atlas pages, or {@code null} if they are unavailable. */
+        public final Map<Texture, SkeletonHitTester.AlphaMask> alphaMasks;
+        private final String key;
+        private final FileHandle atlasFile;
+        private final FileHandle skelFile;
+        private String digest;
+        private PoseCache poseCache;
+        private int references = 1;
+
+        private Entry(String key, FileHandle atlasFile, FileHandle skelFile,
+                      TextureAtlas.TextureAtlasData atlasData, TextureAtlas atlas, SkeletonData skeletonData,
+                      Map<Texture, SkeletonHitTester.AlphaMask> alphaMasks) {
+            this.key = key;
+            this.atlasFile = atlasFile;
+            this.skelFile = skelFile;
+            this.atlasData = atlasData;
+            this.atlas = atlas;
+            this.skeletonData = skeletonData;
+            this.alphaMasks = alphaMasks;
+        }
+
+        /** Gets the digest of the model's content, which is computed on the first call.
+         * The digest covers the skeleton file, the atlas file and the images of the atlas pages,
+         * so it stays the same if the model is moved or unzipped again, and changes if the model is updated.
+         * @return The MD5 hex string.
+         * @throws GdxRuntimeException If any of the files is inaccessible.
+         */
+        public synchronized String getDigest() {
+            if (digest == null) {
+                try {
+                    MessageDigest md = MessageDigest.getInstance("MD5");
+                    md.update(skelFile.readBytes());
+                    md.update(atlasFile.readBytes());
+                    for (TextureAtlas.TextureAtlasData.Page page : atlasData.getPages())
+                        md.update(page.textureFile.readBytes());
+                    digest = HexFormat.of().formatHex(md.digest());
+                } catch (NoSuchAlgorithmException e) {
+                    throw new RuntimeException(e.getMessage());
+                }
+            }
+            return digest;
+        }
+
+        /** Gets the pose cache of the skeleton data, which samples the animations on the first call.
+         * The following calls return the same cache, regardless of the arguments.
+         * @param budgetBytes The maximum total size of the samples of all the pose caches in this process (byte).
+         * @param quantized Whether to quantize the translate, scale and shear samples to 16-bit.
+         * @return The pose cache, which is released when the entry is disposed.
+         */
+        public synchronized PoseCache getPoseCache(long budgetBytes, boolean quantized) {
+            if (poseCache == null) {
+                poseCache = new PoseCache(budgetBytes, quantized);
+                int count = poseCache.sample(skeletonData);
+                Logger.info("SkeletonCache", "Pose cache enabled, " + count + " clips sampled, " + poseCache);
+            }
+            return poseCache;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.esotericsoftware.spine.Skeleton;
+import com.esotericsoftware.spine.Slot;
+import com.esotericsoftware.spine.attachments.Attachment;
+import com.esotericsoftware.spine.attachments.MeshAttachment;
+import com.esotericsoftware.spine.attachments.RegionAttachment;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/** The class answers whether a point is covered by the current pose of a skeleton,
+ * using the world vertices of its region and mesh attachments instead of reading back the frame buffer.
+ * <hr>
+ * The triangles of the pose are collected lazily on the first query after {@link #invalidate()},
+ * and are indexed by a uniform grid so that each query only tests the triangles of one cell.
+ * Clipping attachments are ignored, so the result may be slightly larger than the rendered shape.
+ * @since ArkPets 3.2
+ */
+public class SkeletonHitTester {
+    protected final Map<Texture, AlphaMask> alphaMasks;
+    protected boolean dirty = true;
+
+    // Triangle storage (struct-of-arrays, 3 vertices per triangle)
+    protected int triangleCount;
+    protected float[] triX = new float[192];
+    protected float[] triY = new float[192];
+    protected float[] triU = new float[192];
+    protected float[] triV = new float[192];
+    protected float[] triAlpha = new float[64];
+    protected AlphaMask[] triMask = new AlphaMask[64];
+    protected float[] worldVertices = new float[256];
+
+    // Spatial grid (compressed rows, cells store triangle indices)
+    protected float gridLeft;
+    protected float gridBottom;
+    protected float gridCellWidth;
+    protected float gridCellHeight;
+    protected int gridCols;
+    protected int gridRows;
+    protected int[] cellStart = new int[1];
+    protected int[] cellItems = new int[64];
+
+    protected static final int cellSize = 32;
+    protected static final int maxCellsPerAxis = 64;
+    protected static final short[] quadTriangles = {0, 1, 2, 2, 3, 0};
+
+    /** The way to determine whether a pixel of the character is solid.
+     */
+    public enum Mode {
+        /** Reads back the pixel from the frame buffer, which stalls the graphics pipeline. */
+        FRAMEBUFFER,
+        /** Tests the attachments' triangles only, regardless of the transparent texels. */
+        GEOMETRY,
+        /** Tests the attachments' triangles and then looks up the texels' alpha. */
+        GEOMETRY_ALPHA
+    }
+
+    /** Initializes a hit tester without texture alpha lookup.
+     */
+    public SkeletonHitTester() {
+        alphaMasks = new HashMap<>();
+    }
+
+    /** Initializes a hit tester with texture alpha lookup.
+     * The alpha channel of each atlas page will be loaded and kept in memory.
+     * @param atlasData The atlas data whose pages have been loaded as textures.
+     * @throws GdxRuntimeException If any of the page images is inaccessible.
+     */
+    public SkeletonHitTester(TextureAtlasData atlasData) {
+        this(loadAlphaMasks(atlasData));
+    }
+
+    /** Initializes a hit tester with the given alpha masks,
+     * which may be shared by the hit testers of the same atlas since they are never modified.
+     * @param alphaMasks The alpha masks mapped by their textures.
+     */
+    public SkeletonHitTester(Map<Texture, AlphaMask> alphaMasks) {
+        this.alphaMasks = alphaMasks;
+    }
+
+    /** Loads the alpha channel of each atlas page.
+     * @param atlasData The atlas data whose pages have been loaded as textures.
+     * @return The alpha masks mapped by their textures.
+     * @throws GdxRuntimeException If any of the page images is inaccessible.
+     */
+    public static Map<Texture, AlphaMask> loadAlphaMasks(TextureAtlasData atlasData) {
+        HashMap<Texture, AlphaMask> alphaMasks = new HashMap<>();
+        for (TextureAtlasData.Page page : atlasData.getPages())
+            if (page.texture != null)
+                alphaMasks.put(page.texture, AlphaMask.of(page));
+        return alphaMasks;
+    }
+
+    /** Returns true if the texture alpha lookup is available.
+     */
+    public boolean hasAlphaMasks() {
+        return !alphaMasks.isEmpty();
+    }
+
+    /** Marks the collected triangles as outdated.
+     * Should be invoked whenever the pose of the skeleton has been changed.
+     */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    /** Returns true if the given point is covered by a visible part of the skeleton.
+     * @param skeleton The skeleton whose world transform has been updated.
+     * @param x The X-axis coordinate in the world.
+     * @param y The Y-axis coordinate in the world.
+     * @param useAlpha Whether to look up the texels' alpha.
+     * @return true=solid, false=transparent.
+     */
+    public boolean isSolidAt(Skeleton skeleton, float x, float y, boolean useAlpha) {
+        if (dirty) {
+            collect(skeleton);
+            buildGrid();
+            dirty = false;
+        }
+        if (triangleCount == 0)
+            return false;
+        int col = (int)((x - gridLeft) / gridCellWidth);
+        int row = (int)((y - gridBottom) / gridCellHeight);
+        if (x < gridLeft || y < gridBottom || col >= gridCols || row >= gridRows)
+            return false;
+        int cell = row * gridCols + col;
+        // Iterate from the topmost triangle since it is the most likely one to be hit
+        for (int i = cellStart[cell + 1] - 1; i >= cellStart[cell]; i--) {
+            int t = cellItems[i];
+            if (isInTriangle(t, x, y) && (!useAlpha || getAlphaAt(t, x, y) > 0))
+                return true;
+        }
+        return false;
+    }
+
+    /** Gets the count of the triangles collected from the latest pose.
+     * @return The count of the triangles.
+     */
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    private void collect(Skeleton skeleton) {
+        triangleCount = 0;
+        Array<Slot> drawOrder = skeleton.getDrawOrder();
+        float skeletonAlpha = skeleton.getColor().a;
+        for (int i = 0, n = drawOrder.size; i < n; i++) {
+            Slot slot = drawOrder.get(i);
+            if (!slot.getBone().isActive())
+                continue;
+            Attachment attachment = slot.getAttachment();
+            float alpha = skeletonAlpha * slot.getColor().a;
+            float[] uvs;
+            short[] triangles;
+            Texture texture;
+            if (attachment instanceof RegionAttachment region) {
+                alpha *= region.getColor().a;
+                if (alpha <= 0)
+                    continue;
+                region.computeWorldVertices(slot.getBone(), worldVertices, 0, 2);
+                uvs = region.getUVs();
+                triangles = quadTriangles;
+                texture = region.getRegion().getTexture();
+            } else if (attachment instanceof MeshAttachment mesh) {
+                alpha *= mesh.getColor().a;
+                if (alpha <= 0)
+                    continue;
+                int length = mesh.getWorldVerticesLength();
+                if (worldVertices.length < length)
+                    worldVertices = new float[length];
+                mesh.computeWorldVertices(slot, 0, length, worldVertices, 0, 2);
+                uvs = mesh.getUVs();
+                triangles = mesh.getTriangles();
+                texture = mesh.getRegion().getTexture();
+            } else {
+                continue;
+            }
+            addTriangles(triangles, uvs, alpha, alphaMasks.get(texture));
+        }
+    }
+
+    private void addTriangles(short[] triangles, float[] uvs, float alpha, AlphaMask mask) {
+        int newCount = triangleCount + triangles.length / 3;
+        if (triAlpha.length < newCount) {
+            int capacity = Math.max(newCount, triAlpha.length << 1);
+            triX = Arrays.copyOf(triX, capacity * 3);
+            triY = Arrays.copyOf(triY, capacity * 3);
+            triU = Arrays.copyOf(triU, capacity * 3);
+            triV = Arrays.copyOf(triV, capacity * 3);
+            triAlpha = Arrays.copyOf(triAlpha, capacity);
+            triMask = Arrays.copyOf(triMask, capacity);
+        }
+        int p = triangleCount * 3;
+        for (short index : triangles) {
+            int v = index << 1;
+            triX[p] = worldVertices[v];
+            triY[p] = worldVertices[v + 1];
+            triU[p] = uvs[v];
+            triV[p] = uvs[v + 1];
+            p++;
+        }
+        Arrays.fill(triAlpha, triangleCount, newCount, alpha);
+        Arrays.fill(triMask, triangleCount, newCount, mask);
+        triangleCount = newCount;
+    }
+
+    private void buildGrid() {
+        if (triangleCount == 0)
+            return;
+        float left = Float.MAX_VALUE, right = -Float.MAX_VALUE;
+        float bottom = Float.MAX_VALUE, top = -Float.MAX_VALUE;
+        for (int i = 0, n = triangleCount * 3; i < n; i++) {
+            left = Math.min(left, triX[i]);
+            right = Math.max(right, triX[i]);
+            bottom = Math.min(bottom, triY[i]);
+            top = Math.max(top, triY[i]);
+        }
+        gridLeft = left;
+        gridBottom = bottom;
+        gridCellWidth = Math.max(cellSize, (right - left) / maxCellsPerAxis);
+        gridCellHeight = Math.max(cellSize, (top - bottom) / maxCellsPerAxis);
+        gridCols = Math.max(1, Math.min(maxCellsPerAxis, (int)Math.ceil((right - left) / gridCellWidth)));
+        gridRows = Math.max(1, Math.min(maxCellsPerAxis, (int)Math.ceil((top - bottom) / gridCellHeight)));
+        int cells = gridCols * gridRows;
+        if (cellStart.length < cells + 1)
+            cellStart = new int[cells + 1];
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        // Pass 1: Count the triangles of each cell
+        for (int t = 0; t < triangleCount; t++)
+            forEachCell(t, cellStart, null);
+        // Pass 2: Convert the counts to the starting offsets
+        int total = 0;
+        for (int c = 0; c <= cells; c++) {
+            int count = cellStart[c];
+            cellStart[c] = total;
+            total += count;
+        }
+        if (cellItems.length < total)
+            cellItems = new int[Math.max(total, cellItems.length << 1)];
+        // Pass 3: Fill the cells, keeping the drawing order in each cell
+        for (int t = 0; t < triangleCount; t++)
+            forEachCell(t, cellStart, cellItems);
+        // Restore the starting offsets shifted by pass 3
+        for (int c = cells; c > 0; c--)
+            cellStart[c] = cellStart[c - 1];
+        cellStart[0] = 0;
+    }
+
+    private void forEachCell(int t, int[] offsets, int[] items) {
+        int p = t * 3;
+        float minX = Math.min(triX[p], Math.min(triX[p + 1], triX[p + 2]));
+        float maxX = Math.max(triX[p], Math.max(triX[p + 1], triX[p + 2]));
+        float minY = Math.min(triY[p], Math.min(triY[p + 1], triY[p + 2]));
+        float maxY = Math.max(triY[p], Math.max(triY[p + 1], triY[p + 2]));
+        int col0 = clampCol((int)((minX - gridLeft) / gridCellWidth));
+        int col1 = clampCol((int)((maxX - gridLeft) / gridCellWidth));
+        int row0 = clampRow((int)((minY - gridBottom) / gridCellHeight));
+        int row1 = clampRow((int)((maxY - gridBottom) / gridCellHeight));
+        for (int row = row0; row <= row1; row++)
+            for (int col = col0; col <= col1; col++) {
+                int cell = row * gridCols + col;
+                if (items == null)
+                    offsets[cell]++;
+                else
+                    items[offsets[cell]++] = t;
+            }
+    }
+
+    private int clampCol(int col) {
+        return Math.max(0, Math.min(gridCols - 1, col));
+    }
+
+    private int clampRow(int row) {
+        return Math.max(0, Math.min(gridRows - 1, row));
+    }
+
+    private boolean isInTriangle(int t, float x, float y) {
+        int p = t * 3;
+        float d1 = cross(triX[p], triY[p], triX[p + 1], triY[p + 1], x, y);
+        float d2 = cross(triX[p + 1], triY[p + 1], triX[p + 2], triY[p + 2], x, y);
+        float d3 = cross(triX[p + 2], triY[p + 2], triX[p], triY[p], x, y);
+        boolean hasNeg = d1 < 0 || d2 < 0 || d3 < 0;
+        boolean hasPos = d1 > 0 || d2 > 0 || d3 > 0;
+        return !(hasNeg && hasPos);
+    }
+
+    private float getAlphaAt(int t, float x, float y) {
+        AlphaMask mask = triMask[t];
+        if (mask == null)
+            return triAlpha[t];
+        int p = t * 3;
+        float x0 = triX[p], y0 = triY[p];
+        float e1x = triX[p + 1] - x0, e1y = triY[p + 1] - y0;
+        float e2x = triX[p + 2] - x0, e2y = triY[p + 2] - y0;
+        float det = e1x * e2y - e2x * e1y;
+        if (det == 0)
+            return 0;
+        // Barycentric coordinates of the point
+        float b1 = ((x - x0) * e2y - e2x * (y - y0)) / det;
+        float b2 = (e1x * (y - y0) - (x - x0) * e1y) / det;
+        float b0 = 1 - b1 - b2;
+        float u = b0 * triU[p] + b1 * triU[p + 1] + b2 * triU[p + 2];
+        float v = b0 * triV[p] + b1 * triV[p + 1] + b2 * triV[p + 2];
+        return triAlpha[t] * mask.getAlpha(u, v);
+    }
+
+    private static float cross(float ax, float ay, float bx, float by, float px, float py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+
+    /** The alpha channel of an atlas page.
+     */
+    public static class AlphaMask {
+        private final int width;
+        private final int height;
+        private final byte[] alpha;
+
+        AlphaMask(int width, int height, byte[] alpha) {
+            this.width = width;
+            this.height = height;
+            this.alpha = alpha;
+        }
+
+        /** Gets the alpha value at the given texture coordinate.
+         * @param u The U coordinate, from 0 to 1.
+         * @param v The V coordinate, from 0 to 1, where 0 is the top edge.
+         * @return The alpha value, from 0 to 1.
+         */
+        public float getAlpha(float u, float v) {
+            int x = Math.max(0, Math.min(width - 1, (int)(u * width)));
+            int y = Math.max(0, Math.min(height - 1, (int)(v * height)));
+            return (alpha[y * width + x] & 0xFF) / 255f;
+        }
+
+        public static AlphaMask of(TextureAtlasData.Page page) {
+            Pixmap pixmap = new Pixmap(page.textureFile);
+            if (pixmap.getFormat() != Format.RGBA8888) {
+                Pixmap converted = new Pixmap(pixmap.getWidth(), pixmap.getHeight(), Format.RGBA8888);
+                converted.setBlending(Pixmap.Blending.None);
+                converted.drawPixmap(pixmap, 0, 0);
+                pixmap.dispose();
+                pixmap = converted;
+            }
+            int width = pixmap.getWidth();
+            int height = pixmap.getHeight();
+            byte[] alpha = new byte[width * height];
+            ByteBuffer pixels = pixmap.getPixels();
+            for (int i = 0; i < alpha.length; i++)
+                alpha[i] = pixels.get((i << 2) + 3);
+            pixmap.dispose();
+            return new AlphaMask(width, height, alpha);
+        }
+    }
+}
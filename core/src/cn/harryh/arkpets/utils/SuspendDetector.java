@@ -0,0 +1,21 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.ArkConfig;
+
+
+/** The interface decides whether a pet is worth suspending, namely whether the user can hardly see it now.
+ * @since ArkPets 3.2
+ */
+@FunctionalInterface
+public interface SuspendDetector {
+    /** Detects whether the pet should be suspended.
+     * @param cache The up-to-date window snapshots.
+     * @param selfHandle The handle of the pet's own window.
+     * @param monitors The monitors, where the primary one comes first.
+     * @return A short description of the reason to suspend, or {@code null} if the pet should keep running.
+     */
+    String detect(WindowSnapshotCache cache, long selfHandle, ArkConfig.Monitor[] monitors);
+}
@@ -0,0 +1,110 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import java.lang.management.ManagementFactory;
+
+
+/** The class accounts the time that the app spends suspended,
+ * and estimates the CPU time saved by comparing the CPU usage of the running periods with that of the suspended periods.
+ * <p>
+ * The CPU time relies on {@link com.sun.management.OperatingSystemMXBean#getProcessCpuTime()},
+ * and the estimation is unavailable if the running JVM does not support it.
+ * Since the CPU time is measured for the whole process, the estimation of a pet hosted by a shared core
+ * also includes the CPU time of the other pets in the same process.
+ * @since ArkPets 3.2
+ */
+public class SuspendTracker {
+    private final com.sun.management.OperatingSystemMXBean bean;
+    private boolean suspended;
+    private int suspendCount;
+    private long periodStartNanos;
+    private long periodStartCpu;
+    private long runningNanos;
+    private long runningCpu;
+    private long suspendedNanos;
+    private long suspendedCpu;
+
+    public SuspendTracker() {
+        bean = ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean b ? b : null;
+        periodStartNanos = System.nanoTime();
+        periodStartCpu = getCpuTime();
+    }
+
+    /** Marks the start of a suspended period.
+     */
+    public void enter() {
+        if (suspended)
+            return;
+        endPeriod();
+        suspended = true;
+        suspendCount++;
+    }
+
+    /** Marks the end of a suspended period.
+     */
+    public void exit() {
+        if (!suspended)
+            return;
+        endPeriod();
+        suspended = false;
+    }
+
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    /** Gets the total time spent suspended, including the current period.
+     * @return The time (ns).
+     */
+    public long getSuspendedNanos() {
+        return suspendedNanos + (suspended ? System.nanoTime() - periodStartNanos : 0);
+    }
+
+    /** Estimates the CPU time saved by the suspension so far,
+     * assuming that the app would have kept the CPU usage of its running periods.
+     * The CPU usage is that of the whole process, see the class description.
+     * @return The CPU time (ns), or -1 if the estimation is unavailable.
+     */
+    public long getCpuSavedNanos() {
+        if (bean == null)
+            return -1;
+        long now = System.nanoTime(), cpu = getCpuTime();
+        long runNanos = runningNanos + (suspended ? 0 : now - periodStartNanos);
+        long runCpu = runningCpu + (suspended ? 0 : cpu - periodStartCpu);
+        long susNanos = suspendedNanos + (suspended ? now - periodStartNanos : 0);
+        long susCpu = suspendedCpu + (suspended ? cpu - periodStartCpu : 0);
+        if (runNanos <= 0 || susNanos <= 0)
+            return 0;
+        double runRate = (double)runCpu / runNanos;
+        double susRate = (double)susCpu / susNanos;
+        return Math.max(0, (long)((runRate - susRate) * susNanos));
+    }
+
+    @Override
+    public String toString() {
+        long saved = getCpuSavedNanos();
+        return "SuspendTracker " + (suspended ? "suspended" : "running") +
+                " {Suspend: " + suspendCount +
+                ", Suspended time: " + getSuspendedNanos() / 1000000 + "ms" +
+                ", Process CPU saved: " + (saved < 0 ? "unavailable" : saved / 1000000 + "ms") + "}";
+    }
+
+    private void endPeriod() {
+        long now = System.nanoTime(), cpu = getCpuTime();
+        if (suspended) {
+            suspendedNanos += now - periodStartNanos;
+            suspendedCpu += cpu - periodStartCpu;
+        } else {
+            runningNanos += now - periodStartNanos;
+            runningCpu += cpu - periodStartCpu;
+        }
+        periodStartNanos = now;
+        periodStartCpu = cpu;
+    }
+
+    private long getCpuTime() {
+        return bean == null ? 0 : Math.max(0, bean.getProcessCpuTime());
+    }
+}
@@ -0,0 +1,44 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.User32;
+import com.sun.jna.platform.win32.WinDef.HWND;
+import com.sun.jna.platform.win32.WinUser;
+
+
+/** The Win32 implementation of the window driver.
+ * @since ArkPets 3.2
+ */
+public class Win32WindowDriver implements WindowDriver {
+    @Override
+    public int getExStyle(long handle) {
+        return User32.INSTANCE.GetWindowLong(toHWnd(handle), WinUser.GWL_EXSTYLE);
+    }
+
+    @Override
+    public void setExStyle(long handle, int exStyle) {
+        User32.INSTANCE.SetWindowLong(toHWnd(handle), WinUser.GWL_EXSTYLE, exStyle);
+    }
+
+    @Override
+    public void setAlpha(long handle, int alpha) {
+        User32.INSTANCE.SetLayeredWindowAttributes(toHWnd(handle), 0, (byte)(alpha & 0xFF), User32.LWA_ALPHA);
+    }
+
+    @Override
+    public void setPosition(long handle, long insertAfter, int x, int y, int w, int h) {
+        User32.INSTANCE.SetWindowPos(toHWnd(handle), insertAfter == 0 ? null : toHWnd(insertAfter), x, y, w, h, WinUser.SWP_NOACTIVATE);
+    }
+
+    @Override
+    public void setForeground(long handle) {
+        User32.INSTANCE.SetForegroundWindow(toHWnd(handle));
+    }
+
+    private static HWND toHWnd(long handle) {
+        return new HWND(new Pointer(handle));
+    }
+}
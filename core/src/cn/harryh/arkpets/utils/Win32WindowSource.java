@@ -0,0 +1,60 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.User32;
+import com.sun.jna.platform.win32.WinDef.HWND;
+import com.sun.jna.platform.win32.WinDef.RECT;
+import com.sun.jna.platform.win32.WinUser;
+
+
+/** The Win32 implementation of the window source.
+ * The buffers and the enumeration callback are reused among the calls, so this class is not thread-safe.
+ * @since ArkPets 3.2
+ */
+public class Win32WindowSource implements WindowSource {
+    private final RECT rect = new RECT();
+    private final char[] text = new char[1024];
+    private final WinUser.WNDENUMPROC callback;
+    private WindowVisitor visitor;
+
+    public Win32WindowSource() {
+        callback = (hWnd, data) -> {
+            try {
+                if (User32.INSTANCE.IsWindowVisible(hWnd) && User32.INSTANCE.IsWindowEnabled(hWnd) &&
+                        User32.INSTANCE.GetWindowRect(hWnd, rect) && rect.top != rect.bottom && rect.left != rect.right)
+                    visitor.visit(Pointer.nativeValue(hWnd.getPointer()), rect.left, rect.top, rect.right, rect.bottom);
+            } catch (Exception ignored) {
+            }
+            return true;
+        };
+    }
+
+    @Override
+    public void enumerate(WindowVisitor visitor) {
+        this.visitor = visitor;
+        User32.INSTANCE.EnumWindows(callback, null);
+        this.visitor = null;
+    }
+
+    @Override
+    public String getTitle(long handle) {
+        int length = User32.INSTANCE.GetWindowText(new HWND(new Pointer(handle)), text, text.length);
+        return length > 0 ? Native.toString(text) : "";
+    }
+
+    @Override
+    public long getForegroundHandle() {
+        HWND hWnd = User32.INSTANCE.GetForegroundWindow();
+        return hWnd == null ? 0 : Pointer.nativeValue(hWnd.getPointer());
+    }
+
+    @Override
+    public long findWindow(String title) {
+        HWND hWnd = User32.INSTANCE.FindWindow(null, title);
+        return hWnd == null ? 0 : Pointer.nativeValue(hWnd.getPointer());
+    }
+}
@@ -0,0 +1,67 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/** The class figures out which windows have their top edges exposed, namely not covered by any window above them,
+ * so that these top edges can serve as barriers.
+ * <p>
+ * The windows are swept in z-order while the rows covered so far are kept as disjoint intervals,
+ * so the whole computation takes {@code O(n log n)} regardless of the window sizes.
+ * @since ArkPets 3.2
+ */
+public class WindowBarrierBuilder {
+    /** A platform-neutral rectangle of a window in screen coordinates,
+     * where the rows in {@code [top, bottom)} are covered by the window.
+     */
+    public record WindowRect(int left, int top, int right, int bottom) {
+    }
+
+    /** Finds the windows whose top edges are not covered by the windows above them.
+     * @param windows The windows in z-order, where the topmost one comes first.
+     * @return The indices of the exposed windows, sorted by their top edges from the highest to the lowest.
+     */
+    public static int[] findExposedTopEdges(List<WindowRect> windows) {
+        TreeMap<Integer, Integer> covered = new TreeMap<>();
+        ArrayList<Integer> exposed = new ArrayList<>();
+        for (int i = 0; i < windows.size(); i++) {
+            WindowRect w = windows.get(i);
+            if (w.bottom <= w.top)
+                continue;
+            if (!isCovered(covered, w.top))
+                exposed.add(i);
+            cover(covered, w.top, w.bottom);
+        }
+        // Every row is exposed at most once, so the top edges are distinct
+        return exposed.stream().sorted((a, b) -> Integer.compare(windows.get(a).top, windows.get(b).top))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean isCovered(TreeMap<Integer, Integer> covered, int row) {
+        Map.Entry<Integer, Integer> floor = covered.floorEntry(row);
+        return floor != null && row < floor.getValue();
+    }
+
+    private static void cover(TreeMap<Integer, Integer> covered, int start, int end) {
+        // Merge with the interval that starts before and touches the new one
+        Map.Entry<Integer, Integer> floor = covered.floorEntry(start);
+        if (floor != null && floor.getValue() >= start) {
+            start = floor.getKey();
+            end = Math.max(end, floor.getValue());
+        }
+        // Absorb the intervals that start within the new one
+        Map.Entry<Integer, Integer> next = covered.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            covered.remove(next.getKey());
+            next = covered.higherEntry(next.getKey());
+        }
+        covered.put(start, end);
+    }
+}
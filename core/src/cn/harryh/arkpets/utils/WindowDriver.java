@@ -0,0 +1,43 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+
+/** The interface represents the native calls which change the state of a window.
+ * @since ArkPets 3.2
+ */
+public interface WindowDriver {
+    /** Gets the extended styles of the window.
+     * @param handle The handle of the window.
+     * @return The EX_STYLE value.
+     */
+    int getExStyle(long handle);
+
+    /** Sets the extended styles of the window.
+     * @param handle The handle of the window.
+     * @param exStyle The new EX_STYLE value.
+     */
+    void setExStyle(long handle, int exStyle);
+
+    /** Sets the opacity of the layered window.
+     * @param handle The handle of the window.
+     * @param alpha The alpha value, from 0 to 255.
+     */
+    void setAlpha(long handle, int alpha);
+
+    /** Sets the position, the size and the z-order of the window without activating it.
+     * @param handle The handle of the window.
+     * @param insertAfter The handle of the window to precede the window in the z-order.
+     * @param x The x-position of the left edge (px).
+     * @param y The y-position of the top edge (px).
+     * @param w The width (px).
+     * @param h The height (px).
+     */
+    void setPosition(long handle, long insertAfter, int x, int y, int w, int h);
+
+    /** Brings the window to the foreground and activates it.
+     * @param handle The handle of the window.
+     */
+    void setForeground(long handle);
+}
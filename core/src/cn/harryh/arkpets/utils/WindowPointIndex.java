@@ -0,0 +1,138 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.WindowSnapshotCache.WindowSnapshot;
+
+import java.util.List;
+
+
+/** The class indexes the non-peer windows of a {@link WindowSnapshotCache} with a uniform grid,
+ * to find the topmost window at a given point.
+ * <p>
+ * Each grid cell lists the windows overlapping it in z-order, so a point query only tests the windows of one cell
+ * and stops at the first hit. The grid is rebuilt only when the version of the snapshots changes,
+ * and the queries allocate nothing.
+ * @since ArkPets 3.2
+ */
+public class WindowPointIndex {
+    private static final int maxCellsPerAxis = 32;
+    private final WindowSnapshotCache cache;
+    private int indexedVersion = -1;
+    private WindowSnapshot[] windows = new WindowSnapshot[0];
+    private int originX;
+    private int originY;
+    private int cellWidth = 1;
+    private int cellHeight = 1;
+    private int cellsX;
+    private int cellsY;
+    private int[] cellStart = new int[1];
+    private int[] cellItems = new int[0];
+    private long rebuildCount;
+
+    /** Initializes a window point index.
+     * @param cache The window snapshot cache to index.
+     */
+    public WindowPointIndex(WindowSnapshotCache cache) {
+        this.cache = cache;
+    }
+
+    /** Finds the topmost non-peer window that contains the given point.
+     * @param x The x-position in screen coordinates (px).
+     * @param y The y-position in screen coordinates (px).
+     * @return The snapshot of the window, or {@code null} if there is no such window.
+     */
+    public WindowSnapshot find(int x, int y) {
+        validate();
+        if (cellsX == 0)
+            return null;
+        int cx = Math.floorDiv(x - originX, cellWidth);
+        int cy = Math.floorDiv(y - originY, cellHeight);
+        if (cx < 0 || cy < 0 || cx >= cellsX || cy >= cellsY)
+            return null;
+        int cell = cy * cellsX + cx;
+        // The items of a cell are in z-order, so the first hit is the topmost one
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+            WindowSnapshot window = windows[cellItems[i]];
+            if (window.contains(x, y))
+                return window;
+        }
+        return null;
+    }
+
+    public long getRebuildCount() {
+        return rebuildCount;
+    }
+
+    private void validate() {
+        if (indexedVersion == cache.getVersion())
+            return;
+        indexedVersion = cache.getVersion();
+        rebuildCount++;
+        // Collect the non-peer windows and their bounding box
+        List<WindowSnapshot> all = cache.getWindows();
+        int count = 0;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        if (windows.length < all.size())
+            windows = new WindowSnapshot[all.size()];
+        for (WindowSnapshot w : all) {
+            if (w.peerNumber() >= 0 || w.right() <= w.left() || w.bottom() <= w.top())
+                continue;
+            windows[count++] = w;
+            minX = Math.min(minX, w.left());
+            minY = Math.min(minY, w.top());
+            maxX = Math.max(maxX, w.right());
+            maxY = Math.max(maxY, w.bottom());
+        }
+        for (int i = count; i < windows.length; i++)
+            windows[i] = null;
+        if (count == 0) {
+            cellsX = cellsY = 0;
+            return;
+        }
+        // Size the grid to roughly the square root of the window count per axis
+        int perAxis = Math.max(1, Math.min(maxCellsPerAxis, (int)Math.ceil(Math.sqrt(count)) * 2));
+        originX = minX;
+        originY = minY;
+        cellWidth = Math.max(1, (int)Math.ceil((double)(maxX - minX) / perAxis));
+        cellHeight = Math.max(1, (int)Math.ceil((double)(maxY - minY) / perAxis));
+        cellsX = Math.max(1, (int)Math.ceil((double)(maxX - minX) / cellWidth));
+        cellsY = Math.max(1, (int)Math.ceil((double)(maxY - minY) / cellHeight));
+        // Count the items of each cell, then fill them in z-order
+        int cellCount = cellsX * cellsY;
+        cellStart = new int[cellCount + 1];
+        for (int i = 0; i < count; i++)
+            forEachCell(windows[i], cell -> cellStart[cell + 1]++);
+        for (int c = 0; c < cellCount; c++)
+            cellStart[c + 1] += cellStart[c];
+        cellItems = new int[cellStart[cellCount]];
+        int[] cursor = new int[cellCount];
+        for (int i = 0; i < count; i++) {
+            final int item = i;
+            forEachCell(windows[i], cell -> cellItems[cellStart[cell] + cursor[cell]++] = item);
+        }
+    }
+
+    private void forEachCell(WindowSnapshot w, CellConsumer consumer) {
+        int x0 = (w.left() - originX) / cellWidth;
+        int y0 = (w.top() - originY) / cellHeight;
+        int x1 = Math.min(cellsX - 1, (w.right() - 1 - originX) / cellWidth);
+        int y1 = Math.min(cellsY - 1, (w.bottom() - 1 - originY) / cellHeight);
+        for (int cy = y0; cy <= y1; cy++)
+            for (int cx = x0; cx <= x1; cx++)
+                consumer.accept(cy * cellsX + cx);
+    }
+
+    @Override
+    public String toString() {
+        return "WindowPointIndex " + cellsX + "*" + cellsY + " cells, " + cellItems.length + " items {Rebuild: " + rebuildCount + "}";
+    }
+
+
+    @FunctionalInterface
+    private interface CellConsumer {
+        void accept(int cell);
+    }
+}
@@ -0,0 +1,222 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.HWndCtrl.NumberedTitleManager;
+import com.badlogic.gdx.utils.LongMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static cn.harryh.arkpets.Const.windowTitleRevalidateInterval;
+
+
+/** The class keeps the snapshots of the desktop windows keyed by their handles.
+ * Each refresh diffs the new enumeration against the previous one,
+ * so the titles are only read for the windows that are new or have been moved or resized,
+ * and the peer numbers parsed from the titles are memoized.
+ * Since a title may change on its own, all the titles are read again once every few refreshes.
+ * @since ArkPets 3.2
+ */
+public class WindowSnapshotCache {
+    private final WindowSource source;
+    private final NumberedTitleManager titleManager;
+    private final LongMap<WindowSnapshot> snapshots;
+    private final ArrayList<WindowSnapshot> windows;
+    private final List<WindowSnapshot> windowsView;
+    private final WindowSource.WindowVisitor visitor;
+    private int generation;
+    private int version;
+    private boolean changed;
+    private boolean revalidating;
+    private long foregroundHandle;
+    private long refreshCount;
+    private long refreshNanos;
+    private long enumeratedCount;
+    private long titleReadCount;
+
+    /** Initializes a window snapshot cache.
+     * @param source The source of the windows.
+     * @param titleManager The title manager used to parse the peer numbers.
+     */
+    public WindowSnapshotCache(WindowSource source, NumberedTitleManager titleManager) {
+        this.source = source;
+        this.titleManager = titleManager;
+        snapshots = new LongMap<>();
+        windows = new ArrayList<>();
+        windowsView = Collections.unmodifiableList(windows);
+        visitor = this::visit;
+    }
+
+    /** Enumerates the windows again and updates the snapshots.
+     */
+    public void refresh() {
+        long startTime = System.nanoTime();
+        generation++;
+        revalidating = generation % windowTitleRevalidateInterval == 0;
+        changed = false;
+        windows.clear();
+        source.enumerate(visitor);
+        foregroundHandle = source.getForegroundHandle();
+        // Evict the windows that have disappeared
+        Iterator<LongMap.Entry<WindowSnapshot>> iterator = snapshots.entries().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().value.generation != generation) {
+                iterator.remove();
+                changed = true;
+            }
+        }
+        if (changed)
+            version++;
+        refreshCount++;
+        refreshNanos += System.nanoTime() - startTime;
+    }
+
+    /** Gets the snapshots of the windows of the last refresh.
+     * @return An unmodifiable list of the snapshots, from the topmost to the bottommost.
+     */
+    public List<WindowSnapshot> getWindows() {
+        return windowsView;
+    }
+
+    /** Gets the foreground window at the last refresh.
+     * @return The handle of the window, or 0 if there was no foreground window.
+     */
+    public long getForegroundHandle() {
+        return foregroundHandle;
+    }
+
+    /** Gets the version of the snapshots, which increases whenever any window appears, disappears,
+     * changes its z-order, its rectangle or its peer number.
+     * @return The version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /** Gets the average count of the title reads per refresh.
+     * @return The count.
+     */
+    public float getTitleReadsPerRefresh() {
+        return refreshCount > 0 ? (float)titleReadCount / refreshCount : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowSnapshotCache " + windows.size() + " windows" +
+                " {Refresh: " + refreshCount +
+                ", Avg time: " + (refreshCount > 0 ? refreshNanos / refreshCount / 1000 : 0) + "us" +
+                ", Avg windows: " + (refreshCount > 0 ? enumeratedCount / refreshCount : 0) +
+                ", Avg title reads: " + String.format("%.2f", getTitleReadsPerRefresh()) + "}";
+    }
+
+    private void visit(long handle, int left, int top, int right, int bottom) {
+        WindowSnapshot snapshot = snapshots.get(handle);
+        boolean moved;
+        if (snapshot == null) {
+            snapshot = new WindowSnapshot(handle);
+            snapshots.put(handle, snapshot);
+            moved = true;
+        } else {
+            moved = snapshot.left != left || snapshot.top != top || snapshot.right != right || snapshot.bottom != bottom;
+        }
+        if (moved || snapshot.zIndex != windows.size())
+            changed = true;
+        snapshot.left = left;
+        snapshot.top = top;
+        snapshot.right = right;
+        snapshot.bottom = bottom;
+        snapshot.generation = generation;
+        snapshot.zIndex = windows.size();
+        if (moved || revalidating) {
+            String title = source.getTitle(handle);
+            titleReadCount++;
+            if (!title.equals(snapshot.title)) {
+                int peerNumber = titleManager.getNumber(title);
+                if (peerNumber != snapshot.peerNumber)
+                    changed = true;
+                snapshot.title = title;
+                snapshot.peerNumber = peerNumber;
+            }
+        }
+        windows.add(snapshot);
+        enumeratedCount++;
+    }
+
+
+    /** The snapshot of a window, which is updated in place by the cache.
+     */
+    public static class WindowSnapshot {
+        private final long handle;
+        private String title;
+        private int peerNumber;
+        private int left;
+        private int top;
+        private int right;
+        private int bottom;
+        private int generation;
+        private int zIndex;
+
+        private WindowSnapshot(long handle) {
+            this.handle = handle;
+            title = null;
+            peerNumber = -1;
+            zIndex = -1;
+        }
+
+        public long handle() {
+            return handle;
+        }
+
+        public String title() {
+            return title;
+        }
+
+        /** Gets the peer number parsed from the title.
+         * @return The number, or -1 if the window is not a peer.
+         */
+        public int peerNumber() {
+            return peerNumber;
+        }
+
+        public int left() {
+            return left;
+        }
+
+        public int top() {
+            return top;
+        }
+
+        public int right() {
+            return right;
+        }
+
+        public int bottom() {
+            return bottom;
+        }
+
+        public float getCenterX() {
+            return (left + right) / 2f;
+        }
+
+        public float getCenterY() {
+            return (top + bottom) / 2f;
+        }
+
+        /** Returns true if the given point is inside the window.
+         * @param x X (px).
+         * @param y Y (px).
+         */
+        public boolean contains(int x, int y) {
+            return left <= x && x < right && top <= y && y < bottom;
+        }
+
+        @Override
+        public String toString() {
+            return "‘" + title + "’ " + (right - left) + "*" + (bottom - top);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+
+/** The interface represents a platform-neutral source of the desktop windows.
+ * @since ArkPets 3.2
+ */
+public interface WindowSource {
+    /** Enumerates the visible windows from the topmost to the bottommost.
+     * @param visitor The visitor which receives the handle and the rectangle of each window.
+     */
+    void enumerate(WindowVisitor visitor);
+
+    /** Gets the title of the given window.
+     * @param handle The handle of the window.
+     * @return The title, or an empty string if the window has no title.
+     */
+    String getTitle(long handle);
+
+    /** Gets the window which the user is currently working with.
+     * @return The handle of the foreground window, or 0 if there is no such window.
+     */
+    long getForegroundHandle();
+
+    /** Finds the top-level window of the given title.
+     * @param title The title of the window.
+     * @return The handle of the window, or 0 if there is no such window.
+     */
+    long findWindow(String title);
+
+
+    @FunctionalInterface
+    interface WindowVisitor {
+        /** Visits a window.
+         * @param handle The handle of the window.
+         * @param left The x-position of the left edge (px).
+         * @param top The y-position of the top edge (px).
+         * @param right The x-position of the right edge, exclusive (px).
+         * @param bottom The y-position of the bottom edge, exclusive (px).
+         */
+        void visit(long handle, int left, int top, int right, int bottom);
+    }
+}
@@ -0,0 +1,143 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+
+/** The class models the state of a window that the app controls,
+ * namely its position, size, z-order anchor, opacity and extended styles.
+ * <p>
+ * The setters only change the desired state. {@link #commit()} compares it with the last applied state
+ * and issues the native calls for the parts that have actually changed, so it should be invoked once per frame.
+ * @since ArkPets 3.2
+ */
+public class WindowState {
+    private final WindowDriver driver;
+    private final long handle;
+    private long insertAfter;
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+    private int alpha;
+    private int exStyle;
+    private boolean positionSet;
+    private boolean positionApplied;
+    private long appliedInsertAfter;
+    private int appliedX;
+    private int appliedY;
+    private int appliedWidth;
+    private int appliedHeight;
+    private int appliedAlpha;
+    private int appliedExStyle;
+    private long commitCount;
+    private long callCount;
+
+    /** Initializes the state of a window, reading its current extended styles.
+     * The window is assumed to be fully opaque initially,
+     * and its position will be applied on the first commit after {@link #setPosition} is invoked.
+     * @param driver The driver which issues the native calls.
+     * @param handle The handle of the window.
+     */
+    public WindowState(WindowDriver driver, long handle) {
+        this.driver = driver;
+        this.handle = handle;
+        alpha = appliedAlpha = 255;
+        exStyle = appliedExStyle = handle == 0 ? 0 : driver.getExStyle(handle);
+        callCount++;
+    }
+
+    public long getHandle() {
+        return handle;
+    }
+
+    /** Sets the position, the size and the z-order anchor of the window.
+     * @param insertAfter The handle of the window to precede the window in the z-order.
+     * @param x The x-position of the left edge (px).
+     * @param y The y-position of the top edge (px).
+     * @param width The width (px).
+     * @param height The height (px).
+     */
+    public void setPosition(long insertAfter, int x, int y, int width, int height) {
+        this.insertAfter = insertAfter;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        positionSet = true;
+    }
+
+    /** Sets the opacity of the window.
+     * @param alpha The alpha value, from 0 to 1.
+     */
+    public void setAlpha(float alpha) {
+        this.alpha = (int)(Math.max(0, Math.min(1, alpha)) * 255) & 0xFF;
+    }
+
+    /** Sets the extended styles of the window.
+     * @param exStyle The new EX_STYLE value.
+     */
+    public void setExStyle(int exStyle) {
+        this.exStyle = exStyle;
+    }
+
+    /** Adds or removes the given flags of the extended styles.
+     * @param flags The EX_STYLE flags.
+     * @param enabled Whether to add the flags or to remove them.
+     */
+    public void setExStyleFlags(int flags, boolean enabled) {
+        exStyle = enabled ? exStyle | flags : exStyle & ~flags;
+    }
+
+    public int getExStyle() {
+        return exStyle;
+    }
+
+    /** Forces the z-order to be applied again on the next commit,
+     * which is required when another window may have been brought above the anchor.
+     */
+    public void invalidateZOrder() {
+        positionApplied = false;
+    }
+
+    /** Applies the changes since the last commit to the native window.
+     * @return The count of the native calls issued.
+     */
+    public int commit() {
+        commitCount++;
+        if (handle == 0)
+            return 0;
+        int calls = 0;
+        if (exStyle != appliedExStyle) {
+            driver.setExStyle(handle, exStyle);
+            appliedExStyle = exStyle;
+            calls++;
+        }
+        if (positionSet && (!positionApplied || insertAfter != appliedInsertAfter ||
+                x != appliedX || y != appliedY || width != appliedWidth || height != appliedHeight)) {
+            driver.setPosition(handle, insertAfter, x, y, width, height);
+            positionApplied = true;
+            appliedInsertAfter = insertAfter;
+            appliedX = x;
+            appliedY = y;
+            appliedWidth = width;
+            appliedHeight = height;
+            calls++;
+        }
+        if (alpha != appliedAlpha) {
+            driver.setAlpha(handle, alpha);
+            appliedAlpha = alpha;
+            calls++;
+        }
+        callCount += calls;
+        return calls;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowState " + width + "*" + height + " @ " + x + ", " + y +
+                " {Commit: " + commitCount +
+                ", Native calls: " + callCount +
+                ", Avg calls: " + String.format("%.3f", commitCount > 0 ? (float)callCount / commitCount : 0f) + "}";
+    }
+}
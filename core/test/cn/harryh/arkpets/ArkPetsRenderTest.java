@@ -0,0 +1,145 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets;
+
+import cn.harryh.arkpets.testing.StubBackend;
+import cn.harryh.arkpets.testing.StubGL;
+import cn.harryh.arkpets.testing.TestModel;
+import cn.harryh.arkpets.utils.FakeWindowSource.FakeWindow;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+
+import static cn.harryh.arkpets.Const.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Runs the whole {@link ArkPets#render()} path on the stub backend for thousands of ticks.
+ * <p>
+ * The allocation test fails the build if the steady-state allocation of a tick exceeds
+ * {@link Const#allocationBudgetPerFrame}. Note that the stub GL boxes the arguments of every call,
+ * and the recording driver keeps the description of every call, so the measurement errs on the high side.
+ */
+class ArkPetsRenderTest {
+    private static final int measuredWindows = 5;
+    @TempDir
+    static Path modelDir;
+    private static HeadlessArkPets app;
+
+    @BeforeAll
+    static void createApp() throws IOException {
+        StubBackend.install();
+        TestModel.write(modelDir);
+        ArkConfig config = ArkConfig.getDefaultConfig();
+        assertNotNull(config);
+        TestModel.apply(config, modelDir);
+        app = new HeadlessArkPets(appName, config);
+        app.create();
+    }
+
+    @AfterAll
+    static void disposeApp() {
+        if (app != null)
+            app.dispose();
+    }
+
+    @Test
+    void renderDrawsFramesAndMovesTheWindow() {
+        long glCalls = StubGL.getCallCount();
+        long drawnFrames = app.cha.getRenderStats().drawnFrames();
+        app.driver.clearCalls();
+        tick(allocationWindowFrames);
+        assertTrue(app.cha.getRenderStats().drawnFrames() > drawnFrames);
+        assertTrue(StubGL.getCallCount() > glCalls);
+        assertTrue(app.driver.getCalls().stream().anyMatch(call -> call.startsWith("SetPosition " + HeadlessArkPets.selfHandle)));
+        assertFalse(app.isSuspended());
+    }
+
+    @Test
+    void nativeCallsFollowTheActualChanges() {
+        tick(allocationWarmupFrames);
+        String lastPosition = null;
+        for (int i = 0; i < allocationWindowFrames; i++) {
+            app.driver.clearCalls();
+            tick(1);
+            List<String> calls = app.driver.getCalls();
+            // The changes of a tick are committed in one batch, which has at most one call of each kind
+            assertTrue(calls.stream().filter(call -> call.startsWith("SetPosition ")).count() <= 1, "Tick " + i + ": " + calls);
+            assertTrue(calls.stream().filter(call -> call.startsWith("SetAlpha ")).count() <= 1, "Tick " + i + ": " + calls);
+            // The styles do not change in the steady state
+            assertTrue(calls.stream().noneMatch(call -> call.contains("ExStyle ")), "Tick " + i + ": " + calls);
+            for (String call : calls) {
+                if (call.startsWith("SetPosition ")) {
+                    // The z-order anchor is held on the fake desktop, so a position is never applied twice
+                    assertNotEquals(lastPosition, call, "Tick " + i);
+                    lastPosition = call;
+                }
+            }
+        }
+    }
+
+    @Test
+    void steadyStateRenderStaysWithinTheAllocationBudget() {
+        var bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        assertTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+        tick(allocationWarmupFrames);
+        for (int i = 0; i < measuredWindows; i++) {
+            app.driver.clearCalls();
+            long startBytes = bean.getThreadAllocatedBytes(threadId);
+            tick(allocationWindowFrames);
+            long averageBytes = (bean.getThreadAllocatedBytes(threadId) - startBytes) / allocationWindowFrames;
+            assertTrue(averageBytes <= allocationBudgetPerFrame,
+                    "Window " + i + " allocated " + averageBytes + " B/tick, over the budget of " + allocationBudgetPerFrame + " B/tick");
+        }
+    }
+
+    @Test
+    void suspendedAppPostsNothingButTheResume() throws InterruptedException {
+        FakeWindow self = app.source.get(HeadlessArkPets.selfHandle);
+        // The pet keeps walking until it is suspended, so the cover leaves a wide margin
+        app.source.putOnTop(new FakeWindow(0x500, "Cover", self.left() - 200, self.top() - 200, self.right() + 200, self.bottom() + 200));
+        try {
+            for (int i = 0; i < 100 && !app.isSuspended(); i++)
+                tick(1);
+            assertTrue(app.isSuspended());
+            StubBackend.runPosted();
+            // The input events still request frames, which must do nothing while suspended
+            long glCalls = StubGL.getCallCount();
+            long drawnFrames = app.cha.getRenderStats().drawnFrames();
+            app.driver.clearCalls();
+            app.mouseMoved(1, 1);
+            tick(10);
+            assertEquals(glCalls, StubGL.getCallCount());
+            assertEquals(drawnFrames, app.cha.getRenderStats().drawnFrames());
+            assertTrue(app.driver.getCalls().isEmpty(), app.driver.getCalls().toString());
+            // Any posted runnable would render a frame, so the heartbeats must not post while the app is still occluded
+            Thread.sleep(suspendHeartbeatInterval * 5 / 2);
+            assertEquals(0, StubBackend.getPendingCount());
+        } finally {
+            app.source.remove(0x500);
+        }
+        long deadline = System.currentTimeMillis() + suspendHeartbeatInterval * 3;
+        while (StubBackend.getPendingCount() == 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(20);
+        StubBackend.runPosted();
+        assertFalse(app.isSuspended());
+        tick(allocationWindowFrames);
+        assertFalse(app.isSuspended());
+    }
+
+    private static void tick(int count) {
+        for (int i = 0; i < count; i++) {
+            app.render();
+            StubBackend.runPosted();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets;
+
+import cn.harryh.arkpets.animations.AnimClip;
+import cn.harryh.arkpets.animations.AnimData;
+import cn.harryh.arkpets.testing.Benchmark;
+import cn.harryh.arkpets.testing.StubBackend;
+import cn.harryh.arkpets.testing.TestModel;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static cn.harryh.arkpets.Const.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Measures the steady-state CPU time of a frame of the character, played lively or from the baked frames.
+ * <p>
+ * Every clip of the test model is looped in turn after it has been baked, so the baking itself is not measured.
+ * The GL calls go to {@link cn.harryh.arkpets.testing.StubGL}, so the time covers the work on the CPU only,
+ * namely updating the skeleton and filling the batch, but not the work of the driver and the GPU.
+ */
+@Tag(Benchmark.tag)
+class BakedPlaybackBenchmark {
+    private static final int frames = 300;
+    @TempDir
+    static Path modelDir;
+
+    @Test
+    void bakedVersusLiveFrames() throws IOException {
+        StubBackend.install();
+        TestModel.write(modelDir);
+        Benchmark.report("%-10s %8s %14s %14s", "clip", "frames", "live (us)", "baked (us)");
+        ArkChar live = newChar(false);
+        ArkChar baked = newChar(true);
+        for (AnimClip clip : live.animList) {
+            double liveMicros = measure(live, clip) / 1000;
+            double bakedMicros = measure(baked, clip) / 1000;
+            Benchmark.report("%-10s %8d %14.1f %14.1f", clip.fullName, frames, liveMicros, bakedMicros);
+        }
+        assertEquals(0, live.getRenderStats().bakedFrames());
+        assertTrue(baked.getRenderStats().bakedFrames() > baked.getRenderStats().liveFrames());
+        Benchmark.report("%s", baked);
+        live.dispose();
+        baked.dispose();
+    }
+
+    private static double measure(ArkChar cha, AnimClip clip) {
+        for (AnimClip candidate : cha.animList)
+            if (candidate.fullName.equals(clip.fullName)) {
+                cha.adjustCanvas(candidate.stage);
+                cha.setAnimation(new AnimData(candidate, null, true, false));
+            }
+        // Let the character turn around and bake the clip before the measurement
+        for (int i = 0; i < fpsDefault; i++)
+            cha.renderToBatch();
+        return Benchmark.nanosPerOperation(frames, () -> {
+            for (int i = 0; i < frames; i++)
+                cha.renderToBatch();
+        });
+    }
+
+    private static ArkChar newChar(boolean bakedPlayback) {
+        ArkConfig config = ArkConfig.getDefaultConfig();
+        assertNotNull(config);
+        TestModel.apply(config, modelDir);
+        config.display_baked_playback = bakedPlayback;
+        config.display_skip_static_frames = false;
+        config.display_pose_cache = false;
+        config.canvas_fitting_cache = false;
+        ArkChar cha = new ArkChar(config, skelBaseScale);
+        cha.fitCanvas(config.canvas_fitting_samples);
+        return cha;
+    }
+}
@@ -0,0 +1,63 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets;
+
+import cn.harryh.arkpets.tray.MemberTrayImpl;
+import cn.harryh.arkpets.utils.FakeWindowSource;
+import cn.harryh.arkpets.utils.FakeWindowSource.FakeWindow;
+import cn.harryh.arkpets.utils.MonitorTopology;
+import cn.harryh.arkpets.utils.RecordingWindowDriver;
+import cn.harryh.arkpets.utils.WindowDriver;
+import cn.harryh.arkpets.utils.WindowSource;
+import com.alibaba.fastjson.JSONObject;
+
+
+/** An ArkPets app running on a fake desktop, which has a 1920*1080 monitor, a taskbar and two other windows.
+ * The window of the app follows the positions set through the driver, and it is kept in the foreground.
+ * There is no tray. The stub backend must have been installed before the app is created.
+ */
+public class HeadlessArkPets extends ArkPets {
+    public static final long selfHandle = 0x100;
+    public final FakeWindowSource source = new FakeWindowSource();
+    public final RecordingWindowDriver driver = new RecordingWindowDriver() {
+        @Override
+        public void setPosition(long handle, long insertAfter, int x, int y, int w, int h) {
+            super.setPosition(handle, insertAfter, x, y, w, h);
+            if (handle == selfHandle)
+                source.put(new FakeWindow(handle, title, x, y, x + w, y + h));
+        }
+    };
+    private final String title;
+
+    public HeadlessArkPets(String title, ArkConfig config) {
+        super(title, config);
+        this.title = title;
+        source.put(new FakeWindow(selfHandle, title, 0, 0, 1, 1));
+        source.put(new FakeWindow(0x200, "Editor", 200, 300, 1100, 900));
+        source.put(new FakeWindow(0x300, "Browser", 800, 150, 1700, 800));
+        source.put(new FakeWindow(0x400, "Taskbar", 0, 1040, 1920, 1080));
+        source.setForegroundHandle(selfHandle);
+    }
+
+    @Override
+    protected WindowDriver createWindowDriver() {
+        return driver;
+    }
+
+    @Override
+    protected WindowSource createWindowSource() {
+        return source;
+    }
+
+    @Override
+    protected MonitorTopology createMonitorTopology() {
+        return MonitorTopology.of(ArkConfig.Monitor.fromJSONObject(
+                JSONObject.parseObject("{name:'Stub',size:[1920,1080],virtual:[0,0],hz:60,bbp:32}")));
+    }
+
+    @Override
+    protected MemberTrayImpl createTray() {
+        return null;
+    }
+}
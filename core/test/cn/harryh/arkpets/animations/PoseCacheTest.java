@@ -0,0 +1,197 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.animations;
+
+import com.badlogic.gdx.utils.Array;
+import com.esotericsoftware.spine.*;
+import com.esotericsoftware.spine.Animation.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static cn.harryh.arkpets.Const.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class PoseCacheTest {
+    private static final long unlimited = 64L * 1024 * 1024;
+    private final ArrayList<PoseCache> caches = new ArrayList<>();
+
+    @AfterEach
+    void releaseCaches() {
+        // The memory cap is shared by the whole process, so give back the quota for the other tests
+        caches.forEach(PoseCache::release);
+    }
+
+    @Test
+    void samplesMatchLiveEvaluationWithinTolerance() {
+        for (boolean quantized : new boolean[]{false, true}) {
+            SkeletonData live = newSkeletonData();
+            SkeletonData sampled = newSkeletonData();
+            PoseCache cache = newCache(unlimited, quantized);
+            assertEquals(2, cache.sample(sampled));
+            for (String name : new String[]{"Idle", "Move"}) {
+                assertTrue(cache.contains(name));
+                assertPoseMatches(live, sampled, name);
+            }
+        }
+    }
+
+    @Test
+    void clipsBeyondToleranceAreLeftToLiveEvaluation() {
+        SkeletonData data = newSkeletonData();
+        Array<Timeline> original = new Array<>(data.findAnimation("Jump").getTimelines());
+        PoseCache cache = newCache(unlimited, false);
+        cache.sample(data);
+        // The stepped key cannot be interpolated linearly
+        assertFalse(cache.contains("Jump"));
+        assertEquals(original, data.findAnimation("Jump").getTimelines());
+        assertTrue(cache.toString().contains("1 rejected"));
+    }
+
+    @Test
+    void sampledTimelinesKeepTheirPropertyIds() {
+        SkeletonData live = newSkeletonData();
+        SkeletonData sampled = newSkeletonData();
+        newCache(unlimited, true).sample(sampled);
+        for (Animation animation : live.getAnimations()) {
+            Array<Timeline> expected = animation.getTimelines();
+            Array<Timeline> actual = sampled.findAnimation(animation.getName()).getTimelines();
+            assertEquals(expected.size, actual.size);
+            for (int i = 0; i < expected.size; i++)
+                assertEquals(expected.get(i).getPropertyId(), actual.get(i).getPropertyId());
+        }
+    }
+
+    @Test
+    void memoryCapIsSharedByTheProcess() {
+        long clipBytes = bytesOf(newSkeletonData().findAnimation("Idle"));
+        // The cap fits the first clip only
+        PoseCache first = newCache(clipBytes + clipBytes / 2, false);
+        assertEquals(1, first.sample(newSkeletonData()));
+        assertEquals(clipBytes, first.getUsedBytes());
+        // Another cache in the same process shares the exhausted quota
+        PoseCache second = newCache(clipBytes + clipBytes / 2, false);
+        assertEquals(0, second.sample(newSkeletonData()));
+        // The quota is given back once the first cache is released
+        first.release();
+        assertEquals(0, first.getUsedBytes());
+        assertEquals(1, second.sample(newSkeletonData()));
+    }
+
+    @Test
+    void quantizationHalvesTheChannelStorage() {
+        PoseCache plain = newCache(unlimited, false);
+        plain.sample(newSkeletonData());
+        long plainBytes = plain.getUsedBytes();
+        plain.release();
+        PoseCache quantized = newCache(unlimited, true);
+        quantized.sample(newSkeletonData());
+        assertTrue(quantized.getUsedBytes() < plainBytes);
+    }
+
+    @Test
+    void hitRateCountsTheFramesPlayedBySamples() {
+        PoseCache cache = newCache(unlimited, false);
+        assertEquals(0, cache.getHitRate());
+        cache.sample(newSkeletonData());
+        for (int i = 0; i < 30; i++)
+            cache.recordPlayback("Idle");
+        for (int i = 0; i < 10; i++)
+            cache.recordPlayback("Jump");
+        assertEquals(0.75f, cache.getHitRate(), 1e-6);
+        assertTrue(cache.toString().contains("Hit rate: 75%"));
+    }
+
+    private PoseCache newCache(long budgetBytes, boolean quantized) {
+        PoseCache cache = new PoseCache(budgetBytes, quantized);
+        caches.add(cache);
+        return cache;
+    }
+
+    private static void assertPoseMatches(SkeletonData live, SkeletonData sampled, String name) {
+        Skeleton expected = new Skeleton(live);
+        Skeleton actual = new Skeleton(sampled);
+        Animation expectedAnimation = live.findAnimation(name);
+        Animation actualAnimation = sampled.findAnimation(name);
+        for (float time = 0; time <= expectedAnimation.getDuration(); time += 0.0137f) {
+            expected.setToSetupPose();
+            actual.setToSetupPose();
+            expectedAnimation.apply(expected, time, time, false, null, 1, MixBlend.setup, MixDirection.in);
+            actualAnimation.apply(actual, time, time, false, null, 1, MixBlend.setup, MixDirection.in);
+            for (int i = 0; i < expected.getBones().size; i++) {
+                Bone e = expected.getBones().get(i);
+                Bone a = actual.getBones().get(i);
+                String at = name + " " + e.getData().getName() + " at " + time;
+                assertEquals(e.getX(), a.getX(), poseTolerance, at);
+                assertEquals(e.getY(), a.getY(), poseTolerance, at);
+                float rotation = (e.getRotation() - a.getRotation()) % 360;
+                assertTrue(Math.min(Math.abs(rotation), 360 - Math.abs(rotation)) <= poseTolerance, at);
+                assertEquals(e.getScaleX(), a.getScaleX(), poseScaleTolerance, at);
+                assertEquals(e.getScaleY(), a.getScaleY(), poseScaleTolerance, at);
+            }
+        }
+    }
+
+    private static long bytesOf(Animation animation) {
+        int sampleCount = (int)Math.ceil(animation.getDuration() * poseSampleRate) + 1;
+        long bytes = 0;
+        for (Timeline timeline : animation.getTimelines())
+            // A rotation is stored as a cosine-sine pair, the other timelines as two raw floats
+            bytes += 2 * 4;
+        return sampleCount * bytes;
+    }
+
+    /** Builds a three-bone skeleton with a smooth idle clip, a smooth move clip and a stepped jump clip.
+     */
+    private static SkeletonData newSkeletonData() {
+        SkeletonData data = new SkeletonData();
+        BoneData root = new BoneData(0, "root", null);
+        BoneData body = new BoneData(1, "body", root);
+        body.setPosition(0, 40);
+        BoneData head = new BoneData(2, "head", body);
+        head.setPosition(0, 60);
+        head.setRotation(10);
+        data.getBones().add(root);
+        data.getBones().add(body);
+        data.getBones().add(head);
+
+        RotateTimeline sway = new RotateTimeline(3);
+        sway.setBoneIndex(1);
+        sway.setFrame(0, 0, 0);
+        sway.setFrame(1, 0.5f, 25);
+        sway.setFrame(2, 1, 0);
+        sway.setCurve(0, 0.25f, 0, 0.75f, 1);
+        sway.setCurve(1, 0.25f, 0, 0.75f, 1);
+        ScaleTimeline breathe = new ScaleTimeline(3);
+        breathe.setBoneIndex(2);
+        breathe.setFrame(0, 0, 1, 1);
+        breathe.setFrame(1, 0.5f, 1.08f, 0.95f);
+        breathe.setFrame(2, 1, 1, 1);
+        breathe.setCurve(0, 0.4f, 0, 0.6f, 1);
+        breathe.setCurve(1, 0.4f, 0, 0.6f, 1);
+        data.getAnimations().add(new Animation("Idle", Array.with(sway, breathe), 1));
+
+        TranslateTimeline step = new TranslateTimeline(3);
+        step.setBoneIndex(0);
+        step.setFrame(0, 0, 0, 0);
+        step.setFrame(1, 1, 30, 8);
+        step.setFrame(2, 2, 60, 0);
+        step.setCurve(0, 0.3f, 0.1f, 0.7f, 0.9f);
+        RotateTimeline nod = new RotateTimeline(2);
+        nod.setBoneIndex(2);
+        nod.setFrame(0, 0, -20);
+        nod.setFrame(1, 2, 340);
+        data.getAnimations().add(new Animation("Move", Array.with(step, nod), 2));
+
+        TranslateTimeline jump = new TranslateTimeline(2);
+        jump.setBoneIndex(1);
+        jump.setFrame(0, 0, 0, 0);
+        jump.setFrame(1, 0.5f, 0, 100);
+        jump.setStepped(0);
+        data.getAnimations().add(new Animation("Jump", Array.with(jump), 1));
+        return data;
+    }
+}
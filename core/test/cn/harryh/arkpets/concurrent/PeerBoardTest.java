@@ -0,0 +1,173 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static cn.harryh.arkpets.Const.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class PeerBoardTest {
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private final List<PeerBoard> boards = new ArrayList<>();
+    private final List<Process> writers = new ArrayList<>();
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void cleanUp() {
+        writers.forEach(Process::destroyForcibly);
+        boards.forEach(PeerBoard::close);
+    }
+
+    @Test
+    void peersAreReadAndReleased() throws IOException {
+        Path path = dir.resolve("peers");
+        PeerBoard a = open(path);
+        PeerBoard b = open(path);
+        assertTrue(a.publish(1, 1, 10, -10, 1, 11));
+        assertTrue(b.publish(2, 2, 20, -20, 2, 22));
+        PeerBoard.Peers peers = new PeerBoard.Peers();
+        a.readPeers(peers);
+        assertEquals(1, peers.count);
+        assertEquals(2, peers.numbers[0]);
+        assertEquals(20, peers.x[0]);
+        b.close();
+        a.readPeers(peers);
+        assertEquals(0, peers.count);
+    }
+
+    @Test
+    void reclaimedSlotIsReadableAfterTheOwnerDiedMidWrite() throws IOException {
+        Path path = dir.resolve("peers");
+        PeerBoard dead = open(path);
+        assertTrue(dead.publish(1, 1, 0, 0, 1, 1));
+        for (int i = 1; i < peerBoardSlots; i++)
+            assertTrue(open(path).publish(100 + i, 100 + i, 0, 0, 100 + i, 100 + i));
+        // The owner of the first slot dies in the middle of a write, leaving the sequence odd and the heartbeat stale
+        boards.remove(dead);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, PeerBoard.slotBase(1));
+            int base = PeerBoard.slotBase(0);
+            LONG.setVolatile(buffer, base + PeerBoard.offSequence, (long)LONG.getVolatile(buffer, base + PeerBoard.offSequence) + 1);
+            LONG.setVolatile(buffer, base + PeerBoard.offHeartbeat, System.currentTimeMillis() - peerBoardTimeout - 1000);
+        }
+        // The board is full, so the newcomer can only reclaim the stale slot
+        PeerBoard newcomer = open(path);
+        assertTrue(newcomer.publish(7, 7, 30, -30, 7, 37));
+        assertTrue(newcomer.toString().contains("Reclaims: 1"));
+        PeerBoard.Peers peers = new PeerBoard.Peers();
+        open(path).readPeers(peers);
+        assertTrue(numbersOf(peers).contains(7), "Peers " + numbersOf(peers));
+        assertFalse(numbersOf(peers).contains(1));
+    }
+
+    @Test
+    void writerProcessesAreReadConsistentlyAndKilledOnesAreReclaimed() throws Exception {
+        Path path = dir.resolve("peers");
+        // Fill the board but three slots, and keep these fillers alive from this process
+        List<PeerBoard> fillers = new ArrayList<>();
+        for (int i = 0; i < peerBoardSlots - 3; i++) {
+            PeerBoard filler = open(path);
+            fillers.add(filler);
+            assertTrue(filler.publish(100 + i, 100 + i, 0, 0, 100 + i, 100 + i));
+        }
+        Process one = startWriter(path, 1);
+        Process two = startWriter(path, 2);
+        startWriter(path, 3);
+        PeerBoard reader = open(path);
+        Set<Integer> seen = readFor(reader, fillers, 1000);
+        assertEquals(peerBoardSlots, seen.size());
+        assertTrue(seen.containsAll(Set.of(1, 2, 3)));
+
+        // A killed writer is gone once its heartbeat times out. It may be hidden even earlier,
+        // since the writer is likely to be killed in the middle of a write, leaving its slot busy forever
+        two.destroyForcibly().waitFor();
+        readFor(reader, fillers, peerBoardTimeout + 500);
+        seen = readFor(reader, fillers, 500);
+        assertFalse(seen.contains(2));
+        assertTrue(seen.containsAll(Set.of(1, 3)));
+
+        // The board is full, so a new writer can only reclaim the slot of the killed one
+        startWriter(path, 4);
+        seen = readFor(reader, fillers, 1000);
+        assertEquals(peerBoardSlots, seen.size());
+        assertTrue(seen.containsAll(Set.of(1, 3, 4)));
+        assertFalse(seen.contains(2));
+        assertTrue(one.isAlive());
+    }
+
+    private PeerBoard open(Path path) throws IOException {
+        PeerBoard board = PeerBoard.open(path);
+        boards.add(board);
+        return board;
+    }
+
+    private Process startWriter(Path path, int number) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                PeerBoardWriter.class.getName(), path.toString(), String.valueOf(number))
+                .redirectErrorStream(true).start();
+        writers.add(process);
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        String line;
+        while ((line = output.readLine()) != null && !line.equals("ready"))
+            System.out.println("Writer " + number + ": " + line);
+        assertEquals("ready", line, "Writer " + number + " exited with " + (process.isAlive() ? "-" : process.exitValue()));
+        // Keep draining the output, so that the writer never blocks on a full pipe
+        Thread drain = new Thread(() -> output.lines().forEach(l -> {}));
+        drain.setDaemon(true);
+        drain.start();
+        return process;
+    }
+
+    /** Reads the board in a loop for the given time, checking every peer read, while the fillers keep publishing.
+     * A read may skip a peer which is being written too busily, so the peers seen by all the reads are returned.
+     */
+    private static Set<Integer> readFor(PeerBoard reader, List<PeerBoard> fillers, long millis) {
+        PeerBoard.Peers peers = new PeerBoard.Peers();
+        Set<Integer> seen = new TreeSet<>();
+        long end = System.currentTimeMillis() + millis;
+        long lastBeat = 0;
+        do {
+            long now = System.currentTimeMillis();
+            if (now - lastBeat > 500) {
+                for (int i = 0; i < fillers.size(); i++)
+                    fillers.get(i).publish(100 + i, 100 + i, 0, 0, 100 + i, 100 + i);
+                lastBeat = now;
+            }
+            reader.readPeers(peers);
+            for (int i = 0; i < peers.count; i++) {
+                assertTrue(PeerBoardWriter.isConsistent(peers, i), "Torn read of peer " + peers.numbers[i]);
+                seen.add(peers.numbers[i]);
+            }
+        } while (System.currentTimeMillis() < end);
+        return seen;
+    }
+
+    private static Set<Integer> numbersOf(PeerBoard.Peers peers) {
+        Set<Integer> numbers = new TreeSet<>();
+        for (int i = 0; i < peers.count; i++)
+            numbers.add(peers.numbers[i]);
+        return numbers;
+    }
+}
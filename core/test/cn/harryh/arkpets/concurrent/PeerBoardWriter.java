@@ -0,0 +1,40 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import java.nio.file.Path;
+
+
+/** A writer process for the multi-process tests of {@link PeerBoard}, which publishes in a tight loop until killed.
+ * <p>
+ * The published state of each write is self-consistent, namely {@code handle == number}, {@code y == -x},
+ * {@code width == number} and {@code height == x + number}, so that a reader can tell a torn read.
+ * The line {@code ready} is printed once the first write has been published.
+ */
+public class PeerBoardWriter {
+    public static void main(String[] args) throws Exception {
+        int number = Integer.parseInt(args[1]);
+        try (PeerBoard board = PeerBoard.open(Path.of(args[0]))) {
+            if (!board.publish(number, number, 0, 0, number, number))
+                throw new IllegalStateException("No slot is available");
+            System.out.println("ready");
+            System.out.flush();
+            for (int i = 0; ; i++) {
+                float x = i % 100000;
+                board.publish(number, number, x, -x, number, x + number);
+            }
+        }
+    }
+
+    /** Checks that a peer read from the board is one of the states written by this class.
+     * @param peers The peers.
+     * @param i The index of the peer.
+     * @return true if the peer is consistent.
+     */
+    static boolean isConsistent(PeerBoard.Peers peers, int i) {
+        int number = peers.numbers[i];
+        return peers.handles[i] == number && peers.y[i] == -peers.x[i] &&
+                peers.widths[i] == number && peers.heights[i] == peers.x[i] + number;
+    }
+}
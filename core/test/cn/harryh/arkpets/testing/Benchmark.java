@@ -0,0 +1,45 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.testing;
+
+
+/** A minimal timer for the benchmarks, which are the tests tagged {@code benchmark}.
+ * They are left out of the {@code test} task, and they run with {@code gradlew :core:benchmark}.
+ * <p>
+ * A round is run a few times to warm up the JIT, and then the fastest of the measured rounds is taken,
+ * so that a stray GC pause or a busy neighbour has little effect on the result.
+ */
+public final class Benchmark {
+    public static final String tag = "benchmark";
+    private static final int warmupRounds = 5;
+    private static final int measuredRounds = 7;
+
+    private Benchmark() {
+    }
+
+    /** Measures the time of one operation.
+     * @param operations The count of the operations performed by one round.
+     * @param round The round to run.
+     * @return The time of one operation in the fastest round (ns).
+     */
+    public static double nanosPerOperation(int operations, Runnable round) {
+        for (int i = 0; i < warmupRounds; i++)
+            round.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < measuredRounds; i++) {
+            long start = System.nanoTime();
+            round.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double)best / operations;
+    }
+
+    /** Prints a line of the benchmark report.
+     * @param format The format string.
+     * @param args The arguments.
+     */
+    public static void report(String format, Object... args) {
+        System.out.printf(format + "%n", args);
+    }
+}
@@ -0,0 +1,83 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.testing;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Files;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+
+
+/** A headless libGDX backend for the tests, which lets an app be created and rendered without a display.
+ * <p>
+ * The graphics are backed by {@link StubGL}, the files are the desktop files,
+ * and the input ignores everything. The runnables posted to the app are queued up,
+ * and they run only when the test calls {@link #runPosted()}, just like a real main loop would do between frames.
+ * The native library of libGDX is loaded, since the pixmaps are still decoded for real.
+ */
+public final class StubBackend {
+    private static final ArrayDeque<Runnable> posted = new ArrayDeque<>();
+    private static boolean installed;
+
+    private StubBackend() {
+    }
+
+    /** Installs the backend as {@code Gdx.app}, {@code Gdx.files}, {@code Gdx.input} and the graphics.
+     */
+    public static synchronized void install() {
+        if (installed)
+            return;
+        installed = true;
+        GdxNativesLoader.load();
+        Gdx.files = new Lwjgl3Files();
+        Gdx.input = (Input)Proxy.newProxyInstance(StubBackend.class.getClassLoader(), new Class<?>[]{Input.class},
+                (proxy, method, args) -> StubGL.defaultValue(method.getReturnType()));
+        Gdx.app = (Application)Proxy.newProxyInstance(StubBackend.class.getClassLoader(), new Class<?>[]{Application.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "postRunnable" -> {
+                        synchronized (posted) {
+                            posted.add((Runnable)args[0]);
+                        }
+                        yield null;
+                    }
+                    case "getType" -> Application.ApplicationType.HeadlessDesktop;
+                    case "getJavaHeap" -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+                    case "getGraphics" -> Gdx.graphics;
+                    case "getFiles" -> Gdx.files;
+                    case "getInput" -> Gdx.input;
+                    default -> StubGL.defaultValue(method.getReturnType());
+                });
+        StubGL.install();
+    }
+
+    /** Gets the count of the runnables which have been posted to the app but have not run yet.
+     * @return The count.
+     */
+    public static int getPendingCount() {
+        synchronized (posted) {
+            return posted.size();
+        }
+    }
+
+    /** Runs the runnables posted to the app so far.
+     * @return The count of the runnables.
+     */
+    public static int runPosted() {
+        int count = 0;
+        while (true) {
+            Runnable runnable;
+            synchronized (posted) {
+                runnable = posted.poll();
+            }
+            if (runnable == null)
+                return count;
+            runnable.run();
+            count++;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.testing;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cn.harryh.arkpets.Const.fpsDefault;
+
+
+/** A do-nothing OpenGL backend for the headless tests.
+ * <p>
+ * Every GL call returns a neutral value: the generated handles are unique, the shaders always compile,
+ * the frame buffers are always complete, and everything else returns zero.
+ * The calls are counted, so that a test can tell whether a code path has touched the graphics pipeline.
+ * If no {@code Gdx.graphics} has been installed, a stub reporting a fixed size and no extensions is installed.
+ */
+public final class StubGL {
+    private static final AtomicInteger handleCounter = new AtomicInteger();
+    private static final AtomicLong callCounter = new AtomicLong();
+    private static final int defaultGraphicsSize = 400;
+    private static volatile int graphicsSize = defaultGraphicsSize;
+    private static GL30 instance;
+
+    private StubGL() {
+    }
+
+    /** Installs the stub as {@code Gdx.gl}, {@code Gdx.gl20} and {@code Gdx.gl30}.
+     * @return The stub instance.
+     */
+    public static synchronized GL30 install() {
+        if (instance == null)
+            instance = (GL30)Proxy.newProxyInstance(StubGL.class.getClassLoader(), new Class<?>[]{GL30.class},
+                    (proxy, method, args) -> {
+                        callCounter.incrementAndGet();
+                        String name = method.getName();
+                        Class<?> type = method.getReturnType();
+                        if (name.equals("glGetShaderiv") || name.equals("glGetProgramiv")) {
+                            // Report success for the compile and link status queries
+                            int pname = (int)args[1];
+                            IntBuffer params = (IntBuffer)args[2];
+                            boolean status = pname == GL20.GL_COMPILE_STATUS || pname == GL20.GL_LINK_STATUS;
+                            params.put(params.position(), status ? 1 : 0);
+                            return null;
+                        }
+                        if (name.equals("glCheckFramebufferStatus"))
+                            return GL20.GL_FRAMEBUFFER_COMPLETE;
+                        if (type == int.class)
+                            return name.startsWith("glGen") || name.startsWith("glCreate") ? handleCounter.incrementAndGet() : 0;
+                        if (type == String.class)
+                            return "";
+                        return defaultValue(type);
+                    });
+        Gdx.gl = instance;
+        Gdx.gl20 = instance;
+        Gdx.gl30 = instance;
+        if (Gdx.graphics == null)
+            Gdx.graphics = (Graphics)Proxy.newProxyInstance(StubGL.class.getClassLoader(), new Class<?>[]{Graphics.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getWidth", "getHeight", "getBackBufferWidth", "getBackBufferHeight" -> graphicsSize;
+                        case "getDeltaTime", "getRawDeltaTime" -> 1f / fpsDefault;
+                        case "getFramesPerSecond" -> fpsDefault;
+                        case "getGL20", "getGL30" -> instance;
+                        case "isGL30Available" -> true;
+                        default -> defaultValue(method.getReturnType());
+                    });
+        return instance;
+    }
+
+    /** Gets the zero value of the given return type.
+     * @param type The return type.
+     * @return The boxed zero, or {@code null} for the reference types and {@code void}.
+     */
+    static Object defaultValue(Class<?> type) {
+        if (type == boolean.class)
+            return false;
+        if (type == int.class)
+            return 0;
+        if (type == long.class)
+            return 0L;
+        if (type == float.class)
+            return 0f;
+        return null;
+    }
+
+    /** Sets the size reported by the stub {@code Gdx.graphics}, which is a square.
+     * @param size The width and the height (px), or a negative value to restore the default size.
+     */
+    public static void setGraphicsSize(int size) {
+        graphicsSize = size < 0 ? defaultGraphicsSize : size;
+    }
+
+    /** Gets the count of the GL calls made since the stub was loaded.
+     * @return The count.
+     */
+    public static long getCallCount() {
+        return callCounter.get();
+    }
+
+    /** Creates an unmanaged texture of the given size without any pixel data.
+     * The stub must have been installed.
+     * @param width The width of the texture.
+     * @param height The height of the texture.
+     * @return The texture.
+     */
+    public static Texture newTexture(int width, int height) {
+        return new Texture(new TextureData() {
+            @Override
+            public TextureDataType getType() {
+                return TextureDataType.Custom;
+            }
+
+            @Override
+            public boolean isPrepared() {
+                return true;
+            }
+
+            @Override
+            public void prepare() {
+            }
+
+            @Override
+            public Pixmap consumePixmap() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean disposePixmap() {
+                return false;
+            }
+
+            @Override
+            public void consumeCustomData(int target) {
+            }
+
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+
+            @Override
+            public Pixmap.Format getFormat() {
+                return Pixmap.Format.RGBA8888;
+            }
+
+            @Override
+            public boolean useMipMaps() {
+                return false;
+            }
+
+            @Override
+            public boolean isManaged() {
+                return false;
+            }
+        });
+    }
+}
@@ -0,0 +1,239 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.testing;
+
+import cn.harryh.arkpets.ArkConfig;
+import com.alibaba.fastjson.JSONObject;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+
+/** A tiny but complete model, written in the same file formats as the real models,
+ * namely a libGDX texture atlas, its PNG page and a Spine 3.8 binary skeleton.
+ * <p>
+ * The skeleton has a body and a head, each with a region attachment, and the animations
+ * {@code Relax}, {@code Move}, {@code Sit}, {@code Sleep}, {@code Interact} and {@code Special}
+ * which move the bones on Bezier curves, so that every frame has a different pose.
+ */
+public final class TestModel {
+    public static final String atlasName = "model.atlas";
+    public static final String skelName = "model.skel";
+    public static final String pageName = "model.png";
+    private static final List<String> animations = List.of("Relax", "Move", "Sit", "Sleep", "Interact", "Special");
+
+    private TestModel() {
+    }
+
+    /** Writes the model files to the given directory.
+     * @param dir The directory.
+     * @throws IOException If the files cannot be written.
+     */
+    public static void write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        writePage(dir.resolve(pageName));
+        Files.writeString(dir.resolve(atlasName), """
+
+                model.png
+                size: 64,64
+                format: RGBA8888
+                filter: Linear,Linear
+                repeat: none
+                body
+                  rotate: false
+                  xy: 0, 0
+                  size: 32, 64
+                  orig: 32, 64
+                  offset: 0, 0
+                  index: -1
+                head
+                  rotate: false
+                  xy: 32, 0
+                  size: 32, 32
+                  orig: 32, 32
+                  offset: 0, 0
+                  index: -1
+                """, StandardCharsets.UTF_8);
+        Files.write(dir.resolve(skelName), buildSkeleton());
+    }
+
+    /** Points the given config to the model in the given directory.
+     * @param config The config to modify.
+     * @param dir The directory where the model has been written.
+     */
+    public static void apply(ArkConfig config, Path dir) {
+        config.character_asset = dir.toAbsolutePath().toString();
+        config.character_label = "Test";
+        JSONObject files = new JSONObject();
+        files.put(".atlas", atlasName);
+        files.put(".skel", skelName);
+        files.put(".png", pageName);
+        config.character_files = files;
+    }
+
+    private static void writePage(Path file) throws IOException {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                // An opaque body with a transparent hole, and a round head
+                boolean solid = x < 32 ? !(x >= 12 && x < 20 && y >= 40 && y < 48) :
+                        (x - 48) * (x - 48) + (y - 16) * (y - 16) < 15 * 15;
+                image.setRGB(x, y, solid ? 0xFF000000 | (x * 4) << 16 | (y * 4) << 8 | 0x80 : 0);
+            }
+        }
+        ImageIO.write(image, "png", file.toFile());
+    }
+
+    private static byte[] buildSkeleton() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SkeletonWriter out = new SkeletonWriter(bytes);
+        // Header: hash, version, bounds and no nonessential data
+        out.writeString("test");
+        out.writeString("3.8.99");
+        out.writeFloat(-60);
+        out.writeFloat(0);
+        out.writeFloat(120);
+        out.writeFloat(300);
+        out.writeBoolean(false);
+        // Shared strings, referred to by the attachment names
+        out.writeVarInt(2);
+        out.writeString("body");
+        out.writeString("head");
+        // Bones: name, parent, rotation, x, y, scale x, scale y, shear x, shear y, length, transform mode, skin required
+        out.writeVarInt(3);
+        writeBone(out, "root", -1, 0, 0);
+        writeBone(out, "body", 0, 0, 100);
+        writeBone(out, "head", 1, 0, 110);
+        // Slots: name, bone, color, dark color, attachment, blend mode
+        out.writeVarInt(2);
+        for (int i = 0; i < 2; i++) {
+            out.writeString(i == 0 ? "body" : "head");
+            out.writeVarInt(i + 1);
+            out.writeInt(0xFFFFFFFF);
+            out.writeInt(-1);
+            out.writeVarInt(i + 1);
+            out.writeVarInt(0);
+        }
+        // No IK, transform or path constraints
+        out.writeVarInt(0);
+        out.writeVarInt(0);
+        out.writeVarInt(0);
+        // Default skin: one region attachment per slot
+        out.writeVarInt(2);
+        for (int i = 0; i < 2; i++) {
+            out.writeVarInt(i);
+            out.writeVarInt(1);
+            out.writeVarInt(i + 1);
+            out.writeVarInt(0);
+            out.writeByte(0);
+            out.writeVarInt(0);
+            out.writeFloat(0);
+            out.writeFloat(0);
+            out.writeFloat(0);
+            out.writeFloat(1);
+            out.writeFloat(1);
+            out.writeFloat(i == 0 ? 100 : 90);
+            out.writeFloat(i == 0 ? 200 : 90);
+            out.writeInt(0xFFFFFFFF);
+        }
+        // No other skins or events
+        out.writeVarInt(0);
+        out.writeVarInt(0);
+        // Animations
+        out.writeVarInt(animations.size());
+        for (int i = 0; i < animations.size(); i++) {
+            out.writeString(animations.get(i));
+            writeAnimation(out, 1 + i * 0.25f, 5 + i * 3);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeBone(SkeletonWriter out, String name, int parent, float x, float y) throws IOException {
+        out.writeString(name);
+        if (parent >= 0)
+            out.writeVarInt(parent);
+        out.writeFloat(0);
+        out.writeFloat(x);
+        out.writeFloat(y);
+        out.writeFloat(1);
+        out.writeFloat(1);
+        out.writeFloat(0);
+        out.writeFloat(0);
+        out.writeFloat(50);
+        out.writeVarInt(0);
+        out.writeBoolean(false);
+    }
+
+    private static void writeAnimation(SkeletonWriter out, float duration, float amplitude) throws IOException {
+        // No slot timelines
+        out.writeVarInt(0);
+        // Bone timelines: the body sways, the head bobs
+        out.writeVarInt(2);
+        out.writeVarInt(1);
+        out.writeVarInt(1);
+        out.writeByte(0); // Rotate
+        out.writeVarInt(3);
+        float[] times = {0, duration / 2, duration};
+        float[] degrees = {0, amplitude, 0};
+        for (int i = 0; i < 3; i++) {
+            out.writeFloat(times[i]);
+            out.writeFloat(degrees[i]);
+            if (i < 2)
+                writeBezier(out);
+        }
+        out.writeVarInt(2);
+        out.writeVarInt(1);
+        out.writeByte(1); // Translate
+        out.writeVarInt(3);
+        for (int i = 0; i < 3; i++) {
+            out.writeFloat(times[i]);
+            out.writeFloat(0);
+            out.writeFloat(i == 1 ? amplitude : 0);
+            if (i < 2)
+                writeBezier(out);
+        }
+        // No IK, transform, path, deform, draw order or event timelines
+        for (int i = 0; i < 6; i++)
+            out.writeVarInt(0);
+    }
+
+    private static void writeBezier(SkeletonWriter out) throws IOException {
+        out.writeByte(2);
+        out.writeFloat(0.25f);
+        out.writeFloat(0);
+        out.writeFloat(0.75f);
+        out.writeFloat(1);
+    }
+
+
+    /** The writer of the primitives of the Spine binary format.
+     */
+    private static class SkeletonWriter extends DataOutputStream {
+        SkeletonWriter(ByteArrayOutputStream out) {
+            super(out);
+        }
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] chars = value.getBytes(StandardCharsets.US_ASCII);
+            writeVarInt(chars.length + 1);
+            write(chars);
+        }
+    }
+}
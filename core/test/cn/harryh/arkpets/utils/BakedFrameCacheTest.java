@@ -0,0 +1,168 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.ArkChar;
+import cn.harryh.arkpets.ArkConfig;
+import cn.harryh.arkpets.animations.AnimClip;
+import cn.harryh.arkpets.animations.AnimClipGroup;
+import cn.harryh.arkpets.animations.AnimData;
+import cn.harryh.arkpets.testing.StubBackend;
+import cn.harryh.arkpets.testing.StubGL;
+import cn.harryh.arkpets.testing.TestModel;
+import cn.harryh.arkpets.utils.BakedFrameCache.BakedClip;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.esotericsoftware.spine.AnimationState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+
+import static cn.harryh.arkpets.Const.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class BakedFrameCacheTest {
+    private static final long clipBytes = BakedClip.bytesOf(10, 10, 3);
+    @TempDir
+    static Path modelDir;
+    private BakingChar cha;
+
+    @BeforeAll
+    static void writeModel() throws IOException {
+        StubBackend.install();
+        TestModel.write(modelDir);
+    }
+
+    @AfterEach
+    void disposeChar() {
+        StubGL.setGraphicsSize(-1);
+        if (cha != null)
+            cha.dispose();
+    }
+
+    @Test
+    void clipsLargerThanTheBudgetAreRefused() {
+        BakedFrameCache<String> cache = new BakedFrameCache<>(clipBytes * 2);
+        assertTrue(cache.canFit(clipBytes * 2));
+        assertFalse(cache.canFit(clipBytes * 2 + 1));
+        assertFalse(cache.put("Huge", newClip(7)));
+        assertNull(cache.get("Huge"));
+        assertEquals(0, cache.getUsedBytes());
+        assertTrue(cache.put("A", newClip(3)));
+        assertTrue(cache.put("B", newClip(3)));
+        assertEquals(clipBytes * 2, cache.getUsedBytes());
+    }
+
+    @Test
+    void leastRecentlyPlayedClipsAreEvictedAsAWhole() {
+        BakedFrameCache<String> cache = new BakedFrameCache<>(clipBytes * 3);
+        cache.put("A", newClip(3));
+        cache.put("B", newClip(3));
+        cache.put("C", newClip(3));
+        assertNotNull(cache.get("A"));
+        // Two clips must go to make room for a double-sized one, and A has been played after B and C
+        cache.put("D", newClip(6));
+        assertNotNull(cache.get("A"));
+        assertNull(cache.get("B"));
+        assertNull(cache.get("C"));
+        assertNotNull(cache.get("D"));
+        assertEquals(clipBytes * 3, cache.getUsedBytes());
+        assertTrue(cache.toString().contains("Eviction: 2"));
+        // Replacing a clip gives back its bytes first
+        cache.put("D", newClip(3));
+        assertEquals(clipBytes * 2, cache.getUsedBytes());
+    }
+
+    @Test
+    void mixingTransitionsAreRenderedLively() throws ReflectiveOperationException {
+        cha = newChar();
+        play("Relax");
+        render(20);
+        long bakedFrames = cha.getRenderStats().bakedFrames();
+        long liveFrames = cha.getRenderStats().liveFrames();
+        assertTrue(bakedFrames > 0);
+        // The composer clears the track before switching, so mix on the state directly
+        cha.getAnimationState().setAnimation(0, "Move", true);
+        render(1);
+        assertEquals(liveFrames + 1, cha.getRenderStats().liveFrames());
+        assertEquals(bakedFrames, cha.getRenderStats().bakedFrames());
+        // The mixing lasts for the easing duration, after which the new clip is baked
+        render((int)Math.ceil(easingDuration * fpsDefault) + 2);
+        assertTrue(cha.getRenderStats().bakedFrames() > bakedFrames);
+    }
+
+    @Test
+    void emptyBackBufferDoesNotDisableBaking() {
+        cha = newChar();
+        play("Relax");
+        StubGL.setGraphicsSize(0);
+        // Render long enough for the character to finish turning around, so that it would bake
+        render(20);
+        assertEquals(0, cha.getRenderStats().bakedFrames());
+        StubGL.setGraphicsSize(-1);
+        render(5);
+        assertTrue(cha.getRenderStats().bakedFrames() > 0);
+    }
+
+    private void play(String name) {
+        for (AnimClip clip : cha.getAnimList())
+            if (clip.fullName.equals(name)) {
+                cha.adjustCanvas(clip.stage);
+                assertTrue(cha.setAnimation(new AnimData(clip, null, true, false)));
+                return;
+            }
+        fail("No animation " + name);
+    }
+
+    private void render(int frames) {
+        for (int i = 0; i < frames; i++)
+            cha.render();
+    }
+
+    private static BakedClip newClip(int frameCount) {
+        // The size of a clip is known from its frame count, so the frame buffers can be left out
+        return new BakedClip(new FrameBuffer[frameCount], fpsDefault, 10, 10);
+    }
+
+    private static BakingChar newChar() {
+        ArkConfig config = ArkConfig.getDefaultConfig();
+        assertNotNull(config);
+        TestModel.apply(config, modelDir);
+        config.display_baked_playback = true;
+        config.display_skip_static_frames = false;
+        config.display_pose_cache = false;
+        config.canvas_fitting_cache = false;
+        BakingChar cha = new BakingChar(config);
+        cha.fitCanvas(config.canvas_fitting_samples);
+        return cha;
+    }
+
+
+    /** The character which exposes its rendering to the test.
+     */
+    private static class BakingChar extends ArkChar {
+        BakingChar(ArkConfig config) {
+            super(config, skelBaseScale);
+        }
+
+        void render() {
+            renderToBatch();
+        }
+
+        AnimationState getAnimationState() throws ReflectiveOperationException {
+            Field field = ArkChar.class.getDeclaredField("animationState");
+            field.setAccessible(true);
+            return (AnimationState)field.get(this);
+        }
+
+        AnimClipGroup getAnimList() {
+            return animList;
+        }
+    }
+}
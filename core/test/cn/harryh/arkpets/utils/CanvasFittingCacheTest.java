@@ -0,0 +1,108 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.animations.AnimClip.AnimStage;
+import cn.harryh.arkpets.utils.DynamicOrthographicCamara.Insert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static cn.harryh.arkpets.Const.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class CanvasFittingCacheTest {
+    private final String digest = "test-" + System.nanoTime();
+    private final List<String> usedKeys = new ArrayList<>();
+
+    @AfterEach
+    void deleteRecords() throws IOException {
+        for (String key : usedKeys)
+            Files.deleteIfExists(CanvasFittingCache.getFile(key));
+    }
+
+    @Test
+    void savedRecordLoadsTheSameInserts() {
+        String key = use(CanvasFittingCache.getKey(digest, 0.5f, 30));
+        assertNull(CanvasFittingCache.load(key));
+        HashMap<AnimStage, Insert> inserts = newInserts();
+        CanvasFittingCache.save(key, inserts);
+        assertEquals(inserts, CanvasFittingCache.load(key));
+        // A record is replaced by the next save of the same key
+        inserts.put(new AnimStage(0), new Insert(1, 2, 3, 4));
+        CanvasFittingCache.save(key, inserts);
+        assertEquals(inserts, CanvasFittingCache.load(key));
+        // An empty result is a valid record as well
+        CanvasFittingCache.save(key, new HashMap<>());
+        assertEquals(new HashMap<>(), CanvasFittingCache.load(key));
+    }
+
+    @Test
+    void otherScaleOrSamplesMiss() {
+        CanvasFittingCache.save(use(CanvasFittingCache.getKey(digest, 0.5f, 30)), newInserts());
+        assertNull(CanvasFittingCache.load(use(CanvasFittingCache.getKey(digest, 0.75f, 30))));
+        assertNull(CanvasFittingCache.load(use(CanvasFittingCache.getKey(digest, 0.5f, 60))));
+        assertNull(CanvasFittingCache.load(use(CanvasFittingCache.getKey(digest + "-updated", 0.5f, 30))));
+        assertNotNull(CanvasFittingCache.load(CanvasFittingCache.getKey(digest, 0.5f, 30)));
+    }
+
+    @Test
+    void recordOfAnotherFittingVersionMisses() throws IOException {
+        String key = use(CanvasFittingCache.getKey(digest, 0.5f, 30));
+        String oldKey = key.replace("|" + canvasFittingVersion + "|", "|" + (canvasFittingVersion - 1) + "|");
+        assertNotEquals(key, oldKey);
+        CanvasFittingCache.save(use(oldKey), newInserts());
+        assertNull(CanvasFittingCache.load(key));
+        // Even if the record of the old version is found under the file of the current key
+        Files.move(CanvasFittingCache.getFile(oldKey), CanvasFittingCache.getFile(key));
+        assertNull(CanvasFittingCache.load(key));
+    }
+
+    @Test
+    void truncatedRecordMisses() throws IOException {
+        String key = use(CanvasFittingCache.getKey(digest, 0.5f, 30));
+        CanvasFittingCache.save(key, newInserts());
+        Path file = CanvasFittingCache.getFile(key);
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        // Cut the record at every position, including the ends of the lines
+        for (int length = 0; length < content.stripTrailing().length(); length++) {
+            Files.writeString(file, content.substring(0, length), StandardCharsets.UTF_8);
+            assertNull(CanvasFittingCache.load(key), "Truncated at " + length);
+        }
+    }
+
+    @Test
+    void malformedRecordMisses() throws IOException {
+        String key = use(CanvasFittingCache.getKey(digest, 0.5f, 30));
+        Path file = CanvasFittingCache.getFile(key);
+        Files.createDirectories(file.getParent());
+        for (String body : List.of("0 1 2 3\nend 1\n", "0 1 2 3 x\nend 1\n", "0 1 2 3 4\nend\n", "0 1 2 3 4\nend x\n",
+                "0 1 2 3 4\nend 2\n", "0 1 2 3 4\n0 5 6 7 8\nend 2\n", "0 1 2 3 4\nend 1\n1 1 2 3 4\n")) {
+            Files.writeString(file, key + "\n" + body, StandardCharsets.UTF_8);
+            assertNull(CanvasFittingCache.load(key), body);
+        }
+        Files.writeString(file, key + "\n0 1 2 3 4\nend 1\n", StandardCharsets.UTF_8);
+        assertNotNull(CanvasFittingCache.load(key));
+    }
+
+    private String use(String key) {
+        usedKeys.add(key);
+        return key;
+    }
+
+    private static HashMap<AnimStage, Insert> newInserts() {
+        HashMap<AnimStage, Insert> inserts = new HashMap<>();
+        inserts.put(new AnimStage(0), new Insert(120, -80, 60, 60));
+        inserts.put(new AnimStage(1), new Insert(200, -80, 90, 70));
+        return inserts;
+    }
+}
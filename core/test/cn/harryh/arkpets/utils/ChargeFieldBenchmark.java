@@ -0,0 +1,59 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.testing.Benchmark;
+import com.badlogic.gdx.math.Vector2;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static cn.harryh.arkpets.utils.ChargeFieldTest.*;
+
+
+/** Measures a query of the electrostatic acceleration with 2 to 200 charges on a 3840*2160 desktop,
+ * comparing the old force loop, the unlimited {@link ChargeField} and its cutoff grid.
+ * The grid is rebuilt every 4 queries, as the app refreshes the charges every 4 frames.
+ */
+@Tag(Benchmark.tag)
+class ChargeFieldBenchmark {
+    private static final int queries = 20000;
+
+    @Test
+    void accelerationWithCharges() {
+        Benchmark.report("%8s %12s %14s %12s", "charges", "old (ns)", "unlimited (ns)", "cutoff (ns)");
+        for (int count : chargeCounts) {
+            float[][] charges = newCharges(new Random(count), count);
+            Random random = new Random(~count);
+            float[] xs = new float[queries];
+            float[] ys = new float[queries];
+            for (int i = 0; i < queries; i++) {
+                xs[i] = random.nextFloat() * 3840;
+                ys[i] = -random.nextFloat() * 2160;
+            }
+            float[] sink = new float[1];
+            double old = Benchmark.nanosPerOperation(queries, () -> {
+                for (int i = 0; i < queries; i++)
+                    sink[0] += oldAcceleration(charges, xs[i], ys[i], k).x;
+            });
+            ChargeField unlimited = newField(charges);
+            Vector2 out = new Vector2();
+            double soa = Benchmark.nanosPerOperation(queries, () -> {
+                for (int i = 0; i < queries; i++)
+                    sink[0] += unlimited.getAcceleration(xs[i], ys[i], k, out).x;
+            });
+            ChargeField grid = newField(charges);
+            double cutoff = Benchmark.nanosPerOperation(queries, () -> {
+                for (int i = 0; i < queries; i++) {
+                    if (i % 4 == 0)
+                        grid.setCutoff(600, 150);
+                    sink[0] += grid.getAcceleration(xs[i], ys[i], k, out).x;
+                }
+            });
+            Benchmark.report("%8d %12.1f %14.1f %12.1f", count, old, soa, cutoff);
+            Benchmark.report("(checksum %.3f)", sink[0]);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Compares {@link ChargeField} with the force loop it replaces, and its cutoff grid with a plain scan.
+ */
+class ChargeFieldTest {
+    static final int[] chargeCounts = {2, 10, 50, 100, 200};
+    static final float k = 2000 * (float)Math.hypot(120, 160);
+    private static final int queries = 2000;
+
+    @Test
+    void unlimitedForceMatchesTheOldLoop() {
+        Vector2 actual = new Vector2();
+        for (int count : chargeCounts) {
+            float[][] charges = newCharges(new Random(count), count);
+            ChargeField field = newField(charges);
+            Random random = new Random(~count);
+            for (int i = 0; i < queries; i++) {
+                float x = random.nextFloat() * 3840;
+                float y = -random.nextFloat() * 2160;
+                Vector2 expected = oldAcceleration(charges, x, y, k);
+                field.getAcceleration(x, y, k, actual);
+                // The old loop divided by the hypotenuse twice, so the rounding differs slightly
+                float tolerance = 2e-4f * expected.len() + 1e-3f;
+                assertEquals(expected.x, actual.x, tolerance, count + " charges at " + x + ", " + y);
+                assertEquals(expected.y, actual.y, tolerance, count + " charges at " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    void cutoffGridMatchesAPlainScan() {
+        Vector2 actual = new Vector2();
+        for (float[] cutoff : new float[][]{{600, 150}, {300, 0}, {250, 250}}) {
+            for (int count : chargeCounts) {
+                float[][] charges = newCharges(new Random(count), count);
+                ChargeField field = newField(charges);
+                field.setCutoff(cutoff[0], cutoff[1]);
+                Random random = new Random(~count);
+                for (int i = 0; i < queries; i++) {
+                    // Some queries are far outside the desktop as well
+                    float x = random.nextFloat() * 6000 - 1000;
+                    float y = -random.nextFloat() * 4000 + 1000;
+                    Vector2 expected = cutoffAcceleration(charges, x, y, k, cutoff[0], cutoff[1]);
+                    field.getAcceleration(x, y, k, actual);
+                    float tolerance = 1e-4f * expected.len() + 1e-3f;
+                    String at = count + " charges, cutoff " + cutoff[0] + " at " + x + ", " + y;
+                    assertEquals(expected.x, actual.x, tolerance, at);
+                    assertEquals(expected.y, actual.y, tolerance, at);
+                }
+            }
+        }
+    }
+
+    @Test
+    void forceFadesOutContinuouslyAtTheCutoff() {
+        ChargeField field = new ChargeField();
+        field.add(0, 0, 1);
+        field.setCutoff(600, 150);
+        Vector2 out = new Vector2();
+        float unfaded = field.getAcceleration(440, 0, k, out).x;
+        assertEquals(oldAcceleration(new float[][]{{0, 0, 1}}, 440, 0, k).x, unfaded, unfaded * 1e-5f);
+        float last = unfaded;
+        for (float x = 450; x <= 600; x += 1) {
+            float now = field.getAcceleration(x, 0, k, out).x;
+            assertTrue(now <= last && now >= 0, "At " + x);
+            assertTrue(last - now < unfaded * 0.05f, "Jump at " + x);
+            last = now;
+        }
+        assertEquals(0, last);
+        assertEquals(0, field.getAcceleration(900, 0, k, out).x);
+    }
+
+    @Test
+    void chargeAtTheObjectIsSkipped() {
+        ChargeField field = new ChargeField();
+        field.add(100, 100, 1);
+        Vector2 out = field.getAcceleration(100, 100, k, new Vector2());
+        assertEquals(0, out.x);
+        assertEquals(0, out.y);
+    }
+
+    /** The force loop of the plane before the charges were moved into {@link ChargeField}.
+     */
+    static Vector2 oldAcceleration(float[][] charges, float x, float y, float k) {
+        Vector2 out = new Vector2();
+        for (float[] pc : charges) {
+            float dx = x - pc[0];
+            float dy = y - pc[1];
+            float hypot = (float)Math.hypot(dx, dy);
+            float distance = Math.max(Math.abs(hypot), 20);
+            out.x += k * pc[2] / distance / distance * (dx / hypot);
+            out.y += k * pc[2] / distance / distance * (dy / hypot);
+        }
+        return out;
+    }
+
+    /** The old force of every charge, faded out by the same smoothstep as the cutoff, without any grid.
+     */
+    private static Vector2 cutoffAcceleration(float[][] charges, float x, float y, float k, float cutoff, float falloff) {
+        Vector2 out = new Vector2();
+        for (float[] pc : charges) {
+            float distance = (float)Math.hypot(x - pc[0], y - pc[1]);
+            if (distance >= cutoff)
+                continue;
+            Vector2 force = oldAcceleration(new float[][]{pc}, x, y, k);
+            if (distance > cutoff - falloff) {
+                float t = (cutoff - distance) / falloff;
+                force.scl(t * t * (3 - 2 * t));
+            }
+            out.add(force);
+        }
+        return out;
+    }
+
+    /** Scatters the charges on a 3840*2160 desktop, with the y-axis pointing up as in the plane.
+     * @return The charges, each of which is an array of its x, y and quantity.
+     */
+    static float[][] newCharges(Random random, int count) {
+        float[][] charges = new float[count][];
+        for (int i = 0; i < count; i++)
+            charges[i] = new float[]{random.nextFloat() * 3840, -random.nextFloat() * 2160, 0.5f + random.nextFloat()};
+        return charges;
+    }
+
+    static ChargeField newField(float[][] charges) {
+        ChargeField field = new ChargeField();
+        for (float[] pc : charges)
+            field.add(pc[0], pc[1], pc[2]);
+        return field;
+    }
+}
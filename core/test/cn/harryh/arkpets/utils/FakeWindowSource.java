@@ -0,0 +1,102 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import java.util.ArrayList;
+
+
+/** The in-memory implementation of the window source,
+ * which lets the window-related logic run and be measured without a real desktop.
+ */
+public class FakeWindowSource implements WindowSource {
+    private final ArrayList<FakeWindow> windows = new ArrayList<>();
+    private long titleReadCount;
+    private long foregroundHandle;
+
+    /** Adds a window below all the existing windows, or replaces the existing window with the same handle.
+     * @param window The window.
+     */
+    public void put(FakeWindow window) {
+        for (int i = 0; i < windows.size(); i++) {
+            if (windows.get(i).handle == window.handle) {
+                windows.set(i, window);
+                return;
+            }
+        }
+        windows.add(window);
+    }
+
+    /** Adds a window above all the existing windows, removing the existing window with the same handle.
+     * @param window The window.
+     */
+    public void putOnTop(FakeWindow window) {
+        remove(window.handle);
+        windows.add(0, window);
+    }
+
+    /** Gets the window of the given handle.
+     * @param handle The handle of the window.
+     * @return The window, or {@code null} if there is no such window.
+     */
+    public FakeWindow get(long handle) {
+        for (FakeWindow w : windows)
+            if (w.handle == handle)
+                return w;
+        return null;
+    }
+
+    /** Removes the window of the given handle.
+     * @param handle The handle of the window.
+     */
+    public void remove(long handle) {
+        windows.removeIf(w -> w.handle == handle);
+    }
+
+    public void clear() {
+        windows.clear();
+    }
+
+    public void setForegroundHandle(long handle) {
+        foregroundHandle = handle;
+    }
+
+    /** Gets the count of the title reads, which are the costly calls in a real window system.
+     * @return The count.
+     */
+    public long getTitleReadCount() {
+        return titleReadCount;
+    }
+
+    @Override
+    public void enumerate(WindowVisitor visitor) {
+        for (FakeWindow w : windows)
+            visitor.visit(w.handle, w.left, w.top, w.right, w.bottom);
+    }
+
+    @Override
+    public String getTitle(long handle) {
+        titleReadCount++;
+        for (FakeWindow w : windows)
+            if (w.handle == handle)
+                return w.title;
+        return "";
+    }
+
+    @Override
+    public long getForegroundHandle() {
+        return foregroundHandle;
+    }
+
+    @Override
+    public long findWindow(String title) {
+        for (FakeWindow w : windows)
+            if (w.title.equals(title))
+                return w.handle;
+        return 0;
+    }
+
+
+    public record FakeWindow(long handle, String title, int left, int top, int right, int bottom) {
+    }
+}
@@ -0,0 +1,166 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+
+import java.util.ArrayList;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** The plane as it was before its border queries were indexed, which scans every barrier and area on each query.
+ * <p>
+ * It is kept as the reference for the equivalence tests and the benchmarks of {@link Plane}.
+ * The point charges are left out, since they do not take part in the border queries.
+ */
+class LinearScanPlane {
+    final ArrayList<Vector3> barriers = new ArrayList<>();
+    final ArrayList<Plane.RectArea> world = new ArrayList<>();
+    private final Vector2 obj = new Vector2();
+    private final Vector2 position = new Vector2();
+    private final Vector2 speed = new Vector2();
+    private final Vector2 speedLimit = new Vector2();
+    private float gravity;
+    private float airFrict;
+    private float staticFrict;
+
+    void setGravity(float gravity) {
+        this.gravity = gravity;
+    }
+
+    void setFrict(float airFrict, float staticFrict) {
+        this.airFrict    = Math.max(0, airFrict);
+        this.staticFrict = Math.max(0, staticFrict);
+    }
+
+    void setObjSize(float objWidth, float objHeight) {
+        obj.set(objWidth, objHeight);
+    }
+
+    void setSpeedLimit(float x, float y) {
+        speedLimit.set(Math.max(0, x), Math.max(0, y));
+    }
+
+    void setBarrier(float posTop, float posLeft, float width, boolean overCover) {
+        if (overCover)
+            barriers.add(0, new Vector3(posLeft, posTop, width));
+        else
+            barriers.add(new Vector3(posLeft, posTop, width));
+    }
+
+    void changePosition(float deltaTime, float x, float y) {
+        if (deltaTime > 0)
+            speed.set((x - position.x) / deltaTime, (y - position.y) / deltaTime);
+        position.set(x, y);
+        position.set(limitX(x), limitY(y));
+    }
+
+    float getX() {
+        return position.x;
+    }
+
+    float getY() {
+        return position.y;
+    }
+
+    void updatePosition(float deltaTime) {
+        updateVelocity(deltaTime);
+        float deltaX = speed.x * deltaTime;
+        float deltaY = speed.y * deltaTime;
+        final float bottom = borderBottom();
+        float newY = limitY(deltaY + position.y);
+        float hit = deltaY < 0 ? sweepBarriers(position.y, deltaY + position.y) : -Float.MAX_VALUE;
+        boolean landed = position.y != bottom && newY == bottom;
+        if (hit > newY) {
+            newY = hit;
+            landed = true;
+        }
+        if (landed)
+            speed.y = 0;
+        position.set(limitX(deltaX + position.x), newY);
+    }
+
+    private void updateVelocity(float deltaTime) {
+        final float top = borderTop();
+        final float bottom = borderBottom();
+        speed.y -= gravity * deltaTime;
+        if (position.y == bottom || (position.y + obj.y >= top && speed.y > 0))
+            speed.y = 0;
+        if (position.y == bottom)
+            speed.x = applyFriction(speed.x, staticFrict, deltaTime);
+        speed.x = applyFriction(speed.x, airFrict, deltaTime);
+        speed.y = applyFriction(speed.y, airFrict, deltaTime);
+        if (speedLimit.x != 0 && Math.abs(speed.x) > speedLimit.x)
+            speed.x = Math.signum(speed.x) * speedLimit.x;
+        if (speedLimit.y != 0 && Math.abs(speed.y) > speedLimit.y)
+            speed.y = Math.signum(speed.y) * speedLimit.y;
+    }
+
+    private float applyFriction(float speed, float frict, float deltaTime) {
+        float delta = Math.signum(speed) * frict * deltaTime;
+        float estimated = speed - delta;
+        return delta * estimated < 0 ? 0 : estimated;
+    }
+
+    private float sweepBarriers(float fromY, float toY) {
+        final float top = borderTop();
+        float hit = -Float.MAX_VALUE;
+        for (Vector3 i : barriers)
+            if (i.x <= position.x + obj.x && position.x <= i.x + i.z)
+                if (toY < i.y && i.y <= fromY && top - obj.y > i.y && i.y > hit)
+                    hit = i.y;
+        return hit;
+    }
+
+    private float limitX(float x) {
+        return Math.max(borderLeft(), Math.min(x, borderRight() - obj.x));
+    }
+
+    private float limitY(float y) {
+        return Math.max(borderBottom(), Math.min(y, borderTop() - obj.y));
+    }
+
+    float borderTop() {
+        float t = -Float.MAX_VALUE;
+        for (Plane.RectArea a : world)
+            if (a.isXInOrthographic(position.x, obj.x))
+                if (a.top() > t)
+                    t = a.top();
+        return t;
+    }
+
+    float borderBottom() {
+        for (Vector3 i : barriers)
+            if (i.x <= position.x + obj.x && position.x <= i.x + i.z)
+                if (position.y + obj.y > i.y && borderTop() - obj.y > i.y)
+                    return i.y;
+
+        float t = Float.MAX_VALUE;
+        for (Plane.RectArea a : world)
+            if (a.isXInOrthographic(position.x, obj.x))
+                if (a.bottom() < t)
+                    t = a.bottom();
+        return t;
+    }
+
+    float borderRight() {
+        float t = -Float.MAX_VALUE;
+        for (Plane.RectArea a : world)
+            if (a.isYInOrthographic(position.y, obj.y))
+                if (a.right() > t)
+                    t = a.right();
+        return t;
+    }
+
+    float borderLeft() {
+        float t = Float.MAX_VALUE;
+        for (Plane.RectArea a : world)
+            if (a.isYInOrthographic(position.y, obj.y))
+                if (a.left() < t)
+                    t = a.left();
+        return t;
+    }
+}
@@ -0,0 +1,186 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static cn.harryh.arkpets.utils.HWndCtrl.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class MouseEventForwarderTest {
+    private static final long windowA = 0xA;
+    private static final long windowB = 0xB;
+    private final FakeSink sink = new FakeSink();
+    private MouseEventForwarder forwarder;
+
+    @AfterEach
+    void stopForwarder() {
+        sink.release();
+        if (forwarder != null)
+            forwarder.stop();
+    }
+
+    @Test
+    void pendingMovesAreCoalescedPerTarget() throws InterruptedException {
+        forwarder = new MouseEventForwarder(sink, 16);
+        sink.hold();
+        // The worker is stuck in the first delivery, so the following events stay pending
+        forwarder.post(windowA, WM_LBUTTONUP, 0, 0);
+        sink.awaitHeld();
+        for (int i = 1; i <= 5; i++)
+            assertTrue(forwarder.post(windowA, WM_MOUSEMOVE, i, i));
+        assertTrue(forwarder.post(windowB, WM_MOUSEMOVE, 10, 10));
+        assertTrue(forwarder.post(windowB, WM_MOUSEMOVE, 11, 11));
+        assertTrue(forwarder.post(windowA, WM_MOUSEMOVE, 6, 6));
+        assertEquals(5, forwarder.getCoalescedCount());
+        sink.release();
+        assertEquals(List.of(
+                event(windowA, WM_LBUTTONUP, 0, 0),
+                event(windowA, WM_MOUSEMOVE, 5, 5),
+                event(windowB, WM_MOUSEMOVE, 11, 11),
+                event(windowA, WM_MOUSEMOVE, 6, 6)
+        ), sink.await(4));
+    }
+
+    @Test
+    void buttonEventsKeepTheirStrictOrder() throws InterruptedException {
+        forwarder = new MouseEventForwarder(sink, 16);
+        sink.hold();
+        forwarder.post(windowA, WM_MOUSEMOVE, 0, 0);
+        sink.awaitHeld();
+        List<String> expected = new ArrayList<>(List.of(event(windowA, WM_MOUSEMOVE, 0, 0)));
+        int[] messages = {WM_MOUSEMOVE, WM_LBUTTONDOWN, WM_MOUSEMOVE, WM_LBUTTONUP, WM_RBUTTONDOWN, WM_RBUTTONUP, WM_MOUSEMOVE};
+        for (int i = 0; i < messages.length; i++) {
+            assertTrue(forwarder.post(windowA, messages[i], i, -i));
+            expected.add(event(windowA, messages[i], i, -i));
+        }
+        // Two identical button events in a row are both kept
+        forwarder.post(windowA, WM_LBUTTONDOWN, 1, 1);
+        forwarder.post(windowA, WM_LBUTTONDOWN, 1, 1);
+        expected.add(event(windowA, WM_LBUTTONDOWN, 1, 1));
+        expected.add(event(windowA, WM_LBUTTONDOWN, 1, 1));
+        assertEquals(0, forwarder.getCoalescedCount());
+        sink.release();
+        assertEquals(expected, sink.await(expected.size()));
+    }
+
+    @Test
+    void postingNeverBlocksOnAStalledTarget() throws InterruptedException {
+        forwarder = new MouseEventForwarder(sink, 8);
+        sink.hold();
+        forwarder.post(windowA, WM_LBUTTONDOWN, 0, 0);
+        sink.awaitHeld();
+        // The first event has left the queue, so the queue takes 8 more events and drops the rest
+        long start = System.nanoTime();
+        int accepted = 0;
+        for (int i = 0; i < 10000; i++)
+            if (forwarder.post(windowA, i % 2 == 0 ? WM_LBUTTONUP : WM_LBUTTONDOWN, i, i))
+                accepted++;
+        long elapsed = System.nanoTime() - start;
+        assertEquals(8, accepted);
+        assertEquals(10000 - 8, forwarder.getDroppedCount());
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(1), "Posting took " + elapsed / 1000 + "us");
+        sink.release();
+        List<String> delivered = sink.await(9);
+        assertEquals(event(windowA, WM_LBUTTONUP, 0, 0), delivered.get(1));
+        assertEquals(event(windowA, WM_LBUTTONDOWN, 7, 7), delivered.get(8));
+    }
+
+    @Test
+    void latencyCoversTheDelivery() throws InterruptedException {
+        sink.delayMillis = 3;
+        forwarder = new MouseEventForwarder(sink, 16);
+        assertEquals(0, forwarder.getAverageLatencyNanos());
+        for (int i = 0; i < 5; i++) {
+            forwarder.post(windowA, WM_LBUTTONDOWN, i, i);
+            sink.await(i + 1);
+        }
+        // The counters are updated right after the delivery returns
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (forwarder.getDeliveredCount() < 5 && System.nanoTime() < deadline)
+            Thread.onSpinWait();
+        assertEquals(5, forwarder.getDeliveredCount());
+        assertTrue(forwarder.getAverageLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos(3));
+        assertTrue(forwarder.getMaxLatencyNanos() >= forwarder.getAverageLatencyNanos());
+        assertTrue(forwarder.toString().contains("Delivered: 5"));
+    }
+
+    @Test
+    void failingDeliveryDoesNotStopTheWorker() throws InterruptedException {
+        forwarder = new MouseEventForwarder((handle, msg, x, y) -> {
+            if (msg == WM_LBUTTONDOWN)
+                throw new IllegalStateException("The window has gone");
+            sink.deliver(handle, msg, x, y);
+        }, 16);
+        forwarder.post(windowA, WM_LBUTTONDOWN, 0, 0);
+        forwarder.post(windowA, WM_LBUTTONUP, 0, 0);
+        assertEquals(List.of(event(windowA, WM_LBUTTONUP, 0, 0)), sink.await(1));
+    }
+
+    @Test
+    void stoppedForwarderRejectsEvents() {
+        forwarder = new MouseEventForwarder(sink, 16);
+        forwarder.stop();
+        assertFalse(forwarder.post(windowA, WM_MOUSEMOVE, 0, 0));
+    }
+
+    private static String event(long handle, int msg, int x, int y) {
+        return Long.toHexString(handle) + " " + Integer.toHexString(msg) + " " + x + "," + y;
+    }
+
+
+    /** The sink which records the events, and which can be held to simulate a hung target window.
+     */
+    private static class FakeSink implements MouseEventForwarder.MouseEventSink {
+        private final List<String> events = new ArrayList<>();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private final CountDownLatch held = new CountDownLatch(1);
+        private volatile long delayMillis;
+
+        @Override
+        public void deliver(long handle, int msg, int x, int y) {
+            held.countDown();
+            try {
+                gate.await();
+                if (delayMillis > 0)
+                    Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (events) {
+                events.add(event(handle, msg, x, y));
+                events.notifyAll();
+            }
+        }
+
+        void hold() {
+            gate = new CountDownLatch(1);
+        }
+
+        void awaitHeld() throws InterruptedException {
+            assertTrue(held.await(5, TimeUnit.SECONDS));
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        List<String> await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            synchronized (events) {
+                while (events.size() < count && System.currentTimeMillis() < deadline)
+                    events.wait(100);
+                assertEquals(count, events.size(), "Delivered " + events);
+                return new ArrayList<>(events);
+            }
+        }
+    }
+}
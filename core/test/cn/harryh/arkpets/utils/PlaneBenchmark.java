@@ -0,0 +1,46 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.testing.Benchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Measures a fixed step of the plane with 10 to 500 barriers, against the linear scan it replaces.
+ * The object walks and falls through the scripted steps of {@link PlaneScene},
+ * and both planes must end at the same position.
+ */
+@Tag(Benchmark.tag)
+class PlaneBenchmark {
+    private static final int[] barrierCounts = {10, 50, 100, 200, 500};
+    private static final int steps = 200000;
+
+    @Test
+    void fixedStepWithBarriers() {
+        Benchmark.report("%8s %12s %12s", "barriers", "old (ns)", "new (ns)");
+        for (int count : barrierCounts) {
+            PlaneScene scene = new PlaneScene(count, count, 0, true);
+            LinearScanPlane[] reference = new LinearScanPlane[1];
+            double old = Benchmark.nanosPerOperation(steps, () -> {
+                reference[0] = new LinearScanPlane();
+                scene.apply(reference[0]);
+                for (int i = 0; i < steps; i++)
+                    scene.step(i, reference[0]);
+            });
+            Plane[] plane = new Plane[1];
+            double indexed = Benchmark.nanosPerOperation(steps, () -> {
+                plane[0] = new Plane();
+                scene.apply(plane[0]);
+                for (int i = 0; i < steps; i++)
+                    scene.step(i, plane[0]);
+            });
+            assertEquals(reference[0].getX(), plane[0].getX());
+            assertEquals(reference[0].getY(), plane[0].getY());
+            Benchmark.report("%8d %12.1f %12.1f", count, old, indexed);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** A random desktop for the plane, namely a 1920*1080 monitor and the barriers of some windows on it,
+ * together with a scripted walk of the object, so that two planes can be driven through the same steps.
+ */
+class PlaneScene {
+    static final float objWidth = 120;
+    static final float objHeight = 160;
+    static final int walkSteps = 90;
+    static final int fallSteps = 150;
+    final List<Plane.RectArea> areas = new ArrayList<>();
+    final List<float[]> barriers = new ArrayList<>();
+    final List<Boolean> overCovers = new ArrayList<>();
+
+    /** Builds a scene.
+     * @param seed The seed of the randomness.
+     * @param barrierCount The count of the barriers.
+     * @param overCoverCount The count of the over-cover barriers among them.
+     * @param topDown Whether to add the barriers in descending order of y, like the windows stacked from top to bottom.
+     */
+    PlaneScene(long seed, int barrierCount, int overCoverCount, boolean topDown) {
+        Random random = new Random(seed);
+        areas.add(new Plane.RectArea(0, 1920, 0, -1040));
+        for (int i = 0; i < barrierCount; i++) {
+            float width = 100 + random.nextFloat() * 600;
+            barriers.add(new float[]{-40 - random.nextFloat() * 1000, -100 + random.nextFloat() * 1900, width});
+        }
+        if (topDown)
+            barriers.sort(Comparator.comparingDouble(b -> -b[0]));
+        for (int i = 0; i < barrierCount; i++)
+            overCovers.add(i < overCoverCount);
+    }
+
+    /** Sets up the given plane with the physics of the scene, its areas and its barriers.
+     * @param plane The plane to set up.
+     */
+    void apply(Plane plane) {
+        plane.setGravity(1000);
+        plane.setFrict(100, 500);
+        plane.setObjSize(objWidth, objHeight);
+        plane.setSpeedLimit(2000, 4000);
+        for (Plane.RectArea area : areas)
+            plane.addWorldArea(area);
+        for (int i = 0; i < barriers.size(); i++)
+            plane.setBarrier(barriers.get(i)[0], barriers.get(i)[1], barriers.get(i)[2], overCovers.get(i));
+        plane.changePosition(0, 900, -200);
+    }
+
+    /** Sets up the given plane, the same as {@link #apply(Plane)}.
+     * @param plane The plane to set up.
+     */
+    void apply(LinearScanPlane plane) {
+        plane.setGravity(1000);
+        plane.setFrict(100, 500);
+        plane.setObjSize(objWidth, objHeight);
+        plane.setSpeedLimit(2000, 4000);
+        plane.world.addAll(areas);
+        for (int i = 0; i < barriers.size(); i++)
+            plane.setBarrier(barriers.get(i)[0], barriers.get(i)[1], barriers.get(i)[2], overCovers.get(i));
+        plane.changePosition(0, 900, -200);
+    }
+
+    /** Runs a step of the scripted walk. The object walks for a while like the character does,
+     * then it is dropped from somewhere near the top and falls freely.
+     * @param step The index of the step.
+     * @param plane The plane to drive.
+     */
+    void step(int step, Plane plane) {
+        int phase = step % (walkSteps + fallSteps);
+        if (phase < walkSteps)
+            plane.changePosition(physicStepDuration, plane.getX() + walkDistance(step), plane.getY());
+        else if (phase == walkSteps)
+            plane.changePosition(0, dropX(step), -200);
+        plane.updatePosition(physicStepDuration);
+    }
+
+    /** Runs a step of the scripted walk, the same as {@link #step(int, Plane)}.
+     * @param step The index of the step.
+     * @param plane The plane to drive.
+     */
+    void step(int step, LinearScanPlane plane) {
+        int phase = step % (walkSteps + fallSteps);
+        if (phase < walkSteps)
+            plane.changePosition(physicStepDuration, plane.getX() + walkDistance(step), plane.getY());
+        else if (phase == walkSteps)
+            plane.changePosition(0, dropX(step), -200);
+        plane.updatePosition(physicStepDuration);
+    }
+
+    private static float walkDistance(int step) {
+        return step / (walkSteps + fallSteps) % 2 == 0 ? 2.5f : -2.5f;
+    }
+
+    private static float dropX(int step) {
+        return step * 7919 % 1800;
+    }
+}
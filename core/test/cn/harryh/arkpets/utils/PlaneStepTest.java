@@ -0,0 +1,96 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static cn.harryh.arkpets.Const.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the fixed-step clock of {@link Plane}, namely the stepping, the sweep against the barriers
+ * and the interpolation between the steps.
+ */
+class PlaneStepTest {
+    private static final float barrierY = -500;
+    private static final float fallSpeed = 1000;
+
+    @Test
+    void fastFallLandsOnAThinBarrier() {
+        // The object moves 8 px a step, which is more than its height, so only the sweep can catch the barrier
+        Plane plane = newFallingPlane(2, 0);
+        for (int i = 0; i < 50; i++)
+            plane.advance(1 / 25f);
+        assertEquals(barrierY, plane.getY());
+    }
+
+    @Test
+    void landingIsTheSameAtAnyFrameRate() {
+        Plane slow = newFallingPlane(160, 1000);
+        Plane fast = newFallingPlane(160, 1000);
+        // Compare them every 0.2 s, which is 5 frames at 25 fps and 24 frames at 120 fps
+        for (int checkpoint = 0; checkpoint < 10; checkpoint++) {
+            for (int i = 0; i < 5; i++)
+                slow.advance(1 / 25f);
+            for (int i = 0; i < 24; i++)
+                fast.advance(1 / 120f);
+            // The accumulated frame times may differ by a rounding error, which is at most one step,
+            // and the object falls no faster than 3000 px/s within 2 s
+            assertEquals(fast.getY(), slow.getY(), 3000 * physicStepDuration, "Checkpoint " + checkpoint);
+        }
+        assertEquals(barrierY, slow.getY());
+        assertEquals(barrierY, fast.getY());
+    }
+
+    @Test
+    void longHitchRunsBoundedSteps() {
+        Plane plane = newFallingPlane(2, 0);
+        plane.clearBarriers();
+        float y = plane.getY();
+        plane.advance(5);
+        assertEquals(fallSpeed * physicStepDuration * physicMaxSubsteps, y - plane.getY(), 0.01f);
+        // The time beyond the bound is dropped rather than carried over
+        y = plane.getY();
+        plane.advance(0);
+        assertEquals(y, plane.getY());
+    }
+
+    @Test
+    void interpolatedPositionStaysBetweenTheLastTwoSteps() {
+        Plane plane = newFallingPlane(2, 0);
+        plane.clearBarriers();
+        plane.advance(physicStepDuration);
+        Random random = new Random(7);
+        float stepDistance = fallSpeed * physicStepDuration;
+        float lastInterpolated = plane.getInterpolatedY();
+        for (int i = 0; i < 1000; i++) {
+            plane.advance(0.001f + random.nextFloat() * 0.05f);
+            float interpolated = plane.getInterpolatedY();
+            assertTrue(interpolated <= plane.getY() + stepDistance + 0.01f && interpolated >= plane.getY() - 0.01f,
+                    "Frame " + i + ": " + interpolated + " not within the step to " + plane.getY());
+            assertTrue(interpolated <= lastInterpolated, "Frame " + i + " moved backward");
+            assertEquals(plane.getX(), plane.getInterpolatedX());
+            lastInterpolated = interpolated;
+        }
+    }
+
+    /** Creates a plane with a tall world and a thin full-width barrier, in which the object falls from the top.
+     * @param objHeight The height of the object.
+     * @param gravity The gravity, 0 to make the object fall at the constant speed.
+     */
+    private static Plane newFallingPlane(float objHeight, float gravity) {
+        Plane plane = new Plane();
+        plane.addWorldArea(new Plane.RectArea(0, 1920, 0, -100000));
+        plane.setObjSize(100, objHeight);
+        plane.setGravity(gravity);
+        plane.setFrict(0, 0);
+        plane.setBarrier(barrierY, 0, 1920, false);
+        // Give the object the fall speed by moving it 10 px in 0.01 s, so that it starts from y=-100
+        plane.changePosition(0, 100, -90);
+        plane.changePosition(10 / fallSpeed, 100, -100);
+        return plane;
+    }
+}
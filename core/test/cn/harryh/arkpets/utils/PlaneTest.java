@@ -0,0 +1,131 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Compares the indexed border queries of {@link Plane} with the linear scan they replace.
+ * <p>
+ * The two agree as long as the barriers are added from top to bottom, since the linear scan takes the first barrier
+ * in the order of addition while the index takes the highest one. With any other order, the index still
+ * takes the highest barrier below the object, which is the intended change.
+ */
+class PlaneTest {
+    private static final int[] barrierCounts = {10, 50, 100, 200, 500};
+    private static final int steps = 20000;
+
+    @Test
+    void bordersMatchLinearScanForTopDownBarriers() {
+        for (int count : barrierCounts) {
+            PlaneScene scene = new PlaneScene(count, count, 3, true);
+            Plane plane = new Plane();
+            scene.apply(plane);
+            LinearScanPlane reference = new LinearScanPlane();
+            scene.apply(reference);
+            for (float x = -50; x < 1950; x += 37) {
+                for (float y = -1100; y < 50; y += 23) {
+                    plane.changePosition(0, x, y);
+                    reference.changePosition(0, x, y);
+                    String at = count + " barriers at " + x + ", " + y;
+                    assertEquals(reference.getX(), plane.getX(), at);
+                    assertEquals(reference.getY(), plane.getY(), at);
+                    assertEquals(reference.borderTop(), plane.borderTop(), at);
+                    assertEquals(reference.borderBottom(), plane.borderBottom(), at);
+                    assertEquals(reference.borderLeft(), plane.borderLeft(), at);
+                    assertEquals(reference.borderRight(), plane.borderRight(), at);
+                }
+            }
+        }
+    }
+
+    @Test
+    void trajectoryMatchesLinearScanForTopDownBarriers() {
+        for (int count : barrierCounts) {
+            PlaneScene scene = new PlaneScene(~count, count, 3, true);
+            Plane plane = new Plane();
+            scene.apply(plane);
+            LinearScanPlane reference = new LinearScanPlane();
+            scene.apply(reference);
+            for (int i = 0; i < steps; i++) {
+                scene.step(i, plane);
+                scene.step(i, reference);
+                assertEquals(reference.getX(), plane.getX(), count + " barriers at step " + i);
+                assertEquals(reference.getY(), plane.getY(), count + " barriers at step " + i);
+            }
+        }
+    }
+
+    @Test
+    void highestBarrierBelowTheObjectWins() {
+        for (int count : barrierCounts) {
+            PlaneScene scene = new PlaneScene(count * 31L, count, 0, false);
+            Plane plane = new Plane();
+            scene.apply(plane);
+            for (float x = -50; x < 1950; x += 53) {
+                for (float y = -1100; y < 50; y += 41) {
+                    plane.changePosition(0, x, y);
+                    float ceiling = Math.min(plane.getY() + PlaneScene.objHeight, plane.borderTop() - PlaneScene.objHeight);
+                    float expected = -Float.MAX_VALUE;
+                    for (float[] b : scene.barriers)
+                        if (b[1] <= plane.getX() + PlaneScene.objWidth && plane.getX() <= b[1] + b[2] && b[0] < ceiling)
+                            expected = Math.max(expected, b[0]);
+                    if (expected != -Float.MAX_VALUE)
+                        assertEquals(expected, plane.borderBottom(), count + " barriers at " + x + ", " + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void highestBarrierWinsRegardlessOfTheOrderOfAddition() {
+        Plane plane = new Plane();
+        LinearScanPlane reference = new LinearScanPlane();
+        for (Plane.RectArea area : new PlaneScene(0, 0, 0, true).areas) {
+            plane.addWorldArea(area);
+            reference.world.add(area);
+        }
+        plane.setObjSize(100, 100);
+        reference.setObjSize(100, 100);
+        // A lower window added before a higher one
+        plane.setBarrier(-800, 0, 500, false);
+        plane.setBarrier(-300, 200, 500, false);
+        reference.setBarrier(-800, 0, 500, false);
+        reference.setBarrier(-300, 200, 500, false);
+        plane.changePosition(0, 300, -100);
+        reference.changePosition(0, 300, -100);
+        assertEquals(-800, reference.borderBottom());
+        assertEquals(-300, plane.borderBottom());
+    }
+
+    @Test
+    void overCoverBarrierTakesPrecedence() {
+        Plane plane = new Plane();
+        plane.addWorldArea(new Plane.RectArea(0, 1920, 0, -1040));
+        plane.setObjSize(100, 100);
+        plane.setBarrier(-300, 200, 500, false);
+        plane.setBarrier(-800, 0, 500, true);
+        plane.changePosition(0, 300, -100);
+        assertEquals(-800, plane.borderBottom());
+    }
+
+    @Test
+    void memoizedBordersFollowTheChanges() {
+        Plane plane = new Plane();
+        plane.addWorldArea(new Plane.RectArea(0, 1920, 0, -1040));
+        plane.setObjSize(100, 100);
+        plane.changePosition(0, 300, -100);
+        assertEquals(-1040, plane.borderBottom());
+        plane.setBarrier(-300, 200, 500, false);
+        assertEquals(-300, plane.borderBottom());
+        plane.clearBarriers();
+        assertEquals(-1040, plane.borderBottom());
+        plane.clearWorld();
+        plane.addWorldArea(new Plane.RectArea(0, 2560, 0, -1400));
+        assertEquals(-1400, plane.borderBottom());
+        assertEquals(2560, plane.borderRight());
+    }
+}
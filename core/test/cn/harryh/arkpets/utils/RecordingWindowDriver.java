@@ -0,0 +1,59 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+
+/** The in-memory implementation of the window driver, which records every call it receives,
+ * so that the native calls issued per frame can be counted without a real desktop.
+ */
+public class RecordingWindowDriver implements WindowDriver {
+    private final HashMap<Long, Integer> exStyles = new HashMap<>();
+    private final ArrayList<String> calls = new ArrayList<>();
+
+    /** Gets the calls recorded since the last clearing, in the order they were received.
+     * @return The descriptions of the calls.
+     */
+    public List<String> getCalls() {
+        return calls;
+    }
+
+    public int getCallCount() {
+        return calls.size();
+    }
+
+    public void clearCalls() {
+        calls.clear();
+    }
+
+    @Override
+    public int getExStyle(long handle) {
+        calls.add("GetExStyle " + handle);
+        return exStyles.getOrDefault(handle, 0);
+    }
+
+    @Override
+    public void setExStyle(long handle, int exStyle) {
+        calls.add("SetExStyle " + handle + " 0x" + Integer.toHexString(exStyle));
+        exStyles.put(handle, exStyle);
+    }
+
+    @Override
+    public void setAlpha(long handle, int alpha) {
+        calls.add("SetAlpha " + handle + " " + alpha);
+    }
+
+    @Override
+    public void setPosition(long handle, long insertAfter, int x, int y, int w, int h) {
+        calls.add("SetPosition " + handle + " after " + insertAfter + " @ " + x + ", " + y + " " + w + "*" + h);
+    }
+
+    @Override
+    public void setForeground(long handle) {
+        calls.add("SetForeground " + handle);
+    }
+}
@@ -0,0 +1,87 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.animations.PoseCache;
+import cn.harryh.arkpets.testing.StubBackend;
+import cn.harryh.arkpets.testing.TestModel;
+import com.badlogic.gdx.utils.Array;
+import com.esotericsoftware.spine.Animation.Timeline;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class SkeletonDataCacheTest {
+    private static final long unlimited = 64L * 1024 * 1024;
+    @TempDir
+    static Path modelDir;
+
+    @BeforeAll
+    static void writeModel() throws IOException {
+        StubBackend.install();
+        TestModel.write(modelDir);
+    }
+
+    @Test
+    void charactersOfTheSameModelShareOnePoseCache() {
+        SkeletonDataCache cache = SkeletonDataCache.getInstance();
+        SkeletonDataCache.Entry first = acquire(cache);
+        SkeletonDataCache.Entry second = acquire(cache);
+        assertSame(first, second);
+        PoseCache poseCache = first.getPoseCache(unlimited, false);
+        assertTrue(poseCache.getUsedBytes() > 0);
+        Array<Timeline> sampled = new Array<>(first.skeletonData.findAnimation("Relax").getTimelines());
+        // The second character neither samples again nor replaces the timelines once more
+        assertSame(poseCache, second.getPoseCache(unlimited, true));
+        assertEquals(sampled, second.skeletonData.findAnimation("Relax").getTimelines());
+
+        cache.release(first);
+        assertTrue(poseCache.getUsedBytes() > 0);
+        cache.release(second);
+        assertEquals(0, poseCache.getUsedBytes());
+        SkeletonDataCache.Entry reloaded = acquire(cache);
+        assertNotSame(first, reloaded);
+        cache.release(reloaded);
+    }
+
+    @Test
+    void digestFollowsThePageContent(@TempDir Path copyDir, @TempDir Path editedDir) throws IOException {
+        TestModel.write(copyDir);
+        TestModel.write(editedDir);
+        // Change the CRC of the last chunk, which keeps the length of the page and the decoded image
+        Path page = editedDir.resolve(TestModel.pageName);
+        byte[] bytes = Files.readAllBytes(page);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(page, bytes);
+
+        SkeletonDataCache cache = SkeletonDataCache.getInstance();
+        SkeletonDataCache.Entry original = acquire(cache, modelDir);
+        SkeletonDataCache.Entry copy = acquire(cache, copyDir);
+        SkeletonDataCache.Entry edited = acquire(cache, editedDir);
+        try {
+            assertEquals(original.getDigest(), copy.getDigest());
+            assertNotEquals(original.getDigest(), edited.getDigest());
+        } finally {
+            cache.release(original);
+            cache.release(copy);
+            cache.release(edited);
+        }
+    }
+
+    private static SkeletonDataCache.Entry acquire(SkeletonDataCache cache) {
+        return acquire(cache, modelDir);
+    }
+
+    private static SkeletonDataCache.Entry acquire(SkeletonDataCache cache, Path modelDir) {
+        String dir = modelDir.toAbsolutePath() + "/";
+        return cache.acquire(dir + TestModel.atlasName, dir + TestModel.skelName, 1f);
+    }
+}
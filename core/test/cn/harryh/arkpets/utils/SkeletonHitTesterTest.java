@@ -0,0 +1,288 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.testing.StubGL;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.esotericsoftware.spine.*;
+import com.esotericsoftware.spine.attachments.Attachment;
+import com.esotericsoftware.spine.attachments.MeshAttachment;
+import com.esotericsoftware.spine.attachments.RegionAttachment;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Compares the geometric hit-testing modes with the frame buffer readback they replace.
+ * <p>
+ * The readback cannot run without a GL context, so it is emulated by a software rasterizer that follows the pipeline
+ * of the character: each triangle covers the pixels whose centers are inside it, the texels are sampled at the
+ * nearest point, and the non-premultiplied blending {@code (SRC_ALPHA, ONE_MINUS_SRC_ALPHA)} writes the alpha channel
+ * of the frame buffer with 8-bit precision. A pixel is solid if its alpha is non-zero, the same as the old check.
+ */
+class SkeletonHitTesterTest {
+    private static final int canvasSize = 400;
+    private static final int textureSize = 64;
+    private static final int edgeTolerance = 2;
+
+    private static Texture texture;
+    private static SkeletonHitTester.AlphaMask mask;
+    private static byte[] maskAlpha;
+    private Skeleton skeleton;
+
+    @BeforeAll
+    static void setUpTexture() {
+        StubGL.install();
+        texture = StubGL.newTexture(textureSize, textureSize);
+        // A disc with a soft rim and a transparent square hole
+        maskAlpha = new byte[textureSize * textureSize];
+        for (int y = 0; y < textureSize; y++)
+            for (int x = 0; x < textureSize; x++) {
+                double distance = Math.hypot(x + 0.5 - textureSize / 2.0, y + 0.5 - textureSize / 2.0);
+                int alpha = distance < 26 ? 255 : distance < 30 ? (int)(255 * (30 - distance) / 4) : 0;
+                if (x >= 36 && x < 44 && y >= 20 && y < 28)
+                    alpha = 0;
+                maskAlpha[y * textureSize + x] = (byte)alpha;
+            }
+        mask = new SkeletonHitTester.AlphaMask(textureSize, textureSize, maskAlpha);
+    }
+
+    @BeforeEach
+    void setUpSkeleton() {
+        TextureRegion region = new TextureRegion(texture);
+        SkeletonData data = new SkeletonData();
+        BoneData root = new BoneData(0, "root", null);
+        BoneData arm = new BoneData(1, "arm", root);
+        arm.setPosition(50, 90);
+        arm.setRotation(30);
+        BoneData head = new BoneData(2, "head", root);
+        head.setPosition(-10, 170);
+        head.setScale(1.2f, 0.9f);
+        data.getBones().add(root);
+        data.getBones().add(arm);
+        data.getBones().add(head);
+
+        RegionAttachment body = new RegionAttachment("body");
+        body.setRegion(region);
+        body.setWidth(120);
+        body.setHeight(160);
+        body.setY(80);
+        body.updateOffset();
+        RegionAttachment limb = new RegionAttachment("arm");
+        limb.setRegion(region);
+        limb.setWidth(90);
+        limb.setHeight(45);
+        limb.setX(40);
+        limb.setRotation(-15);
+        limb.updateOffset();
+        MeshAttachment face = new MeshAttachment("head");
+        face.setRegion(region);
+        face.setRegionUVs(new float[]{0, 1, 1, 1, 1, 0, 0, 0, 0.5f, 0.5f});
+        face.setVertices(new float[]{-50, -30, 55, -40, 45, 70, -60, 60, 5, 10});
+        face.setWorldVerticesLength(10);
+        face.setTriangles(new short[]{0, 1, 4, 1, 2, 4, 2, 3, 4, 3, 0, 4});
+        face.setHullLength(4);
+        face.updateUVs();
+
+        Skin skin = new Skin("default");
+        addSlot(data, skin, 0, "body", root, body);
+        addSlot(data, skin, 1, "arm", arm, limb);
+        addSlot(data, skin, 2, "head", head, face);
+        data.setDefaultSkin(skin);
+        skeleton = new Skeleton(data);
+        skeleton.setPosition(200, 40);
+        skeleton.updateWorldTransform();
+    }
+
+    @Test
+    void geometryCoversEverySolidPixelOfReadback() {
+        for (float rotation : new float[]{0, 45, 120}) {
+            pose(rotation);
+            boolean[] readback = rasterize(skeleton);
+            SkeletonHitTester tester = new SkeletonHitTester(Map.of(texture, mask));
+            for (int y = 0; y < canvasSize; y++)
+                for (int x = 0; x < canvasSize; x++)
+                    if (readback[y * canvasSize + x])
+                        assertTrue(tester.isSolidAt(skeleton, x + 0.5f, y + 0.5f, false),
+                                "Pixel (" + x + ", " + y + ") at rotation " + rotation);
+        }
+    }
+
+    @Test
+    void geometryAlphaMatchesReadbackExceptAtEdges() {
+        for (float rotation : new float[]{0, 45, 120}) {
+            pose(rotation);
+            boolean[] readback = rasterize(skeleton);
+            SkeletonHitTester tester = new SkeletonHitTester(Map.of(texture, mask));
+            int solid = 0;
+            int mismatched = 0;
+            for (int y = 0; y < canvasSize; y++)
+                for (int x = 0; x < canvasSize; x++) {
+                    boolean expected = readback[y * canvasSize + x];
+                    if (expected)
+                        solid++;
+                    if (tester.isSolidAt(skeleton, x + 0.5f, y + 0.5f, true) == expected)
+                        continue;
+                    mismatched++;
+                    // The hit tester keeps the faint texels that the squared blending rounds to zero,
+                    // and the samples may fall into the neighbor texel on a triangle edge
+                    assertTrue(isNearEdge(readback, x, y),
+                            "Pixel (" + x + ", " + y + ") at rotation " + rotation + " is far from any edge");
+                }
+            assertTrue(solid > 10000, "The pose is too small to be compared");
+            assertTrue(mismatched < solid * 0.02, mismatched + " of " + solid + " pixels mismatched");
+        }
+    }
+
+    @Test
+    void geometryAlphaSeesTheTransparentHole() {
+        SkeletonHitTester tester = new SkeletonHitTester(Map.of(texture, mask));
+        boolean[] readback = rasterize(skeleton);
+        int holes = 0;
+        // Inside the bounding box of the body, the transparent pixels are the corners, the rim and the hole
+        for (int y = 50; y < 190; y++)
+            for (int x = 150; x < 250; x++)
+                if (!readback[y * canvasSize + x] && !isNearEdge(readback, x, y)) {
+                    holes++;
+                    assertTrue(tester.isSolidAt(skeleton, x + 0.5f, y + 0.5f, false));
+                    assertFalse(tester.isSolidAt(skeleton, x + 0.5f, y + 0.5f, true));
+                }
+        assertTrue(holes > 0);
+    }
+
+    @Test
+    void hiddenSlotsAreNotSolid() {
+        for (Slot slot : skeleton.getSlots())
+            slot.getColor().a = 0;
+        skeleton.findSlot("arm").getColor().a = 1;
+        boolean[] readback = rasterize(skeleton);
+        SkeletonHitTester tester = new SkeletonHitTester(Map.of(texture, mask));
+        for (int y = 0; y < canvasSize; y += 2)
+            for (int x = 0; x < canvasSize; x += 2)
+                if (tester.isSolidAt(skeleton, x + 0.5f, y + 0.5f, true))
+                    assertTrue(readback[y * canvasSize + x] || isNearEdge(readback, x, y));
+        // Only the two triangles of the arm are collected
+        assertEquals(2, tester.getTriangleCount());
+    }
+
+    @Test
+    void posesAreCollectedAgainOnlyAfterInvalidation() {
+        // Find the center of the arm in the new pose
+        pose(-45);
+        float[] vertices = new float[8];
+        ((RegionAttachment)skeleton.findSlot("arm").getAttachment()).computeWorldVertices(skeleton.findBone("arm"), vertices, 0, 2);
+        float centerX = (vertices[0] + vertices[2] + vertices[4] + vertices[6]) / 4;
+        float centerY = (vertices[1] + vertices[3] + vertices[5] + vertices[7]) / 4;
+        pose(30);
+        SkeletonHitTester tester = new SkeletonHitTester(Map.of(texture, mask));
+        assertFalse(tester.isSolidAt(skeleton, centerX, centerY, true));
+        pose(-45);
+        assertFalse(tester.isSolidAt(skeleton, centerX, centerY, true), "The stale pose should be kept");
+        tester.invalidate();
+        assertTrue(tester.isSolidAt(skeleton, centerX, centerY, true));
+    }
+
+    @Test
+    void geometryAlphaFallsBackToSlotAlphaWithoutMasks() {
+        SkeletonHitTester tester = new SkeletonHitTester();
+        assertFalse(tester.hasAlphaMasks());
+        for (int y = 0; y < canvasSize; y += 3)
+            for (int x = 0; x < canvasSize; x += 3)
+                assertEquals(tester.isSolidAt(skeleton, x + 0.5f, y + 0.5f, false),
+                        tester.isSolidAt(skeleton, x + 0.5f, y + 0.5f, true));
+    }
+
+    private void pose(float rotation) {
+        skeleton.setToSetupPose();
+        skeleton.findBone("arm").setRotation(rotation);
+        skeleton.findBone("head").setRotation(rotation / 3);
+        skeleton.updateWorldTransform();
+    }
+
+    private static void addSlot(SkeletonData data, Skin skin, int index, String name, BoneData bone, Attachment attachment) {
+        SlotData slot = new SlotData(index, name, bone);
+        slot.setAttachmentName(name);
+        data.getSlots().add(slot);
+        skin.setAttachment(index, name, attachment);
+    }
+
+    private static boolean isNearEdge(boolean[] image, int x, int y) {
+        boolean value = image[y * canvasSize + x];
+        for (int dy = -edgeTolerance; dy <= edgeTolerance; dy++)
+            for (int dx = -edgeTolerance; dx <= edgeTolerance; dx++) {
+                int nx = x + dx, ny = y + dy;
+                if (nx >= 0 && ny >= 0 && nx < canvasSize && ny < canvasSize && image[ny * canvasSize + nx] != value)
+                    return true;
+            }
+        return false;
+    }
+
+    /** Renders the alpha channel of the skeleton as the frame buffer would hold it.
+     */
+    private static boolean[] rasterize(Skeleton skeleton) {
+        int[] alpha = new int[canvasSize * canvasSize];
+        float[] vertices = new float[64];
+        Array<Slot> drawOrder = skeleton.getDrawOrder();
+        for (Slot slot : drawOrder) {
+            Attachment attachment = slot.getAttachment();
+            float slotAlpha = skeleton.getColor().a * slot.getColor().a;
+            float[] uvs;
+            short[] triangles;
+            if (attachment instanceof RegionAttachment region) {
+                region.computeWorldVertices(slot.getBone(), vertices, 0, 2);
+                uvs = region.getUVs();
+                triangles = new short[]{0, 1, 2, 2, 3, 0};
+            } else if (attachment instanceof MeshAttachment mesh) {
+                mesh.computeWorldVertices(slot, 0, mesh.getWorldVerticesLength(), vertices, 0, 2);
+                uvs = mesh.getUVs();
+                triangles = mesh.getTriangles();
+            } else {
+                continue;
+            }
+            for (int t = 0; t < triangles.length; t += 3)
+                rasterizeTriangle(alpha, vertices, uvs, triangles[t] << 1, triangles[t + 1] << 1, triangles[t + 2] << 1, slotAlpha);
+        }
+        boolean[] solid = new boolean[alpha.length];
+        for (int i = 0; i < alpha.length; i++)
+            solid[i] = alpha[i] > 0;
+        return solid;
+    }
+
+    private static void rasterizeTriangle(int[] target, float[] xy, float[] uv, int a, int b, int c, float slotAlpha) {
+        float area = edge(xy[a], xy[a + 1], xy[b], xy[b + 1], xy[c], xy[c + 1]);
+        if (area == 0)
+            return;
+        int x0 = Math.max(0, (int)Math.floor(Math.min(xy[a], Math.min(xy[b], xy[c]))));
+        int x1 = Math.min(canvasSize - 1, (int)Math.ceil(Math.max(xy[a], Math.max(xy[b], xy[c]))));
+        int y0 = Math.max(0, (int)Math.floor(Math.min(xy[a + 1], Math.min(xy[b + 1], xy[c + 1]))));
+        int y1 = Math.min(canvasSize - 1, (int)Math.ceil(Math.max(xy[a + 1], Math.max(xy[b + 1], xy[c + 1]))));
+        for (int y = y0; y <= y1; y++)
+            for (int x = x0; x <= x1; x++) {
+                float px = x + 0.5f, py = y + 0.5f;
+                float wa = edge(xy[b], xy[b + 1], xy[c], xy[c + 1], px, py) / area;
+                float wb = edge(xy[c], xy[c + 1], xy[a], xy[a + 1], px, py) / area;
+                float wc = 1 - wa - wb;
+                if (wa < 0 || wb < 0 || wc < 0)
+                    continue;
+                float u = wa * uv[a] + wb * uv[b] + wc * uv[c];
+                float v = wa * uv[a + 1] + wb * uv[b + 1] + wc * uv[c + 1];
+                int tx = Math.max(0, Math.min(textureSize - 1, (int)(u * textureSize)));
+                int ty = Math.max(0, Math.min(textureSize - 1, (int)(v * textureSize)));
+                float source = slotAlpha * (maskAlpha[ty * textureSize + tx] & 0xFF) / 255f;
+                float destination = target[y * canvasSize + x] / 255f;
+                float blended = source * source + destination * (1 - source);
+                target[y * canvasSize + x] = Math.round(blended * 255);
+            }
+    }
+
+    private static float edge(float ax, float ay, float bx, float by, float px, float py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+}
@@ -0,0 +1,72 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.testing.Benchmark;
+import cn.harryh.arkpets.utils.WindowBarrierBuilder.WindowRect;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static cn.harryh.arkpets.utils.WindowBarrierBuilderTest.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Measures the barriers built from 5 to 200 random windows, against the per-row marking it replaces.
+ * Each operation builds the barriers of one layout, and both must give the same barriers for every layout.
+ * <p>
+ * Both are warmed up on the layouts of all the counts first, otherwise the count measured first
+ * would take the time of the JIT compilation.
+ */
+@Tag(Benchmark.tag)
+class WindowBarrierBuilderBenchmark {
+    private static final int[] windowCounts = {5, 20, 50, 200};
+    private static final int layoutCount = 64;
+    private static final int repeats = 50;
+    private static final int borderTop = 0;
+    private static final int borderBottom = -1040;
+
+    @Test
+    void barriersOfRandomLayouts() {
+        List<List<List<WindowRect>>> layoutsOfCounts = new ArrayList<>();
+        for (int count : windowCounts) {
+            Random random = new Random(count);
+            List<List<WindowRect>> layouts = new ArrayList<>();
+            for (int i = 0; i < layoutCount; i++) {
+                List<WindowRect> windows = newLayout(random, count);
+                assertEquals(perRowBarriers(windows, borderTop, borderBottom), sweptBarriers(windows, borderTop, borderBottom));
+                layouts.add(windows);
+            }
+            layoutsOfCounts.add(layouts);
+        }
+        long[] sink = new long[1];
+        for (List<List<WindowRect>> layouts : layoutsOfCounts) {
+            buildPerRow(layouts, sink);
+            buildSwept(layouts, sink);
+        }
+        Benchmark.report("%8s %14s %14s", "windows", "per-row (us)", "sweep (us)");
+        for (int i = 0; i < windowCounts.length; i++) {
+            List<List<WindowRect>> layouts = layoutsOfCounts.get(i);
+            double perRow = Benchmark.nanosPerOperation(layoutCount * repeats, () -> buildPerRow(layouts, sink));
+            double swept = Benchmark.nanosPerOperation(layoutCount * repeats, () -> buildSwept(layouts, sink));
+            Benchmark.report("%8d %14.2f %14.2f", windowCounts[i], perRow / 1000, swept / 1000);
+        }
+        Benchmark.report("(checksum %d)", sink[0]);
+    }
+
+    private static void buildPerRow(List<List<WindowRect>> layouts, long[] sink) {
+        for (int r = 0; r < repeats; r++)
+            for (List<WindowRect> windows : layouts)
+                sink[0] += perRowBarriers(windows, borderTop, borderBottom).size();
+    }
+
+    private static void buildSwept(List<List<WindowRect>> layouts, long[] sink) {
+        for (int r = 0; r < repeats; r++)
+            for (List<WindowRect> windows : layouts)
+                sink[0] += sweptBarriers(windows, borderTop, borderBottom).size();
+    }
+}
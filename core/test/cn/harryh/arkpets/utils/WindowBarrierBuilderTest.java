@@ -0,0 +1,102 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.WindowBarrierBuilder.WindowRect;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Compares the interval sweep of {@link WindowBarrierBuilder} with the per-row marking it replaces,
+ * which recorded the window of every row in a map and then walked the rows from the top border to the bottom border.
+ */
+class WindowBarrierBuilderTest {
+    private static final int[] windowCounts = {1, 5, 20, 50, 200};
+    private static final int layoutsPerCount = 200;
+
+    @Test
+    void barriersMatchPerRowMarking() {
+        Random random = new Random(9);
+        for (int count : windowCounts) {
+            for (int layout = 0; layout < layoutsPerCount; layout++) {
+                List<WindowRect> windows = newLayout(random, count);
+                int borderTop = random.nextInt(200);
+                int borderBottom = borderTop - 400 - random.nextInt(700);
+                String at = count + " windows, layout " + layout;
+                assertEquals(perRowBarriers(windows, borderTop, borderBottom), sweptBarriers(windows, borderTop, borderBottom), at);
+            }
+        }
+    }
+
+    @Test
+    void coveredTopEdgesAreNotExposed() {
+        List<WindowRect> windows = List.of(
+                new WindowRect(0, 100, 500, 400),   // Exposed
+                new WindowRect(100, 200, 400, 300), // Inside the first one
+                new WindowRect(0, 399, 500, 600),   // Its top row is the last row of the first one
+                new WindowRect(0, 400, 500, 700),   // Its top row is covered by the previous one
+                new WindowRect(0, 50, 500, 50),     // No height
+                new WindowRect(0, 20, 500, 120)     // Below the others in z-order, but higher
+        );
+        assertArrayEquals(new int[]{5, 0}, WindowBarrierBuilder.findExposedTopEdges(windows));
+    }
+
+    /** Builds a random layout of windows on a 1920*1080 desktop.
+     * @param random The randomness.
+     * @param count The count of the windows.
+     * @return The windows in z-order.
+     */
+    static List<WindowRect> newLayout(Random random, int count) {
+        List<WindowRect> windows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int left = random.nextInt(1800);
+            int top = random.nextInt(1000) - 50;
+            // Some windows are minimized or collapsed to no height
+            int height = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(600);
+            windows.add(new WindowRect(left, top, left + 100 + random.nextInt(800), top + height));
+        }
+        return windows;
+    }
+
+    /** Applies the sweep the same way as the app does, from the highest exposed edge to the lowest.
+     */
+    static List<Integer> sweptBarriers(List<WindowRect> windows, int borderTop, int borderBottom) {
+        List<Integer> barriers = new ArrayList<>();
+        for (int i : WindowBarrierBuilder.findExposedTopEdges(windows)) {
+            WindowRect w = windows.get(i);
+            if (-w.top() > borderTop)
+                continue;
+            if (-w.top() <= borderBottom)
+                break;
+            barriers.add(i);
+        }
+        return barriers;
+    }
+
+    /** The per-row marking, where each row maps to the window whose top edge is on it,
+     * or to -1 if the row is covered by the body of a window.
+     */
+    static List<Integer> perRowBarriers(List<WindowRect> windows, int borderTop, int borderBottom) {
+        HashMap<Integer, Integer> line = new HashMap<>();
+        for (int i = 0; i < windows.size(); i++) {
+            WindowRect w = windows.get(i);
+            for (int h = -w.top(); h > -w.bottom(); h--)
+                if (!line.containsKey(h))
+                    line.put(h, h == -w.top() ? i : -1);
+        }
+        List<Integer> barriers = new ArrayList<>();
+        for (int h = borderTop; h > borderBottom; h--) {
+            Integer i = line.get(h);
+            if (i != null && i >= 0)
+                barriers.add(i);
+        }
+        return barriers;
+    }
+}
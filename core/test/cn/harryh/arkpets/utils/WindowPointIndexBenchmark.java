@@ -0,0 +1,86 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.testing.Benchmark;
+import cn.harryh.arkpets.utils.FakeWindowSource.FakeWindow;
+import cn.harryh.arkpets.utils.HWndCtrl.NumberedTitleManager;
+import cn.harryh.arkpets.utils.WindowSnapshotCache.WindowSnapshot;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static cn.harryh.arkpets.Const.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Measures the point queries of {@link WindowPointIndex} on 200 random windows of a 3840*2160 desktop,
+ * against a linear scan of the snapshots in z-order. Both must find the same window for every point.
+ */
+@Tag(Benchmark.tag)
+class WindowPointIndexBenchmark {
+    static final int windowCount = 200;
+    static final int pointCount = 4096;
+
+    @Test
+    void pointQueriesOnTwoHundredWindows() {
+        WindowSnapshotCache cache = newDesktop(new Random(11), windowCount);
+        WindowPointIndex index = new WindowPointIndex(cache);
+        Random random = new Random(12);
+        int[] xs = new int[pointCount];
+        int[] ys = new int[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            xs[i] = random.nextInt(3840);
+            ys[i] = random.nextInt(2160);
+            assertSame(findLinearly(cache, xs[i], ys[i]), index.find(xs[i], ys[i]));
+        }
+        long[] sink = new long[1];
+        double linear = Benchmark.nanosPerOperation(pointCount * 100, () -> {
+            for (int r = 0; r < 100; r++)
+                for (int i = 0; i < pointCount; i++) {
+                    WindowSnapshot w = findLinearly(cache, xs[i], ys[i]);
+                    sink[0] += w == null ? 0 : w.handle();
+                }
+        });
+        double indexed = Benchmark.nanosPerOperation(pointCount * 100, () -> {
+            for (int r = 0; r < 100; r++)
+                for (int i = 0; i < pointCount; i++) {
+                    WindowSnapshot w = index.find(xs[i], ys[i]);
+                    sink[0] += w == null ? 0 : w.handle();
+                }
+        });
+        assertEquals(1, index.getRebuildCount());
+        Benchmark.report("%8s %12s %12s", "windows", "linear (ns)", "index (ns)");
+        Benchmark.report("%8d %12.1f %12.1f", windowCount, linear, indexed);
+        Benchmark.report("(checksum %d)", sink[0]);
+    }
+
+    /** Builds a desktop of random windows, where every tenth window is a peer.
+     * @param random The randomness.
+     * @param count The count of the windows.
+     * @return The refreshed cache of the desktop.
+     */
+    static WindowSnapshotCache newDesktop(Random random, int count) {
+        FakeWindowSource source = new FakeWindowSource();
+        for (int i = 0; i < count; i++) {
+            int left = random.nextInt(3600) - 100;
+            int top = random.nextInt(2000) - 50;
+            String title = i % 10 == 0 ? appName + " (" + (i + 2) + ")" : "Window " + i;
+            source.put(new FakeWindow(i + 1, title, left, top, left + 50 + random.nextInt(900), top + 50 + random.nextInt(700)));
+        }
+        WindowSnapshotCache cache = new WindowSnapshotCache(source, new NumberedTitleManager(appName));
+        cache.refresh();
+        return cache;
+    }
+
+    /** Finds the topmost non-peer window at the given point by scanning every snapshot.
+     */
+    static WindowSnapshot findLinearly(WindowSnapshotCache cache, int x, int y) {
+        for (WindowSnapshot w : cache.getWindows())
+            if (w.peerNumber() < 0 && w.contains(x, y))
+                return w;
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class WindowPointIndexTest {
+    @Test
+    void findsTheSameWindowAsLinearScan() {
+        for (int count : new int[]{0, 1, 10, 200}) {
+            WindowSnapshotCache cache = WindowPointIndexBenchmark.newDesktop(new Random(count), count);
+            WindowPointIndex index = new WindowPointIndex(cache);
+            Random random = new Random(~count);
+            for (int i = 0; i < WindowPointIndexBenchmark.pointCount; i++) {
+                int x = random.nextInt(4000) - 80;
+                int y = random.nextInt(2300) - 70;
+                assertSame(WindowPointIndexBenchmark.findLinearly(cache, x, y), index.find(x, y), count + " windows at " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    void rebuildsOnlyWhenTheSnapshotsChange() {
+        WindowSnapshotCache cache = WindowPointIndexBenchmark.newDesktop(new Random(3), 20);
+        WindowPointIndex index = new WindowPointIndex(cache);
+        index.find(0, 0);
+        cache.refresh();
+        index.find(0, 0);
+        assertEquals(1, index.getRebuildCount());
+    }
+}
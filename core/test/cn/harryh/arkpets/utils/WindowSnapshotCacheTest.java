@@ -0,0 +1,117 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.FakeWindowSource.FakeWindow;
+import cn.harryh.arkpets.utils.HWndCtrl.NumberedTitleManager;
+import cn.harryh.arkpets.utils.WindowSnapshotCache.WindowSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static cn.harryh.arkpets.Const.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class WindowSnapshotCacheTest {
+    private FakeWindowSource source;
+    private WindowSnapshotCache cache;
+
+    @BeforeEach
+    void setUp() {
+        source = new FakeWindowSource();
+        source.put(new FakeWindow(1, "ArkPets", 100, 100, 300, 400));
+        source.put(new FakeWindow(2, "Editor", 0, 0, 1200, 900));
+        source.put(new FakeWindow(3, "ArkPets (2)", 500, 600, 700, 900));
+        source.setForegroundHandle(2);
+        cache = new WindowSnapshotCache(source, new NumberedTitleManager(appName));
+        cache.refresh();
+    }
+
+    @Test
+    void firstRefreshReadsEveryTitle() {
+        assertEquals(3, source.getTitleReadCount());
+        assertEquals(List.of(1L, 2L, 3L), handlesOf(cache.getWindows()));
+        assertEquals(List.of(0, -1, 2), cache.getWindows().stream().map(WindowSnapshot::peerNumber).toList());
+        assertEquals("Editor", cache.getWindows().get(1).title());
+        assertEquals(2, cache.getForegroundHandle());
+        assertEquals(1, cache.getVersion());
+    }
+
+    @Test
+    void unchangedWindowsAreNotReadAgain() {
+        int version = cache.getVersion();
+        cache.refresh();
+        cache.refresh();
+        assertEquals(3, source.getTitleReadCount());
+        assertEquals(version, cache.getVersion());
+        assertEquals(3, cache.getWindows().size());
+    }
+
+    @Test
+    void onlyMovedOrResizedWindowsAreReadAgain() {
+        int version = cache.getVersion();
+        source.put(new FakeWindow(2, "Editor", 10, 0, 1210, 900));
+        cache.refresh();
+        assertEquals(4, source.getTitleReadCount());
+        assertEquals(version + 1, cache.getVersion());
+        assertEquals(10, cache.getWindows().get(1).left());
+        source.put(new FakeWindow(3, "ArkPets (2)", 500, 600, 750, 950));
+        cache.refresh();
+        assertEquals(5, source.getTitleReadCount());
+        assertEquals(version + 2, cache.getVersion());
+    }
+
+    @Test
+    void newWindowsAreReadAndZOrderChangesBumpTheVersion() {
+        int version = cache.getVersion();
+        // The first window is brought below the others, which changes the z-order but no rectangle
+        source.remove(1);
+        source.put(new FakeWindow(1, "ArkPets", 100, 100, 300, 400));
+        cache.refresh();
+        assertEquals(3, source.getTitleReadCount());
+        assertEquals(List.of(2L, 3L, 1L), handlesOf(cache.getWindows()));
+        assertEquals(version + 1, cache.getVersion());
+        source.put(new FakeWindow(4, "Browser", 0, 0, 800, 600));
+        cache.refresh();
+        assertEquals(4, source.getTitleReadCount());
+        assertEquals(version + 2, cache.getVersion());
+    }
+
+    @Test
+    void disappearedWindowsAreEvicted() {
+        int version = cache.getVersion();
+        source.remove(2);
+        cache.refresh();
+        assertEquals(List.of(1L, 3L), handlesOf(cache.getWindows()));
+        assertEquals(version + 1, cache.getVersion());
+        // A window that comes back with the same handle is a new window
+        source.put(new FakeWindow(2, "Editor", 0, 0, 1200, 900));
+        cache.refresh();
+        assertEquals(4, source.getTitleReadCount());
+    }
+
+    @Test
+    void titlesAreRevalidatedPeriodically() {
+        // The title changes in place, which is unnoticed until the next revalidation
+        source.put(new FakeWindow(3, "ArkPets (5)", 500, 600, 700, 900));
+        int version = cache.getVersion();
+        for (int i = 1; i < windowTitleRevalidateInterval - 1; i++)
+            cache.refresh();
+        assertEquals(3, source.getTitleReadCount());
+        assertEquals(2, cache.getWindows().get(2).peerNumber());
+        assertEquals(version, cache.getVersion());
+        cache.refresh();
+        assertEquals(6, source.getTitleReadCount());
+        assertEquals("ArkPets (5)", cache.getWindows().get(2).title());
+        assertEquals(5, cache.getWindows().get(2).peerNumber());
+        assertEquals(version + 1, cache.getVersion());
+        assertEquals(6f / windowTitleRevalidateInterval, cache.getTitleReadsPerRefresh(), 1e-6);
+    }
+
+    private static List<Long> handlesOf(List<WindowSnapshot> windows) {
+        return windows.stream().map(WindowSnapshot::handle).toList();
+    }
+}
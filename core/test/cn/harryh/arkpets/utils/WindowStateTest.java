@@ -0,0 +1,105 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static cn.harryh.arkpets.utils.HWndCtrl.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class WindowStateTest {
+    private static final long handle = 0x100;
+    private RecordingWindowDriver driver;
+    private WindowState state;
+
+    @BeforeEach
+    void setUp() {
+        driver = new RecordingWindowDriver();
+        driver.setExStyle(handle, WS_EX_LAYERED);
+        driver.clearCalls();
+        state = new WindowState(driver, handle);
+        assertEquals(List.of("GetExStyle " + handle), driver.getCalls());
+        driver.clearCalls();
+    }
+
+    @Test
+    void oneSetPositionPerActualChange() {
+        for (int frame = 0; frame < 100; frame++) {
+            // The window moves once every ten frames
+            state.setPosition(-1, frame / 10, 50, 200, 300);
+            state.commit();
+        }
+        assertEquals(10, driver.getCallCount());
+        assertTrue(driver.getCalls().stream().allMatch(call -> call.startsWith("SetPosition ")));
+        assertEquals(10, driver.getCalls().stream().distinct().count());
+        // A new anchor or size is a change as well, while the same values are not
+        state.setPosition(0x200, 9, 50, 200, 300);
+        assertEquals(1, state.commit());
+        state.setPosition(0x200, 9, 50, 210, 300);
+        assertEquals(1, state.commit());
+        state.setPosition(0x200, 9, 50, 210, 300);
+        assertEquals(0, state.commit());
+    }
+
+    @Test
+    void invalidatedZOrderIsAppliedAgainOnce() {
+        state.setPosition(-1, 10, 10, 200, 300);
+        state.commit();
+        state.invalidateZOrder();
+        state.setPosition(-1, 10, 10, 200, 300);
+        assertEquals(1, state.commit());
+        assertEquals(0, state.commit());
+        assertEquals(2, driver.getCallCount());
+    }
+
+    @Test
+    void unchangedExStyleIssuesNoCalls() {
+        for (int frame = 0; frame < 100; frame++) {
+            state.setExStyleFlags(WS_EX_LAYERED, true);
+            state.setExStyleFlags(WS_EX_TRANSPARENT, false);
+            state.commit();
+        }
+        assertEquals(0, driver.getCallCount());
+        // Flags which are toggled back within a frame are not a change
+        state.setExStyleFlags(WS_EX_TOOLWINDOW, true);
+        state.setExStyleFlags(WS_EX_TOOLWINDOW, false);
+        assertEquals(0, state.commit());
+        state.setExStyleFlags(WS_EX_TRANSPARENT, true);
+        assertEquals(1, state.commit());
+        assertEquals(List.of("SetExStyle " + handle + " 0x" + Integer.toHexString(WS_EX_LAYERED | WS_EX_TRANSPARENT)), driver.getCalls());
+        assertEquals(0, state.commit());
+    }
+
+    @Test
+    void changesAreAppliedInOneBatchOnCommit() {
+        state.setExStyleFlags(WS_EX_TOPMOST, true);
+        state.setPosition(-1, 10, 10, 200, 300);
+        state.setAlpha(0.5f);
+        state.setPosition(-1, 20, 10, 200, 300);
+        state.setAlpha(0.75f);
+        // Nothing reaches the window until the commit
+        assertEquals(0, driver.getCallCount());
+        assertEquals(3, state.commit());
+        assertEquals(List.of(
+                "SetExStyle " + handle + " 0x" + Integer.toHexString(WS_EX_LAYERED | WS_EX_TOPMOST),
+                "SetPosition " + handle + " after -1 @ 20, 10 200*300",
+                "SetAlpha " + handle + " " + (int)(0.75f * 255)
+        ), driver.getCalls());
+        assertEquals(0, state.commit());
+    }
+
+    @Test
+    void windowWithoutHandleIssuesNoCalls() {
+        WindowState none = new WindowState(driver, 0);
+        none.setPosition(-1, 10, 10, 200, 300);
+        none.setAlpha(0);
+        none.setExStyle(WS_EX_LAYERED);
+        assertEquals(0, none.commit());
+        assertEquals(0, driver.getCallCount());
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Objects;
 import java.util.UUID;
 
 import static cn.harryh.arkpets.Const.*;
+import static cn.harryh.arkpets.LauncherConst.*;
 
 
 /** ArkPets Homepage the JavaFX app.
@@ -44,7 +45,7 @@ public class ArkHomeFX extends Application {
     public SettingsModule settingsModule;
 
     static {
-        FontsConfig.loadFontsToJavafx();
+        loadFontsToJavafx();
     }
 
     @Override
@@ -91,7 +92,7 @@ public class ArkHomeFX extends Application {
                             socketClient.sendRequest(SocketData.ofOperation(UUID.randomUUID(), SocketData.Operation.ACTIVATE_LAUNCHER));
                             socketClient.disconnect();
                         },
-                        new SocketClient.ClientSocketSession(socketClient, null));
+                        new SocketClient.ClientSocketSession(socketClient));
                 // Explicitly cancel the followed initialization in this start method.
                 Platform.exit();
                 return;
@@ -117,6 +118,7 @@ public class ArkHomeFX extends Application {
 
             // Post initialization.
             rootModule.syncRemoteMetaInfo();
+            rootModule.startStandbyCore();
             rootModule.moduleWrapperComposer.activate(0);
 
             Logger.info("Launcher", "Finished starting");
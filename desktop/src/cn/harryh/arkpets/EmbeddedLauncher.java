@@ -3,17 +3,32 @@
  */
 package cn.harryh.arkpets;
 
+import cn.harryh.arkpets.concurrent.SocketClient;
+import cn.harryh.arkpets.concurrent.SocketData;
+import cn.harryh.arkpets.tray.MemberTrayImpl;
 import cn.harryh.arkpets.utils.ArgPending;
 import cn.harryh.arkpets.utils.Logger;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3NativesLoader;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3WindowConfiguration;
 import com.badlogic.gdx.graphics.Color;
+import com.esotericsoftware.spine.AnimationState;
+import com.esotericsoftware.spine.SkeletonBinary;
+import com.esotericsoftware.spine.utils.TwoColorPolygonBatch;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.system.MemoryUtil;
 
+import java.lang.management.ManagementFactory;
 import java.nio.charset.Charset;
 import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static cn.harryh.arkpets.Const.*;
 
@@ -23,6 +38,12 @@ import static cn.harryh.arkpets.Const.*;
  */
 public class EmbeddedLauncher {
     // Please note that on macOS your application needs to be started with the -XstartOnFirstThread JVM argument
+    static final Class<?>[] standbyPreloadClasses = {
+            Lwjgl3Application.class, ArkPets.class, ArkChar.class, MemberTrayImpl.class,
+            SkeletonBinary.class, AnimationState.class, TwoColorPolygonBatch.class
+    };
+    private static boolean isStandby = false;
+    private static long launchRequestTime = 0;
 
     public static void main (String[] args) {
         ArgPending.argCache = args;
@@ -52,27 +73,24 @@ public class EmbeddedLauncher {
                 Logger.setLevel(Logger.DEBUG);
             }
         };
+        new ArgPending(standbyArg, args) {
+            protected void process(String command, String addition) {
+                isStandby = true;
+            }
+        };
+        new ArgPending(launchTimeArg, args) {
+            protected void process(String command, String addition) {
+                try {
+                    launchRequestTime = Long.parseLong(addition);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        };
         Logger.info("System", "Entering the app of EmbeddedLauncher");
         Logger.info("System", "ArkPets version is " + appVersion);
         Logger.debug("System", "Default charset is " + Charset.defaultCharset());
 
         try {
-            Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
-            // Configure FPS
-            config.setForegroundFPS(fpsDefault);
-            config.setIdleFPS(fpsDefault);
-            // Configure window layout
-            config.setDecorated(false);
-            config.setResizable(false);
-            config.setWindowedMode(coreWidthDefault, coreHeightDefault);
-            config.setWindowPosition(0, 0);
-            // Configure window title
-            final String TITLE = coreTitleManager.getIdleTitle();
-            config.setTitle(TITLE);
-            // Configure window display
-            config.setInitialVisible(true);
-            config.setTransparentFramebuffer(true);
-            config.setInitialBackgroundColor(Color.CLEAR);
             // Handle GLFW error
             GLFW.glfwSetErrorCallback(new GLFWErrorCallback() {
                 @Override
@@ -83,13 +101,155 @@ public class EmbeddedLauncher {
                     }
                 }
             });
+            // Wait for the model assignment if this process is a standby one
+            ArkConfig arkConfig = ArkConfig.getConfig();
+            String launchPath = "cold start" + getClassDataSharingState();
+            if (isStandby) {
+                LaunchRequest request = standby();
+                if (request == null) {
+                    Logger.info("System", "Exited from standby since the launcher has gone");
+                    System.exit(0);
+                }
+                arkConfig = request.config();
+                launchRequestTime = request.requestTime();
+                launchPath = "standby" + getClassDataSharingState();
+            } else if (launchRequestTime > 0) {
+                // Connect early, so that the launcher can learn the lifecycle of this process as soon as possible
+                SocketClient client = SocketClient.getShared();
+                client.connect(null, new SocketClient.ClientSocketSession(client));
+            }
+            Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
+            // Configure FPS
+            config.setForegroundFPS(fpsDefault);
+            config.setIdleFPS(suspendIdleFps);
+            // Configure window layout, title and display
+            final String TITLE = coreTitleManager.getIdleTitle();
+            configureWindow(config, TITLE);
+            config.setTransparentFramebuffer(true);
+            // Host the later launches in this process if enabled
+            if (arkConfig != null && arkConfig.launcher_shared_core)
+                SocketClient.getShared().setLaunchHandler(EmbeddedLauncher::launchHosted, SocketData.Operation.HOSTING);
+            else if (isStandby)
+                SocketClient.getShared().setLaunchHandler(null, null);
             // Instantiate the App
-            Lwjgl3Application app = new Lwjgl3Application(new ArkPets(TITLE), config);
+            ArkPets arkPets = new ArkPets(TITLE, arkConfig);
+            if (launchRequestTime > 0)
+                arkPets.setLaunchRequest(launchRequestTime, launchPath);
+            Lwjgl3Application app = new Lwjgl3Application(arkPets, config);
         } catch (Exception e) {
             Logger.error("System", "An fatal error occurs in the runtime of Lwjgl3Application, details see below.", e);
+            if (launchRequestTime > 0)
+                SocketClient.getShared().sendLifecycle(launchRequestTime, SocketData.LifecycleEvent.FATAL_ERROR, String.valueOf(e.getMessage()));
             System.exit(-1);
         }
         Logger.info("System", "Exited from EmbeddedLauncher successfully");
         System.exit(0);
     }
+
+    /** Configures the layout, the title and the display of an ArkPets window.
+     * @param config The window configuration.
+     * @param title The title of the window.
+     */
+    private static void configureWindow(Lwjgl3WindowConfiguration config, String title) {
+        config.setDecorated(false);
+        config.setResizable(false);
+        config.setWindowedMode(coreWidthDefault, coreHeightDefault);
+        config.setWindowPosition(0, 0);
+        config.setTitle(title);
+        config.setInitialVisible(true);
+        config.setInitialBackgroundColor(Color.CLEAR);
+    }
+
+    /** Gets the state of the class data sharing of this process, which is used by the startup-time report.
+     * @return The suffix to the launch path.
+     */
+    private static String getClassDataSharingState() {
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("-XX:SharedArchiveFile="))
+                return ", class data archived";
+            if (arg.startsWith("-XX:ArchiveClassesAtExit="))
+                return ", recording class data";
+        }
+        return "";
+    }
+
+    /** Pre-initializes the things which every launch needs regardless of the model,
+     * and then waits until the launcher assigns a model to this process.
+     * @return The launch request, or {@code null} if the launcher has disconnected.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static LaunchRequest standby() throws InterruptedException {
+        Logger.info("System", "Entering standby");
+        long startTime = System.currentTimeMillis();
+        Lwjgl3NativesLoader.load();
+        if (!GLFW.glfwInit())
+            Logger.warn("System", "Failed to initialize GLFW in standby");
+        for (Class<?> clazz : standbyPreloadClasses) {
+            try {
+                Class.forName(clazz.getName(), true, EmbeddedLauncher.class.getClassLoader());
+            } catch (ClassNotFoundException ignored) {
+            }
+        }
+        Logger.info("System", "Standby pre-initialized in " + (System.currentTimeMillis() - startTime) + "ms");
+        // Wait for the launch request via the shared session, which will be reused by the ArkPets instance later
+        BlockingQueue<SocketData> requests = new LinkedBlockingQueue<>();
+        SocketClient client = SocketClient.getShared();
+        client.connect(null, new SocketClient.ClientSocketSession(client));
+        client.setLaunchHandler(requests::offer, SocketData.Operation.STANDBY);
+        while (client.isConnected()) {
+            SocketData socketData = requests.poll(standbyPollInterval, TimeUnit.MILLISECONDS);
+            LaunchRequest request = socketData == null ? null : LaunchRequest.of(socketData);
+            if (request != null)
+                return request;
+        }
+        return null;
+    }
+
+    /** Opens a new window in this process for the ArkPets instance requested by the launcher.
+     * The new window shares the OpenGL context group, the model assets and the socket session with the existing ones.
+     * @param socketData The launch request which contains the config to use.
+     */
+    private static void launchHosted(SocketData socketData) {
+        LaunchRequest request = LaunchRequest.of(socketData);
+        if (request == null)
+            return;
+        ArkConfig config = request.config();
+        Gdx.app.postRunnable(() -> {
+            try {
+                // The title is decided on the main thread, where the windows are created
+                final String TITLE = coreTitleManager.getIdleTitle();
+                Logger.info("System", "Hosting " + config.character_asset + " as \"" + TITLE + "\"");
+                Lwjgl3WindowConfiguration windowConfig = new Lwjgl3WindowConfiguration();
+                configureWindow(windowConfig, TITLE);
+                ArkPets arkPets = new ArkPets(TITLE, config);
+                arkPets.setLaunchRequest(request.requestTime(), "hosted");
+                // The main thread renders the other pets too, so it must not block in the loading queue
+                arkPets.setLoadingQueued(false);
+                ((Lwjgl3Application)Gdx.app).newWindow(arkPets, windowConfig);
+            } catch (RuntimeException e) {
+                Logger.error("System", "Failed to open a hosted window, details see below.", e);
+                SocketClient.getShared().sendLifecycle(request.requestTime(), SocketData.LifecycleEvent.FATAL_ERROR, String.valueOf(e.getMessage()));
+            }
+        });
+    }
+
+
+    private record LaunchRequest(ArkConfig config, long requestTime) {
+        /** Parses a launch request.
+         * @param socketData The socket data of the {@code LAUNCH} operation.
+         * @return The launch request, or {@code null} if it is malformed.
+         */
+        static LaunchRequest of(SocketData socketData) {
+            try {
+                JSONObject payload = JSONObject.parseObject(socketData.getMsgString());
+                ArkConfig config = payload.getObject("config", ArkConfig.class);
+                if (config != null)
+                    return new LaunchRequest(config, payload.getLongValue("requestTime"));
+            } catch (JSONException e) {
+                Logger.error("System", "Failed to parse the launch request, details see below.", e);
+            }
+            Logger.error("System", "Received a malformed launch request");
+            return null;
+        }
+    }
 }
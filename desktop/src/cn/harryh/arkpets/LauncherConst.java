@@ -0,0 +1,25 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets;
+
+import javafx.scene.text.Font;
+import javafx.util.Duration;
+
+import static cn.harryh.arkpets.Const.FontsConfig.*;
+
+
+/** Launcher constants definition class, which holds the constants depending on JavaFX.
+ * The core process never touches this class, so that JavaFX will not be loaded there.
+ * @since ArkPets 3.2
+ */
+public final class LauncherConst {
+    // Duration presets
+    public static final Duration durationFast   = new Duration(150);
+    public static final Duration durationNormal = new Duration(300);
+
+    public static void loadFontsToJavafx() {
+        Font.loadFont(LauncherConst.class.getResourceAsStream(fontFileRegular), Font.getDefault().getSize());
+        Font.loadFont(LauncherConst.class.getResourceAsStream(fontFileBold), Font.getDefault().getSize());
+    }
+}
@@ -8,6 +8,7 @@ import cn.harryh.arkpets.ArkHomeFX;
 import cn.harryh.arkpets.utils.GuiComponents;
 import cn.harryh.arkpets.utils.GuiPrefabs;
 import cn.harryh.arkpets.utils.Logger;
+import cn.harryh.arkpets.utils.MonitorTopology;
 import com.jfoenix.controls.*;
 import javafx.concurrent.ScheduledService;
 import javafx.concurrent.Task;
@@ -19,7 +20,7 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.HBox;
 import javafx.util.Duration;
 
-import static cn.harryh.arkpets.Const.durationFast;
+import static cn.harryh.arkpets.LauncherConst.durationFast;
 
 
 public final class BehaviorModule implements Controller<ArkHomeFX> {
@@ -225,7 +226,7 @@ public final class BehaviorModule implements Controller<ArkHomeFX> {
                     }
                 };
                 task.setOnSucceeded(e ->
-                        configDeployMultiMonitorsStatus.setText("Detected " + ArkConfig.Monitor.getMonitors().length + " displays"));
+                        configDeployMultiMonitorsStatus.setText("Detected " + MonitorTopology.getInstance().getMonitors().length + " displays"));
                 return task;
             }
         };
@@ -7,14 +7,19 @@ import cn.harryh.arkpets.ArkConfig;
 import cn.harryh.arkpets.ArkHomeFX;
 import cn.harryh.arkpets.EmbeddedLauncher;
 import cn.harryh.arkpets.concurrent.ProcessPool;
+import cn.harryh.arkpets.concurrent.SocketData;
+import cn.harryh.arkpets.concurrent.SocketServer;
 import cn.harryh.arkpets.guitasks.CheckAppUpdateTask;
 import cn.harryh.arkpets.guitasks.GuiTask;
 import cn.harryh.arkpets.utils.ArgPending;
 import cn.harryh.arkpets.utils.GuiPrefabs;
+import cn.harryh.arkpets.utils.LaunchTracker;
 import cn.harryh.arkpets.utils.Logger;
+import cn.harryh.arkpets.utils.MemoryBudget;
+import cn.harryh.arkpets.utils.MemoryFootprint;
+import com.alibaba.fastjson.JSON;
 import com.jfoenix.controls.*;
 import javafx.application.Platform;
-import javafx.concurrent.ScheduledService;
 import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -34,15 +39,20 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static cn.harryh.arkpets.Const.*;
+import static cn.harryh.arkpets.LauncherConst.*;
 import static cn.harryh.arkpets.utils.GuiComponents.Handbook;
 
 
 public final class RootModule implements Controller<ArkHomeFX> {
     public Handbook trayExitHandbook = new TrayExitHandBook();
-    public ProcessPool.UnexpectedExitCodeException lastLaunchFailed;
     public GuiPrefabs.PeerNodeComposer moduleWrapperComposer;
+    private final AtomicReference<Object> pendingStandby = new AtomicReference<>();
+    private final MemoryBudget memoryBudget = new MemoryBudget();
+    private final LaunchTracker launchTracker = new LaunchTracker();
 
     @FXML
     private StackPane root;
@@ -138,48 +148,144 @@ public final class RootModule implements Controller<ArkHomeFX> {
 
     /** Runs the EmbeddedLauncher to launch the ArkPets app.
      * It will run in multi-threading mode.
+     * The launch will be routed to the hosting core or the standby core if available.
+     * @return The launch, whose lifecycle will be reported by the ArkPets instance.
      * @see EmbeddedLauncher
      */
-    public void startArkPetsCore() {
+    public LaunchTracker.Launch startArkPetsCore() {
+        final LaunchTracker.Launch launch = launchTracker.begin(app.config.character_asset);
+        final long requestTime = launch.id;
         Task<Boolean> task = new Task<>() {
             @Override
             protected Boolean call() throws InterruptedException, ExecutionException {
-                // Update the logging level arg to match the custom value of the Launcher.
-                ArrayList<String> args = new ArrayList<>(Arrays.asList(ArgPending.argCache.clone()));
-                args.remove(LogConfig.errorArg);
-                args.remove(LogConfig.warnArg);
-                args.remove(LogConfig.infoArg);
-                args.remove(LogConfig.debugArg);
-                String temp = switch (app.config.logging_level) {
-                    case LogConfig.error -> LogConfig.errorArg;
-                    case LogConfig.warn  -> LogConfig.warnArg;
-                    case LogConfig.info  -> LogConfig.infoArg;
-                    case LogConfig.debug -> LogConfig.debugArg;
-                    default -> "";
-                };
-                args.add(temp);
+                String configJson = JSON.toJSONString(app.config);
+                // Wait until the launch fits in the memory budget.
+                MemoryFootprint estimate = MemoryBudget.estimate(app.config);
+                long budget = app.config.launcher_memory_budget * 1024L * 1024L;
+                Logger.debug("Launcher", "Estimated " + estimate);
+                if (!memoryBudget.admit(budget, estimate, memoryBudgetWaitTimeout)) {
+                    onLaunchFailed(launch, new MemoryBudget.BudgetExceededException(estimate.total(), budget));
+                    return false;
+                }
+                // Route to the existing core process if it is hosting.
+                if (app.config.launcher_shared_core && SocketServer.getInstance().requestLaunch(configJson, requestTime)) {
+                    Logger.info("Launcher", "Launching " + app.config.character_asset + " in the hosting core");
+                    return true;
+                }
+                // Route to the standby core process if it is ready, and then prepare another one.
+                if (app.config.launcher_standby_core && SocketServer.getInstance().requestStandbyLaunch(configJson, requestTime)) {
+                    Logger.info("Launcher", "Launching " + app.config.character_asset + " in the standby core");
+                    pendingStandby.set(null);
+                    startStandbyCore();
+                    return true;
+                }
                 // Start ArkPets core.
                 Logger.info("Launcher", "Launching " + app.config.character_asset);
-                Logger.debug("Launcher", "With args " + args);
-                Future<ProcessPool.ProcessResult> future = ProcessPool.getInstance().submit(EmbeddedLauncher.class, List.of(), args);
-                // ArkPets core finalized.
-                if (!future.get().isSuccess()) {
-                    int exitCode = future.get().exitValue();
-                    Logger.warn("Launcher", "Detected an abnormal finalization of an ArkPets thread (exit code " + exitCode + "). Please check the log file for details.");
-                    lastLaunchFailed = new ProcessPool.UnexpectedExitCodeException(exitCode, future.get().processId());
-                    return false;
+                ArrayList<String> args = getCoreArgs();
+                args.add(launchTimeArg);
+                args.add(String.valueOf(requestTime));
+                return runCore(launch, getCoreJvmArgs(estimate), args);
+            }
+        };
+        Thread thread = new Thread(task);
+        task.setOnFailed(e -> {
+            Logger.error("Launcher", "Detected an unexpected failure of an ArkPets thread, details see below.", task.getException());
+            launch.presented.complete(false);
+        });
+        thread.start();
+        return launch;
+    }
+
+    /** Runs an EmbeddedLauncher in standby mode if the standby core is enabled,
+     * so that the next launch can skip the startup of the JVM and the pre-initialization.
+     * It does nothing if there is already a standby core.
+     * @see EmbeddedLauncher
+     */
+    public void startStandbyCore() {
+        if (app.config == null || !app.config.launcher_standby_core || SocketServer.getInstance().hasStandby())
+            return;
+        final Object token = new Object();
+        if (!pendingStandby.compareAndSet(null, token))
+            return;
+        Task<Boolean> task = new Task<>() {
+            @Override
+            protected Boolean call() throws InterruptedException, ExecutionException {
+                Logger.info("Launcher", "Starting a standby core");
+                ArrayList<String> args = getCoreArgs();
+                args.add(standbyArg);
+                try {
+                    // The model is unknown yet, so the standby core is not sized for any model.
+                    return runCore(null, getCoreJvmArgs(null), args);
+                } finally {
+                    pendingStandby.compareAndSet(token, null);
                 }
-                Logger.debug("Launcher", "Detected a successful finalization of an ArkPets thread.");
-                return true;
             }
         };
         Thread thread = new Thread(task);
         task.setOnFailed(e ->
-                Logger.error("Launcher", "Detected an unexpected failure of an ArkPets thread, details see below.", task.getException())
+                Logger.error("Launcher", "Detected an unexpected failure of the standby core, details see below.", task.getException())
         );
         thread.start();
     }
 
+    private ArrayList<String> getCoreArgs() {
+        // Update the logging level arg to match the custom value of the Launcher.
+        ArrayList<String> args = new ArrayList<>(Arrays.asList(ArgPending.argCache.clone()));
+        args.remove(LogConfig.errorArg);
+        args.remove(LogConfig.warnArg);
+        args.remove(LogConfig.infoArg);
+        args.remove(LogConfig.debugArg);
+        String temp = switch (app.config.logging_level) {
+            case LogConfig.error -> LogConfig.errorArg;
+            case LogConfig.warn  -> LogConfig.warnArg;
+            case LogConfig.info  -> LogConfig.infoArg;
+            case LogConfig.debug -> LogConfig.debugArg;
+            default -> "";
+        };
+        args.add(temp);
+        return args;
+    }
+
+    /** Gets the JVM arguments of a core process.
+     * A core which may host the later launches, or whose model is unknown, gets a fixed heap size,
+     * since it may run any model, and more than one of them.
+     * @param estimate The estimated footprint of the model to launch, or {@code null} if it is unknown.
+     * @return The JVM arguments.
+     */
+    private List<String> getCoreJvmArgs(MemoryFootprint estimate) {
+        if (!app.config.launcher_memory_tuning)
+            return List.of();
+        if (estimate == null || app.config.launcher_shared_core)
+            return MemoryBudget.getSharedJvmArgs();
+        return MemoryBudget.getJvmArgs(estimate);
+    }
+
+    private boolean runCore(LaunchTracker.Launch launch, List<String> jvmArgs, List<String> args) throws InterruptedException, ExecutionException {
+        Logger.debug("Launcher", "With JVM args " + jvmArgs + " and args " + args);
+        ProcessPool.getInstance().setClassDataSharing(app.config.launcher_class_data_sharing);
+        Future<ProcessPool.ProcessResult> future = ProcessPool.getInstance().submit(EmbeddedLauncher.class, jvmArgs, args);
+        // ArkPets core finalized.
+        if (!future.get().isSuccess()) {
+            int exitCode = future.get().exitValue();
+            Logger.warn("Launcher", "Detected an abnormal finalization of an ArkPets thread (exit code " + exitCode + "). Please check the log file for details.");
+            onLaunchFailed(launch, new ProcessPool.UnexpectedExitCodeException(exitCode, future.get().processId()));
+            return false;
+        }
+        Logger.debug("Launcher", "Detected a successful finalization of an ArkPets thread.");
+        if (launch != null)
+            launch.presented.complete(false);
+        return true;
+    }
+
+    /** Shows the failure of a launch to the user, unless the launch has failed before.
+     * @param launch The launch, or {@code null} if it is not a tracked launch.
+     * @param e The cause.
+     */
+    private void onLaunchFailed(LaunchTracker.Launch launch, Exception e) {
+        if (launch == null || launch.fail(e))
+            Platform.runLater(() -> GuiPrefabs.DialogUtil.createErrorDialog(app.root, e).show());
+    }
+
     /** Fetches a regular check-app-up-date request from the ArkPets server.
      */
     public void syncRemoteMetaInfo() {
@@ -234,19 +340,20 @@ public final class RootModule implements Controller<ArkHomeFX> {
             launchBtn.setDisable(true);
             app.config.save();
             if (app.config.character_asset != null && !app.config.character_asset.isEmpty()) {
-                app.popLoading(ev -> {
-                    try {
-                        // Do launch ArkPets core.
-                        startArkPetsCore();
-                        Thread.sleep(1200);
-                        // Show handbook in the first-run.
-                        if (isNewcomer && !trayExitHandbook.hasShown())
-                            trayExitHandbook.show(app.root);
-                    } catch (InterruptedException ignored) {
-                    } finally {
-                        launchBtn.setDisable(false);
-                    }
+                GuiPrefabs.fadeInNode(loadingMask, durationFast, ev -> {
+                    // Do launch ArkPets core, and wait until its first frame or its failure.
+                    startArkPetsCore().presented
+                            .completeOnTimeout(false, launchEventTimeout, TimeUnit.MILLISECONDS)
+                            .whenComplete((presented, ex) -> Platform.runLater(() -> {
+                                GuiPrefabs.fadeOutNode(loadingMask, durationFast, null);
+                                launchBtn.setDisable(false);
+                                // Show handbook in the first-run.
+                                if (isNewcomer && !trayExitHandbook.hasShown())
+                                    trayExitHandbook.show(app.root);
+                            }));
                 });
+            } else {
+                launchBtn.setDisable(false);
             }
         });
     }
@@ -270,28 +377,12 @@ public final class RootModule implements Controller<ArkHomeFX> {
     }
 
     private void initLaunchingStatusListener() {
-        ScheduledService<Boolean> ss = new ScheduledService<>() {
-            @Override
-            protected Task<Boolean> createTask() {
-                Task<Boolean> task = new Task<>() {
-                    @Override
-                    protected Boolean call() throws Exception {
-                        if (lastLaunchFailed != null) {
-                            Exception e = lastLaunchFailed;
-                            lastLaunchFailed = null;
-                            throw e;
-                        }
-                        return false;
-                    }
-                };
-                task.setOnFailed(e -> GuiPrefabs.DialogUtil.createErrorDialog(app.root, task.getException()).show());
-                return task;
-            }
-        };
-        ss.setDelay(new Duration(2000));
-        ss.setPeriod(new Duration(500));
-        ss.setRestartOnFailure(true);
-        ss.start();
+        // Receive the lifecycle events reported by the ArkPets instances.
+        SocketServer.getInstance().setLifecycleListener(lifecycle -> {
+            LaunchTracker.Launch launch = launchTracker.onEvent(lifecycle);
+            if (launch != null && lifecycle.event() == SocketData.LifecycleEvent.FATAL_ERROR)
+                onLaunchFailed(launch, new LaunchTracker.CoreFatalException(lifecycle.cause()));
+        });
     }
 
     private static class TrayExitHandBook extends Handbook {
@@ -314,7 +314,7 @@ public final class SettingsModule implements Controller<ArkHomeFX> {
         fpsUnreachableNotice = new NoticeBar(noticeBox) {
             @Override
             protected boolean isToActivate() {
-                for (ArkConfig.Monitor i : ArkConfig.Monitor.getMonitors())
+                for (ArkConfig.Monitor i : MonitorTopology.getInstance().getMonitors())
                     if (i.hz >= configDisplayFps.getValue().value())
                         return false;
                 return true;
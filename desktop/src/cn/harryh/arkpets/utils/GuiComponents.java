@@ -3,7 +3,7 @@
  */
 package cn.harryh.arkpets.utils;
 
-import cn.harryh.arkpets.Const;
+import cn.harryh.arkpets.LauncherConst;
 import com.jfoenix.controls.*;
 import javafx.animation.ScaleTransition;
 import javafx.beans.property.DoubleProperty;
@@ -332,7 +332,7 @@ public class GuiComponents {
             if (noticeBar == null) {
                 noticeBar = getNoticeBar(getWidth(), getHeight());
                 container.getChildren().add(noticeBar);
-                ScaleTransition transition = new ScaleTransition(Const.durationFast, noticeBar);
+                ScaleTransition transition = new ScaleTransition(LauncherConst.durationFast, noticeBar);
                 transition.setFromY(0.1);
                 transition.setToY(1);
                 transition.play();
@@ -343,7 +343,7 @@ public class GuiComponents {
             if (noticeBar != null) {
                 final Pane finalNoticeBar = noticeBar;
                 noticeBar = null;
-                ScaleTransition transition = new ScaleTransition(Const.durationFast, finalNoticeBar);
+                ScaleTransition transition = new ScaleTransition(LauncherConst.durationFast, finalNoticeBar);
                 transition.setFromY(1);
                 transition.setToY(0.1);
                 transition.setOnFinished(e -> container.getChildren().remove(finalNoticeBar));
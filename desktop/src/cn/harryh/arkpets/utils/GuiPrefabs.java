@@ -37,7 +37,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.zip.ZipException;
 
-import static cn.harryh.arkpets.Const.durationNormal;
+import static cn.harryh.arkpets.LauncherConst.durationNormal;
 
 
 @SuppressWarnings("unused")
@@ -0,0 +1,113 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.concurrent.SocketData.Lifecycle;
+import cn.harryh.arkpets.concurrent.SocketData.LifecycleEvent;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** The class tracks the launches of the ArkPets instances by the lifecycle events they report,
+ * and records the time each launch takes to reach every phase.
+ * <p>
+ * A launch is identified by the time it was requested, which is kept unique among the launches.
+ * @since ArkPets 3.2
+ */
+public class LaunchTracker {
+    private final Map<Long, Launch> launches = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    /** Begins tracking a new launch.
+     * @param name The name of the launch, used by the logs.
+     * @return The launch, which will be forgotten once it has finished or timed out.
+     */
+    public Launch begin(String name) {
+        long id = lastId.accumulateAndGet(System.currentTimeMillis(), (last, now) -> Math.max(last + 1, now));
+        Launch launch = new Launch(id, name);
+        launches.put(id, launch);
+        launch.presented.completeOnTimeout(false, launchRecordTimeout, TimeUnit.MILLISECONDS);
+        launch.presented.whenComplete((presented, e) -> launches.remove(id));
+        return launch;
+    }
+
+    /** Records a lifecycle event.
+     * @param lifecycle The event reported by an ArkPets instance.
+     * @return The launch it belongs to, or {@code null} if the launch is not being tracked.
+     */
+    public Launch onEvent(Lifecycle lifecycle) {
+        Launch launch = launches.get(lifecycle.launchId());
+        if (launch == null)
+            return null;
+        synchronized (launch) {
+            launch.phases.putIfAbsent(lifecycle.event(), lifecycle.time() - launch.id);
+        }
+        Logger.debug("Launcher", launch.name + " reached " + lifecycle.event());
+        if (lifecycle.event() == LifecycleEvent.FIRST_FRAME_PRESENTED) {
+            Logger.info("Launcher", "Launch timings " + launch);
+            launch.presented.complete(true);
+        }
+        return launch;
+    }
+
+
+    /** The launch of an ArkPets instance.
+     */
+    public static class Launch {
+        /** The ID of the launch, which is also the time when it was requested (ms since the epoch). */
+        public final long id;
+        /** The future which completes with true once the first frame has been presented,
+         * with false if the process has exited or nothing has been heard in time,
+         * or exceptionally if the launch has failed. */
+        public final CompletableFuture<Boolean> presented = new CompletableFuture<>();
+        private final String name;
+        private final EnumMap<LifecycleEvent, Long> phases = new EnumMap<>(LifecycleEvent.class);
+
+        private Launch(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        /** Marks the launch failed.
+         * @param e The cause.
+         * @return true if it is the first failure of the launch, which should be shown to the user.
+         */
+        public boolean fail(Exception e) {
+            boolean first = presented.completeExceptionally(e);
+            if (first)
+                Logger.warn("Launcher", "Launch failed " + this);
+            return first;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder builder = new StringBuilder(name).append(" {");
+            phases.forEach((event, elapsed) -> builder.append(event).append(": +").append(elapsed).append("ms, "));
+            if (!phases.isEmpty())
+                builder.setLength(builder.length() - 2);
+            return builder.append("}").toString();
+        }
+    }
+
+
+    public static class CoreFatalException extends Exception {
+        private final String reason;
+
+        public CoreFatalException(String reason) {
+            this.reason = reason;
+        }
+
+        @Override
+        public String getMessage() {
+            return "The ArkPets core reported a fatal error: " + reason;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.ArkConfig;
+import cn.harryh.arkpets.assets.AssetItem.AssetAccessor;
+import cn.harryh.arkpets.concurrent.SocketServer;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** The class estimates the memory which an ArkPets process will take,
+ * and admits the launches only if the total memory of the pets stays within the budget.
+ * <p>
+ * The running pets are counted by their latest footprint reports received by the {@link SocketServer}.
+ * A newly admitted pet is counted by its estimate until it should have reported by itself.
+ * @since ArkPets 3.2
+ */
+public class MemoryBudget {
+    private static final long MB = 1024L * 1024L;
+    private static final long reservationLifetime = footprintReportInterval * 6;
+    private final List<long[]> reservations = new ArrayList<>();
+
+    /** Estimates the footprint of an ArkPets instance using the given config.
+     * The textures are estimated from the image headers, so the model will not be decoded.
+     * @param config The config to launch with.
+     * @return The estimated footprint.
+     */
+    public static MemoryFootprint estimate(ArkConfig config) {
+        long pixels = 0;
+        long skelBytes = 0;
+        if (config.character_asset != null) {
+            AssetAccessor accessor = new AssetAccessor(config.character_files);
+            for (String png : accessor.getAllFilesOf(".png"))
+                pixels += getPngPixels(new File(config.character_asset, png));
+            for (String skel : accessor.getAllFilesOf(".skel"))
+                skelBytes += new File(config.character_asset, skel).length();
+        }
+        // The alpha masks for hit-testing take one byte per pixel, and the skeleton data take several times the file
+        long heap = coreHeapBaseline + pixels + skelBytes * 8;
+        if (config.display_pose_cache)
+            heap += config.display_pose_cache_size * MB;
+        if (config.display_baked_playback)
+            heap += config.display_baked_cache_size * MB;
+        return new MemoryFootprint(heap, heap, coreNativeBaseline, pixels * 4);
+    }
+
+    /** Gets the JVM arguments which size the process for the given footprint.
+     * The maximum heap leaves the same headroom as the estimate, and the serial collector is used
+     * since a pet has a small heap and a single render thread.
+     * @param estimate The estimated footprint.
+     * @return The JVM arguments.
+     */
+    public static List<String> getJvmArgs(MemoryFootprint estimate) {
+        long maxHeap = Math.max(coreHeapMin, Math.min(coreHeapMax, estimate.heapCommitted() * 2));
+        return getJvmArgs((maxHeap + 16 * MB - 1) / (16 * MB) * (16 * MB));
+    }
+
+    /** Gets the JVM arguments which size a process whose models are unknown when it starts,
+     * namely a standby core, or a core which may host the pets launched later.
+     * The maximum heap is the cap of a single pet's, so that any model fits in it.
+     * The committed heap still follows the usage, since the heap free ratios are the same as a sized process's.
+     * @return The JVM arguments.
+     */
+    public static List<String> getSharedJvmArgs() {
+        return getJvmArgs(coreHeapMax);
+    }
+
+    private static List<String> getJvmArgs(long maxHeap) {
+        return List.of(
+                "-Xmx" + maxHeap / MB + "m",
+                "-Xss" + coreThreadStackSize,
+                "-XX:+UseSerialGC",
+                "-XX:MinHeapFreeRatio=10",
+                "-XX:MaxHeapFreeRatio=30"
+        );
+    }
+
+    /** Waits until the launch of the given footprint fits in the budget, and then reserves it.
+     * A launch is always admitted if there is no other pet, even if it exceeds the budget alone.
+     * @param budget The budget of the total memory of the pets (bytes), 0=unlimited.
+     * @param estimate The estimated footprint of the launch.
+     * @param timeout The maximum time to wait (ms).
+     * @return true if admitted, false if it does not fit in time.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean admit(long budget, MemoryFootprint estimate, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (true) {
+            synchronized (this) {
+                long used = SocketServer.getInstance().getTotalFootprint() + getReserved();
+                if (budget <= 0 || used == 0 || used + estimate.total() <= budget) {
+                    reservations.add(new long[]{System.currentTimeMillis() + reservationLifetime, estimate.total()});
+                    Logger.info("MemoryBudget", "Admitted " + estimate.total() / MB + " MB, " +
+                            used / MB + "/" + (budget > 0 ? budget / MB : "unlimited") + " MB used");
+                    return true;
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    Logger.warn("MemoryBudget", "Refused " + estimate.total() / MB + " MB, " +
+                            used / MB + "/" + budget / MB + " MB used");
+                    return false;
+                }
+            }
+            Thread.sleep(memoryBudgetPollInterval);
+        }
+    }
+
+    private long getReserved() {
+        long now = System.currentTimeMillis();
+        long reserved = 0;
+        for (Iterator<long[]> iterator = reservations.iterator(); iterator.hasNext(); ) {
+            long[] reservation = iterator.next();
+            if (reservation[0] < now)
+                iterator.remove();
+            else
+                reserved += reservation[1];
+        }
+        return reserved;
+    }
+
+    private static long getPngPixels(File file) {
+        // The IHDR chunk always comes first, right after the 8-byte signature and the 8-byte chunk header
+        try (DataInputStream stream = new DataInputStream(new FileInputStream(file))) {
+            if (stream.skipBytes(16) != 16)
+                return 0;
+            return (long)stream.readInt() * stream.readInt();
+        } catch (IOException e) {
+            Logger.debug("MemoryBudget", "Failed to read the image size of " + file + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+
+    public static class BudgetExceededException extends Exception {
+        private final long required;
+        private final long budget;
+
+        public BudgetExceededException(long required, long budget) {
+            this.required = required;
+            this.budget = budget;
+        }
+
+        @Override
+        public String getMessage() {
+            return "Launching requires about " + required / MB + " MB, which exceeds the memory budget of " + budget / MB + " MB";
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets;
+
+import cn.harryh.arkpets.concurrent.SocketClient;
+import cn.harryh.arkpets.utils.ArgPending;
+import cn.harryh.arkpets.utils.Logger;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.Objects;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** Boots the core the way {@link EmbeddedLauncher} does, up to the point where a display is required.
+ * <p>
+ * It sets up the logger and the config, initializes the launcher and the classes preloaded by a standby core,
+ * parses a launch request and creates an {@link ArkPets} instance. The classes named in the arguments
+ * are initialized as well, which lets the test check that a launcher-only class is indeed detected.
+ */
+public class CoreBootProbe {
+    public static void main(String[] args) throws ClassNotFoundException {
+        ArgPending.argCache = args;
+        Logger.initialize(LogConfig.logCorePath, LogConfig.logCoreMaxKeep);
+        ArkConfig config = Objects.requireNonNull(ArkConfig.getConfig());
+        ClassLoader loader = CoreBootProbe.class.getClassLoader();
+        Class.forName(EmbeddedLauncher.class.getName(), true, loader);
+        for (Class<?> clazz : EmbeddedLauncher.standbyPreloadClasses)
+            Class.forName(clazz.getName(), true, loader);
+        Const.FontsConfig.loadFontsToSwing();
+        // The launch request carries the config as JSON, just like the one sent by the launcher
+        JSONObject payload = new JSONObject();
+        payload.put("config", config);
+        payload.put("requestTime", System.currentTimeMillis());
+        ArkConfig requested = JSONObject.parseObject(JSON.toJSONString(payload)).getObject("config", ArkConfig.class);
+        SocketClient.getShared();
+        // The idle title is found by enumerating the windows of Windows, so use the plain one instead
+        new ArkPets(appName, requested);
+        for (String name : args)
+            Class.forName(name, true, loader);
+        System.out.println("booted");
+    }
+}
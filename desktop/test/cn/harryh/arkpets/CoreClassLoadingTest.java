@@ -0,0 +1,81 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static cn.harryh.arkpets.Const.launcherOnlyPackages;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Boots the core by {@link CoreBootProbe} in a child JVM, and checks the classes it loaded by {@code -Xlog:class+load}.
+ * <p>
+ * The child runs with the full test classpath, which contains JavaFX and JFoenix,
+ * so any reference to them from the core would load them.
+ */
+class CoreClassLoadingTest {
+    private static final Pattern loadedClass = Pattern.compile("\\[class,load] (\\S+) source:");
+    @TempDir
+    Path dir;
+
+    @Test
+    void headlessCoreBootLoadsNoLauncherOnlyClass() throws Exception {
+        List<String> loaded = boot();
+        assertTrue(loaded.contains(ArkPets.class.getName()));
+        assertTrue(loaded.contains(ArkChar.class.getName()));
+        assertEquals(List.of(), getLauncherOnly(loaded));
+    }
+
+    @Test
+    void launcherOnlyClassesAreDetected() throws Exception {
+        // LauncherConst holds JavaFX durations, so initializing it must be caught
+        List<String> loaded = boot(LauncherConst.class.getName());
+        assertTrue(getLauncherOnly(loaded).contains("javafx.util.Duration"));
+    }
+
+    private List<String> boot(String... extraClasses) throws IOException, InterruptedException {
+        Path log = dir.resolve("class-load.log");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java,
+                "-Djava.awt.headless=true",
+                "-Xlog:class+load=info:file=" + log,
+                "-cp", System.getProperty("java.class.path"),
+                CoreBootProbe.class.getName()));
+        command.addAll(Arrays.asList(extraClasses));
+        Process process = new ProcessBuilder(command).directory(dir.toFile()).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+        assertEquals(0, process.exitValue(), output);
+        assertTrue(output.contains("booted"), output);
+
+        List<String> loaded = new ArrayList<>();
+        for (String line : Files.readAllLines(log)) {
+            Matcher matcher = loadedClass.matcher(line);
+            if (matcher.find())
+                loaded.add(matcher.group(1));
+        }
+        return loaded;
+    }
+
+    private static List<String> getLauncherOnly(List<String> loaded) {
+        List<String> found = new ArrayList<>();
+        for (String name : loaded)
+            for (String pkg : launcherOnlyPackages)
+                if (name.startsWith(pkg.replace('/', '.')))
+                    found.add(name);
+        return found;
+    }
+}